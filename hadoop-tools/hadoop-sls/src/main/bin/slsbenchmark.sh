@@ -0,0 +1,133 @@
+#!/bin/bash
+#
+#  Licensed under the Apache License, Version 2.0 (the "License");
+#  you may not use this file except in compliance with the License.
+#  You may obtain a copy of the License at
+#
+#    http://www.apache.org/licenses/LICENSE-2.0
+#
+#  Unless required by applicable law or agreed to in writing, software
+#  distributed under the License is distributed on an "AS IS" BASIS,
+#  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+#  See the License for the specific language governing permissions and
+#  limitations under the License. See accompanying LICENSE file.
+#
+
+###############################################################################
+printUsage() {
+  echo "Usage: slsbenchmark.sh <OPTIONS>"
+  echo "                 --input-rumen|--input-sls=<FILE1,FILE2,...>"
+  echo "                 --output-dir=<SLS_SIMULATION_OUTPUT_DIRECTORY>"
+  echo "                 [--nodes=<SLS_NODES_FILE>]"
+  echo "                 [--threads=<THREADS1,THREADS2,...>]"
+  echo
+}
+###############################################################################
+parseArgs() {
+  threads="1,2,4,8"
+  for i in $*
+  do
+    case $i in
+    --input-rumen=*)
+      inputrumen=${i#*=}
+      ;;
+    --input-sls=*)
+      inputsls=${i#*=}
+      ;;
+    --output-dir=*)
+      outputdir=${i#*=}
+      ;;
+    --nodes=*)
+      nodes=${i#*=}
+      ;;
+    --threads=*)
+      threads=${i#*=}
+      ;;
+    *)
+      echo "Invalid option"
+      echo
+      printUsage
+      exit 1
+      ;;
+    esac
+  done
+
+  if [[ "${inputrumen}" == "" && "${inputsls}" == "" ]] ; then
+    echo "Either --input-rumen or --input-sls must be specified"
+    echo
+    printUsage
+    exit 1
+  fi
+
+  if [[ "${outputdir}" == "" ]] ; then
+    echo "The output directory --output-dir must be specified"
+    echo
+    printUsage
+    exit 1
+  fi
+}
+
+###############################################################################
+calculateClasspath() {
+  HADOOP_BASE=`which hadoop`
+  HADOOP_BASE=`dirname $HADOOP_BASE`
+  DEFAULT_LIBEXEC_DIR=${HADOOP_BASE}/../libexec
+  HADOOP_LIBEXEC_DIR=${HADOOP_LIBEXEC_DIR:-$DEFAULT_LIBEXEC_DIR}
+  . $HADOOP_LIBEXEC_DIR/hadoop-config.sh
+  export HADOOP_CLASSPATH="${HADOOP_CLASSPATH}:${TOOL_PATH}:html"
+}
+###############################################################################
+# Writes a capacity-scheduler.xml that schedules asynchronously with the
+# given number of threads into the given directory, which is put in front of
+# the configuration directory on the classpath.
+writeSchedulerConf() {
+  mkdir -p $2
+  sed -e "s|</configuration>|\
+  <property>\n\
+    <name>yarn.scheduler.capacity.schedule-asynchronously.enable</name>\n\
+    <value>true</value>\n\
+  </property>\n\
+  <property>\n\
+    <name>yarn.scheduler.capacity.schedule-asynchronously.maximum-threads</name>\n\
+    <value>$1</value>\n\
+  </property>\n\
+</configuration>|" ${HADOOP_CONF_DIR}/capacity-scheduler.xml \
+    > $2/capacity-scheduler.xml
+}
+###############################################################################
+runBenchmark() {
+  if [[ "${inputsls}" == "" ]] ; then
+    args="-inputrumen ${inputrumen}"
+  else
+    args="-inputsls ${inputsls}"
+  fi
+
+  if [[ "${nodes}" != "" ]] ; then
+    args="${args} -nodes ${nodes}"
+  fi
+
+  export HADOOP_USER_CLASSPATH_FIRST=true
+  classpath=${HADOOP_CLASSPATH}
+  for t in ${threads//,/ }
+  do
+    rundir=${outputdir}/threads-${t}
+    writeSchedulerConf ${t} ${rundir}/conf
+    export HADOOP_CLASSPATH="${rundir}/conf:${classpath}"
+    hadoop org.apache.hadoop.yarn.sls.SLSRunner ${args} -output ${rundir}
+  done
+
+  # the mean rate is the third column of the last line the CsvReporter wrote
+  echo "threads allocations/s"
+  for t in ${threads//,/ }
+  do
+    meter=${outputdir}/threads-${t}/metrics/meter.scheduler.container.allocated.csv
+    echo "${t} `tail -n 1 ${meter} | cut -d, -f3`"
+  done
+}
+###############################################################################
+
+calculateClasspath
+parseArgs "$@"
+runBenchmark
+
+exit 0
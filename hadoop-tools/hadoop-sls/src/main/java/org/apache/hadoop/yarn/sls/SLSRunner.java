@@ -44,6 +44,7 @@ import org.apache.hadoop.yarn.api.records.Resource;
 import org.apache.hadoop.yarn.server.resourcemanager.rmnode.RMNode;
 import org.apache.hadoop.yarn.sls.appmaster.AMSimulator;
 import org.apache.hadoop.yarn.sls.conf.SLSConfiguration;
+import org.apache.hadoop.yarn.sls.nodemanager.ContainerUpdateStats;
 import org.apache.hadoop.yarn.sls.nodemanager.NMSimulator;
 import org.apache.hadoop.yarn.sls.scheduler.ContainerSimulator;
 import org.apache.hadoop.yarn.sls.scheduler.ResourceSchedulerWrapper;
@@ -86,6 +87,9 @@ public class SLSRunner {
   private Set<String> trackedApps;
   private Map<String, Class> amClassMap;
   private static int remainingApps = 0;
+  // outcome of the containers updated by the RM, reported at the end
+  private static ContainerUpdateStats containerUpdateStats;
+  private static String containerUpdateStatsDir;
 
   // metrics
   private String metricsOutputDir;
@@ -194,13 +198,16 @@ public class SLSRunner {
       nodeSet.addAll(SLSUtils.parseNodesFromNodeFile(nodeFile));
     }
     // create NM simulators
+    containerUpdateStats = new ContainerUpdateStats();
+    containerUpdateStatsDir = metricsOutputDir;
     Random random = new Random();
     Set<String> rackSet = new HashSet<String>();
     for (String hostName : nodeSet) {
       // we randomize the heartbeat start time from zero to 1 interval
       NMSimulator nm = new NMSimulator();
       nm.init(hostName, nmMemoryMB, nmVCores, 
-          random.nextInt(heartbeatInterval), heartbeatInterval, rm);
+          random.nextInt(heartbeatInterval), heartbeatInterval, rm, conf,
+          containerUpdateStats);
       nmMap.put(nm.getNode().getNodeID(), nm);
       runner.schedule(nm);
       rackSet.add(nm.getNode().getRackName());
@@ -471,6 +478,9 @@ public class SLSRunner {
 
     if (remainingApps == 0) {
       LOG.info("SLSRunner tears down.");
+      if (containerUpdateStats != null) {
+        containerUpdateStats.report(containerUpdateStatsDir);
+      }
       System.exit(0);
     }
   }
@@ -55,6 +55,12 @@ public class SLSConfiguration {
   public static final String NM_HEARTBEAT_INTERVAL_MS = NM_PREFIX
                                                   + "heartbeat.interval.ms";
   public static final int NM_HEARTBEAT_INTERVAL_MS_DEFAULT = 1000;
+  public static final String NM_CONTAINER_UPDATE_LATENCY_MS = NM_PREFIX
+                                          + "container-update.latency.ms";
+  public static final int NM_CONTAINER_UPDATE_LATENCY_MS_DEFAULT = 0;
+  public static final String NM_CONTAINER_SHRINK_OOM_RATIO = NM_PREFIX
+                                          + "container-shrink.oom.ratio";
+  public static final float NM_CONTAINER_SHRINK_OOM_RATIO_DEFAULT = 0f;
   // am
   public static final String AM_PREFIX = PREFIX + "am.";
   public static final String AM_HEARTBEAT_INTERVAL_MS = AM_PREFIX
@@ -0,0 +1,179 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.yarn.sls.nodemanager;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.text.MessageFormat;
+
+import org.apache.hadoop.classification.InterfaceAudience.Private;
+import org.apache.hadoop.classification.InterfaceStability.Unstable;
+import org.apache.log4j.Logger;
+
+import org.apache.hadoop.yarn.sls.scheduler.ContainerSimulator;
+
+/**
+ * Outcome of the containers of the simulated NMs, grouped by the preemption
+ * method last applied to them: never preempted, killed, shrunk or suspended.
+ * For every method it counts the completed containers (the throughput), the
+ * container-seconds of work lost by kills, the time spent suspended and the
+ * deadline misses. Shared by all the {@link NMSimulator}s of a run.
+ */
+@Private
+@Unstable
+public class ContainerUpdateStats {
+  private final static Logger LOG =
+          Logger.getLogger(ContainerUpdateStats.class);
+
+  public enum Method {
+    NONE, KILL, SHRINK, SUSPEND
+  }
+
+  private static class Counters {
+    long updates = 0;
+    long completed = 0;
+    long killed = 0;
+    long wastedMS = 0;
+    long suspendedMS = 0;
+    long withDeadline = 0;
+    long deadlineMisses = 0;
+  }
+
+  private final Counters[] counters = new Counters[Method.values().length];
+  private final long startTime;
+
+  public ContainerUpdateStats() {
+    for (int i = 0; i < counters.length; i++) {
+      counters[i] = new Counters();
+    }
+    startTime = System.currentTimeMillis();
+  }
+
+  /**
+   * a suspend, shrink or kill was applied to a running container
+   */
+  public synchronized void updated(Method method) {
+    counters[method.ordinal()].updates++;
+  }
+
+  /**
+   * a container ran to the end
+   */
+  public synchronized void completed(Method method, ContainerSimulator cs,
+          long now) {
+    Counters c = counters[method.ordinal()];
+    c.completed++;
+    c.suspendedMS += cs.getSuspendedTime(now);
+    if (cs.getDeadline() > 0) {
+      c.withDeadline++;
+      if (now > cs.getDeadline()) {
+        c.deadlineMisses++;
+      }
+    }
+  }
+
+  /**
+   * a container was killed, the work it did is lost
+   */
+  public synchronized void killed(Method method, ContainerSimulator cs,
+          long now) {
+    Counters c = counters[method.ordinal()];
+    c.killed++;
+    c.wastedMS += cs.getCompletedWork(now);
+    c.suspendedMS += cs.getSuspendedTime(now);
+    if (cs.getDeadline() > 0) {
+      // a killed container does not finish before its deadline
+      c.withDeadline++;
+      c.deadlineMisses++;
+    }
+  }
+
+  public synchronized long getUpdates(Method method) {
+    return counters[method.ordinal()].updates;
+  }
+
+  public synchronized long getCompleted(Method method) {
+    return counters[method.ordinal()].completed;
+  }
+
+  public synchronized long getKilled(Method method) {
+    return counters[method.ordinal()].killed;
+  }
+
+  public synchronized long getWastedMS(Method method) {
+    return counters[method.ordinal()].wastedMS;
+  }
+
+  public synchronized long getSuspendedMS(Method method) {
+    return counters[method.ordinal()].suspendedMS;
+  }
+
+  public synchronized long getDeadlineMisses(Method method) {
+    return counters[method.ordinal()].deadlineMisses;
+  }
+
+  /**
+   * log the outcome of every method and, when outputDir is set, write it to
+   * outputDir/containerupdates.csv
+   */
+  public synchronized void report(String outputDir) {
+    double elapsedS = Math.max(1,
+            System.currentTimeMillis() - startTime) / 1000.0;
+    StringBuilder csv = new StringBuilder("method,updates,completed,"
+            + "killed,throughput_per_s,wasted_container_s,suspended_s,"
+            + "deadlines,deadline_misses\n");
+    LOG.info("------------------------------------");
+    for (Method method : Method.values()) {
+      Counters c = counters[method.ordinal()];
+      double throughput = c.completed / elapsedS;
+      LOG.info(MessageFormat.format("{0}: {1} updates, {2} completed "
+              + "({3} per s), {4} killed, {5} wasted container-s, {6} s "
+              + "suspended, {7} of {8} deadlines missed", method,
+              c.updates, c.completed, throughput, c.killed,
+              c.wastedMS / 1000.0, c.suspendedMS / 1000.0,
+              c.deadlineMisses, c.withDeadline));
+      csv.append(method).append(',').append(c.updates).append(',')
+              .append(c.completed).append(',').append(c.killed).append(',')
+              .append(throughput).append(',').append(c.wastedMS / 1000.0)
+              .append(',').append(c.suspendedMS / 1000.0).append(',')
+              .append(c.withDeadline).append(',').append(c.deadlineMisses)
+              .append('\n');
+    }
+    LOG.info("------------------------------------");
+    if (outputDir == null) {
+      return;
+    }
+    BufferedWriter bw = null;
+    try {
+      bw = new BufferedWriter(
+              new FileWriter(outputDir + "/containerupdates.csv"));
+      bw.write(csv.toString());
+    } catch (IOException e) {
+      LOG.warn("Cannot write the container update statistics", e);
+    } finally {
+      if (bw != null) {
+        try {
+          bw.close();
+        } catch (IOException e) {
+          LOG.warn("Cannot close containerupdates.csv", e);
+        }
+      }
+    }
+  }
+}
@@ -26,17 +26,22 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
 
 import com.google.common.annotations.VisibleForTesting;
 import org.apache.hadoop.classification.InterfaceAudience.Private;
 import org.apache.hadoop.classification.InterfaceStability.Unstable;
+import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.yarn.api.records.ApplicationId;
 import org.apache.hadoop.yarn.api.records.Container;
 import org.apache.hadoop.yarn.api.records.ContainerExitStatus;
 import org.apache.hadoop.yarn.api.records.ContainerId;
 import org.apache.hadoop.yarn.api.records.ContainerState;
 import org.apache.hadoop.yarn.api.records.ContainerStatus;
+import org.apache.hadoop.yarn.api.records.Resource;
 import org.apache.hadoop.yarn.exceptions.YarnException;
+import org.apache.hadoop.yarn.server.api.protocolrecords.NodeContainerUpdate;
 import org.apache.hadoop.yarn.server.api.protocolrecords.NodeHeartbeatRequest;
 import org.apache.hadoop.yarn.server.api.protocolrecords.NodeHeartbeatResponse;
 import org.apache.hadoop.yarn.server.api.protocolrecords
@@ -53,6 +58,8 @@ import org.apache.hadoop.yarn.server.utils.BuilderUtils;
 import org.apache.hadoop.yarn.util.Records;
 import org.apache.log4j.Logger;
 
+import org.apache.hadoop.yarn.sls.conf.SLSConfiguration;
+import org.apache.hadoop.yarn.sls.nodemanager.ContainerUpdateStats.Method;
 import org.apache.hadoop.yarn.sls.scheduler.ContainerSimulator;
 import org.apache.hadoop.yarn.sls.scheduler.TaskRunner;
 import org.apache.hadoop.yarn.sls.utils.SLSUtils;
@@ -70,15 +77,57 @@ public class NMSimulator extends TaskRunner.Task {
   private DelayQueue<ContainerSimulator> containerQueue;
   private Map<ContainerId, ContainerSimulator> runningContainers;
   private List<ContainerId> amContainerList;
+  // containers killed for running out of memory after a shrink
+  private List<ContainerId> oomContainerList;
+  // preemption method last applied to the running containers
+  private Map<ContainerId, Method> containerMethods;
+  // container updates from the RM waiting for their apply latency
+  private DelayQueue<PendingUpdate> pendingUpdates;
+  private long updateLatencyMS;
+  private float shrinkOomRatio;
+  private ContainerUpdateStats updateStats;
   // resource manager
   private ResourceManager rm;
   // heart beat response id
   private int RESPONSE_ID = 1;
   private final static Logger LOG = Logger.getLogger(NMSimulator.class);
-  
+
+  /**
+   * a container update received from the RM, applied once the time to
+   * change the container (cgroups, docker...) has passed
+   */
+  private static class PendingUpdate implements Delayed {
+    private final NodeContainerUpdate update;
+    private final long applyTime;
+
+    PendingUpdate(NodeContainerUpdate update, long applyTime) {
+      this.update = update;
+      this.applyTime = applyTime;
+    }
+
+    @Override
+    public long getDelay(TimeUnit unit) {
+      return unit.convert(applyTime - System.currentTimeMillis(),
+              TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public int compareTo(Delayed o) {
+      return (int) Math.signum(applyTime - ((PendingUpdate) o).applyTime);
+    }
+  }
+
   public void init(String nodeIdStr, int memory, int cores,
           int dispatchTime, int heartBeatInterval, ResourceManager rm)
           throws IOException, YarnException {
+    init(nodeIdStr, memory, cores, dispatchTime, heartBeatInterval, rm,
+            new Configuration(false), new ContainerUpdateStats());
+  }
+
+  public void init(String nodeIdStr, int memory, int cores,
+          int dispatchTime, int heartBeatInterval, ResourceManager rm,
+          Configuration conf, ContainerUpdateStats updateStats)
+          throws IOException, YarnException {
     super.init(dispatchTime, dispatchTime + 1000000L * heartBeatInterval,
             heartBeatInterval);
     // create resource
@@ -96,6 +145,17 @@ public class NMSimulator extends TaskRunner.Task {
             Collections.synchronizedList(new ArrayList<ContainerId>());
     runningContainers =
             new ConcurrentHashMap<ContainerId, ContainerSimulator>();
+    oomContainerList =
+            Collections.synchronizedList(new ArrayList<ContainerId>());
+    containerMethods = new ConcurrentHashMap<ContainerId, Method>();
+    pendingUpdates = new DelayQueue<PendingUpdate>();
+    updateLatencyMS = conf.getInt(
+            SLSConfiguration.NM_CONTAINER_UPDATE_LATENCY_MS,
+            SLSConfiguration.NM_CONTAINER_UPDATE_LATENCY_MS_DEFAULT);
+    shrinkOomRatio = conf.getFloat(
+            SLSConfiguration.NM_CONTAINER_SHRINK_OOM_RATIO,
+            SLSConfiguration.NM_CONTAINER_SHRINK_OOM_RATIO_DEFAULT);
+    this.updateStats = updateStats;
     // register NM with RM
     RegisterNodeManagerRequest req =
             Records.newRecord(RegisterNodeManagerRequest.class);
@@ -114,12 +174,20 @@ public class NMSimulator extends TaskRunner.Task {
 
   @Override
   public void middleStep() throws Exception {
+    // apply the container updates whose latency has passed
+    PendingUpdate pending;
+    while ((pending = pendingUpdates.poll()) != null) {
+      applyContainerUpdate(pending.update, pending.applyTime);
+    }
     // we check the lifetime for each running containers
     ContainerSimulator cs = null;
     synchronized(completedContainerList) {
       while ((cs = containerQueue.poll()) != null) {
         runningContainers.remove(cs.getId());
         completedContainerList.add(cs.getId());
+        Method method = containerMethods.remove(cs.getId());
+        updateStats.completed(method == null ? Method.NONE : method, cs,
+                cs.getEndTime());
         LOG.debug(MessageFormat.format("Container {0} has completed",
                 cs.getId()));
       }
@@ -152,7 +220,12 @@ public class NMSimulator extends TaskRunner.Task {
                 "an AM ({1}).", node.getNodeID(), containerId));
           } else {
             cs = runningContainers.remove(containerId);
-            containerQueue.remove(cs);
+            if (cs != null && containerQueue.remove(cs)) {
+              containerMethods.remove(containerId);
+              updateStats.updated(Method.KILL);
+              updateStats.killed(Method.KILL, cs,
+                      System.currentTimeMillis());
+            }
             releasedContainerList.add(containerId);
             LOG.debug(MessageFormat.format("NodeManager {0} releases a " +
                 "container ({1}).", node.getNodeID(), containerId));
@@ -160,11 +233,60 @@ public class NMSimulator extends TaskRunner.Task {
         }
       }
     }
+    if (beatResponse.getContainersToUpdate() != null) {
+      long now = System.currentTimeMillis();
+      for (NodeContainerUpdate update : beatResponse.getContainersToUpdate()) {
+        if (updateLatencyMS <= 0) {
+          applyContainerUpdate(update, now);
+        } else {
+          pendingUpdates.add(new PendingUpdate(update, now + updateLatencyMS));
+        }
+      }
+    }
     if (beatResponse.getNodeAction() == NodeAction.SHUTDOWN) {
       lastStep();
     }
   }
 
+  /**
+   * Suspends, shrinks, resumes or resizes a running container. A container
+   * shrunk below the OOM ratio of its launch memory (but not fully
+   * suspended) is killed as if it ran out of memory.
+   */
+  @VisibleForTesting
+  void applyContainerUpdate(NodeContainerUpdate update, long now) {
+    ContainerId containerId = update.getContainerId();
+    ContainerSimulator cs = runningContainers.get(containerId);
+    // AM containers are never updated, finished ones are gone
+    if (cs == null || !containerQueue.remove(cs)) {
+      return;
+    }
+    Resource target =
+            BuilderUtils.newResource(update.getMemory(), update.getCores());
+    if (update.getSuspend()) {
+      Method method = update.getMemory() == 0 && update.getCores() == 0
+              ? Method.SUSPEND : Method.SHRINK;
+      containerMethods.put(containerId, method);
+      updateStats.updated(method);
+      if (method == Method.SHRINK && update.getMemory()
+              < shrinkOomRatio * cs.getLaunchResource().getMemory()) {
+        runningContainers.remove(containerId);
+        containerMethods.remove(containerId);
+        updateStats.killed(Method.SHRINK, cs, now);
+        oomContainerList.add(containerId);
+        LOG.debug(MessageFormat.format("NodeManager {0} kills container "
+                + "({1}) shrunk to {2}.", node.getNodeID(), containerId,
+                target));
+        return;
+      }
+    }
+    cs.updateResource(target, now);
+    containerQueue.add(cs);
+    LOG.debug(MessageFormat.format("NodeManager {0} updates container ({1})"
+            + " to {2}, suspend={3}, resume={4}.", node.getNodeID(),
+            containerId, target, update.getSuspend(), update.getResume()));
+  }
+
   @Override
   public void lastStep() {
     // do nothing
@@ -206,6 +328,14 @@ public class NMSimulator extends TaskRunner.Task {
       }
       releasedContainerList.clear();
     }
+    // containers out of memory after a shrink
+    synchronized(oomContainerList) {
+      for (ContainerId cId : oomContainerList) {
+        csList.add(newContainerStatus(cId, ContainerState.COMPLETE,
+                ContainerExitStatus.KILLED_EXCEEDED_PMEM));
+      }
+      oomContainerList.clear();
+    }
     return csList;
   }
 
@@ -234,6 +364,10 @@ public class NMSimulator extends TaskRunner.Task {
       ContainerSimulator cs = new ContainerSimulator(container.getId(),
               container.getResource(), lifeTimeMS + System.currentTimeMillis(),
               lifeTimeMS);
+      if (container.getDeadline() > 0) {
+        // already the absolute time, arrival time plus the job deadline
+        cs.setDeadline(container.getDeadline());
+      }
       containerQueue.add(cs);
       runningContainers.put(cs.getId(), cs);
     } else {
@@ -272,4 +406,9 @@ public class NMSimulator extends TaskRunner.Task {
   List<ContainerId> getCompletedContainers() {
     return completedContainerList;
   }
+
+  @VisibleForTesting
+  List<ContainerId> getOomContainers() {
+    return oomContainerList;
+  }
 }
@@ -0,0 +1,372 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.yarn.sls.resume;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.GnuParser;
+import org.apache.commons.cli.Options;
+import org.apache.hadoop.classification.InterfaceAudience.Private;
+import org.apache.hadoop.classification.InterfaceStability.Unstable;
+import org.apache.hadoop.yarn.server.resourcemanager.scheduler.capacity.EdfResumeOrderingPolicy;
+import org.apache.hadoop.yarn.server.resourcemanager.scheduler.capacity.FifoResumeOrderingPolicy;
+import org.apache.hadoop.yarn.server.resourcemanager.scheduler.capacity.LeastSlackResumeOrderingPolicy;
+import org.apache.hadoop.yarn.server.resourcemanager.scheduler.capacity.ResumeOrderingPolicy;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+
+/**
+ * Compares the resume ordering policies of the capacity scheduler on a
+ * synthetic workload, reporting the deadline miss rate and the makespan of
+ * each policy against FIFO.
+ *
+ * The cluster is a number of slots each running one task. Low priority tasks
+ * arrive with a duration and a deadline, high priority ones in bursts. When a
+ * high priority task finds no free slot, the low priority task started last
+ * is suspended. Freed slots go to waiting high priority tasks first, then to
+ * the suspended tasks in the order of the policy, then to waiting low
+ * priority tasks, the way LeafQueue resumes before it allocates. Time
+ * advances by one second.
+ */
+@Private
+@Unstable
+public class ResumeOrderingSimulator {
+
+  static class Task implements ResumeOrderingPolicy.Candidate {
+    private final int id;
+    private final boolean highPriority;
+    private final long arrival;
+    private final long duration;
+    private final long deadline;
+    private long remaining;
+    private long runTime = 0;
+    private long suspendTime = -1;
+    private long finishTime = -1;
+    private int suspensions = 0;
+
+    Task(int id, boolean highPriority, long arrival, long duration,
+        long deadline) {
+      this.id = id;
+      this.highPriority = highPriority;
+      this.arrival = arrival;
+      this.duration = duration;
+      this.deadline = deadline;
+      this.remaining = duration;
+    }
+
+    @Override
+    public long getDeadline() {
+      return deadline;
+    }
+
+    @Override
+    public long getSuspendTime() {
+      return suspendTime;
+    }
+
+    @Override
+    public long getRunTime() {
+      return runTime;
+    }
+
+    @Override
+    public long getPreemptedMemory() {
+      return 1;
+    }
+
+    @Override
+    public long getSequence() {
+      return id;
+    }
+
+    boolean missedDeadline() {
+      return deadline > 0 && finishTime > deadline;
+    }
+  }
+
+  /**
+   * Outcome of one simulation.
+   */
+  public static class Result {
+    private final String policy;
+    private int tasksWithDeadline = 0;
+    private int missedDeadlines = 0;
+    private int suspensions = 0;
+    private long makespan = 0;
+    private double meanLowPriorityCompletion = 0;
+
+    Result(String policy) {
+      this.policy = policy;
+    }
+
+    public String getPolicy() {
+      return policy;
+    }
+
+    public int getMissedDeadlines() {
+      return missedDeadlines;
+    }
+
+    public double getDeadlineMissRate() {
+      return tasksWithDeadline == 0 ? 0
+          : (double) missedDeadlines / tasksWithDeadline;
+    }
+
+    public long getMakespan() {
+      return makespan;
+    }
+
+    public int getSuspensions() {
+      return suspensions;
+    }
+
+    public double getMeanLowPriorityCompletion() {
+      return meanLowPriorityCompletion;
+    }
+  }
+
+  // task durations in seconds
+  private static final int MIN_HIGH_DURATION = 10;
+  private static final int MAX_HIGH_DURATION = 60;
+  private static final int MIN_LOW_DURATION = 30;
+  private static final int MAX_LOW_DURATION = 330;
+
+  private final int slots;
+  private final List<Task> workload;
+
+  public ResumeOrderingSimulator(int slots, List<Task> workload) {
+    this.slots = slots;
+    this.workload = workload;
+  }
+
+  /**
+   * Generate a workload of low priority tasks arriving as a Poisson process
+   * bringing the given load on the slots, and of bursts of high priority
+   * tasks each taking the given ratio of the slots.
+   */
+  public static List<Task> generateWorkload(long seed, int numTasks,
+      int slots, double load, double burstRatio, long burstInterval,
+      double minDeadlineFactor, double maxDeadlineFactor) {
+    Random random = new Random(seed);
+    double meanInterArrival =
+        (MIN_LOW_DURATION + MAX_LOW_DURATION) / 2.0 / (slots * load);
+    int burstSize = (int) Math.ceil(slots * burstRatio);
+    List<Task> tasks = new ArrayList<Task>(numTasks);
+    double time = 0;
+    long nextBurst = burstInterval;
+    while (tasks.size() < numTasks) {
+      long arrival = (long) time;
+      if (burstSize > 0 && nextBurst <= arrival) {
+        for (int i = 0; i < burstSize && tasks.size() < numTasks; i++) {
+          long duration = MIN_HIGH_DURATION
+              + random.nextInt(MAX_HIGH_DURATION - MIN_HIGH_DURATION);
+          tasks.add(new Task(tasks.size(), true, nextBurst, duration, 0));
+        }
+        nextBurst += burstInterval;
+        continue;
+      }
+      long duration = MIN_LOW_DURATION
+          + random.nextInt(MAX_LOW_DURATION - MIN_LOW_DURATION);
+      double factor = minDeadlineFactor
+          + random.nextDouble() * (maxDeadlineFactor - minDeadlineFactor);
+      long deadline = arrival + (long) (duration * factor);
+      tasks.add(new Task(tasks.size(), false, arrival, duration, deadline));
+      time += -Math.log(1 - random.nextDouble()) * meanInterArrival;
+    }
+    return tasks;
+  }
+
+  private static List<Task> copy(List<Task> workload) {
+    List<Task> tasks = new ArrayList<Task>(workload.size());
+    for (Task task : workload) {
+      tasks.add(new Task(task.id, task.highPriority, task.arrival,
+          task.duration, task.deadline));
+    }
+    return tasks;
+  }
+
+  public Result run(String name, ResumeOrderingPolicy policy) {
+    List<Task> tasks = copy(workload);
+    Iterator<Task> arrivals = tasks.iterator();
+    Task nextArrival = arrivals.hasNext() ? arrivals.next() : null;
+    LinkedList<Task> waitingHigh = new LinkedList<Task>();
+    LinkedList<Task> waitingLow = new LinkedList<Task>();
+    TreeSet<Task> suspended = new TreeSet<Task>(policy);
+    LinkedList<Task> running = new LinkedList<Task>();
+    int done = 0;
+    long time = 0;
+
+    while (done < tasks.size()) {
+      // arrivals
+      while (nextArrival != null && nextArrival.arrival <= time) {
+        (nextArrival.highPriority ? waitingHigh : waitingLow).add(nextArrival);
+        nextArrival = arrivals.hasNext() ? arrivals.next() : null;
+      }
+      // high priority tasks take free slots or suspend low priority ones
+      while (!waitingHigh.isEmpty()) {
+        if (running.size() < slots) {
+          running.add(waitingHigh.poll());
+          continue;
+        }
+        Task victim = null;
+        Iterator<Task> it = running.descendingIterator();
+        while (it.hasNext()) {
+          Task task = it.next();
+          if (!task.highPriority) {
+            victim = task;
+            it.remove();
+            break;
+          }
+        }
+        if (victim == null) {
+          break;
+        }
+        victim.suspendTime = time;
+        victim.suspensions++;
+        suspended.add(victim);
+      }
+      // then the suspended tasks are resumed before new ones start
+      while (running.size() < slots) {
+        if (!suspended.isEmpty()) {
+          running.add(suspended.pollFirst());
+        } else if (!waitingLow.isEmpty()) {
+          running.add(waitingLow.poll());
+        } else {
+          break;
+        }
+      }
+      // progress of one second
+      time++;
+      Iterator<Task> it = running.iterator();
+      while (it.hasNext()) {
+        Task task = it.next();
+        task.runTime++;
+        if (--task.remaining == 0) {
+          task.finishTime = time;
+          it.remove();
+          done++;
+        }
+      }
+    }
+
+    Result result = new Result(name);
+    long firstArrival = tasks.isEmpty() ? 0 : tasks.get(0).arrival;
+    long lowCompletion = 0;
+    int lowTasks = 0;
+    for (Task task : tasks) {
+      result.makespan = Math.max(result.makespan, task.finishTime - firstArrival);
+      result.suspensions += task.suspensions;
+      if (task.deadline > 0) {
+        result.tasksWithDeadline++;
+        if (task.missedDeadline()) {
+          result.missedDeadlines++;
+        }
+      }
+      if (!task.highPriority) {
+        lowCompletion += task.finishTime - task.arrival;
+        lowTasks++;
+      }
+    }
+    result.meanLowPriorityCompletion =
+        lowTasks == 0 ? 0 : (double) lowCompletion / lowTasks;
+    return result;
+  }
+
+  public static void report(List<Result> results, PrintStream out) {
+    Result fifo = results.get(0);
+    out.println(String.format("%-12s %10s %10s %12s %10s %14s",
+        "policy", "missed", "miss-rate", "vs-fifo", "makespan",
+        "mean-low-jct"));
+    for (Result result : results) {
+      out.println(String.format("%-12s %10d %9.2f%% %+11.2f%% %10d %14.1f",
+          result.getPolicy(), result.getMissedDeadlines(),
+          100 * result.getDeadlineMissRate(),
+          100 * (result.getDeadlineMissRate() - fifo.getDeadlineMissRate()),
+          result.getMakespan(), result.getMeanLowPriorityCompletion()));
+    }
+  }
+
+  static Map<String, ResumeOrderingPolicy> getPolicies() {
+    Map<String, ResumeOrderingPolicy> policies =
+        new LinkedHashMap<String, ResumeOrderingPolicy>();
+    policies.put("fifo", new FifoResumeOrderingPolicy());
+    policies.put("edf", new EdfResumeOrderingPolicy());
+    policies.put("least-slack", new LeastSlackResumeOrderingPolicy());
+    return policies;
+  }
+
+  public static void main(String args[]) throws Exception {
+    Options options = new Options();
+    options.addOption("tasks", true, "number of tasks, default 2000");
+    options.addOption("slots", true, "number of slots, default 100");
+    options.addOption("seed", true, "random seed, default 1");
+    options.addOption("load", true,
+        "load of the low priority tasks relative to the slots, default 0.9");
+    options.addOption("burstRatio", true,
+        "ratio of the slots taken by a burst of high priority tasks, "
+        + "default 0.6");
+    options.addOption("burstInterval", true,
+        "seconds between two bursts of high priority tasks, default 600");
+    options.addOption("minDeadlineFactor", true,
+        "minimum deadline as a multiple of the duration, default 1.2");
+    options.addOption("maxDeadlineFactor", true,
+        "maximum deadline as a multiple of the duration, default 3");
+
+    CommandLineParser parser = new GnuParser();
+    CommandLine cmd = parser.parse(options, args);
+
+    int numTasks = Integer.parseInt(cmd.getOptionValue("tasks", "2000"));
+    int slots = Integer.parseInt(cmd.getOptionValue("slots", "100"));
+    long seed = Long.parseLong(cmd.getOptionValue("seed", "1"));
+    double load = Double.parseDouble(cmd.getOptionValue("load", "0.9"));
+    double burstRatio =
+        Double.parseDouble(cmd.getOptionValue("burstRatio", "0.6"));
+    long burstInterval =
+        Long.parseLong(cmd.getOptionValue("burstInterval", "600"));
+    double minDeadlineFactor = Double.parseDouble(
+        cmd.getOptionValue("minDeadlineFactor", "1.2"));
+    double maxDeadlineFactor = Double.parseDouble(
+        cmd.getOptionValue("maxDeadlineFactor", "3"));
+    if (numTasks <= 0 || slots <= 0 || load <= 0 || burstRatio < 0
+        || burstInterval <= 0 || minDeadlineFactor < 1
+        || maxDeadlineFactor < minDeadlineFactor) {
+      System.err.println();
+      System.err.println("ERROR: invalid workload parameters");
+      System.err.println();
+      System.exit(1);
+    }
+
+    ResumeOrderingSimulator simulator = new ResumeOrderingSimulator(slots,
+        generateWorkload(seed, numTasks, slots, load, burstRatio,
+            burstInterval, minDeadlineFactor, maxDeadlineFactor));
+    List<Result> results = new ArrayList<Result>();
+    for (Map.Entry<String, ResumeOrderingPolicy> policy
+        : getPolicies().entrySet()) {
+      results.add(simulator.run(policy.getKey(), policy.getValue()));
+    }
+    report(results, System.out);
+  }
+}
@@ -43,6 +43,20 @@ public class ContainerSimulator implements Delayed {
   private int priority;
   // type 
   private String type;
+  // resource the container was launched with
+  private Resource launchResource;
+  // work left (ms at the launch resource)
+  private long remainingWork;
+  // fraction of the launch resource the container runs at
+  private double rate = 1.0;
+  // last time the remaining work was updated
+  private long lastUpdate;
+  // time the container got fully suspended, -1 if it is not
+  private long suspendedSince = -1;
+  // total time spent fully suspended (ms)
+  private long suspendedTime = 0;
+  // deadline of the application (absolute), 0 if none
+  private long deadline = 0;
 
   /**
    * invoked when AM schedules containers to allocate
@@ -65,6 +79,9 @@ public class ContainerSimulator implements Delayed {
     this.resource = resource;
     this.endTime = endTime;
     this.lifeTime = lifeTime;
+    this.launchResource = resource;
+    this.remainingWork = lifeTime;
+    this.lastUpdate = endTime - lifeTime;
   }
   
   public Resource getResource() {
@@ -114,4 +131,77 @@ public class ContainerSimulator implements Delayed {
   public void setPriority(int p) {
     priority = p;
   }
+
+  public long getDeadline() {
+    return deadline;
+  }
+
+  public void setDeadline(long deadline) {
+    this.deadline = deadline;
+  }
+
+  /**
+   * Changes the resource of a running container. The container progresses
+   * at the rate of its vcores over its launch vcores (memory when it was
+   * launched without vcores), so the end time moves; a container without
+   * resource is suspended and never ends until resumed.
+   * The container must not be in a DelayQueue while updated.
+   */
+  public void updateResource(Resource newResource, long now) {
+    advance(now);
+    resource = newResource;
+    if (launchResource.getVirtualCores() > 0) {
+      rate = Math.min(1.0, (double) newResource.getVirtualCores()
+              / launchResource.getVirtualCores());
+    } else if (launchResource.getMemory() > 0) {
+      rate = Math.min(1.0, (double) newResource.getMemory()
+              / launchResource.getMemory());
+    } else {
+      rate = 1.0;
+    }
+    if (rate <= 0) {
+      if (suspendedSince < 0) {
+        suspendedSince = now;
+      }
+      endTime = Long.MAX_VALUE;
+    } else {
+      if (suspendedSince >= 0) {
+        suspendedTime += now - suspendedSince;
+        suspendedSince = -1;
+      }
+      endTime = now + (long) Math.ceil(remainingWork / rate);
+    }
+  }
+
+  private void advance(long now) {
+    if (now > lastUpdate) {
+      remainingWork = Math.max(0,
+              remainingWork - (long) ((now - lastUpdate) * rate));
+      lastUpdate = now;
+    }
+  }
+
+  public Resource getLaunchResource() {
+    return launchResource;
+  }
+
+  public boolean isSuspended() {
+    return suspendedSince >= 0;
+  }
+
+  /**
+   * @return the work done so far (ms at the launch resource)
+   */
+  public long getCompletedWork(long now) {
+    advance(now);
+    return lifeTime - remainingWork;
+  }
+
+  /**
+   * @return the time spent fully suspended so far (ms)
+   */
+  public long getSuspendedTime(long now) {
+    return suspendedSince < 0 ? suspendedTime
+            : suspendedTime + now - suspendedSince;
+  }
 }
@@ -58,6 +58,7 @@ import org.apache.hadoop.yarn.api.records.QueueUserACLInfo;
 import org.apache.hadoop.yarn.api.records.Resource;
 import org.apache.hadoop.yarn.api.records.ResourceRequest;
 import org.apache.hadoop.yarn.exceptions.YarnException;
+import org.apache.hadoop.yarn.exceptions.YarnRuntimeException;
 import org.apache.hadoop.yarn.server.api.protocolrecords.NodeContainerUpdate;
 import org.apache.hadoop.yarn.server.resourcemanager.RMContext;
 import org.apache.hadoop.yarn.server.resourcemanager.recovery.RMStateStore;
@@ -66,6 +67,7 @@ import org.apache.hadoop.yarn.server.resourcemanager.rmcontainer.RMContainerEven
 import org.apache.hadoop.yarn.server.resourcemanager.rmnode.UpdatedContainerInfo;
 import org.apache.hadoop.yarn.server.resourcemanager.scheduler.AbstractYarnScheduler;
 import org.apache.hadoop.yarn.server.resourcemanager.scheduler.Allocation;
+import org.apache.hadoop.yarn.server.resourcemanager.scheduler.PreemptableResourceScheduler;
 import org.apache.hadoop.yarn.server.resourcemanager.scheduler.QueueMetrics;
 import org.apache.hadoop.yarn.server.resourcemanager.scheduler.ResourceScheduler;
 import org.apache.hadoop.yarn.server.resourcemanager.scheduler.SchedulerAppReport;
@@ -73,6 +75,7 @@ import org.apache.hadoop.yarn.server.resourcemanager.scheduler.SchedulerApplicat
 import org.apache.hadoop.yarn.server.resourcemanager.scheduler.SchedulerApplicationAttempt;
 import org.apache.hadoop.yarn.server.resourcemanager.scheduler.SchedulerNode;
 import org.apache.hadoop.yarn.server.resourcemanager.scheduler.SchedulerNodeReport;
+import org.apache.hadoop.yarn.server.resourcemanager.scheduler.WrappingResourceScheduler;
 import org.apache.hadoop.yarn.server.resourcemanager.scheduler.capacity.CapacityScheduler;
 import org.apache.hadoop.yarn.server.resourcemanager.scheduler.event.AppAddedSchedulerEvent;
 import org.apache.hadoop.yarn.server.resourcemanager.scheduler.event.AppAttemptRemovedSchedulerEvent;
@@ -93,6 +96,7 @@ import com.codahale.metrics.Counter;
 import com.codahale.metrics.CsvReporter;
 import com.codahale.metrics.Gauge;
 import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.SlidingWindowReservoir;
 import com.codahale.metrics.Timer;
@@ -101,7 +105,8 @@ import com.codahale.metrics.Timer;
 @Unstable
 public class ResourceSchedulerWrapper
     extends AbstractYarnScheduler<SchedulerApplicationAttempt, SchedulerNode>
-    implements ResourceScheduler, Configurable {
+    implements PreemptableResourceScheduler, WrappingResourceScheduler,
+    Configurable {
   private static final String EOL = System.getProperty("line.separator");
   private static final int SAMPLING_SIZE = 60;
   private ScheduledExecutorService pool;
@@ -109,6 +114,8 @@ public class ResourceSchedulerWrapper
   private Counter schedulerAllocateCounter;
   private Counter schedulerHandleCounter;
   private Map<SchedulerEventType, Counter> schedulerHandleCounterMap;
+  // containers handed to the AMs, its rate is the allocation throughput
+  private Meter containerAllocationMeter;
   // Timers for scheduler allocate/handle operations
   private Timer schedulerAllocateTimer;
   private Timer schedulerHandleTimer;
@@ -215,6 +222,9 @@ public class ResourceSchedulerWrapper
       } finally {
         context.stop();
         schedulerAllocateCounter.inc();
+        if (allocation != null) {
+          containerAllocationMeter.mark(allocation.getContainers().size());
+        }
         try {
           updateQueueWithAllocateRequest(allocation, attemptId,
                   resourceRequests, containerIds);
@@ -616,6 +626,8 @@ public class ResourceSchedulerWrapper
                 "counter.scheduler.operation.handle." + e);
         schedulerHandleCounterMap.put(e, counter);
       }
+      containerAllocationMeter = metrics.meter(
+              "meter.scheduler.container.allocated");
       // timers for scheduler operations
       int timeWindowSize = conf.getInt(
               SLSConfiguration.METRICS_TIMER_WINDOW_SIZE,
@@ -949,10 +961,49 @@ public class ResourceSchedulerWrapper
     // do nothing
   }
 
-@Override
-public List<NodeContainerUpdate> pullNodeContainerUpdate(NodeId node) {
-	// TODO Auto-generated method stub
-	return null;
-}
+  @Override
+  public ResourceScheduler getWrappedScheduler() {
+    return scheduler;
+  }
+
+  @Override
+  public void dropContainerReservation(RMContainer container) {
+    getPreemptableScheduler().dropContainerReservation(container);
+  }
+
+  @Override
+  public void preemptContainer(ApplicationAttemptId aid,
+      RMContainer container) {
+    getPreemptableScheduler().preemptContainer(aid, container);
+  }
+
+  @Override
+  public void killContainer(RMContainer container) {
+    getPreemptableScheduler().killContainer(container);
+  }
+
+  @Override
+  public void suspendContianer(RMContainer container, Resource toPreempt) {
+    getPreemptableScheduler().suspendContianer(container, toPreempt);
+  }
+
+  private PreemptableResourceScheduler getPreemptableScheduler() {
+    if (!(scheduler instanceof PreemptableResourceScheduler)) {
+      throw new YarnRuntimeException("Class "
+          + scheduler.getClass().getCanonicalName()
+          + " does not support preemption");
+    }
+    return (PreemptableResourceScheduler) scheduler;
+  }
+
+  @Override
+  public List<NodeContainerUpdate> pullNodeContainerUpdate(NodeId node) {
+    return scheduler.pullNodeContainerUpdate(node);
+  }
+
+  @Override
+  public long getNodeHeartbeatInterval(NodeId node, long defaultInterval) {
+    return scheduler.getNodeHeartbeatInterval(node, defaultInterval);
+  }
 }
 
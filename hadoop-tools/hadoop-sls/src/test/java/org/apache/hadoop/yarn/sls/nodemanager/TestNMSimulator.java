@@ -18,19 +18,44 @@
 package org.apache.hadoop.yarn.sls.nodemanager;
 
 import org.apache.hadoop.mapreduce.MRJobConfig;
+import org.apache.hadoop.security.UserGroupInformation;
+import org.apache.hadoop.security.token.Token;
 import org.apache.hadoop.util.Time;
+import org.apache.hadoop.yarn.api.protocolrecords.AllocateRequest;
+import org.apache.hadoop.yarn.api.protocolrecords.AllocateResponse;
+import org.apache.hadoop.yarn.api.records.ApplicationAttemptId;
 import org.apache.hadoop.yarn.api.records.Container;
 import org.apache.hadoop.yarn.api.records.ContainerId;
+import org.apache.hadoop.yarn.api.records.Resource;
+import org.apache.hadoop.yarn.api.records.ResourceRequest;
 import org.apache.hadoop.yarn.conf.YarnConfiguration;
+import org.apache.hadoop.yarn.security.AMRMTokenIdentifier;
+import org.apache.hadoop.yarn.server.api.protocolrecords.NodeContainerUpdate;
 import org.apache.hadoop.yarn.server.resourcemanager.ResourceManager;
+import org.apache.hadoop.yarn.server.resourcemanager.monitor.capacity.ProportionalCapacityPreemptionPolicy;
+import org.apache.hadoop.yarn.server.resourcemanager.rmcontainer.RMContainer;
+import org.apache.hadoop.yarn.server.resourcemanager.rmcontainer.RMContainerState;
+import org.apache.hadoop.yarn.server.resourcemanager.scheduler.ContainerPreemptEvent;
+import org.apache.hadoop.yarn.server.resourcemanager.scheduler.ContainerPreemptEventType;
+import org.apache.hadoop.yarn.server.resourcemanager.scheduler.ResourceScheduler;
+import org.apache.hadoop.yarn.server.resourcemanager.scheduler.WrappingResourceScheduler;
+import org.apache.hadoop.yarn.server.resourcemanager.scheduler.capacity.CapacityScheduler;
+import org.apache.hadoop.yarn.server.resourcemanager.scheduler.capacity.CapacitySchedulerConfiguration;
 import org.apache.hadoop.yarn.server.utils.BuilderUtils;
+import org.apache.hadoop.yarn.sls.appmaster.AMSimulator;
 import org.apache.hadoop.yarn.sls.conf.SLSConfiguration;
+import org.apache.hadoop.yarn.sls.nodemanager.ContainerUpdateStats.Method;
+import org.apache.hadoop.yarn.sls.scheduler.ContainerSimulator;
+import org.apache.hadoop.yarn.sls.scheduler.ResourceSchedulerWrapper;
 import org.apache.hadoop.yarn.util.resource.Resources;
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.security.PrivilegedExceptionAction;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
 
 public class TestNMSimulator {
@@ -102,6 +127,187 @@ public class TestNMSimulator {
         node1.getAMContainers().contains(cId2));
   }
 
+  @Test
+  public void testContainerUpdates() throws Exception {
+    conf.setFloat(SLSConfiguration.NM_CONTAINER_SHRINK_OOM_RATIO, 0.5f);
+    ContainerUpdateStats stats = new ContainerUpdateStats();
+    NMSimulator node1 = new NMSimulator();
+    node1.init("rack1/node1", GB * 10, 10, 0, 1000, rm, conf, stats);
+
+    ContainerId cId1 = newContainerId(1, 1, 1);
+    node1.addNewContainer(Container.newInstance(cId1, null, null,
+        Resources.createResource(GB * 2, 2), null, null, Time.now(), 0, 0, 0),
+        100000L);
+    ContainerSimulator cs1 = node1.getRunningContainers().get(cId1);
+    long start = cs1.getEndTime() - 100000L;
+
+    // a suspended container makes no progress and never ends
+    node1.applyContainerUpdate(
+        NodeContainerUpdate.newInstance(cId1, 0, 0, true, false),
+        start + 1000);
+    Assert.assertTrue(cs1.isSuspended());
+    Assert.assertEquals(Long.MAX_VALUE, cs1.getEndTime());
+    Assert.assertEquals(1000, cs1.getCompletedWork(start + 5000));
+
+    // resumed on half of its cores it takes twice the remaining work
+    node1.applyContainerUpdate(
+        NodeContainerUpdate.newInstance(cId1, GB * 2, 1, false, true),
+        start + 11000);
+    Assert.assertFalse(cs1.isSuspended());
+    Assert.assertEquals(10000, cs1.getSuspendedTime(start + 20000));
+    Assert.assertEquals(start + 11000 + 2 * 99000, cs1.getEndTime());
+    Assert.assertTrue(node1.getRunningContainers().containsKey(cId1));
+    Assert.assertEquals(1, stats.getUpdates(Method.SUSPEND));
+
+    // shrunk below half of its memory it runs out of memory
+    ContainerId cId2 = newContainerId(1, 1, 2);
+    node1.addNewContainer(Container.newInstance(cId2, null, null,
+        Resources.createResource(GB * 2, 2), null, null, Time.now(), 0, 0, 0),
+        100000L);
+    node1.applyContainerUpdate(
+        NodeContainerUpdate.newInstance(cId2, GB / 2, 1, true, false),
+        System.currentTimeMillis());
+    Assert.assertFalse(node1.getRunningContainers().containsKey(cId2));
+    Assert.assertTrue(node1.getOomContainers().contains(cId2));
+    Assert.assertEquals(1, stats.getKilled(Method.SHRINK));
+  }
+
+  @Test
+  public void testContainerDeadline() throws Exception {
+    NMSimulator node1 = new NMSimulator();
+    node1.init("rack1/node1", GB * 10, 10, 0, 1000, rm);
+    long arrivalTime = 1000000L;
+    long deadline = arrivalTime + 60000L;
+
+    ContainerId cId1 = newContainerId(1, 1, 1);
+    node1.addNewContainer(Container.newInstance(cId1, null, null,
+        Resources.createResource(GB, 1), null, null, arrivalTime, deadline,
+        0, 0), 100000L);
+    // the deadline of the container is already absolute
+    Assert.assertEquals(deadline,
+        node1.getRunningContainers().get(cId1).getDeadline());
+
+    // no deadline
+    ContainerId cId2 = newContainerId(1, 1, 2);
+    node1.addNewContainer(Container.newInstance(cId2, null, null,
+        Resources.createResource(GB, 1), null, null, arrivalTime, 0, 0, 0),
+        100000L);
+    Assert.assertEquals(0, node1.getRunningContainers().get(cId2).getDeadline());
+  }
+
+  /**
+   * Unmanaged AM asking for containers on demand.
+   */
+  class AllocatingAMSimulator extends AMSimulator {
+    @Override
+    protected void processResponseQueue() {
+    }
+
+    @Override
+    protected void sendContainerRequest() {
+    }
+
+    @Override
+    protected void checkStop() {
+    }
+
+    ApplicationAttemptId getAttemptId() {
+      return appAttemptId;
+    }
+
+    /**
+     * Ask for one more container anywhere, or for nothing if the capability
+     * is null, and get the containers allocated since the last call.
+     */
+    List<Container> allocate(Resource capability) throws Exception {
+      List<ResourceRequest> ask = new ArrayList<ResourceRequest>();
+      if (capability != null) {
+        ask.add(createResourceRequest(capability, ResourceRequest.ANY, 1, 1));
+      }
+      final AllocateRequest request = createAllocateRequest(ask);
+      UserGroupInformation ugi =
+          UserGroupInformation.createRemoteUser(appAttemptId.toString());
+      Token<AMRMTokenIdentifier> token = rm.getRMContext().getRMApps()
+          .get(appId).getRMAppAttempt(appAttemptId).getAMRMToken();
+      ugi.addTokenIdentifier(token.decodeIdentifier());
+      return ugi.doAs(new PrivilegedExceptionAction<AllocateResponse>() {
+        @Override
+        public AllocateResponse run() throws Exception {
+          return rm.getApplicationMasterService().allocate(request);
+        }
+      }).getAllocatedContainers();
+    }
+  }
+
+  @Test(timeout = 60000)
+  public void testPreemptionUpdateThroughScheduler() throws Exception {
+    // the capacity scheduler wrapped the way SLSRunner does, with the
+    // preemption policy loaded on top of the wrapper
+    rm.stop();
+    CapacitySchedulerConfiguration csConf =
+        new CapacitySchedulerConfiguration();
+    csConf.setQueues(CapacitySchedulerConfiguration.ROOT,
+        new String[] {"default"});
+    csConf.setCapacity(CapacitySchedulerConfiguration.ROOT + ".default", 100);
+    conf = new YarnConfiguration(csConf);
+    conf.set(YarnConfiguration.RM_SCHEDULER,
+        ResourceSchedulerWrapper.class.getName());
+    conf.set(SLSConfiguration.RM_SCHEDULER, CapacityScheduler.class.getName());
+    conf.setBoolean(SLSConfiguration.METRICS_SWITCH, false);
+    conf.setBoolean(YarnConfiguration.RM_SCHEDULER_ENABLE_MONITORS, true);
+    conf.set(YarnConfiguration.RM_SCHEDULER_MONITOR_POLICIES,
+        ProportionalCapacityPreemptionPolicy.class.getName());
+    rm = new ResourceManager();
+    rm.init(conf);
+    rm.start();
+
+    ContainerUpdateStats stats = new ContainerUpdateStats();
+    NMSimulator node1 = new NMSimulator();
+    node1.init("rack1/node1", GB * 10, 10, 0, 1000, rm, conf, stats);
+    node1.middleStep();
+
+    AllocatingAMSimulator app = new AllocatingAMSimulator();
+    app.init(1, 1000, new ArrayList<ContainerSimulator>(), rm, null, 0,
+        1000000L, "user1", "default", false, "app1");
+    app.firstStep();
+    List<Container> allocated =
+        app.allocate(Resources.createResource(GB * 2, 2));
+    for (int i = 0; allocated.isEmpty() && i < 100; i++) {
+      node1.middleStep();
+      Thread.sleep(100);
+      allocated = app.allocate(null);
+    }
+    Assert.assertEquals(1, allocated.size());
+    Container container = allocated.get(0);
+    node1.addNewContainer(container, 100000L);
+    ContainerSimulator cs1 =
+        node1.getRunningContainers().get(container.getId());
+
+    ResourceScheduler scheduler = ((WrappingResourceScheduler)
+        rm.getResourceScheduler()).getWrappedScheduler();
+    RMContainer rmContainer = scheduler.getRMContainer(container.getId());
+    for (int i = 0; rmContainer.getState() != RMContainerState.RUNNING
+        && i < 100; i++) {
+      node1.middleStep();
+      Thread.sleep(100);
+    }
+    Assert.assertEquals(RMContainerState.RUNNING, rmContainer.getState());
+
+    // suspend it the way the policy does, through the RM dispatcher
+    rm.getRMContext().getDispatcher().getEventHandler().handle(
+        new ContainerPreemptEvent(app.getAttemptId(), rmContainer,
+            ContainerPreemptEventType.SUSPEND_CONTAINER,
+            container.getResource()));
+    for (int i = 0; !cs1.isSuspended() && i < 100; i++) {
+      Thread.sleep(100);
+      node1.middleStep();
+    }
+    Assert.assertTrue(cs1.isSuspended());
+    Assert.assertEquals(1, stats.getUpdates(Method.SUSPEND));
+    Assert.assertTrue(node1.getRunningContainers()
+        .containsKey(container.getId()));
+  }
+
   private ContainerId newContainerId(int appId, int appAttemptId, int cId) {
     return BuilderUtils.newContainerId(
         BuilderUtils.newApplicationAttemptId(
@@ -0,0 +1,76 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.yarn.sls.resume;
+
+import org.apache.hadoop.yarn.server.resourcemanager.scheduler.capacity.EdfResumeOrderingPolicy;
+import org.apache.hadoop.yarn.server.resourcemanager.scheduler.capacity.FifoResumeOrderingPolicy;
+import org.apache.hadoop.yarn.server.resourcemanager.scheduler.capacity.LeastSlackResumeOrderingPolicy;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class TestResumeOrderingSimulator {
+
+  @Test
+  public void testResumeEarliestDeadline() {
+    List<ResumeOrderingSimulator.Task> tasks =
+        new ArrayList<ResumeOrderingSimulator.Task>();
+    // both low priority tasks are suspended at 5 by the high priority ones,
+    // a slot is freed at 15 for the one resumed first, which is done at 30
+    tasks.add(new ResumeOrderingSimulator.Task(0, false, 0, 20, 200));
+    tasks.add(new ResumeOrderingSimulator.Task(1, false, 0, 20, 40));
+    tasks.add(new ResumeOrderingSimulator.Task(2, true, 5, 10, 0));
+    tasks.add(new ResumeOrderingSimulator.Task(3, true, 5, 30, 0));
+    ResumeOrderingSimulator simulator = new ResumeOrderingSimulator(2, tasks);
+
+    ResumeOrderingSimulator.Result fifo =
+        simulator.run("fifo", new FifoResumeOrderingPolicy());
+    Assert.assertEquals(1, fifo.getMissedDeadlines());
+    Assert.assertEquals(0.5, fifo.getDeadlineMissRate(), 0.001);
+    Assert.assertEquals(2, fifo.getSuspensions());
+    Assert.assertEquals(45, fifo.getMakespan());
+
+    ResumeOrderingSimulator.Result edf =
+        simulator.run("edf", new EdfResumeOrderingPolicy());
+    Assert.assertEquals(0, edf.getMissedDeadlines());
+    Assert.assertEquals(45, edf.getMakespan());
+
+    ResumeOrderingSimulator.Result leastSlack =
+        simulator.run("least-slack", new LeastSlackResumeOrderingPolicy());
+    Assert.assertEquals(0, leastSlack.getMissedDeadlines());
+  }
+
+  @Test
+  public void testGeneratedWorkload() {
+    List<ResumeOrderingSimulator.Task> tasks =
+        ResumeOrderingSimulator.generateWorkload(1, 1000, 50, 0.9, 0.6, 600,
+            1.2, 3);
+    Assert.assertEquals(1000, tasks.size());
+    ResumeOrderingSimulator simulator = new ResumeOrderingSimulator(50, tasks);
+    ResumeOrderingSimulator.Result fifo =
+        simulator.run("fifo", new FifoResumeOrderingPolicy());
+    ResumeOrderingSimulator.Result edf =
+        simulator.run("edf", new EdfResumeOrderingPolicy());
+    Assert.assertTrue(fifo.getSuspensions() > 0);
+    Assert.assertTrue(edf.getMissedDeadlines() <= fifo.getMissedDeadlines());
+    // the slots are never left idle, whatever is resumed first
+    Assert.assertEquals(fifo.getMakespan(), edf.getMakespan());
+  }
+}
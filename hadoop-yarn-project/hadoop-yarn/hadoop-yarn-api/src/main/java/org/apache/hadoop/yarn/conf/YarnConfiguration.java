@@ -365,12 +365,52 @@ public class YarnConfiguration extends Configuration {
       RM_PREFIX + "nodemanagers.heartbeat-interval-ms";
   public static final long DEFAULT_RM_NM_HEARTBEAT_INTERVAL_MS = 1000;
 
+  /** Whether the RM adapts the heartbeat interval of every NM to its
+   * activity: faster for nodes with container updates or allocations,
+   * slower for idle nodes.*/
+  public static final String RM_NM_HEARTBEAT_INTERVAL_ADAPTIVE_ENABLED =
+      RM_PREFIX + "nodemanagers.heartbeat-interval.adaptive.enabled";
+  public static final boolean
+      DEFAULT_RM_NM_HEARTBEAT_INTERVAL_ADAPTIVE_ENABLED = false;
+
+  /** Shortest adaptive heartbeat interval, given to nodes with container
+   * updates in flight.*/
+  public static final String RM_NM_HEARTBEAT_INTERVAL_MIN_MS =
+      RM_PREFIX + "nodemanagers.heartbeat-interval.min-ms";
+  public static final long DEFAULT_RM_NM_HEARTBEAT_INTERVAL_MIN_MS = 100;
+
+  /** Longest adaptive heartbeat interval, reached by idle nodes.*/
+  public static final String RM_NM_HEARTBEAT_INTERVAL_MAX_MS =
+      RM_PREFIX + "nodemanagers.heartbeat-interval.max-ms";
+  public static final long DEFAULT_RM_NM_HEARTBEAT_INTERVAL_MAX_MS = 5000;
+
+  /** Allocations per second above which a node heartbeats faster than the
+   * configured interval.*/
+  public static final String RM_NM_HEARTBEAT_INTERVAL_BUSY_ALLOCATION_RATE =
+      RM_PREFIX + "nodemanagers.heartbeat-interval.busy-allocation-rate";
+  public static final float
+      DEFAULT_RM_NM_HEARTBEAT_INTERVAL_BUSY_ALLOCATION_RATE = 1.0f;
+
+  /** Maximum number of NM heartbeats per second the adaptive intervals aim
+   * for over the whole cluster, 0 for no limit.*/
+  public static final String RM_NM_HEARTBEATS_PER_SECOND_MAX =
+      RM_PREFIX + "nodemanagers.heartbeats-per-second.max";
+  public static final int DEFAULT_RM_NM_HEARTBEATS_PER_SECOND_MAX = 0;
+
   /** Number of worker threads that write the history data. */
   public static final String RM_HISTORY_WRITER_MULTI_THREADED_DISPATCHER_POOL_SIZE =
       RM_PREFIX + "history-writer.multi-threaded-dispatcher.pool-size";
   public static final int DEFAULT_RM_HISTORY_WRITER_MULTI_THREADED_DISPATCHER_POOL_SIZE =
       10;
 
+  /**
+   * Number of lanes of the RM dispatcher. With more than one, the events of
+   * different applications and nodes are handled in parallel.
+   */
+  public static final String RM_DISPATCHER_LANES =
+      RM_PREFIX + "dispatcher.lanes";
+  public static final int DEFAULT_RM_DISPATCHER_LANES = 1;
+
   /**
    *  The setting that controls whether yarn system metrics is published on the
    *  timeline server or not by RM.
@@ -409,6 +449,13 @@ public class YarnConfiguration extends Configuration {
   public static final String DOCKER_PYTHON_RPC_OBJECT           = RM_PREFIX+"docker-python-rpc-object";
   public static final String DEFAULT_DOCKER_PYTHON_RPC_OBJECT   = "container.master";
 
+  //delay before connecting to the python docker master again, doubled after
+  //each failure up to the max
+  public static final String DOCKER_PYTHON_RPC_RETRY_INTERVAL_MS = RM_PREFIX+"docker-python-rpc.retry-interval-ms";
+  public static final long DEFAULT_DOCKER_PYTHON_RPC_RETRY_INTERVAL_MS = 1000;
+  public static final String DOCKER_PYTHON_RPC_MAX_RETRY_INTERVAL_MS = RM_PREFIX+"docker-python-rpc.max-retry-interval-ms";
+  public static final long DEFAULT_DOCKER_PYTHON_RPC_MAX_RETRY_INTERVAL_MS = 60000;
+
   @Private
   public static final String RM_WORK_PRESERVING_RECOVERY_ENABLED = RM_PREFIX
       + "work-preserving-recovery.enabled";
@@ -421,6 +468,23 @@ public class YarnConfiguration extends Configuration {
   public static final long DEFAULT_RM_WORK_PRESERVING_RECOVERY_SCHEDULING_WAIT_MS =
       10000;
 
+  /**
+   * Number of threads decoding the applications and attempts loaded from the
+   * state store on recovery, 1 to decode them in the loading thread.
+   */
+  public static final String RM_RECOVERY_DECODE_THREADS =
+      RM_PREFIX + "recovery.decode-threads";
+  public static final int DEFAULT_RM_RECOVERY_DECODE_THREADS = 4;
+
+  /**
+   * Whether the attempts of the completed applications are only recovered
+   * when first needed rather than while the RM recovers.
+   */
+  public static final String RM_RECOVERY_LAZY_COMPLETED_APPS_ENABLED =
+      RM_PREFIX + "recovery.lazy-completed-apps.enabled";
+  public static final boolean DEFAULT_RM_RECOVERY_LAZY_COMPLETED_APPS_ENABLED =
+      false;
+
   /** Zookeeper interaction configs */
   public static final String RM_ZK_PREFIX = RM_PREFIX + "zk-";
 
@@ -453,6 +517,27 @@ public class YarnConfiguration extends Configuration {
   public static final String ZK_RM_STATE_STORE_ROOT_NODE_ACL =
       ZK_STATE_STORE_PREFIX + "root-node.acl";
 
+  /**
+   * How long, in ms, the ZKRMStateStore gathers the application and attempt
+   * writes into a single multi-op. 0 writes each of them on its own.
+   */
+  public static final String ZK_RM_STATE_STORE_BATCH_INTERVAL_MS =
+      ZK_STATE_STORE_PREFIX + "batch.interval-ms";
+  public static final long DEFAULT_ZK_RM_STATE_STORE_BATCH_INTERVAL_MS = 0;
+
+  /** Maximum number of znode operations in a batch of writes */
+  public static final String ZK_RM_STATE_STORE_BATCH_MAX_OPS =
+      ZK_STATE_STORE_PREFIX + "batch.max-ops";
+  public static final int DEFAULT_ZK_RM_STATE_STORE_BATCH_MAX_OPS = 100;
+
+  /**
+   * Number of buckets the application znodes are hashed into. 0 keeps them
+   * all under the application root znode.
+   */
+  public static final String ZK_RM_STATE_STORE_APP_BUCKETS =
+      ZK_STATE_STORE_PREFIX + "app-buckets";
+  public static final int DEFAULT_ZK_RM_STATE_STORE_APP_BUCKETS = 0;
+
   /** HA related configs */
   public static final String RM_HA_PREFIX = RM_PREFIX + "ha.";
   public static final String RM_HA_ENABLED = RM_HA_PREFIX + "enabled";
@@ -473,6 +558,14 @@ public class YarnConfiguration extends Configuration {
 
   public static final String YARN_AUTHORIZATION_PROVIDER = YARN_PREFIX
       + "authorization-provider";
+
+  /**
+   * Number of events kept by the scheduling trace of the RM and the NM,
+   * 0 to disable it.
+   */
+  public static final String SCHEDULING_TRACE_SIZE = YARN_PREFIX
+      + "scheduling-trace.size";
+  public static final int DEFAULT_SCHEDULING_TRACE_SIZE = 65536;
   private static final List<String> RM_SERVICES_ADDRESS_CONF_KEYS_HTTP =
       Collections.unmodifiableList(Arrays.asList(
           RM_ADDRESS,
@@ -673,11 +766,100 @@ public class YarnConfiguration extends Configuration {
   public static final String NM_CONTAINER_MGR_THREAD_COUNT =
     NM_PREFIX + "container-manager.thread-count";
   public static final int DEFAULT_NM_CONTAINER_MGR_THREAD_COUNT = 20;
+
+  /**
+   * Number of lanes of the container manager dispatcher. With more than one,
+   * the events of different applications are handled in parallel.
+   */
+  public static final String NM_CONTAINER_MGR_DISPATCHER_LANES =
+    NM_PREFIX + "container-manager.dispatcher.lanes";
+  public static final int DEFAULT_NM_CONTAINER_MGR_DISPATCHER_LANES = 1;
   
   /** Number of threads used in cleanup.*/
   public static final String NM_DELETE_THREAD_COUNT = 
     NM_PREFIX +  "delete.thread-count";
   public static final int DEFAULT_NM_DELETE_THREAD_COUNT = 4;
+
+  /** Number of threads used to apply container updates (resize, suspend,
+   * resume) pushed by the RM.*/
+  public static final String NM_CONTAINER_UPDATER_THREAD_COUNT =
+    NM_PREFIX + "container-updater.thread-count";
+  public static final int DEFAULT_NM_CONTAINER_UPDATER_THREAD_COUNT = 4;
+
+  /** Maximum number of containers resized together by one updater thread.*/
+  public static final String NM_CONTAINER_UPDATER_BATCH_SIZE =
+    NM_PREFIX + "container-updater.batch-size";
+  public static final int DEFAULT_NM_CONTAINER_UPDATER_BATCH_SIZE = 32;
+
+  /** Whether the NM heartbeats right away once it applied a suspend or a
+   * shrink, rather than at its next heartbeat.*/
+  public static final String NM_CONTAINER_UPDATER_OUT_OF_BAND_HEARTBEAT =
+    NM_PREFIX + "container-updater.out-of-band-heartbeat.enabled";
+  public static final boolean
+    DEFAULT_NM_CONTAINER_UPDATER_OUT_OF_BAND_HEARTBEAT = false;
+
+  /** Whether the memory of containers is bound to the numa nodes of their
+   * cpuset.*/
+  public static final String NM_CORES_MANAGER_NUMA_MEMORY_BINDING =
+    NM_PREFIX + "cores-manager.numa-memory-binding";
+  public static final boolean DEFAULT_NM_CORES_MANAGER_NUMA_MEMORY_BINDING =
+    false;
+
+  /** Memory left above the rss of a container when shrinking its memory.*/
+  public static final String NM_CONTAINER_UPDATER_SHRINK_HEADROOM_MB =
+    NM_PREFIX + "container-updater.shrink-headroom-mb";
+  public static final int DEFAULT_NM_CONTAINER_UPDATER_SHRINK_HEADROOM_MB =
+    256;
+
+  /** Class used to change the resource limits of running containers.*/
+  public static final String NM_CONTAINER_RESIZER_CLASS =
+    NM_PREFIX + "container-resizer.class";
+
+  /** Root of the cgroup filesystem used by the cgroups container resizer.*/
+  public static final String NM_CONTAINER_RESIZER_CGROUPS_ROOT =
+    NM_PREFIX + "container-resizer.cgroups.root";
+  public static final String DEFAULT_NM_CONTAINER_RESIZER_CGROUPS_ROOT =
+    "/sys/fs/cgroup";
+
+  /** Cgroup, relative to each controller, holding the container cgroups.*/
+  public static final String NM_CONTAINER_RESIZER_CGROUPS_PARENT =
+    NM_PREFIX + "container-resizer.cgroups.parent";
+  public static final String DEFAULT_NM_CONTAINER_RESIZER_CGROUPS_PARENT =
+    "docker";
+
+  /** Whether the cgroups container resizer falls back to docker update for
+   * containers whose cgroup cannot be found.*/
+  public static final String NM_CONTAINER_RESIZER_CGROUPS_DOCKER_FALLBACK =
+    NM_PREFIX + "container-resizer.cgroups.docker-fallback";
+  public static final boolean
+    DEFAULT_NM_CONTAINER_RESIZER_CGROUPS_DOCKER_FALLBACK = true;
+
+  /** Whether the cgroups container resizer freezes the containers whose cores
+   * have all been preempted, and thaws them when they are resumed.*/
+  public static final String NM_CONTAINER_RESIZER_CGROUPS_FREEZE_SUSPENDED =
+    NM_PREFIX + "container-resizer.cgroups.freeze-suspended";
+  public static final boolean
+    DEFAULT_NM_CONTAINER_RESIZER_CGROUPS_FREEZE_SUSPENDED = false;
+
+  /** Whether the NM samples the memory pressure of the containers and reports
+   * it to the RM.*/
+  public static final String NM_MEMORY_PRESSURE_MONITOR_ENABLED =
+    NM_PREFIX + "memory-pressure-monitor.enabled";
+  public static final boolean DEFAULT_NM_MEMORY_PRESSURE_MONITOR_ENABLED =
+    false;
+
+  /** How often the memory pressure of the containers is sampled.*/
+  public static final String NM_MEMORY_PRESSURE_MONITOR_INTERVAL_MS =
+    NM_PREFIX + "memory-pressure-monitor.interval-ms";
+  public static final long DEFAULT_NM_MEMORY_PRESSURE_MONITOR_INTERVAL_MS =
+    3000;
+
+  /** Major page faults per second at which the fault part of the memory
+   * pressure score of a container is full.*/
+  public static final String NM_MEMORY_PRESSURE_MONITOR_MAJOR_FAULT_RATE =
+    NM_PREFIX + "memory-pressure-monitor.major-fault-rate";
+  public static final float
+    DEFAULT_NM_MEMORY_PRESSURE_MONITOR_MAJOR_FAULT_RATE = 100;
   
   /** Keytab for NM.*/
   public static final String NM_KEYTAB = NM_PREFIX + "keytab";
@@ -726,6 +908,17 @@ public class YarnConfiguration extends Configuration {
     NM_PREFIX + "localizer.fetch.thread-count";
   public static final int DEFAULT_NM_LOCALIZER_FETCH_THREAD_COUNT = 4;
 
+  /** Number of resources a container localizer downloads at a time.*/
+  public static final String NM_LOCALIZER_PRIVATE_FETCH_THREAD_COUNT =
+    NM_PREFIX + "localizer.private.fetch.thread-count";
+  public static final int DEFAULT_NM_LOCALIZER_PRIVATE_FETCH_THREAD_COUNT = 1;
+
+  /** Number of downloads from one filesystem running at a time on the node,
+   * over all the localizers. 0 for no limit.*/
+  public static final String NM_LOCALIZER_FETCH_PER_FILESYSTEM_MAX =
+    NM_PREFIX + "localizer.fetch.per-filesystem.max";
+  public static final int DEFAULT_NM_LOCALIZER_FETCH_PER_FILESYSTEM_MAX = 0;
+
   /** Where to store container logs.*/
   public static final String NM_LOG_DIRS = NM_PREFIX + "log-dirs";
   public static final String DEFAULT_NM_LOG_DIRS = "/tmp/logs";
@@ -872,6 +1065,21 @@ public class YarnConfiguration extends Configuration {
   public static final boolean DEFAULT_PROCFS_USE_SMAPS_BASED_RSS_ENABLED =
       false;
 
+  /** Whether the procfs process trees of the containers are built from one
+   * scan of procfs per monitoring round, shared by all the containers.*/
+  public static final String NM_CONTAINER_MON_PROCFS_SNAPSHOT_ENABLED =
+      NM_PREFIX + "container-monitor.procfs-tree.shared-snapshot.enabled";
+  public static final boolean DEFAULT_NM_CONTAINER_MON_PROCFS_SNAPSHOT_ENABLED =
+      false;
+
+  /** Whether the physical memory and cpu usage of the containers confined in
+   * a cgroup are read from their memory and cpuacct cgroups rather than
+   * summed over their processes.*/
+  public static final String NM_CONTAINER_MON_CGROUPS_USAGE_ENABLED =
+      NM_PREFIX + "container-monitor.cgroups-usage.enabled";
+  public static final boolean DEFAULT_NM_CONTAINER_MON_CGROUPS_USAGE_ENABLED =
+      false;
+
   /** Enable/disable container metrics. */
   @Private
   public static final String NM_CONTAINER_METRICS_ENABLE =
@@ -1083,6 +1291,33 @@ public class YarnConfiguration extends Configuration {
   public static final String NM_LOG_AGG_COMPRESSION_TYPE = 
     NM_PREFIX + "log-aggregation.compression-type";
   public static final String DEFAULT_NM_LOG_AGG_COMPRESSION_TYPE = "none";
+
+  /**
+   * Minimum size of the compressed blocks of the aggregated logs, the logs of
+   * small containers are grouped in a block. It is also the size of the
+   * writes to the remote file system.
+   */
+  public static final String NM_LOG_AGG_BLOCK_SIZE =
+    NM_PREFIX + "log-aggregation.block-size";
+  public static final int DEFAULT_NM_LOG_AGG_BLOCK_SIZE = 256 * 1024;
+
+  /**
+   * Whether the rolling log aggregation uploads only what the logs of the
+   * containers grew since the previous upload, and indexes the containers of
+   * the aggregated log files. The aggregated files of an application are then
+   * all kept, whatever the number of log files per app.
+   */
+  public static final String NM_LOG_AGG_INCREMENTAL_ENABLED =
+    NM_PREFIX + "log-aggregation.incremental.enabled";
+  public static final boolean DEFAULT_NM_LOG_AGG_INCREMENTAL_ENABLED = false;
+
+  /**
+   * Number of applications whose logs are uploaded at a time by the NM, 0 for
+   * no limit.
+   */
+  public static final String NM_LOG_AGG_MAX_CONCURRENT_UPLOADS =
+    NM_PREFIX + "log-aggregation.max-concurrent-uploads";
+  public static final int DEFAULT_NM_LOG_AGG_MAX_CONCURRENT_UPLOADS = 0;
   
   /** The kerberos principal for the node manager.*/
   public static final String NM_PRINCIPAL =
@@ -0,0 +1,349 @@
+/**
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package org.apache.hadoop.yarn.event;
+
+import static org.apache.hadoop.metrics2.lib.Interns.info;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.classification.InterfaceAudience.Public;
+import org.apache.hadoop.classification.InterfaceStability.Evolving;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.metrics2.MetricsCollector;
+import org.apache.hadoop.metrics2.MetricsRecordBuilder;
+import org.apache.hadoop.metrics2.MetricsSource;
+import org.apache.hadoop.metrics2.MetricsSystem;
+import org.apache.hadoop.metrics2.lib.DefaultMetricsSystem;
+import org.apache.hadoop.metrics2.lib.MetricsRegistry;
+import org.apache.hadoop.metrics2.lib.MutableRate;
+import org.apache.hadoop.yarn.exceptions.YarnRuntimeException;
+
+import com.google.common.annotations.VisibleForTesting;
+
+/**
+ * An {@link AsyncDispatcher} spreading the events over several lanes, each
+ * one a queue with its own thread. The {@link Partitioner} gives the entity
+ * an event is about (an application, a node...), all the events of an entity
+ * go to the same lane, so they are handled in the order they were sent.
+ * Events of different entities may be handled in any order. Events without
+ * an entity all go to the first lane.
+ *
+ * The number of lanes is read at init from the configuration key given at
+ * construction, with a single lane the dispatcher behaves exactly like an
+ * {@link AsyncDispatcher}. With several lanes the depth of every lane and the
+ * time events wait and take to be handled are published as metrics.
+ */
+@SuppressWarnings("rawtypes")
+@Public
+@Evolving
+public class PartitionedAsyncDispatcher extends AsyncDispatcher
+    implements MetricsSource {
+
+  private static final Log LOG =
+      LogFactory.getLog(PartitionedAsyncDispatcher.class);
+
+  /**
+   * Gives the entity whose events have to be handled in order.
+   */
+  public interface Partitioner {
+    /**
+     * @return the entity the event is about, null if there is none
+     */
+    Object getPartitionKey(Event event);
+  }
+
+  private static class QueuedEvent {
+    final Event event;
+    final long queueTime;
+
+    QueuedEvent(Event event) {
+      this.event = event;
+      this.queueTime = System.nanoTime();
+    }
+  }
+
+  private class Lane implements Runnable {
+    final int index;
+    final BlockingQueue<QueuedEvent> queue =
+        new LinkedBlockingQueue<QueuedEvent>();
+    final MutableRate waitTime;
+    final MutableRate handlingTime;
+    Thread thread;
+
+    Lane(int index) {
+      this.index = index;
+      this.waitTime = registry.newRate("Lane" + index + "WaitTime",
+          "Time in ms events waited in lane " + index, false);
+      this.handlingTime = registry.newRate("Lane" + index + "HandlingTime",
+          "Time in ms to handle an event of lane " + index, false);
+    }
+
+    @Override
+    public void run() {
+      while (!stopped && !Thread.currentThread().isInterrupted()) {
+        QueuedEvent queued;
+        try {
+          queued = queue.take();
+        } catch (InterruptedException ie) {
+          if (!stopped) {
+            LOG.warn(thread.getName() + " interrupted", ie);
+          }
+          return;
+        }
+        long start = System.nanoTime();
+        waitTime.add((start - queued.queueTime) / 1000000);
+        try {
+          dispatch(queued.event);
+        } finally {
+          handlingTime.add((System.nanoTime() - start) / 1000000);
+          if (pending.decrementAndGet() == 0 && blockNewEvents) {
+            synchronized (waitForDrained) {
+              waitForDrained.notifyAll();
+            }
+          }
+        }
+      }
+    }
+  }
+
+  private final String name;
+  private final String lanesKey;
+  private final Partitioner partitioner;
+  // events sent before init, when the number of lanes is not known yet
+  private final BlockingQueue<Event> initialQueue;
+  private final MetricsRegistry registry;
+
+  // null with a single lane, the events then go through the AsyncDispatcher
+  private volatile Lane[] lanes;
+  // events queued in a lane and not handled yet
+  private final AtomicInteger pending = new AtomicInteger();
+  private volatile boolean stopped = false;
+  private volatile boolean drainEventsOnStop = false;
+  private volatile boolean blockNewEvents = false;
+  private final Object waitForDrained = new Object();
+  private boolean metricsRegistered = false;
+  private EventHandler handlerInstance = null;
+
+  /**
+   * @param name name of the dispatcher, used for its threads and metrics
+   * @param lanesKey configuration key of the number of lanes
+   * @param partitioner gives the entity of an event
+   */
+  public PartitionedAsyncDispatcher(String name, String lanesKey,
+      Partitioner partitioner) {
+    this(name, lanesKey, partitioner, new LinkedBlockingQueue<Event>());
+  }
+
+  private PartitionedAsyncDispatcher(String name, String lanesKey,
+      Partitioner partitioner, BlockingQueue<Event> initialQueue) {
+    super(initialQueue);
+    this.name = name;
+    this.lanesKey = lanesKey;
+    this.partitioner = partitioner;
+    this.initialQueue = initialQueue;
+    this.registry = new MetricsRegistry(info(name,
+        "Metrics of the lanes of the " + name + " dispatcher"));
+  }
+
+  @Override
+  protected void serviceInit(Configuration conf) throws Exception {
+    int numLanes = conf.getInt(lanesKey, 1);
+    if (numLanes > 1) {
+      Lane[] newLanes = new Lane[numLanes];
+      for (int i = 0; i < numLanes; ++i) {
+        newLanes[i] = new Lane(i);
+      }
+      lanes = newLanes;
+      List<Event> early = new ArrayList<Event>();
+      initialQueue.drainTo(early);
+      for (Event event : early) {
+        enqueue(event);
+      }
+      LOG.info(name + " dispatches events over " + numLanes + " lanes");
+    }
+    super.serviceInit(conf);
+  }
+
+  @Override
+  protected void serviceStart() throws Exception {
+    if (lanes == null) {
+      super.serviceStart();
+      return;
+    }
+    for (Lane lane : lanes) {
+      lane.thread = new Thread(lane);
+      lane.thread.setName(name + " event handler " + lane.index);
+      lane.thread.start();
+    }
+    MetricsSystem ms = DefaultMetricsSystem.instance();
+    if (ms != null) {
+      ms.register(name, registry.info().description(), this);
+      metricsRegistered = true;
+    }
+  }
+
+  /**
+   * The lanes are drained here, the {@link AsyncDispatcher} only drains its
+   * own queue, with a single lane.
+   */
+  @Override
+  public void setDrainEventsOnStop() {
+    drainEventsOnStop = true;
+  }
+
+  @Override
+  protected void serviceStop() throws Exception {
+    if (lanes == null) {
+      if (drainEventsOnStop) {
+        super.setDrainEventsOnStop();
+      }
+    } else {
+      if (drainEventsOnStop) {
+        blockNewEvents = true;
+        LOG.info(name + " is draining to stop, ignoring any new events.");
+        synchronized (waitForDrained) {
+          while (pending.get() > 0 && isAnyLaneAlive()) {
+            waitForDrained.wait(1000);
+            LOG.info("Waiting for " + name + " to drain.");
+          }
+        }
+      }
+      stopped = true;
+      for (Lane lane : lanes) {
+        if (lane.thread != null) {
+          lane.thread.interrupt();
+        }
+      }
+      for (Lane lane : lanes) {
+        if (lane.thread != null) {
+          try {
+            lane.thread.join();
+          } catch (InterruptedException ie) {
+            LOG.warn("Interrupted Exception while stopping", ie);
+          }
+        }
+      }
+      if (metricsRegistered) {
+        DefaultMetricsSystem.instance().unregisterSource(name);
+        metricsRegistered = false;
+      }
+    }
+    super.serviceStop();
+  }
+
+  private boolean isAnyLaneAlive() {
+    for (Lane lane : lanes) {
+      if (lane.thread != null && lane.thread.isAlive()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public EventHandler getEventHandler() {
+    if (handlerInstance == null) {
+      handlerInstance = new PartitionedEventHandler(super.getEventHandler());
+    }
+    return handlerInstance;
+  }
+
+  class PartitionedEventHandler implements EventHandler<Event> {
+    private final EventHandler singleLaneHandler;
+
+    PartitionedEventHandler(EventHandler singleLaneHandler) {
+      this.singleLaneHandler = singleLaneHandler;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public void handle(Event event) {
+      if (lanes == null) {
+        singleLaneHandler.handle(event);
+      } else if (!blockNewEvents) {
+        enqueue(event);
+      }
+    }
+  }
+
+  private void enqueue(Event event) {
+    Lane lane = lanes[getLane(event)];
+    int qSize = lane.queue.size();
+    if (qSize != 0 && qSize % 1000 == 0) {
+      LOG.info("Size of " + name + " lane " + lane.index + " is " + qSize);
+    }
+    pending.incrementAndGet();
+    try {
+      lane.queue.put(new QueuedEvent(event));
+    } catch (InterruptedException e) {
+      pending.decrementAndGet();
+      if (!stopped) {
+        LOG.warn(name + " interrupted while queueing", e);
+      }
+      throw new YarnRuntimeException(e);
+    }
+  }
+
+  @VisibleForTesting
+  int getLane(Event event) {
+    Object key = partitioner.getPartitionKey(event);
+    if (key == null) {
+      return 0;
+    }
+    return (key.hashCode() & Integer.MAX_VALUE) % lanes.length;
+  }
+
+  /**
+   * @return the number of lanes, 1 when not partitioned
+   */
+  public int getNumLanes() {
+    return lanes == null ? 1 : lanes.length;
+  }
+
+  /**
+   * @return the number of events waiting in a lane
+   */
+  public int getLaneDepth(int lane) {
+    return lanes == null ? 0 : lanes[lane].queue.size();
+  }
+
+  @Override
+  protected boolean isDrained() {
+    return lanes == null ? super.isDrained() : pending.get() == 0;
+  }
+
+  @Override
+  public void getMetrics(MetricsCollector collector, boolean all) {
+    Lane[] current = lanes;
+    MetricsRecordBuilder rb = collector.addRecord(registry.info());
+    if (current != null) {
+      for (Lane lane : current) {
+        rb.addGauge(info("Lane" + lane.index + "Depth",
+            "Events waiting in lane " + lane.index), lane.queue.size());
+      }
+    }
+    registry.snapshot(rb, all);
+  }
+}
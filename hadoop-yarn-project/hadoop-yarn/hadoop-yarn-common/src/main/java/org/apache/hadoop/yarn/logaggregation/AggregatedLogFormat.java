@@ -18,6 +18,7 @@
 
 package org.apache.hadoop.yarn.logaggregation;
 
+import java.io.BufferedOutputStream;
 import java.io.DataInput;
 import java.io.DataInputStream;
 import java.io.DataOutput;
@@ -39,6 +40,7 @@ import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -86,6 +88,8 @@ public class AggregatedLogFormat {
   private static final LogKey APPLICATION_ACL_KEY = new LogKey("APPLICATION_ACL");
   private static final LogKey APPLICATION_OWNER_KEY = new LogKey("APPLICATION_OWNER");
   private static final LogKey VERSION_KEY = new LogKey("VERSION");
+  private static final LogKey CONTAINER_INDEX_KEY =
+      new LogKey("CONTAINER_INDEX");
   private static final Map<String, LogKey> RESERVED_KEYS;
   //Maybe write out the retention policy.
   //Maybe write out a list of containerLogs skipped by the retention policy.
@@ -103,6 +107,7 @@ public class AggregatedLogFormat {
     RESERVED_KEYS.put(APPLICATION_ACL_KEY.toString(), APPLICATION_ACL_KEY);
     RESERVED_KEYS.put(APPLICATION_OWNER_KEY.toString(), APPLICATION_OWNER_KEY);
     RESERVED_KEYS.put(VERSION_KEY.toString(), VERSION_KEY);
+    RESERVED_KEYS.put(CONTAINER_INDEX_KEY.toString(), CONTAINER_INDEX_KEY);
   }
 
   @Public
@@ -168,6 +173,8 @@ public class AggregatedLogFormat {
     private final Set<String> alreadyUploadedLogFiles;
     private Set<String> allExistingFileMeta = new HashSet<String>();
     private final boolean appFinished;
+    // path -> bytes of the file already uploaded, null to upload whole files
+    private final Map<String, Long> uploadedOffsets;
     // TODO Maybe add a version string here. Instead of changing the version of
     // the entire k-v format
 
@@ -179,6 +186,20 @@ public class AggregatedLogFormat {
     public LogValue(List<String> rootLogDirs, ContainerId containerId,
         String user, LogAggregationContext logAggregationContext,
         Set<String> alreadyUploadedLogFiles, boolean appFinished) {
+      this(rootLogDirs, containerId, user, logAggregationContext,
+          alreadyUploadedLogFiles, appFinished, null);
+    }
+
+    /**
+     * @param uploadedOffsets the number of bytes of every log file of the
+     *          container already uploaded, keyed by the absolute path of the
+     *          file. Only the bytes appended since are written, and the map
+     *          is updated as they are. Null to write the whole files.
+     */
+    public LogValue(List<String> rootLogDirs, ContainerId containerId,
+        String user, LogAggregationContext logAggregationContext,
+        Set<String> alreadyUploadedLogFiles, boolean appFinished,
+        Map<String, Long> uploadedOffsets) {
       this.rootLogDirs = new ArrayList<String>(rootLogDirs);
       this.containerId = containerId;
       this.user = user;
@@ -188,6 +209,7 @@ public class AggregatedLogFormat {
       this.logAggregationContext = logAggregationContext;
       this.alreadyUploadedLogFiles = alreadyUploadedLogFiles;
       this.appFinished = appFinished;
+      this.uploadedOffsets = uploadedOffsets;
     }
 
     private Set<File> getPendingLogFilesToUploadForThisContainer() {
@@ -235,17 +257,19 @@ public class AggregatedLogFormat {
         }
 
         final long fileLength = logFile.length();
+        final long offset = getUploadedOffset(logFile, fileLength);
         // Write the logFile Type
         out.writeUTF(logFile.getName());
 
         // Write the log length as UTF so that it is printable
-        out.writeUTF(String.valueOf(fileLength));
+        out.writeUTF(String.valueOf(fileLength - offset));
 
         // Write the log itself
         try {
+          IOUtils.skipFully(in, offset);
           byte[] buf = new byte[65535];
           int len = 0;
-          long bytesLeft = fileLength;
+          long bytesLeft = fileLength - offset;
           while ((len = in.read(buf)) != -1) {
             //If buffer contents within fileLength, write
             if (len < bytesLeft) {
@@ -264,6 +288,9 @@ public class AggregatedLogFormat {
                 (newLength-fileLength) +" bytes.");
           }
           this.uploadedFiles.add(logFile);
+          if (uploadedOffsets != null) {
+            uploadedOffsets.put(logFile.getAbsolutePath(), fileLength);
+          }
         } catch (IOException e) {
           String message = logErrorMessage(logFile, e);
           out.write(message.getBytes(Charset.forName("UTF-8")));
@@ -273,6 +300,18 @@ public class AggregatedLogFormat {
       }
     }
 
+    /**
+     * @return the number of bytes of the file already uploaded, 0 if it was
+     * truncated since
+     */
+    private long getUploadedOffset(File logFile, long fileLength) {
+      if (uploadedOffsets == null) {
+        return 0;
+      }
+      Long offset = uploadedOffsets.get(logFile.getAbsolutePath());
+      return offset == null || offset > fileLength ? 0 : offset;
+    }
+
     @VisibleForTesting
     public FileInputStream secureOpenFile(File logFile) throws IOException {
       return SecureIOUtils.openForRead(logFile, getUser(), null);
@@ -318,6 +357,18 @@ public class AggregatedLogFormat {
             });
         candidates = Sets.newHashSet(mask);
       }
+
+      if (this.uploadedOffsets != null) {
+        // skip the files which did not grow since the previous upload
+        for (Iterator<File> candidatesItr = candidates.iterator();
+            candidatesItr.hasNext();) {
+          File candidate = candidatesItr.next();
+          Long offset = uploadedOffsets.get(candidate.getAbsolutePath());
+          if (offset != null && offset == candidate.length()) {
+            candidatesItr.remove();
+          }
+        }
+      }
       return candidates;
     }
 
@@ -371,11 +422,16 @@ public class AggregatedLogFormat {
     private final FSDataOutputStream fsDataOStream;
     private final TFile.Writer writer;
     private FileContext fc;
+    private long numRecords = 0;
+    // container -> number of its record in the file
+    private final Map<String, Long> containerRecords =
+        new LinkedHashMap<String, Long>();
 
     public LogWriter(final Configuration conf, final Path remoteAppLogFile,
         UserGroupInformation userUgi) throws IOException {
+      FSDataOutputStream remoteOStream;
       try {
-        this.fsDataOStream =
+        remoteOStream =
             userUgi.doAs(new PrivilegedExceptionAction<FSDataOutputStream>() {
               @Override
               public FSDataOutputStream run() throws Exception {
@@ -391,10 +447,17 @@ public class AggregatedLogFormat {
         throw new IOException(e);
       }
 
+      // Compressed blocks of at least blockSize, the expected log size for
+      // each container too, so the logs of small containers are grouped in a
+      // block, and written to the remote file system blockSize at a time
+      int blockSize = conf.getInt(YarnConfiguration.NM_LOG_AGG_BLOCK_SIZE,
+          YarnConfiguration.DEFAULT_NM_LOG_AGG_BLOCK_SIZE);
+      this.fsDataOStream = new FSDataOutputStream(
+          new BufferedOutputStream(remoteOStream, blockSize), null);
+
       // Keys are not sorted: null arg
-      // 256KB minBlockSize : Expected log size for each container too
       this.writer =
-          new TFile.Writer(this.fsDataOStream, 256 * 1024, conf.get(
+          new TFile.Writer(this.fsDataOStream, blockSize, conf.get(
               YarnConfiguration.NM_LOG_AGG_COMPRESSION_TYPE,
               YarnConfiguration.DEFAULT_NM_LOG_AGG_COMPRESSION_TYPE), null, conf);
       //Write the version string
@@ -413,6 +476,7 @@ public class AggregatedLogFormat {
       out = this.writer.prepareAppendValue(-1);
       out.writeInt(VERSION);
       out.close();
+      numRecords++;
     }
 
     public void writeApplicationOwner(String user) throws IOException {
@@ -422,6 +486,7 @@ public class AggregatedLogFormat {
       out = this.writer.prepareAppendValue(-1);
       out.writeUTF(user);
       out.close();
+      numRecords++;
     }
 
     public void writeApplicationACLs(Map<ApplicationAccessType, String> appAcls)
@@ -435,6 +500,7 @@ public class AggregatedLogFormat {
         out.writeUTF(entry.getValue());
       }
       out.close();
+      numRecords++;
     }
 
     public void append(LogKey logKey, LogValue logValue) throws IOException {
@@ -449,6 +515,30 @@ public class AggregatedLogFormat {
       out = this.writer.prepareAppendValue(-1);
       logValue.write(out, pendingUploadFiles);
       out.close();
+      if (!containerRecords.containsKey(logKey.toString())) {
+        containerRecords.put(logKey.toString(), numRecords);
+      }
+      numRecords++;
+    }
+
+    /**
+     * Write the index of the containers appended so far, as the last record,
+     * which lets {@link LogReader#getContainerLogsReader(ContainerId)} read
+     * the logs of a container without reading those of the other containers.
+     * The files with an index cannot be read by readers older than the index.
+     */
+    public void writeContainerIndex() throws IOException {
+      DataOutputStream out = this.writer.prepareAppendKey(-1);
+      CONTAINER_INDEX_KEY.write(out);
+      out.close();
+      out = this.writer.prepareAppendValue(-1);
+      out.writeInt(containerRecords.size());
+      for (Entry<String, Long> entry : containerRecords.entrySet()) {
+        out.writeUTF(entry.getKey());
+        out.writeLong(entry.getValue());
+      }
+      out.close();
+      numRecords++;
     }
 
     public void close() {
@@ -468,6 +558,11 @@ public class AggregatedLogFormat {
     private final FSDataInputStream fsDataIStream;
     private final TFile.Reader.Scanner scanner;
     private final TFile.Reader reader;
+    // container -> number of its record, null if the file has no index
+    private Map<String, Long> containerIndex;
+    private boolean containerIndexRead = false;
+    // scanner of the record of the container last read through the index
+    private TFile.Reader.Scanner containerScanner;
 
     public LogReader(Configuration conf, Path remoteAppLogFile)
         throws IOException {
@@ -585,6 +680,20 @@ public class AggregatedLogFormat {
       ContainerLogsReader logReader = null;
 
       final LogKey containerKey = new LogKey(containerId);
+      Map<String, Long> index = getContainerIndex();
+      if (index != null) {
+        Long recordNum = index.get(containerKey.toString());
+        if (recordNum == null) {
+          return null;
+        }
+        DataInputStream valueStream = readRecord(recordNum, containerKey);
+        if (valueStream != null) {
+          return new ContainerLogsReader(valueStream);
+        }
+        LOG.warn("Invalid container index, looking for " + containerId
+            + " in all the records");
+      }
+
       LogKey key = new LogKey();
       DataInputStream valueStream = next(key);
       while (valueStream != null && !key.equals(containerKey)) {
@@ -598,6 +707,63 @@ public class AggregatedLogFormat {
       return logReader;
     }
 
+    /**
+     * @return the index of the containers written by
+     * {@link LogWriter#writeContainerIndex()}, null if the file has none
+     */
+    private Map<String, Long> getContainerIndex() throws IOException {
+      if (containerIndexRead) {
+        return containerIndex;
+      }
+      containerIndexRead = true;
+      long numRecords = reader.getEntryCount();
+      if (numRecords == 0) {
+        return null;
+      }
+      TFile.Reader.Scanner indexScanner =
+          reader.createScannerByRecordNum(numRecords - 1, numRecords);
+      try {
+        if (indexScanner.atEnd()) {
+          return null;
+        }
+        TFile.Reader.Scanner.Entry entry = indexScanner.entry();
+        LogKey key = new LogKey();
+        key.readFields(entry.getKeyStream());
+        if (!key.equals(CONTAINER_INDEX_KEY)) {
+          return null;
+        }
+        DataInputStream valueStream = entry.getValueStream();
+        int numContainers = valueStream.readInt();
+        Map<String, Long> index = new HashMap<String, Long>(numContainers);
+        for (int i = 0; i < numContainers; i++) {
+          String container = valueStream.readUTF();
+          index.put(container, valueStream.readLong());
+        }
+        containerIndex = index;
+        return containerIndex;
+      } finally {
+        IOUtils.cleanup(LOG, indexScanner);
+      }
+    }
+
+    /**
+     * @return the value-stream of the record, null if it does not have the
+     * key
+     */
+    private DataInputStream readRecord(long recordNum, LogKey expectedKey)
+        throws IOException {
+      IOUtils.cleanup(LOG, containerScanner);
+      containerScanner =
+          reader.createScannerByRecordNum(recordNum, recordNum + 1);
+      if (containerScanner.atEnd()) {
+        return null;
+      }
+      TFile.Reader.Scanner.Entry entry = containerScanner.entry();
+      LogKey key = new LogKey();
+      key.readFields(entry.getKeyStream());
+      return key.equals(expectedKey) ? entry.getValueStream() : null;
+    }
+
     //TODO  Change Log format and interfaces to be containerId specific.
     // Avoid returning completeValueStreams.
 //    public List<String> getTypesForContainer(DataInputStream valueStream){}
@@ -745,7 +911,7 @@ public class AggregatedLogFormat {
     }
 
     public void close() {
-      IOUtils.cleanup(LOG, scanner, reader, fsDataIStream);
+      IOUtils.cleanup(LOG, containerScanner, scanner, reader, fsDataIStream);
     }
   }
 
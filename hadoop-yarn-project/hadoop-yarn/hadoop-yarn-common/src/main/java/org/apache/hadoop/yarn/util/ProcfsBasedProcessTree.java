@@ -141,6 +141,8 @@ public class ProcfsBasedProcessTree extends ResourceCalculatorProcessTree {
   private String pid = deadPid;
   static private Pattern numberPattern = Pattern.compile("[1-9][0-9]*");
   private long cpuTime = UNAVAILABLE;
+  // null if the tree scans procfs itself
+  private ProcfsSnapshot snapshot;
 
   protected Map<String, ProcessInfo> processTree =
     new HashMap<String, ProcessInfo>();
@@ -181,6 +183,17 @@ public class ProcfsBasedProcessTree extends ResourceCalculatorProcessTree {
     this.cpuTimeTracker = new CpuTimeTracker(JIFFY_LENGTH_IN_MILLIS);
   }
 
+  /**
+   * Build the tree from a snapshot of procfs shared with other trees instead
+   * of scanning procfs at every update. The snapshot must be refreshed by the
+   * caller before the tree is updated.
+   *
+   * @param snapshot snapshot of the procfs of the tree, null to scan procfs
+   */
+  public void setProcfsSnapshot(ProcfsSnapshot snapshot) {
+    this.snapshot = snapshot;
+  }
+
   /**
    * Checks if the ProcfsBasedProcessTree is available on this system.
    *
@@ -207,7 +220,9 @@ public class ProcfsBasedProcessTree extends ResourceCalculatorProcessTree {
    */
   @Override
   public void updateProcessTree() {
-    if (!pid.equals(deadPid)) {
+    if (!pid.equals(deadPid) && snapshot != null) {
+      updateProcessTreeFromSnapshot();
+    } else if (!pid.equals(deadPid)) {
       // Get the list of processes
       List<String> processList = getProcessList();
 
@@ -288,6 +303,58 @@ public class ProcfsBasedProcessTree extends ResourceCalculatorProcessTree {
     }
   }
 
+  /**
+   * Update the process-tree from the snapshot. The processes seen at the
+   * previous update are updated in place, and the smaps of a process which
+   * did not use cpu since are not read again.
+   */
+  private void updateProcessTreeFromSnapshot() {
+    Map<String, ProcessInfo> oldProcs =
+        new HashMap<String, ProcessInfo>(processTree);
+    processTree.clear();
+
+    ProcfsSnapshot.ProcessStat me = snapshot.getProcess(pid);
+    if (me == null) {
+      return;
+    }
+    LinkedList<ProcfsSnapshot.ProcessStat> pStatQueue =
+        new LinkedList<ProcfsSnapshot.ProcessStat>();
+    pStatQueue.add(me);
+    while (!pStatQueue.isEmpty()) {
+      ProcfsSnapshot.ProcessStat pStat = pStatQueue.remove();
+      if (processTree.containsKey(pStat.getPid())) {
+        continue;
+      }
+      ProcessInfo pInfo = oldProcs.get(pStat.getPid());
+      if (pInfo == null || pInfo.getStartTime() != pStat.getStartTime()) {
+        // new process, or new process with the pid of an old one
+        pInfo = new ProcessInfo(pStat.getPid());
+        pInfo.updateProcessInfo(pStat);
+        pInfo.updateJiffy(null);
+      } else {
+        pInfo.updateProcessInfo(pStat);
+      }
+      processTree.put(pStat.getPid(), pInfo);
+      pStatQueue.addAll(pStat.getChildren());
+    }
+
+    if (LOG.isDebugEnabled()) {
+      LOG.debug(this.toString());
+    }
+    if (smapsEnabled) {
+      Map<String, ProcessTreeSmapMemInfo> oldSmaps = processSMAPTree;
+      processSMAPTree = new HashMap<String, ProcessTreeSmapMemInfo>();
+      for (ProcessInfo p : processTree.values()) {
+        ProcessTreeSmapMemInfo memInfo = oldSmaps.get(p.getPid());
+        if (memInfo == null || p.getAge() == 1 || p.getDtime() != 0) {
+          memInfo = new ProcessTreeSmapMemInfo(p.getPid());
+          constructProcessSMAPInfo(memInfo, procfsDir);
+        }
+        processSMAPTree.put(p.getPid(), memInfo);
+      }
+    }
+  }
+
   /** Verify that the given process id is same as its process group id.
    * @return true if the process id matches else return false.
    */
@@ -615,6 +682,8 @@ public class ProcfsBasedProcessTree extends ResourceCalculatorProcessTree {
     private BigInteger stime = new BigInteger("0"); // # of jiffies in kernel mode
     // how many times has this process been seen alive
     private int age;
+    // jiffies after boot when the process started, only read from snapshots
+    private long startTime;
 
     // # of jiffies used since last update:
     private Long dtime = 0L;
@@ -674,6 +743,10 @@ public class ProcfsBasedProcessTree extends ResourceCalculatorProcessTree {
       return age;
     }
 
+    public long getStartTime() {
+      return startTime;
+    }
+
     public void updateProcessInfo(String name, String ppid, Integer pgrpId,
         Integer sessionId, Long utime, BigInteger stime, Long vmem, Long rssmem) {
       this.name = name;
@@ -686,6 +759,29 @@ public class ProcfsBasedProcessTree extends ResourceCalculatorProcessTree {
       this.rssmemPage = rssmem;
     }
 
+    /**
+     * Update from the stat of the process in a snapshot. If the process was
+     * seen before, also update its age and the jiffies it used since.
+     */
+    public void updateProcessInfo(ProcfsSnapshot.ProcessStat stat) {
+      if (name != null) {
+        this.dtime = stat.getUtime() - utime
+            + stat.getStime() - stime.longValue();
+        this.age++;
+      }
+      this.name = stat.getName();
+      this.ppid = stat.getPpid();
+      this.pgrpId = stat.getPgrpId();
+      this.sessionId = stat.getSessionId();
+      this.utime = stat.getUtime();
+      if (stat.getStime() != stime.longValue()) {
+        this.stime = BigInteger.valueOf(stat.getStime());
+      }
+      this.vmem = stat.getVmem();
+      this.rssmemPage = stat.getRssmemPage();
+      this.startTime = stat.getStartTime();
+    }
+
     public void updateJiffy(ProcessInfo oldInfo) {
       if (oldInfo == null) {
         BigInteger sum = this.stime.add(BigInteger.valueOf(this.utime));
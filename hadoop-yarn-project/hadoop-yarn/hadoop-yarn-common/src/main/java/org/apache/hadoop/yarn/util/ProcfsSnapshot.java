@@ -0,0 +1,367 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.yarn.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.classification.InterfaceStability;
+
+/**
+ * The stat of every process of a proc file system, read in one scan and
+ * shared by all the {@link ProcfsBasedProcessTree}s built from it, instead of
+ * every tree scanning procfs on its own.
+ *
+ * The processes are kept from one refresh to the next: a process whose start
+ * time and jiffies did not change is updated in place, and the stat files are
+ * read into a buffer reused across the processes and the refreshes. A pid
+ * reused by a new process is told apart by its start time.
+ *
+ * This class is not thread-safe, the trees built from it must be updated by
+ * the thread refreshing it.
+ */
+@InterfaceAudience.Private
+@InterfaceStability.Unstable
+public class ProcfsSnapshot {
+
+  static final Log LOG = LogFactory.getLog(ProcfsSnapshot.class);
+
+  // fields of procfs stat files, counted from 1
+  private static final int PPID_FIELD = 4;
+  private static final int PGRP_FIELD = 5;
+  private static final int SESSION_FIELD = 6;
+  private static final int UTIME_FIELD = 14;
+  private static final int STIME_FIELD = 15;
+  private static final int STARTTIME_FIELD = 22;
+  private static final int VSIZE_FIELD = 23;
+  private static final int RSS_FIELD = 24;
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  /**
+   * The stat of a process as of the last refresh.
+   */
+  public static class ProcessStat {
+    private final String pid;
+    private final long startTime;
+    private String name;
+    private String ppid;
+    private long ppidValue;
+    private int pgrpId;
+    private int sessionId;
+    private long utime;
+    private long stime;
+    private long vmem;
+    private long rssmemPage;
+    // whether the process is new or used cpu since the previous refresh
+    private boolean changed;
+    private long generation;
+    private final List<ProcessStat> children = new ArrayList<ProcessStat>();
+
+    ProcessStat(String pid, long startTime) {
+      this.pid = pid;
+      this.startTime = startTime;
+    }
+
+    public String getPid() {
+      return pid;
+    }
+
+    public long getStartTime() {
+      return startTime;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public String getPpid() {
+      return ppid;
+    }
+
+    public int getPgrpId() {
+      return pgrpId;
+    }
+
+    public int getSessionId() {
+      return sessionId;
+    }
+
+    public long getUtime() {
+      return utime;
+    }
+
+    public long getStime() {
+      return stime;
+    }
+
+    public long getVmem() {
+      return vmem;
+    }
+
+    public long getRssmemPage() {
+      return rssmemPage;
+    }
+
+    public boolean isChanged() {
+      return changed;
+    }
+
+    public List<ProcessStat> getChildren() {
+      return Collections.unmodifiableList(children);
+    }
+  }
+
+  private final String procfsDir;
+  private final Map<String, ProcessStat> processes =
+      new HashMap<String, ProcessStat>();
+  // fields of the stat file being parsed, offsets in buffer
+  private final int[] fieldStart = new int[RSS_FIELD + 1];
+  private final int[] fieldEnd = new int[RSS_FIELD + 1];
+  private byte[] buffer = new byte[1024];
+  private long generation = 0;
+  private int newProcesses = 0;
+
+  public ProcfsSnapshot() {
+    this("/proc/");
+  }
+
+  /**
+   * @param procfsDir the root of a proc file system - only changed for
+   *                  testing.
+   */
+  public ProcfsSnapshot(String procfsDir) {
+    this.procfsDir = procfsDir;
+  }
+
+  /**
+   * Scan procfs and update the stat of every process.
+   */
+  public void refresh() {
+    generation++;
+    newProcesses = 0;
+    String[] processDirs = new File(procfsDir).list();
+    if (processDirs == null) {
+      LOG.warn("Cannot list " + procfsDir);
+      processes.clear();
+      return;
+    }
+    for (String dir : processDirs) {
+      if (!isPid(dir)) {
+        continue;
+      }
+      int length = readStat(dir);
+      if (length <= 0 || !splitFields(length)) {
+        continue;
+      }
+      long startTime = parseField(STARTTIME_FIELD);
+      long utime = parseField(UTIME_FIELD);
+      long stime = parseField(STIME_FIELD);
+      ProcessStat stat = processes.get(dir);
+      if (stat == null || stat.startTime != startTime) {
+        stat = new ProcessStat(dir, startTime);
+        stat.name = new String(buffer, fieldStart[2],
+            fieldEnd[2] - fieldStart[2], UTF_8);
+        stat.ppidValue = -1;
+        stat.changed = true;
+        processes.put(dir, stat);
+        newProcesses++;
+      } else {
+        stat.changed = stat.utime != utime || stat.stime != stime;
+      }
+      if (stat.changed) {
+        // an idle process cannot have changed its group or session
+        stat.pgrpId = (int) parseField(PGRP_FIELD);
+        stat.sessionId = (int) parseField(SESSION_FIELD);
+        stat.utime = utime;
+        stat.stime = stime;
+      }
+      // but it is reparented when its parent exits, and its memory may be
+      // reclaimed
+      long ppid = parseField(PPID_FIELD);
+      if (ppid != stat.ppidValue) {
+        stat.ppidValue = ppid;
+        stat.ppid = Long.toString(ppid);
+      }
+      stat.vmem = parseField(VSIZE_FIELD);
+      stat.rssmemPage = parseField(RSS_FIELD);
+      stat.generation = generation;
+    }
+
+    // forget the processes which are gone and link the others to their parent
+    for (Iterator<ProcessStat> it = processes.values().iterator();
+        it.hasNext(); ) {
+      ProcessStat stat = it.next();
+      if (stat.generation != generation) {
+        it.remove();
+      } else {
+        stat.children.clear();
+      }
+    }
+    for (ProcessStat stat : processes.values()) {
+      if (!stat.pid.equals("1")) {
+        ProcessStat parent = processes.get(stat.ppid);
+        if (parent != null) {
+          parent.children.add(stat);
+        }
+      }
+    }
+  }
+
+  /**
+   * @return the stat of the process as of the last refresh, null if it was
+   * not running
+   */
+  public ProcessStat getProcess(String pid) {
+    return processes.get(pid);
+  }
+
+  /**
+   * @return the number of processes seen by the last refresh
+   */
+  public int getNumProcesses() {
+    return processes.size();
+  }
+
+  /**
+   * @return the number of processes the last refresh saw for the first time
+   */
+  public int getNumNewProcesses() {
+    return newProcesses;
+  }
+
+  private static boolean isPid(String dir) {
+    if (dir.isEmpty() || dir.charAt(0) < '1' || dir.charAt(0) > '9') {
+      return false;
+    }
+    for (int i = 1; i < dir.length(); i++) {
+      if (dir.charAt(i) < '0' || dir.charAt(i) > '9') {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Read procfsDir/pid/stat in the buffer, growing it if needed.
+   * @return the number of bytes read, -1 if the process is gone
+   */
+  private int readStat(String pid) {
+    FileInputStream in;
+    try {
+      in = new FileInputStream(new File(new File(procfsDir, pid),
+          ProcfsBasedProcessTree.PROCFS_STAT_FILE));
+    } catch (FileNotFoundException e) {
+      // The process vanished in the interim!
+      return -1;
+    }
+    try {
+      int length = 0;
+      while (true) {
+        if (length == buffer.length) {
+          byte[] larger = new byte[2 * buffer.length];
+          System.arraycopy(buffer, 0, larger, 0, length);
+          buffer = larger;
+        }
+        int read = in.read(buffer, length, buffer.length - length);
+        if (read < 0) {
+          return length;
+        }
+        length += read;
+      }
+    } catch (IOException e) {
+      LOG.warn("Error reading the stat of process " + pid, e);
+      return -1;
+    } finally {
+      try {
+        in.close();
+      } catch (IOException e) {
+        LOG.warn("Error closing the stat of process " + pid, e);
+      }
+    }
+  }
+
+  /**
+   * Find the fields of the stat file in the buffer. The name of the command,
+   * field 2, is kept with its parentheses and may hold spaces, so the fields
+   * after it are looked for after the last closing parenthesis.
+   * @return false if the stat file is not in the expected format
+   */
+  private boolean splitFields(int length) {
+    int open = -1;
+    int close = -1;
+    for (int i = 0; i < length; i++) {
+      if (buffer[i] == '(' && open < 0) {
+        open = i;
+      } else if (buffer[i] == ')') {
+        close = i;
+      }
+    }
+    if (open < 0 || close < open) {
+      LOG.warn("Unexpected: procfs stat file is not in the expected format");
+      return false;
+    }
+    fieldStart[2] = open;
+    fieldEnd[2] = close + 1;
+    int field = 3;
+    int i = close + 1;
+    while (field <= RSS_FIELD) {
+      while (i < length && buffer[i] == ' ') {
+        i++;
+      }
+      if (i >= length || buffer[i] == '\n') {
+        LOG.warn("Unexpected: procfs stat file has only " + (field - 1)
+            + " fields");
+        return false;
+      }
+      fieldStart[field] = i;
+      while (i < length && buffer[i] != ' ' && buffer[i] != '\n') {
+        i++;
+      }
+      fieldEnd[field] = i;
+      field++;
+    }
+    return true;
+  }
+
+  private long parseField(int field) {
+    long value = 0;
+    int i = fieldStart[field];
+    boolean negative = buffer[i] == '-';
+    if (negative) {
+      i++;
+    }
+    for (; i < fieldEnd[field]; i++) {
+      value = value * 10 + (buffer[i] - '0');
+    }
+    return negative ? -value : value;
+  }
+}
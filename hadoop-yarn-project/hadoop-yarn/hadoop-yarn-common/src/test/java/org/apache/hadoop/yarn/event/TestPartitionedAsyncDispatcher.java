@@ -0,0 +1,232 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.yarn.event;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hadoop.conf.Configuration;
+import org.junit.Test;
+
+public class TestPartitionedAsyncDispatcher {
+
+  private static final String LANES = "test.dispatcher.lanes";
+
+  private enum TestEventType {
+    EVENT
+  }
+
+  private static class TestEvent extends AbstractEvent<TestEventType> {
+    final Integer entity;
+    final int seq;
+
+    TestEvent(Integer entity, int seq) {
+      super(TestEventType.EVENT);
+      this.entity = entity;
+      this.seq = seq;
+    }
+  }
+
+  private static class EntityPartitioner
+      implements PartitionedAsyncDispatcher.Partitioner {
+    @Override
+    public Object getPartitionKey(Event event) {
+      return ((TestEvent) event).entity;
+    }
+  }
+
+  /**
+   * Records the events of every entity and the threads handling them.
+   */
+  private static class RecordingHandler implements EventHandler<TestEvent> {
+    final Map<Integer, List<Integer>> seqs =
+        new HashMap<Integer, List<Integer>>();
+    final Map<Integer, String> threads = new HashMap<Integer, String>();
+    int handled = 0;
+    // entities handled by more than one thread
+    int movedEntities = 0;
+
+    @Override
+    public synchronized void handle(TestEvent event) {
+      List<Integer> entitySeqs = seqs.get(event.entity);
+      if (entitySeqs == null) {
+        entitySeqs = new ArrayList<Integer>();
+        seqs.put(event.entity, entitySeqs);
+      }
+      entitySeqs.add(event.seq);
+      String thread = Thread.currentThread().getName();
+      String previous = threads.put(event.entity, thread);
+      if (previous != null && !previous.equals(thread)) {
+        movedEntities++;
+      }
+      handled++;
+      notifyAll();
+    }
+
+    synchronized void waitFor(int events) throws InterruptedException {
+      long end = System.currentTimeMillis() + 10000;
+      while (handled < events && System.currentTimeMillis() < end) {
+        wait(100);
+      }
+      assertEquals(events, handled);
+    }
+  }
+
+  private PartitionedAsyncDispatcher createDispatcher(int lanes,
+      RecordingHandler handler) {
+    PartitionedAsyncDispatcher dispatcher = new PartitionedAsyncDispatcher(
+        "TestDispatcher", LANES, new EntityPartitioner());
+    dispatcher.register(TestEventType.class, handler);
+    Configuration conf = new Configuration();
+    conf.setInt(LANES, lanes);
+    dispatcher.init(conf);
+    return dispatcher;
+  }
+
+  @Test(timeout = 30000)
+  public void testOrderPerEntity() throws Exception {
+    RecordingHandler handler = new RecordingHandler();
+    PartitionedAsyncDispatcher dispatcher = createDispatcher(4, handler);
+    assertEquals(4, dispatcher.getNumLanes());
+    dispatcher.start();
+    for (int seq = 0; seq < 100; ++seq) {
+      for (int entity = 0; entity < 10; ++entity) {
+        dispatcher.getEventHandler().handle(new TestEvent(entity, seq));
+      }
+    }
+    handler.waitFor(1000);
+    assertEquals(0, handler.movedEntities);
+    for (int entity = 0; entity < 10; ++entity) {
+      List<Integer> seqs = handler.seqs.get(entity);
+      assertEquals(100, seqs.size());
+      List<Integer> sorted = new ArrayList<Integer>(seqs);
+      Collections.sort(sorted);
+      assertEquals(sorted, seqs);
+    }
+    // the entities are spread over the lanes
+    assertTrue(new HashSet<String>(handler.threads.values()).size() > 1);
+    dispatcher.stop();
+  }
+
+  @Test(timeout = 30000)
+  public void testEventsWithoutEntity() throws Exception {
+    RecordingHandler handler = new RecordingHandler();
+    PartitionedAsyncDispatcher dispatcher = createDispatcher(4, handler);
+    assertEquals(0, dispatcher.getLane(new TestEvent(null, 0)));
+    dispatcher.start();
+    for (int seq = 0; seq < 10; ++seq) {
+      dispatcher.getEventHandler().handle(new TestEvent(null, seq));
+    }
+    handler.waitFor(10);
+    assertEquals("TestDispatcher event handler 0", handler.threads.get(null));
+    dispatcher.stop();
+  }
+
+  @Test(timeout = 30000)
+  public void testEventsBeforeInit() throws Exception {
+    RecordingHandler handler = new RecordingHandler();
+    PartitionedAsyncDispatcher dispatcher = new PartitionedAsyncDispatcher(
+        "TestDispatcher", LANES, new EntityPartitioner());
+    dispatcher.register(TestEventType.class, handler);
+    dispatcher.getEventHandler().handle(new TestEvent(1, 0));
+    dispatcher.getEventHandler().handle(new TestEvent(2, 0));
+    Configuration conf = new Configuration();
+    conf.setInt(LANES, 2);
+    dispatcher.init(conf);
+    dispatcher.start();
+    dispatcher.getEventHandler().handle(new TestEvent(1, 1));
+    handler.waitFor(3);
+    assertEquals(2, handler.seqs.get(1).size());
+    dispatcher.stop();
+  }
+
+  @Test(timeout = 30000)
+  public void testSingleLane() throws Exception {
+    RecordingHandler handler = new RecordingHandler();
+    PartitionedAsyncDispatcher dispatcher = createDispatcher(1, handler);
+    assertEquals(1, dispatcher.getNumLanes());
+    dispatcher.start();
+    for (int entity = 0; entity < 10; ++entity) {
+      dispatcher.getEventHandler().handle(new TestEvent(entity, 0));
+    }
+    handler.waitFor(10);
+    // handled by the thread of the AsyncDispatcher
+    for (String thread : handler.threads.values()) {
+      assertEquals("AsyncDispatcher event handler", thread);
+    }
+    dispatcher.stop();
+  }
+
+  @Test(timeout = 30000)
+  public void testDrainEventsOnStop() throws Exception {
+    final RecordingHandler handler = new RecordingHandler();
+    PartitionedAsyncDispatcher dispatcher = new PartitionedAsyncDispatcher(
+        "TestDispatcher", LANES, new EntityPartitioner());
+    dispatcher.register(TestEventType.class, new EventHandler<TestEvent>() {
+      @Override
+      public void handle(TestEvent event) {
+        try {
+          Thread.sleep(5);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        handler.handle(event);
+      }
+    });
+    Configuration conf = new Configuration();
+    conf.setInt(LANES, 2);
+    dispatcher.init(conf);
+    dispatcher.setDrainEventsOnStop();
+    dispatcher.start();
+    for (int seq = 0; seq < 50; ++seq) {
+      dispatcher.getEventHandler().handle(new TestEvent(seq % 4, seq));
+    }
+    dispatcher.stop();
+    assertTrue(dispatcher.isDrained());
+    assertEquals(50, handler.handled);
+  }
+
+  @Test(timeout = 30000)
+  public void testDrainEventsOnStopAfterEventsBeforeInit() throws Exception {
+    for (int lanes : new int[] { 1, 2 }) {
+      RecordingHandler handler = new RecordingHandler();
+      PartitionedAsyncDispatcher dispatcher = new PartitionedAsyncDispatcher(
+          "TestDispatcher", LANES, new EntityPartitioner());
+      dispatcher.register(TestEventType.class, handler);
+      dispatcher.setDrainEventsOnStop();
+      // queued in the AsyncDispatcher until the lanes are known
+      dispatcher.getEventHandler().handle(new TestEvent(1, 0));
+      Configuration conf = new Configuration();
+      conf.setInt(LANES, lanes);
+      dispatcher.init(conf);
+      dispatcher.start();
+      dispatcher.getEventHandler().handle(new TestEvent(2, 0));
+      dispatcher.stop();
+      assertTrue(dispatcher.isDrained());
+      assertEquals(2, handler.handled);
+    }
+  }
+}
@@ -35,6 +35,9 @@ import java.io.UnsupportedEncodingException;
 import java.io.Writer;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
 import java.util.concurrent.CountDownLatch;
 
 import org.junit.Assert;
@@ -53,6 +56,7 @@ import org.apache.hadoop.yarn.api.TestContainerId;
 import org.apache.hadoop.yarn.api.records.ApplicationAttemptId;
 import org.apache.hadoop.yarn.api.records.ApplicationId;
 import org.apache.hadoop.yarn.api.records.ContainerId;
+import org.apache.hadoop.yarn.logaggregation.AggregatedLogFormat.ContainerLogsReader;
 import org.apache.hadoop.yarn.logaggregation.AggregatedLogFormat.LogKey;
 import org.apache.hadoop.yarn.logaggregation.AggregatedLogFormat.LogReader;
 import org.apache.hadoop.yarn.logaggregation.AggregatedLogFormat.LogValue;
@@ -377,6 +381,99 @@ public class TestAggregatedLogFormat {
         + stdout));
   }
   
+  @Test
+  public void testIncrementalUploadWithContainerIndex() throws Exception {
+    File workDir = new File(testWorkDir, "testIncrementalUpload");
+    Path remoteAppLogFile1 =
+        new Path(workDir.getAbsolutePath(), "aggregatedLogFile1");
+    Path remoteAppLogFile2 =
+        new Path(workDir.getAbsolutePath(), "aggregatedLogFile2");
+    Path srcFileRoot = new Path(workDir.getAbsolutePath(), "srcFiles");
+    ContainerId containerId1 = TestContainerId.newContainerId(1, 1, 1, 1);
+    ContainerId containerId2 = TestContainerId.newContainerId(1, 1, 1, 2);
+    ContainerId containerId3 = TestContainerId.newContainerId(1, 1, 1, 3);
+    Path appDir = new Path(srcFileRoot, containerId1.getApplicationAttemptId()
+        .getApplicationId().toString());
+    Path srcFilePath1 = new Path(appDir, containerId1.toString());
+    Path srcFilePath2 = new Path(appDir, containerId2.toString());
+    writeSrcFile(srcFilePath1, "stdout", "first line\n");
+    writeSrcFile(srcFilePath2, "stdout", "other container\n");
+
+    UserGroupInformation ugi = UserGroupInformation.getCurrentUser();
+    Map<String, Long> offsets1 = new HashMap<String, Long>();
+    Map<String, Long> offsets2 = new HashMap<String, Long>();
+    LogWriter logWriter = new LogWriter(conf, remoteAppLogFile1, ugi);
+    logWriter.append(new LogKey(containerId1), new LogValue(
+        Collections.singletonList(srcFileRoot.toString()), containerId1,
+        ugi.getShortUserName(), null, new HashSet<String>(), false, offsets1));
+    logWriter.append(new LogKey(containerId2), new LogValue(
+        Collections.singletonList(srcFileRoot.toString()), containerId2,
+        ugi.getShortUserName(), null, new HashSet<String>(), false, offsets2));
+    logWriter.writeContainerIndex();
+    logWriter.close();
+
+    // only the new line of container 1 is uploaded, container 2 did not log
+    FileOutputStream os = new FileOutputStream(
+        new File(srcFilePath1.toString(), "stdout"), true);
+    os.write("second line\n".getBytes("UTF-8"));
+    os.close();
+    logWriter = new LogWriter(conf, remoteAppLogFile2, ugi);
+    logWriter.append(new LogKey(containerId1), new LogValue(
+        Collections.singletonList(srcFileRoot.toString()), containerId1,
+        ugi.getShortUserName(), null, new HashSet<String>(), true, offsets1));
+    logWriter.append(new LogKey(containerId2), new LogValue(
+        Collections.singletonList(srcFileRoot.toString()), containerId2,
+        ugi.getShortUserName(), null, new HashSet<String>(), true, offsets2));
+    logWriter.writeContainerIndex();
+    logWriter.close();
+
+    Assert.assertEquals("first line\n",
+        readContainerLog(remoteAppLogFile1, containerId1));
+    Assert.assertEquals("other container\n",
+        readContainerLog(remoteAppLogFile1, containerId2));
+    Assert.assertNull(readContainerLog(remoteAppLogFile1, containerId3));
+    Assert.assertEquals("second line\n",
+        readContainerLog(remoteAppLogFile2, containerId1));
+    Assert.assertNull(readContainerLog(remoteAppLogFile2, containerId2));
+
+    // the index is not taken for the logs of a container
+    LogReader logReader = new LogReader(conf, remoteAppLogFile1);
+    try {
+      LogKey key = new LogKey();
+      Assert.assertNotNull(logReader.next(key));
+      Assert.assertEquals(containerId1.toString(), key.toString());
+      Assert.assertNotNull(logReader.next(key));
+      Assert.assertEquals(containerId2.toString(), key.toString());
+      Assert.assertNull(logReader.next(key));
+    } finally {
+      logReader.close();
+    }
+  }
+
+  private String readContainerLog(Path remoteAppLogFile,
+      ContainerId containerId) throws IOException {
+    LogReader logReader = new LogReader(conf, remoteAppLogFile);
+    try {
+      ContainerLogsReader logsReader =
+          logReader.getContainerLogsReader(containerId);
+      if (logsReader == null) {
+        return null;
+      }
+      Assert.assertEquals("stdout", logsReader.nextLog());
+      char[] buf = new char[(int) logsReader.getCurrentLogLength()];
+      int len = 0;
+      while (len < buf.length) {
+        int read = logsReader.read(buf, len, buf.length - len);
+        Assert.assertTrue(read > 0);
+        len += read;
+      }
+      Assert.assertNull(logsReader.nextLog());
+      return new String(buf);
+    } finally {
+      logReader.close();
+    }
+  }
+
   private void writeSrcFile(Path srcFilePath, String fileName, long length)
       throws IOException {
     OutputStreamWriter osw = getOutputStreamWriter(srcFilePath, fileName);
@@ -309,6 +309,7 @@ public class TestProcfsBasedProcessTree {
     String rssmemPage = "0";
     String utime = "0";
     String stime = "0";
+    String startTime = "0";
 
     public ProcessStatInfo(String[] statEntries) {
       pid = statEntries[0];
@@ -330,9 +331,9 @@ public class TestProcfsBasedProcessTree {
     // all unused numerical entries are set to 0.
     public String getStatLine() {
       return String.format("%s (%s) S %s %s %s 0 0 0"
-          + " 0 0 0 0 %s %s 0 0 0 0 0 0 0 %s %s 0 0" + " 0 0 0 0 0 0 0 0"
-          + " 0 0 0 0 0", pid, name, ppid, pgrpId, session, utime, stime, vmem,
-        rssmemPage);
+          + " 0 0 0 0 %s %s 0 0 0 0 0 0 %s %s %s 0 0" + " 0 0 0 0 0 0 0 0"
+          + " 0 0 0 0 0", pid, name, ppid, pgrpId, session, utime, stime,
+        startTime, vmem, rssmemPage);
     }
   }
 
@@ -512,6 +513,111 @@ public class TestProcfsBasedProcessTree {
     }
   }
 
+  /**
+   * Tests that trees built from a shared snapshot follow the processes
+   * across refreshes, including dead processes and reused pids.
+   *
+   * @throws IOException
+   *           if there was a problem setting up the fake procfs directories or
+   *           files.
+   */
+  @Test(timeout = 30000)
+  public void testProcessTreesFromSnapshot() throws IOException {
+    String[] pids = { "100", "200", "300", "400", "500" };
+    File procfsRootDir = new File(TEST_ROOT_DIR, "proc");
+
+    try {
+      setupProcfsRootDir(procfsRootDir);
+      setupPidDirs(procfsRootDir, pids);
+
+      // 100 and 200 in the first tree, 300 and 400 in the second, 500 in none
+      ProcessStatInfo[] procInfos = new ProcessStatInfo[5];
+      procInfos[0] =
+          new ProcessStatInfo(new String[] { "100", "proc1", "1", "100", "100",
+              "100000", "100", "1000", "200" });
+      procInfos[1] =
+          new ProcessStatInfo(new String[] { "200", "proc2", "100", "100",
+              "100", "200000", "200", "2000", "400" });
+      procInfos[2] =
+          new ProcessStatInfo(new String[] { "300", "proc3", "1", "300", "300",
+              "300000", "300", "3000", "600" });
+      procInfos[3] =
+          new ProcessStatInfo(new String[] { "400", "proc 4", "300", "300",
+              "300", "400000", "400", "4000", "800" });
+      procInfos[4] =
+          new ProcessStatInfo(new String[] { "500", "proc5", "1", "500", "500",
+              "500000", "500", "5000", "1000" });
+      writeStatFiles(procfsRootDir, pids, procInfos, null);
+
+      ProcfsSnapshot snapshot =
+          new ProcfsSnapshot(procfsRootDir.getAbsolutePath());
+      ProcfsBasedProcessTree tree1 =
+          createProcessTree("100", procfsRootDir.getAbsolutePath(),
+              new SystemClock());
+      ProcfsBasedProcessTree tree2 =
+          createProcessTree("300", procfsRootDir.getAbsolutePath(),
+              new SystemClock());
+      tree1.setProcfsSnapshot(snapshot);
+      tree2.setProcfsSnapshot(snapshot);
+
+      snapshot.refresh();
+      tree1.updateProcessTree();
+      tree2.updateProcessTree();
+      Assert.assertEquals(5, snapshot.getNumProcesses());
+      Assert.assertEquals(5, snapshot.getNumNewProcesses());
+      Assert.assertEquals("(proc 4)", snapshot.getProcess("400").getName());
+      Assert.assertEquals(300000L, tree1.getVirtualMemorySize());
+      Assert.assertEquals(700000L, tree2.getVirtualMemorySize());
+      Assert.assertEquals(0L, tree2.getVirtualMemorySize(1));
+      long jiffy = ProcfsBasedProcessTree.JIFFY_LENGTH_IN_MILLIS;
+      if (jiffy > 0) {
+        Assert.assertEquals(3600L * jiffy, tree1.getCumulativeCpuTime());
+      }
+
+      // only 200 used cpu, no process is parsed from scratch
+      procInfos[1] =
+          new ProcessStatInfo(new String[] { "200", "proc2", "100", "100",
+              "100", "200000", "200", "2500", "400" });
+      writeStatFiles(procfsRootDir, pids, procInfos, null);
+      snapshot.refresh();
+      tree1.updateProcessTree();
+      Assert.assertEquals(0, snapshot.getNumNewProcesses());
+      Assert.assertFalse(snapshot.getProcess("100").isChanged());
+      Assert.assertTrue(snapshot.getProcess("200").isChanged());
+      Assert.assertEquals(300000L, tree1.getVirtualMemorySize(1));
+      if (jiffy > 0) {
+        Assert.assertEquals(4100L * jiffy, tree1.getCumulativeCpuTime());
+      }
+
+      // 200 exits and 400 is reused by a new process of the second tree
+      FileUtil.fullyDelete(new File(procfsRootDir, "200"));
+      procInfos[3] =
+          new ProcessStatInfo(new String[] { "400", "proc6", "300", "300",
+              "300", "600000", "600", "10", "10" });
+      procInfos[3].startTime = "12345";
+      writeStatFiles(procfsRootDir, new String[] { "400" },
+          new ProcessStatInfo[] { procInfos[3] }, null);
+      snapshot.refresh();
+      tree1.updateProcessTree();
+      tree2.updateProcessTree();
+      Assert.assertEquals(4, snapshot.getNumProcesses());
+      Assert.assertEquals(1, snapshot.getNumNewProcesses());
+      Assert.assertNull(snapshot.getProcess("200"));
+      Assert.assertEquals(100000L, tree1.getVirtualMemorySize());
+      Assert.assertEquals(900000L, tree2.getVirtualMemorySize());
+      // the new process starts again from age 1
+      Assert.assertEquals(300000L, tree2.getVirtualMemorySize(1));
+
+      // the root of the second tree exits
+      FileUtil.fullyDelete(new File(procfsRootDir, "300"));
+      snapshot.refresh();
+      tree2.updateProcessTree();
+      Assert.assertEquals(UNAVAILABLE, tree2.getVirtualMemorySize());
+    } finally {
+      FileUtil.fullyDelete(procfsRootDir);
+    }
+  }
+
   private void setSmapsInProceTree(ProcfsBasedProcessTree processTree,
       boolean enableFlag) {
     Configuration conf = processTree.getConf();
@@ -0,0 +1,94 @@
+package net.razorvine.pickle;
+
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Growable output buffer the pickler writes to when it reuses its buffer
+ * across calls. Unlike ByteArrayOutputStream it is not synchronized, can
+ * be reset without losing its capacity, and writes little endian ints and
+ * ascii strings without intermediate arrays.
+ * This class is NOT threadsafe.
+ */
+public class PickleBuffer extends OutputStream {
+
+	private byte[] buf;
+	private int count;
+
+	public PickleBuffer() {
+		this(256);
+	}
+
+	public PickleBuffer(int capacity) {
+		buf = new byte[capacity];
+	}
+
+	private void ensureCapacity(int extra) {
+		int needed = count + extra;
+		if(needed > buf.length) {
+			buf = Arrays.copyOf(buf, Math.max(needed, buf.length << 1));
+		}
+	}
+
+	@Override
+	public void write(int b) {
+		ensureCapacity(1);
+		buf[count++] = (byte) b;
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) {
+		ensureCapacity(len);
+		System.arraycopy(b, off, buf, count, len);
+		count += len;
+	}
+
+	/**
+	 * Write an int as 4 little endian bytes.
+	 */
+	public void writeInt(int i) {
+		ensureCapacity(4);
+		buf[count++] = (byte) i;
+		buf[count++] = (byte) (i >> 8);
+		buf[count++] = (byte) (i >> 16);
+		buf[count++] = (byte) (i >> 24);
+	}
+
+	/**
+	 * Write the 4 byte length followed by the characters of a string, if the
+	 * string is pure ascii (and so is its own utf-8 encoding).
+	 * @return false if the string is not ascii, nothing has been written then
+	 */
+	public boolean writeAsciiWithLength(String s) {
+		int length = s.length();
+		for(int i=0; i<length; ++i) {
+			if(s.charAt(i) >= 0x80)
+				return false;
+		}
+		writeInt(length);
+		ensureCapacity(length);
+		for(int i=0; i<length; ++i) {
+			buf[count++] = (byte) s.charAt(i);
+		}
+		return true;
+	}
+
+	/**
+	 * Discard the content, keep the capacity.
+	 */
+	public void reset() {
+		count = 0;
+	}
+
+	public int size() {
+		return count;
+	}
+
+	public int capacity() {
+		return buf.length;
+	}
+
+	public byte[] toByteArray() {
+		return Arrays.copyOf(buf, count);
+	}
+}
@@ -11,11 +11,13 @@ import java.math.BigInteger;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.GregorianCalendar;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
 
 import net.razorvine.pickle.objects.Time;
 import net.razorvine.pickle.objects.TimeDelta;
@@ -44,13 +46,45 @@ public class Pickler {
 		}
 	}
 
+	/**
+	 * How the objects of a class are pickled, resolved once per class.
+	 */
+	private enum Kind {
+		BOOLEAN, LONG, FLOAT, CHARACTER, CUSTOM, STRING, BIGINTEGER, BIGDECIMAL,
+		SQLTIME, SQLDATE, CALENDAR, TIME, TIMEDELTA, DATE, TIMEZONE, ENUM, SET,
+		MAP, COLLECTION, JAVABEAN, UNSUPPORTED
+	}
+
+	/**
+	 * A javabean property, found once per class.
+	 */
+	private static class BeanProperty {
+		public final String name;
+		public final Method getter;
+
+		public BeanProperty(String name, Method getter) {
+			this.name = name;
+			this.getter = getter;
+		}
+	}
+
+	/**
+	 * Reused buffers that grew beyond this are dropped after the call.
+	 */
+	public static int MAX_REUSED_BUFFER_SIZE = 1024 * 1024;
+
 	private static int MAX_RECURSE_DEPTH = 1000;
 	private int recurse = 0;  // recursion level
 	private OutputStream out;
 	private int PROTOCOL = 2;
 	private static Map<Class<?>, IObjectPickler> customPicklers=new HashMap<Class<?>, IObjectPickler>();
+	private static volatile boolean customStringPickler = false;
+	private static final ConcurrentHashMap<Class<?>, Kind> kinds = new ConcurrentHashMap<Class<?>, Kind>();
+	private static final ConcurrentHashMap<Class<?>, BeanProperty[]> beanProperties = new ConcurrentHashMap<Class<?>, BeanProperty[]>();
 	private boolean useMemo=true;
 	private HashMap<Integer, Memo> memo;  // maps object's identity hash to (object, memo index)
+	private final boolean reuseBuffer;
+	private PickleBuffer buffer;
 	
 	/**
 	 * Create a Pickler.
@@ -65,7 +99,18 @@ public class Pickler {
 	 * If you use a memo table, you can only pickle objects that are hashable.
 	 */
 	public Pickler(boolean useMemo) {
+		this(useMemo, false);
+	}
+
+	/**
+	 * Create a Pickler. Specify if it is to use a memo table or not, and if
+	 * dumps is to reuse its output buffer and memo table across calls.
+	 * A pickler reusing its buffer is meant to be kept, one per thread, rather
+	 * than created and closed for each object.
+	 */
+	public Pickler(boolean useMemo, boolean reuseBuffer) {
 		this.useMemo=useMemo;
+		this.reuseBuffer=reuseBuffer;
 	}
 
 	/**
@@ -73,8 +118,11 @@ public class Pickler {
 	 */
 	public void close() throws IOException {
 		memo = null;
-		out.flush();
-		out.close();
+		buffer = null;
+		if(out!=null) {
+			out.flush();
+			out.close();
+		}
 	}
 
 	/**
@@ -82,12 +130,28 @@ public class Pickler {
 	 */
 	public static void registerCustomPickler(Class<?> clazz, IObjectPickler pickler) {
 		customPicklers.put(clazz, pickler);
+		if(clazz==String.class)
+			customStringPickler = true;
+		kinds.remove(clazz);
 	}
 	
 	/**
 	 * Pickle a given object graph, returning the result as a byte array.
 	 */
 	public byte[] dumps(Object o) throws PickleException, IOException {
+		if(reuseBuffer) {
+			if(buffer==null)
+				buffer = new PickleBuffer();
+			buffer.reset();
+			try {
+				dump(o, buffer);
+				return buffer.toByteArray();
+			} finally {
+				out = null;
+				if(buffer.capacity() > MAX_REUSED_BUFFER_SIZE)
+					buffer = null;
+			}
+		}
 		ByteArrayOutputStream bo = new ByteArrayOutputStream();
 		dump(o, bo);
 		bo.flush();
@@ -100,12 +164,23 @@ public class Pickler {
 	public void dump(Object o, OutputStream stream) throws IOException, PickleException {
 		out = stream;
 		recurse = 0;
-		if(useMemo)
-			memo = new HashMap<Integer, Memo>();
+		if(useMemo) {
+			if(reuseBuffer && memo!=null)
+				memo.clear();
+			else
+				memo = new HashMap<Integer, Memo>();
+		}
 		out.write(Opcodes.PROTO);
 		out.write(PROTOCOL);
-		save(o);
-		memo = null;  // get rid of the memo table
+		try {
+			save(o);
+		} finally {
+			// get rid of the memo table, or at least of the objects in it
+			if(reuseBuffer && memo!=null)
+				memo.clear();
+			else
+				memo = null;
+		}
 		out.write(Opcodes.STOP);
 		out.flush();
 		if(recurse!=0)  // sanity check
@@ -162,8 +237,7 @@ public class Pickler {
 			else
 			{
 				out.write(Opcodes.LONG_BINPUT);
-				byte[] index_bytes = PickleUtils.integer_to_bytes(memo_index);
-				out.write(index_bytes, 0, 4);
+				write_int(memo_index);
 			}
 		}
 	}
@@ -183,8 +257,7 @@ public class Pickler {
 					out.write((byte) memo_index);
 				} else {
 					out.write(Opcodes.LONG_BINGET);
-					byte[] index_bytes = PickleUtils.integer_to_bytes(memo_index);
-					out.write(index_bytes, 0, 4);
+					write_int(memo_index);
 				}
 				return true;
 			}
@@ -208,84 +281,56 @@ public class Pickler {
 			return true;
 		}
 		
-		// first the primitive types
-		if(o instanceof Boolean || t.equals(Boolean.TYPE)) {
-			put_bool((Boolean)o);
-			return true;
-		}
-		if(o instanceof Byte || t.equals(Byte.TYPE)) {
-			put_long(((Byte)o).longValue());
-			return true;
+		Kind kind = kinds.get(t);
+		if(kind==null) {
+			kind = resolveKind(t);
+			kinds.put(t, kind);
 		}
-		if(o instanceof Short || t.equals(Short.TYPE)) {
-			put_long(((Short)o).longValue());
-			return true;
-		}
-		if(o instanceof Integer || t.equals(Integer.TYPE)) {
-			put_long(((Integer)o).longValue());
-			return true;
-		}
-		if(o instanceof Long || t.equals(Long.TYPE)) {
-			put_long(((Long)o).longValue());
+		switch(kind) {
+		case BOOLEAN:
+			put_bool((Boolean)o);
 			return true;
-		}
-		if(o instanceof Float || t.equals(Float.TYPE)) {
-			put_float(((Float)o).doubleValue());
+		case LONG:
+			put_long(((Number)o).longValue());
 			return true;
-		}
-		if(o instanceof Double || t.equals(Double.TYPE)) {
-			put_float(((Double)o).doubleValue());
+		case FLOAT:
+			put_float(((Number)o).doubleValue());
 			return true;
-		}
-		if(o instanceof Character || t.equals(Character.TYPE)) {
+		case CHARACTER:
 			put_string(""+o);
 			return true;
-		}
-		
-		// check registry
-		IObjectPickler custompickler=customPicklers.get(t);
-		if(custompickler!=null) {
+		case CUSTOM:
+			IObjectPickler custompickler=customPicklers.get(t);
 			custompickler.pickle(o, this.out, this);
 			writeMemo(o);
 			return true;
-		}
-		
-		// more complex types
-		if(o instanceof String) {
+		case STRING:
 			put_string((String)o);
 			return true;
-		}
-		if(o instanceof BigInteger) {
+		case BIGINTEGER:
 			put_bigint((BigInteger)o);
 			return true;
-		} 
-		if(o instanceof BigDecimal) {
+		case BIGDECIMAL:
 			put_decimal((BigDecimal)o);
 			return true;
-		}
-		if(o instanceof java.sql.Time) {
+		case SQLTIME:
 			java.sql.Time sqltime = (java.sql.Time)o;
 			Time time = new Time(sqltime.getTime());
 			put_time(time);
 			return true;
-		}
-		if(o instanceof java.sql.Date) {
+		case SQLDATE:
 			put_sqldate((java.sql.Date)o);
 			return true;
-		}
-		if(o instanceof Calendar) {
+		case CALENDAR:
 			put_calendar((Calendar)o);
 			return true;
-		}
-		if(o instanceof Time) {
+		case TIME:
 			put_time((Time)o);
 			return true;
-		}
-		if(o instanceof TimeDelta) {
+		case TIMEDELTA:
 			put_timedelta((TimeDelta)o);
 			return true;
-		}
-		if(o instanceof java.util.Date) {
+		case DATE:
 			// a java Date contains a date+time so map this on Calendar
 			// which will be pickled as a datetime.
 			java.util.Date date=(java.util.Date)o;
@@ -293,38 +338,107 @@ public class Pickler {
 			cal.setTime(date);
 			put_calendar(cal);
 			return true;
-		}
-		if(o instanceof java.util.TimeZone) {
+		case TIMEZONE:
 			put_timezone((TimeZone)o);
 			return true;
-		}
-		if(o instanceof Enum) {
+		case ENUM:
 			put_string(o.toString());
 			return true;
-		}
-		if(o instanceof Set<?>) {
+		case SET:
 			put_set((Set<?>)o);
 			return true;
-		}
-		if(o instanceof Map<?,?>) {
+		case MAP:
 			put_map((Map<?,?>)o);
 			return true;
-		}
-		if(o instanceof List<?>) {
-			put_collection((List<?>)o);
-			return true;
-		}
-		if(o instanceof Collection<?>) {
+		case COLLECTION:
 			put_collection((Collection<?>)o);
 			return true;
-		}
-		// javabean		
-		if(o instanceof java.io.Serializable ) {
+		case JAVABEAN:
 			put_javabean(o);
 			return true;
+		default:
+			return false;
 		}
+	}
 
-		return false;
+	/**
+	 * Find how the objects of a (non array) class are pickled. The order of
+	 * the checks matters, the first one matching wins.
+	 */
+	private static Kind resolveKind(Class<?> t) {
+		// first the primitive types
+		if(Boolean.class.isAssignableFrom(t))
+			return Kind.BOOLEAN;
+		if(Byte.class.isAssignableFrom(t) || Short.class.isAssignableFrom(t)
+				|| Integer.class.isAssignableFrom(t) || Long.class.isAssignableFrom(t))
+			return Kind.LONG;
+		if(Float.class.isAssignableFrom(t) || Double.class.isAssignableFrom(t))
+			return Kind.FLOAT;
+		if(Character.class.isAssignableFrom(t))
+			return Kind.CHARACTER;
+
+		// check registry
+		if(customPicklers.containsKey(t))
+			return Kind.CUSTOM;
+
+		// more complex types
+		if(String.class.isAssignableFrom(t))
+			return Kind.STRING;
+		if(BigInteger.class.isAssignableFrom(t))
+			return Kind.BIGINTEGER;
+		if(BigDecimal.class.isAssignableFrom(t))
+			return Kind.BIGDECIMAL;
+		if(java.sql.Time.class.isAssignableFrom(t))
+			return Kind.SQLTIME;
+		if(java.sql.Date.class.isAssignableFrom(t))
+			return Kind.SQLDATE;
+		if(Calendar.class.isAssignableFrom(t))
+			return Kind.CALENDAR;
+		if(Time.class.isAssignableFrom(t))
+			return Kind.TIME;
+		if(TimeDelta.class.isAssignableFrom(t))
+			return Kind.TIMEDELTA;
+		if(java.util.Date.class.isAssignableFrom(t))
+			return Kind.DATE;
+		if(TimeZone.class.isAssignableFrom(t))
+			return Kind.TIMEZONE;
+		if(Enum.class.isAssignableFrom(t))
+			return Kind.ENUM;
+		if(Set.class.isAssignableFrom(t))
+			return Kind.SET;
+		if(Map.class.isAssignableFrom(t))
+			return Kind.MAP;
+		if(Collection.class.isAssignableFrom(t))
+			return Kind.COLLECTION;
+		// javabean
+		if(java.io.Serializable.class.isAssignableFrom(t))
+			return Kind.JAVABEAN;
+		return Kind.UNSUPPORTED;
+	}
+
+	/**
+	 * Save an item of a collection or map. Strings and boxed primitives,
+	 * which make most of the payloads, are written directly instead of going
+	 * through the dispatch, the output is the same.
+	 */
+	private void save_item(Object o) throws PickleException, IOException {
+		if(o!=null) {
+			Class<?> t = o.getClass();
+			if(t==String.class && !customStringPickler) {
+				if(!lookupMemo(t, o))
+					put_string((String)o);
+				return;
+			}
+			if(t==Integer.class || t==Long.class) {
+				put_long(((Number)o).longValue());
+				return;
+			}
+			if(t==Boolean.class) {
+				put_bool((Boolean)o);
+				return;
+			}
+		}
+		save(o);
 	}
 
 	void put_collection(Collection<?> list) throws IOException {
@@ -332,7 +446,7 @@ public class Pickler {
 		writeMemo(list);
 		out.write(Opcodes.MARK);
 		for(Object o: list) {
-			save(o);
+			save_item(o);
 		}
 		out.write(Opcodes.APPENDS);
 	}
@@ -341,9 +455,9 @@ public class Pickler {
 		out.write(Opcodes.EMPTY_DICT);
 		writeMemo(o);
 		out.write(Opcodes.MARK);
-		for(Object k: o.keySet()) {
-			save(k);
-			save(o.get(k));
+		for(Map.Entry<?,?> e: o.entrySet()) {
+			save_item(e.getKey());
+			save_item(e.getValue());
 		}
 		out.write(Opcodes.SETITEMS);
 	}
@@ -616,17 +730,19 @@ public class Pickler {
 			out.write(b);
 		} else {
 			out.write(Opcodes.LONG4);
-			out.write(PickleUtils.integer_to_bytes(b.length));
+			write_int(b.length);
 			out.write(b);
 		}
 		writeMemo(i);
 	}
 
 	void put_string(String string) throws IOException {
-		byte[] encoded=string.getBytes("UTF-8");
 		out.write(Opcodes.BINUNICODE);
-		out.write(PickleUtils.integer_to_bytes(encoded.length));
-		out.write(encoded);
+		if(!(out instanceof PickleBuffer) || !((PickleBuffer)out).writeAsciiWithLength(string)) {
+			byte[] encoded=string.getBytes("UTF-8");
+			write_int(encoded.length);
+			out.write(encoded);
+		}
 		writeMemo(string);
 	}
 
@@ -657,7 +773,7 @@ public class Pickler {
 		if(high_bits==0 || high_bits==-1) {
             // All high bits are copies of bit 2**31, so the value fits in a 4-byte signed int.
 			out.write(Opcodes.BININT);
-			out.write(PickleUtils.integer_to_bytes((int)v));
+			write_int((int)v);
             return;
 		}
 		
@@ -667,6 +783,20 @@ public class Pickler {
 		out.write('\n');
 	}
 	
+	/**
+	 * Write an int as 4 little endian bytes.
+	 */
+	private void write_int(int i) throws IOException {
+		if(out instanceof PickleBuffer) {
+			((PickleBuffer)out).writeInt(i);
+		} else {
+			out.write(i & 0xff);
+			out.write((i >> 8) & 0xff);
+			out.write((i >> 16) & 0xff);
+			out.write((i >> 24) & 0xff);
+		}
+	}
+
 	void put_bool(boolean b) throws IOException {
 		if(b)
 			out.write(Opcodes.NEWTRUE);
@@ -677,27 +807,8 @@ public class Pickler {
 	void put_javabean(Object o) throws PickleException, IOException {
 		Map<String,Object> map=new HashMap<String,Object>();
 		try {
-			// note: don't use the java.bean api, because that is not available on Android.
-			for(Method m: o.getClass().getMethods()) {
-				int modifiers = m.getModifiers();
-				if((modifiers & Modifier.PUBLIC)!=0 && (modifiers & Modifier.STATIC)==0) {
-					String methodname = m.getName();
-					int prefixlen = 0;
-					if(methodname.equals("getClass")) continue;
-					if(methodname.startsWith("get")) prefixlen=3;
-					else if(methodname.startsWith("is")) prefixlen=2;
-					else continue;
-					Object value = m.invoke(o);
-					String name = methodname.substring(prefixlen);
-					if(name.length()==1) {
-						name = name.toLowerCase();
-					} else {
-						if(!Character.isUpperCase(name.charAt(1))) {
-							name = Character.toLowerCase(name.charAt(0)) + name.substring(1);
-						}
-					}
-					map.put(name, value);
-				}
+			for(BeanProperty property: getBeanProperties(o.getClass())) {
+				map.put(property.name, property.getter.invoke(o));
 			}
 			map.put("__class__", o.getClass().getName());
 			save(map);
@@ -709,4 +820,38 @@ public class Pickler {
 			throw new PickleException("couldn't introspect javabean: "+e);
 		}
 	}
+
+	/**
+	 * Find the getters of a javabean class, once per class.
+	 */
+	private static BeanProperty[] getBeanProperties(Class<?> clazz) {
+		BeanProperty[] properties = beanProperties.get(clazz);
+		if(properties!=null)
+			return properties;
+		List<BeanProperty> found = new ArrayList<BeanProperty>();
+		// note: don't use the java.bean api, because that is not available on Android.
+		for(Method m: clazz.getMethods()) {
+			int modifiers = m.getModifiers();
+			if((modifiers & Modifier.PUBLIC)!=0 && (modifiers & Modifier.STATIC)==0) {
+				String methodname = m.getName();
+				int prefixlen = 0;
+				if(methodname.equals("getClass")) continue;
+				if(methodname.startsWith("get")) prefixlen=3;
+				else if(methodname.startsWith("is")) prefixlen=2;
+				else continue;
+				String name = methodname.substring(prefixlen);
+				if(name.length()==1) {
+					name = name.toLowerCase();
+				} else {
+					if(!Character.isUpperCase(name.charAt(1))) {
+						name = Character.toLowerCase(name.charAt(0)) + name.substring(1);
+					}
+				}
+				found.add(new BeanProperty(name, m));
+			}
+		}
+		properties = found.toArray(new BeanProperty[found.size()]);
+		beanProperties.put(clazz, properties);
+		return properties;
+	}
 }
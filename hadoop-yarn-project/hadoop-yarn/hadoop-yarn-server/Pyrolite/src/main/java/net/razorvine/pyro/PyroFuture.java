@@ -0,0 +1,101 @@
+package net.razorvine.pyro;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import net.razorvine.pyro.serializer.PyroSerializer;
+
+/**
+ * Result of an asynchronous call on a PyroProxy. It is completed by the
+ * receiver of the proxy connection when the result message with the same
+ * sequence number arrives, the result is deserialized by the first get.
+ * A call that has been sent cannot be cancelled.
+ */
+public class PyroFuture implements Future<Object> {
+
+	private final PyroProxy proxy;
+	private final PyroSerializer serializer;
+	final int seq;
+	private final CountDownLatch done = new CountDownLatch(1);
+	private Message resultmsg;
+	private Throwable failure;
+	private boolean processed = false;
+	private Object result;
+
+	PyroFuture(PyroProxy proxy, PyroSerializer serializer, int seq) {
+		this.proxy = proxy;
+		this.serializer = serializer;
+		this.seq = seq;
+	}
+
+	/**
+	 * Called by the receiver when the result message arrived.
+	 */
+	synchronized void complete(Message msg) {
+		if(done.getCount() == 0)
+			return;
+		resultmsg = msg;
+		done.countDown();
+	}
+
+	/**
+	 * Called when the result will never arrive, the connection failed.
+	 */
+	synchronized void fail(IOException error) {
+		if(done.getCount() == 0)
+			return;
+		failure = error;
+		done.countDown();
+	}
+
+	public int getSequenceNr() {
+		return seq;
+	}
+
+	public boolean cancel(boolean mayInterruptIfRunning) {
+		return false;
+	}
+
+	public boolean isCancelled() {
+		return false;
+	}
+
+	public boolean isDone() {
+		return done.getCount() == 0;
+	}
+
+	public Object get() throws InterruptedException, ExecutionException {
+		done.await();
+		return process();
+	}
+
+	public Object get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+		if(!done.await(timeout, unit))
+			throw new TimeoutException("no result for call " + seq + " yet");
+		return process();
+	}
+
+	private synchronized Object process() throws ExecutionException {
+		if(!processed) {
+			processed = true;
+			if(failure == null) {
+				try {
+					result = proxy.processResult(resultmsg, serializer);
+				} catch (IOException e) {
+					failure = e;
+				} catch (RuntimeException e) {
+					// PyroException, PickleException
+					failure = e;
+				}
+				resultmsg = null;
+			}
+		}
+		if(failure != null)
+			throw new ExecutionException(failure);
+		return result;
+	}
+}
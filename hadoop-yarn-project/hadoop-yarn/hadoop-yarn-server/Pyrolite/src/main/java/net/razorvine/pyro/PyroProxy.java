@@ -7,6 +7,7 @@ package net.razorvine.pyro;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.io.Serializable;
 import java.lang.reflect.Field;
@@ -14,6 +15,7 @@ import java.net.Socket;
 import java.net.UnknownHostException;
 import java.nio.ByteBuffer;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
 import java.util.zip.DataFormatException;
 import java.util.zip.Inflater;
 
@@ -38,10 +40,12 @@ public class PyroProxy implements Serializable {
 	public UUID correlation_id = null;		// per-proxy correlation id (need to set/update this yourself)
 	public Object pyroHandshake = "hello";	// data object that should be sent in the initial connection handshake message. Can be any serializable object.
 	
+	// the connection state is guarded by the proxy lock
 	private transient int sequenceNr = 0;
 	private transient Socket sock;
 	private transient OutputStream sock_out;
 	private transient InputStream sock_in;
+	private transient Receiver receiver;	// set once the connection is used for asynchronous calls
 	
 	public Set<String> pyroMethods = new HashSet<String>();	// remote methods
 	public Set<String> pyroAttrs = new HashSet<String>();	// remote attributes
@@ -73,7 +77,7 @@ public class PyroProxy implements Serializable {
 	/**
 	 * (re)connect the proxy to the remote Pyro daemon.
 	 */
-	protected void connect() throws UnknownHostException, IOException {
+	protected synchronized void connect() throws UnknownHostException, IOException {
 		if (sock == null) {
 			sock = new Socket(hostname, port);
 			sock.setKeepAlive(true);
@@ -101,10 +105,12 @@ public class PyroProxy implements Serializable {
 	protected void getMetadata(String objectId) throws PickleException, PyroException, IOException {
 		// get metadata from server (methods, attrs, oneway, ...) and remember them in some attributes of the proxy
 		if(objectId==null) objectId=this.objectid;
-		if(sock==null) {
-			connect();
-			if(!pyroMethods.isEmpty() || !pyroAttrs.isEmpty())
-				return;    // metadata has already been retrieved as part of creating the connection
+		synchronized (this) {
+			if(sock==null) {
+				connect();
+				if(!pyroMethods.isEmpty() || !pyroAttrs.isEmpty())
+					return;    // metadata has already been retrieved as part of creating the connection
+			}
 		}
 	
 		// invoke the get_metadata method on the daemon
@@ -184,6 +190,19 @@ public class PyroProxy implements Serializable {
 		return internal_call(method, null, 0, true, arguments);
 	}
 
+	/**
+	 * Call a method on the remote Pyro object this proxy is for, without waiting for the result.
+	 * Calls are pipelined on the connection: several of them can be sent before the
+	 * first result comes back, the results are matched to the calls by sequence number.
+	 * Once a connection has been used asynchronously, a background thread reads all its results.
+	 * @param method the name of the method you want to call, it cannot be a oneway method
+	 * @param arguments zero or more arguments for the remote method
+	 * @return the future result Object from the remote method call
+	 */
+	public PyroFuture call_async(String method, Object... arguments) throws PickleException, PyroException, IOException {
+		return (PyroFuture) internal_call(method, null, 0, true, true, arguments);
+	}
+
 	/**
 	 * Call a method on the remote Pyro object this proxy is for, using Oneway call semantics (return immediately).
 	 * @param method the name of the method you want to call
@@ -229,42 +248,118 @@ public class PyroProxy implements Serializable {
 	 * Internal call method to actually perform the Pyro method call and process the result.
 	 */
 	private Object internal_call(String method, String actual_objectId, int flags, boolean checkMethodName, Object... parameters) throws PickleException, PyroException, IOException {
+		return internal_call(method, actual_objectId, flags, checkMethodName, false, parameters);
+	}
+
+	/**
+	 * Internal call method to actually perform the Pyro method call, and either process
+	 * the result or, for an asynchronous call, return the PyroFuture of the result.
+	 */
+	private Object internal_call(String method, String actual_objectId, int flags, boolean checkMethodName, boolean async, Object... parameters) throws PickleException, PyroException, IOException {
 		
 		if(actual_objectId==null) actual_objectId=this.objectid;
-		synchronized (this) {
-			connect();
-			sequenceNr=(sequenceNr+1)&0xffff;		// stay within an unsigned short 0-65535
-		}
-		if(pyroAttrs.contains(method)) {
-			throw new PyroException("cannot call an attribute");
-		}
-		if(pyroOneway.contains(method)) {
-			flags |= Message.FLAGS_ONEWAY;
-		}
-		if(checkMethodName && Config.METADATA && !pyroMethods.contains(method)) {
-			throw new PyroException(String.format("remote object '%s' has no exposed attribute or method '%s'", actual_objectId, method));
-		}
 		if (parameters == null)
 			parameters = new Object[] {};
 		PyroSerializer ser = PyroSerializer.getFor(Config.SERIALIZER);
 		byte[] pickle = ser.serializeCall(actual_objectId, method, parameters, Collections.<String, Object> emptyMap());
-		Message msg = new Message(Message.MSG_INVOKE, pickle, ser.getSerializerId(), flags, sequenceNr, annotations(), pyroHmacKey);
 		Message resultmsg;
-		synchronized (this.sock) {
-			IOUtil.send(sock_out, msg.to_bytes());
-			if(Config.MSG_TRACE_DIR!=null) {
-				Message.TraceMessageSend(sequenceNr, msg.get_header_bytes(), msg.get_annotations_bytes(), msg.data);
+		PyroFuture future = null;
+		int seq;
+		// the connection may be closed by the receiver at any time, so the
+		// whole exchange holds the proxy lock, except waiting for a result
+		// read by the receiver
+		synchronized (this) {
+			if(receiver!=null && receiver.hasFailed()) {
+				// the receiver closes the connection too, maybe not yet
+				close();
+			}
+			connect();
+			sequenceNr=(sequenceNr+1)&0xffff;		// stay within an unsigned short 0-65535
+			seq=sequenceNr;
+			if(pyroAttrs.contains(method)) {
+				throw new PyroException("cannot call an attribute");
 			}
+			if(pyroOneway.contains(method)) {
+				if(async)
+					throw new PyroException("cannot call oneway method '"+method+"' asynchronously");
+				flags |= Message.FLAGS_ONEWAY;
+			}
+			if(checkMethodName && Config.METADATA && !pyroMethods.contains(method)) {
+				throw new PyroException(String.format("remote object '%s' has no exposed attribute or method '%s'", actual_objectId, method));
+			}
+			Message msg = new Message(Message.MSG_INVOKE, pickle, ser.getSerializerId(), flags, seq, annotations(), pyroHmacKey);
 			pickle = null;
+			if(async && receiver==null) {
+				receiver = new Receiver(sock_in);
+				receiver.start();
+			}
+			boolean oneway = (flags & Message.FLAGS_ONEWAY) != 0;
+			if(receiver!=null && !oneway) {
+				// the receiver reads the result, register before it can arrive
+				future = new PyroFuture(this, ser, seq);
+				receiver.register(future);
+			}
+			try {
+				IOUtil.send(sock_out, msg.to_bytes());
+			} catch (IOException x) {
+				// the pending calls of the connection fail with it
+				close();
+				throw x;
+			}
+			if(Config.MSG_TRACE_DIR!=null) {
+				Message.TraceMessageSend(seq, msg.get_header_bytes(), msg.get_annotations_bytes(), msg.data);
+			}
 
-			if ((flags & Message.FLAGS_ONEWAY) != 0)
+			if (oneway)
 				return null;
 
-			resultmsg = Message.recv(sock_in, new int[]{Message.MSG_RESULT}, pyroHmacKey);
+			if(future==null) {
+				try {
+					resultmsg = Message.recv(sock_in, new int[]{Message.MSG_RESULT}, pyroHmacKey);
+				} catch (IOException x) {
+					close();
+					throw x;
+				}
+			} else {
+				resultmsg = null;
+			}
+		}
+		if(future!=null) {
+			if(async)
+				return future;
+			return await(future);
 		}
-		if (resultmsg.seq != sequenceNr) {
+		if (resultmsg.seq != seq) {
 			throw new PyroException("result msg out of sync");
 		}
+		return processResult(resultmsg, ser);
+	}
+
+	/**
+	 * Wait for the result of a call read by the receiver, for a blocking call
+	 * made on a connection that is used asynchronously too.
+	 */
+	private Object await(PyroFuture future) throws IOException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("interrupted while waiting for the result of call "+future.seq);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if(cause instanceof IOException)
+				throw (IOException) cause;
+			if(cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			throw new PyroException("call failed", cause);
+		}
+	}
+
+	/**
+	 * Process the result message of a call: decompress, deserialize, and
+	 * throw the remote exception if the call failed.
+	 */
+	Object processResult(Message resultmsg, PyroSerializer ser) throws PickleException, PyroException, IOException {
 		responseAnnotations(resultmsg.annotations, resultmsg.type);
 		if ((resultmsg.flags & Message.FLAGS_COMPRESSED) != 0) {
 			_decompressMessageData(resultmsg);
@@ -288,6 +383,80 @@ public class PyroProxy implements Serializable {
 		return ser.deserializeData(resultmsg.data);
 	}
 
+	/**
+	 * Reads the result messages of a connection used for asynchronous calls and
+	 * completes the futures of the calls, in the order the daemon answers them.
+	 * When the connection fails, all the pending calls fail and the proxy
+	 * reconnects on the next call.
+	 */
+	private class Receiver extends Thread {
+		private final InputStream in;
+		private final Map<Integer, PyroFuture> pending = new HashMap<Integer, PyroFuture>();
+		private IOException failure = null;
+
+		public Receiver(InputStream in) {
+			super("PyroProxy receiver "+hostname+":"+port);
+			setDaemon(true);
+			this.in = in;
+		}
+
+		public synchronized void register(PyroFuture future) throws IOException {
+			if(failure!=null)
+				throw new IOException("connection failed", failure);
+			if(pending.containsKey(future.seq))
+				throw new PyroException("too many pending calls, sequence number "+future.seq+" is in use");
+			pending.put(future.seq, future);
+		}
+
+		public synchronized boolean hasFailed() {
+			return failure!=null;
+		}
+
+		/**
+		 * Fail all the pending calls, and the calls registered from now on.
+		 */
+		public void fail(IOException x) {
+			List<PyroFuture> failed;
+			synchronized (this) {
+				if(failure==null)
+					failure = x;
+				failed = new ArrayList<PyroFuture>(pending.values());
+				pending.clear();
+			}
+			for(PyroFuture future: failed) {
+				future.fail(x);
+			}
+		}
+
+		@Override
+		public void run() {
+			try {
+				while(true) {
+					Message msg = Message.recv(in, new int[]{Message.MSG_RESULT}, pyroHmacKey);
+					PyroFuture future;
+					synchronized (this) {
+						future = pending.remove(msg.seq);
+					}
+					if(future!=null)
+						future.complete(msg);
+				}
+			} catch (IOException x) {
+				failed(x);
+			} catch (RuntimeException x) {
+				// invalid message, the stream can't be trusted anymore
+				failed(new IOException("invalid result message", x));
+			}
+		}
+
+		private void failed(IOException x) {
+			fail(x);
+			synchronized (PyroProxy.this) {
+				if(receiver==this)
+					close();
+			}
+		}
+	}
+
 	/**
 	 * Decompress the data bytes in the given message (in place).
 	 */
@@ -316,7 +485,11 @@ public class PyroProxy implements Serializable {
 	 * Close the network connection of this Proxy.
 	 * If you re-use the proxy, it will automatically reconnect.
 	 */
-	public void close() {
+	public synchronized void close() {
+		if (this.receiver != null) {
+			this.receiver.fail(new IOException("connection closed"));
+			this.receiver = null;
+		}
 		if (this.sock != null)
 			try {
 				this.sock_in.close();
@@ -428,6 +601,7 @@ public class PyroProxy implements Serializable {
 		this.sock=null;
 		this.sock_in=null;
 		this.sock_out=null;
+		this.receiver=null;
 		this.correlation_id=null;
 		if(args[1] instanceof Set)
 			this.pyroOneway = (Set<String>) args[1];
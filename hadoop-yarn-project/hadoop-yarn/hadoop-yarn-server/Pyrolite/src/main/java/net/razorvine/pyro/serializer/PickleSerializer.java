@@ -18,6 +18,14 @@ import net.razorvine.pyro.PyroURI;
 
 public class PickleSerializer extends PyroSerializer {
 
+	// picklers are not threadsafe, each thread keeps one reusing its buffer
+	private static final ThreadLocal<Pickler> picklers = new ThreadLocal<Pickler>() {
+		@Override
+		protected Pickler initialValue() {
+			return new Pickler(true, true);
+		}
+	};
+
 	static {
 		Unpickler.registerConstructor("Pyro4.errors", "PyroError", new AnyClassConstructor(PyroException.class));
 		Unpickler.registerConstructor("Pyro4.errors", "CommunicationError", new AnyClassConstructor(PyroException.class));
@@ -48,19 +56,13 @@ public class PickleSerializer extends PyroSerializer {
 
 	@Override
 	public byte[] serializeCall(String objectId, String method, Object[] vargs, Map<String, Object> kwargs) throws IOException {
-		Pickler p=new Pickler();
 		Object[] invokeparams = new Object[] {objectId, method, vargs, kwargs};
-		byte[] result = p.dumps(invokeparams);
-		p.close();
-		return result;
+		return picklers.get().dumps(invokeparams);
 	}
 
 	@Override
 	public byte[] serializeData(Object obj) throws IOException {
-		Pickler p=new Pickler();
-		byte[] result = p.dumps(obj);
-		p.close();
-		return result;
+		return picklers.get().dumps(obj);
 	}
 
 	@Override
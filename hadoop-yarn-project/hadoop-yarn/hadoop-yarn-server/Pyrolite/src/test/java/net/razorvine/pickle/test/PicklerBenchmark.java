@@ -0,0 +1,93 @@
+package net.razorvine.pickle.test;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import net.razorvine.pickle.Pickler;
+
+/**
+ * Compares the throughput and the allocation of a new pickler per call,
+ * the way Pyro calls used to be serialized, with a pickler reusing its
+ * buffer, on docker command sized payloads.
+ * Run with: java -cp ... net.razorvine.pickle.test.PicklerBenchmark [iterations]
+ */
+public class PicklerBenchmark {
+
+	private interface Dumper {
+		byte[] dumps(Object o) throws IOException;
+	}
+
+	public static void main(String[] args) throws IOException {
+		int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+
+		Map<String, String> command = new HashMap<String, String>();
+		command.put("__name__", "org.apache.hadoo.yarn.server.resourcemanager.dockermonitor.DockerCommand");
+		command.put("containerId", "container_1449018421839_0001_01_000002");
+		command.put("commandType", "2");
+		command.put("resource.memory", "2048");
+		command.put("resource.vcores", "2");
+		// what a Pyro call of the command looks like
+		final Object call = new Object[] {"DockerMonitor", "containerCommand",
+				new Object[] {command}, Collections.<String, Object>emptyMap()};
+
+		Dumper plain = new Dumper() {
+			public byte[] dumps(Object o) throws IOException {
+				Pickler p = new Pickler();
+				byte[] result = p.dumps(o);
+				p.close();
+				return result;
+			}
+		};
+		final Pickler reusing = new Pickler(true, true);
+		Dumper reused = new Dumper() {
+			public byte[] dumps(Object o) throws IOException {
+				return reusing.dumps(o);
+			}
+		};
+
+		// warm up both, then measure
+		for(int round = 0; round < 2; ++round) {
+			boolean print = round == 1;
+			run("new pickler per call", plain, call, iterations, print);
+			run("reused pickler", reused, call, iterations, print);
+		}
+	}
+
+	private static void run(String name, Dumper dumper, Object o, int iterations,
+			boolean print) throws IOException {
+		long allocatedBefore = allocatedBytes();
+		long start = System.nanoTime();
+		long size = 0;
+		for(int i = 0; i < iterations; ++i) {
+			size += dumper.dumps(o).length;
+		}
+		long elapsed = System.nanoTime() - start;
+		long allocated = allocatedBytes() - allocatedBefore;
+		if(print) {
+			System.out.println(String.format("%-22s %10.0f ops/s %8d bytes allocated/op (%d bytes/pickle)",
+					name, iterations * 1e9 / elapsed,
+					allocatedBefore < 0 ? -1 : allocated / iterations, size / iterations));
+		}
+	}
+
+	/**
+	 * @return the bytes allocated by the current thread, -1 if the JVM does
+	 * not tell
+	 */
+	private static long allocatedBytes() {
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		try {
+			// com.sun.management.ThreadMXBean, not there on every JVM
+			Method method = Class.forName("com.sun.management.ThreadMXBean")
+					.getMethod("getThreadAllocatedBytes", long.class);
+			return (Long) method.invoke(bean, Thread.currentThread().getId());
+		} catch (Exception e) {
+			return -1;
+		}
+	}
+}
@@ -873,6 +873,79 @@ public class PicklerTest {
 		p.dumps(c);
 	}
 	
+	@Test
+	public void testReusedBuffer() throws PickleException, IOException
+	{
+		Pickler plain=new Pickler();
+		Pickler reusing=new Pickler(true, true);
+		Map<String,Object> map=new HashMap<String,Object>();
+		map.put("containerId", "container_1_0001_01_000002");
+		map.put("commandType", 2);
+		map.put("euro", "\u20ac");
+		map.put("list", new ArrayList<Object>(java.util.Arrays.asList("a", 1L, true, null, 1.5d)));
+		map.put("big", 0x12345678abcdefL);
+		Object[] objects=new Object[] {"hello", "hello\u20ac", 1234, map,
+				new String[] {"abc","def","ghi","jkl"}, new PersonBean("Tupac",true, new int[] {3,4,5})};
+		// the second round writes over the buffer of the first one
+		for(int round=0; round<2; ++round) {
+			for(Object o: objects) {
+				assertArrayEquals(plain.dumps(o), reusing.dumps(o));
+			}
+		}
+
+		// a grown buffer is dropped, the output is still right
+		int max=Pickler.MAX_REUSED_BUFFER_SIZE;
+		try {
+			Pickler.MAX_REUSED_BUFFER_SIZE=16;
+			byte[] o=reusing.dumps(map);
+			assertArrayEquals(plain.dumps(map), o);
+			assertArrayEquals(plain.dumps("hello"), reusing.dumps("hello"));
+		} finally {
+			Pickler.MAX_REUSED_BUFFER_SIZE=max;
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testReusedMemo() throws PickleException, IOException
+	{
+		Pickler p=new Pickler(true, true);
+		Unpickler u=new Unpickler();
+		String reused="reused";
+		List<Object> list=new ArrayList<Object>();
+		list.add(reused);
+		list.add(reused);
+		for(int round=0; round<2; ++round) {
+			byte[] o=p.dumps(list);
+			// the memo of the previous round is not referred to
+			assertEquals("\u0080\u0002]q\u0000(X\u0006\u0000\u0000\u0000reusedq\u0001h\u0001e.", S(o));
+			List<Object> data=(List<Object>) u.loads(o);
+			assertSame(data.get(0), data.get(1));
+		}
+	}
+
+	public static class LateCustomClass implements java.io.Serializable {
+		private static final long serialVersionUID = 1L;
+		public int getX() {
+			return 42;
+		}
+	}
+
+	@Test
+	public void testCustomPicklerAfterFirstUse() throws PickleException, IOException
+	{
+		Pickler p=new Pickler(false);
+		Unpickler u=new Unpickler();
+		// pickled as a javabean first
+		assertTrue(u.loads(p.dumps(new LateCustomClass())) instanceof Map);
+		Pickler.registerCustomPickler(LateCustomClass.class, new IObjectPickler() {
+			public void pickle(Object o, OutputStream out, Pickler currentpickler) throws PickleException, IOException {
+				currentpickler.save("late="+((LateCustomClass)o).getX());
+			}
+		});
+		assertEquals("late=42", u.loads(p.dumps(new LateCustomClass())));
+	}
+
 	public static void main(String[] args) throws PickleException, IOException
 	{
 	}
@@ -0,0 +1,179 @@
+package net.razorvine.pyro.test;
+
+import java.io.*;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import net.razorvine.pyro.*;
+import net.razorvine.pyro.serializer.*;
+import static org.junit.Assert.*;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for the asynchronous, pipelined calls of the Pyro proxy,
+ * against a fake daemon that answers a batch of calls in reverse order.
+ */
+public class PyroProxyAsyncTest {
+
+	private Config.SerializerType serializer;
+	private boolean metadata;
+	private ServerSocket server;
+	private PyroSerializer ser;
+
+	/**
+	 * Reads batchSize calls, then answers them, last one first. The result of
+	 * a call is its first argument, the method "fail" raises an exception.
+	 * The method "drop" closes the connection, the daemon then waits for the
+	 * next one.
+	 */
+	private class FakeDaemon extends Thread {
+		private final int batchSize;
+
+		FakeDaemon(int batchSize) {
+			this.batchSize = batchSize;
+			setDaemon(true);
+		}
+
+		@Override
+		public void run() {
+			try {
+				while(true) {
+					Socket sock = server.accept();
+					try {
+						serve(sock);
+					} finally {
+						sock.close();
+					}
+				}
+			} catch (IOException e) {
+				// the proxy is gone
+			}
+		}
+
+		private void serve(Socket sock) throws IOException {
+			InputStream in = sock.getInputStream();
+			OutputStream out = sock.getOutputStream();
+			Message msg = Message.recv(in, new int[] {Message.MSG_CONNECT}, null);
+			send(out, Message.MSG_CONNECTOK, ser.serializeData("ok"), 0, msg.seq);
+			while(true) {
+				List<Message> batch = new ArrayList<Message>();
+				while(batch.size() < batchSize) {
+					batch.add(Message.recv(in, new int[] {Message.MSG_INVOKE}, null));
+				}
+				for(int i = batch.size() - 1; i >= 0; --i) {
+					Object[] call = (Object[]) ser.deserializeData(batch.get(i).data);
+					Object[] vargs = (Object[]) call[2];
+					if("drop".equals(call[1])) {
+						return;
+					} else if("fail".equals(call[1])) {
+						send(out, Message.MSG_RESULT, ser.serializeData(new PyroException("boom")),
+								Message.FLAGS_EXCEPTION, batch.get(i).seq);
+					} else {
+						send(out, Message.MSG_RESULT, ser.serializeData(vargs[0]), 0, batch.get(i).seq);
+					}
+				}
+			}
+		}
+
+		private void send(OutputStream out, int type, byte[] data, int flags, int seq) throws IOException {
+			out.write(new Message(type, data, ser.getSerializerId(), flags, seq,
+					new TreeMap<String, byte[]>(), null).to_bytes());
+		}
+	}
+
+	@Before
+	public void setUp() throws IOException {
+		serializer = Config.SERIALIZER;
+		metadata = Config.METADATA;
+		Config.SERIALIZER = Config.SerializerType.pickle;
+		Config.METADATA = false;
+		ser = new PickleSerializer();
+		server = new ServerSocket(0);
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		server.close();
+		Config.SERIALIZER = serializer;
+		Config.METADATA = metadata;
+	}
+
+	@Test
+	public void testPipelinedCalls() throws Exception {
+		new FakeDaemon(10).start();
+		PyroProxy proxy = new PyroProxy("localhost", server.getLocalPort(), "obj");
+		// the daemon answers only once it got all of them
+		List<PyroFuture> futures = new ArrayList<PyroFuture>();
+		for(int i = 0; i < 10; ++i) {
+			futures.add(proxy.call_async("echo", "call" + i));
+		}
+		for(int i = 0; i < 10; ++i) {
+			assertEquals("call" + i, futures.get(i).get(10, TimeUnit.SECONDS));
+			assertTrue(futures.get(i).isDone());
+		}
+		proxy.close();
+	}
+
+	@Test
+	public void testBlockingCallAfterAsyncCalls() throws Exception {
+		new FakeDaemon(1).start();
+		PyroProxy proxy = new PyroProxy("localhost", server.getLocalPort(), "obj");
+		assertEquals("first", proxy.call_async("echo", "first").get(10, TimeUnit.SECONDS));
+		// read by the receiver of the connection now
+		assertEquals("second", proxy.call("echo", "second"));
+		try {
+			proxy.call_async("fail", "x").get(10, TimeUnit.SECONDS);
+			fail("remote exception expected");
+		} catch (ExecutionException e) {
+			assertEquals("boom", e.getCause().getMessage());
+		}
+		try {
+			proxy.call("fail", "x");
+			fail("remote exception expected");
+		} catch (PyroException e) {
+			assertEquals("boom", e.getMessage());
+		}
+		proxy.close();
+	}
+
+	@Test
+	public void testCloseFailsPendingCalls() throws Exception {
+		// never answers a single call
+		new FakeDaemon(2).start();
+		PyroProxy proxy = new PyroProxy("localhost", server.getLocalPort(), "obj");
+		PyroFuture future = proxy.call_async("echo", "lost");
+		proxy.close();
+		try {
+			future.get(10, TimeUnit.SECONDS);
+			fail("the call should have failed");
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof IOException);
+		}
+	}
+
+	@Test
+	public void testReconnectAfterConnectionFailure() throws Exception {
+		new FakeDaemon(1).start();
+		PyroProxy proxy = new PyroProxy("localhost", server.getLocalPort(), "obj");
+		assertEquals("first", proxy.call_async("echo", "first").get(10, TimeUnit.SECONDS));
+		// the receiver sees the connection fail and closes it
+		try {
+			proxy.call_async("drop", "x").get(10, TimeUnit.SECONDS);
+			fail("the call should have failed");
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof IOException);
+		}
+		// the next call connects again, whether or not the receiver closed
+		// the connection yet
+		assertEquals("again", proxy.call("echo", "again"));
+		proxy.close();
+	}
+}
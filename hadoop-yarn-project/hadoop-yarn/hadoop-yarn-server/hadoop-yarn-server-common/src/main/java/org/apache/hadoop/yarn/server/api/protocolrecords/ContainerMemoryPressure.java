@@ -0,0 +1,67 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.yarn.server.api.protocolrecords;
+
+import org.apache.hadoop.yarn.api.records.ContainerId;
+import org.apache.hadoop.yarn.util.Records;
+
+/**
+ * Memory pressure of a container as sampled by the NodeManager, reported to
+ * the ResourceManager in the node heartbeat. The score goes from 0, the
+ * container does not hurt the node, to 100, the container is well beyond its
+ * allocation, swaps and faults pages in.
+ */
+public abstract class ContainerMemoryPressure {
+
+  public static final int MAX_SCORE = 100;
+
+  public static ContainerMemoryPressure newInstance(ContainerId containerId,
+      int score, int usageMb, int swapMb, int majorFaultsPerSec) {
+    ContainerMemoryPressure pressure =
+        Records.newRecord(ContainerMemoryPressure.class);
+    pressure.setContainerId(containerId);
+    pressure.setScore(score);
+    pressure.setUsageMb(usageMb);
+    pressure.setSwapMb(swapMb);
+    pressure.setMajorFaultsPerSec(majorFaultsPerSec);
+    return pressure;
+  }
+
+  public abstract ContainerId getContainerId();
+  public abstract void setContainerId(ContainerId containerId);
+
+  /**
+   * @return the pressure score, between 0 and {@link #MAX_SCORE}
+   */
+  public abstract int getScore();
+  public abstract void setScore(int score);
+
+  /**
+   * @return the working set of the container, its memory usage without the
+   * inactive page cache
+   */
+  public abstract int getUsageMb();
+  public abstract void setUsageMb(int usageMb);
+
+  public abstract int getSwapMb();
+  public abstract void setSwapMb(int swapMb);
+
+  public abstract int getMajorFaultsPerSec();
+  public abstract void setMajorFaultsPerSec(int majorFaultsPerSec);
+}
@@ -18,6 +18,8 @@
 
 package org.apache.hadoop.yarn.server.api.protocolrecords;
 
+import java.util.List;
+
 import org.apache.hadoop.yarn.server.api.records.MasterKey;
 import org.apache.hadoop.yarn.server.api.records.NodeStatus;
 import org.apache.hadoop.yarn.util.Records;
@@ -45,4 +47,12 @@ public abstract class NodeHeartbeatRequest {
   
   public abstract MasterKey getLastKnownNMTokenMasterKey();
   public abstract void setLastKnownNMTokenMasterKey(MasterKey secretKey);
+
+  /**
+   * @return the memory pressure of the containers under pressure, and of
+   * those which were relieved since the previous heartbeat
+   */
+  public abstract List<ContainerMemoryPressure> getContainerMemoryPressures();
+  public abstract void setContainerMemoryPressures(
+      List<ContainerMemoryPressure> pressures);
 }
@@ -0,0 +1,171 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.yarn.server.api.protocolrecords.impl.pb;
+
+import org.apache.hadoop.yarn.api.records.ContainerId;
+import org.apache.hadoop.yarn.api.records.impl.pb.ContainerIdPBImpl;
+import org.apache.hadoop.yarn.proto.YarnProtos.ContainerIdProto;
+import org.apache.hadoop.yarn.proto.YarnServerCommonServiceProtos.ContainerMemoryPressureProto;
+import org.apache.hadoop.yarn.proto.YarnServerCommonServiceProtos.ContainerMemoryPressureProtoOrBuilder;
+import org.apache.hadoop.yarn.server.api.protocolrecords.ContainerMemoryPressure;
+
+public class ContainerMemoryPressurePBImpl extends ContainerMemoryPressure {
+  ContainerMemoryPressureProto proto =
+      ContainerMemoryPressureProto.getDefaultInstance();
+  ContainerMemoryPressureProto.Builder builder = null;
+  boolean viaProto = false;
+
+  private ContainerId containerId = null;
+
+  public ContainerMemoryPressurePBImpl() {
+    builder = ContainerMemoryPressureProto.newBuilder();
+  }
+
+  public ContainerMemoryPressurePBImpl(ContainerMemoryPressureProto proto) {
+    this.proto = proto;
+    viaProto = true;
+  }
+
+  public ContainerMemoryPressureProto getProto() {
+    mergeLocalToProto();
+    proto = viaProto ? proto : builder.build();
+    viaProto = true;
+    return proto;
+  }
+
+  @Override
+  public int hashCode() {
+    return getProto().hashCode();
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (other == null)
+      return false;
+    if (other.getClass().isAssignableFrom(this.getClass())) {
+      return this.getProto().equals(this.getClass().cast(other).getProto());
+    }
+    return false;
+  }
+
+  @Override
+  public String toString() {
+    return getContainerId() + " score=" + getScore() + " usage="
+        + getUsageMb() + "MB swap=" + getSwapMb() + "MB majfaults/s="
+        + getMajorFaultsPerSec();
+  }
+
+  private void mergeLocalToBuilder() {
+    if (this.containerId != null) {
+      builder.setContainerId(convertToProtoFormat(this.containerId));
+    }
+  }
+
+  private void mergeLocalToProto() {
+    if (viaProto)
+      maybeInitBuilder();
+    mergeLocalToBuilder();
+    proto = builder.build();
+    viaProto = true;
+  }
+
+  private void maybeInitBuilder() {
+    if (viaProto || builder == null) {
+      builder = ContainerMemoryPressureProto.newBuilder(proto);
+    }
+    viaProto = false;
+  }
+
+  @Override
+  public ContainerId getContainerId() {
+    ContainerMemoryPressureProtoOrBuilder p = viaProto ? proto : builder;
+    if (this.containerId != null) {
+      return this.containerId;
+    }
+    if (!p.hasContainerId()) {
+      return null;
+    }
+    this.containerId = convertFromProtoFormat(p.getContainerId());
+    return this.containerId;
+  }
+
+  @Override
+  public void setContainerId(ContainerId containerId) {
+    maybeInitBuilder();
+    if (containerId == null)
+      builder.clearContainerId();
+    this.containerId = containerId;
+  }
+
+  @Override
+  public int getScore() {
+    ContainerMemoryPressureProtoOrBuilder p = viaProto ? proto : builder;
+    return p.getScore();
+  }
+
+  @Override
+  public void setScore(int score) {
+    maybeInitBuilder();
+    builder.setScore(score);
+  }
+
+  @Override
+  public int getUsageMb() {
+    ContainerMemoryPressureProtoOrBuilder p = viaProto ? proto : builder;
+    return p.getUsageMb();
+  }
+
+  @Override
+  public void setUsageMb(int usageMb) {
+    maybeInitBuilder();
+    builder.setUsageMb(usageMb);
+  }
+
+  @Override
+  public int getSwapMb() {
+    ContainerMemoryPressureProtoOrBuilder p = viaProto ? proto : builder;
+    return p.getSwapMb();
+  }
+
+  @Override
+  public void setSwapMb(int swapMb) {
+    maybeInitBuilder();
+    builder.setSwapMb(swapMb);
+  }
+
+  @Override
+  public int getMajorFaultsPerSec() {
+    ContainerMemoryPressureProtoOrBuilder p = viaProto ? proto : builder;
+    return p.getMajorFaultsPerSec();
+  }
+
+  @Override
+  public void setMajorFaultsPerSec(int majorFaultsPerSec) {
+    maybeInitBuilder();
+    builder.setMajorFaultsPerSec(majorFaultsPerSec);
+  }
+
+  private ContainerIdPBImpl convertFromProtoFormat(ContainerIdProto p) {
+    return new ContainerIdPBImpl(p);
+  }
+
+  private ContainerIdProto convertToProtoFormat(ContainerId t) {
+    return ((ContainerIdPBImpl) t).getProto();
+  }
+}
@@ -18,10 +18,16 @@
 
 package org.apache.hadoop.yarn.server.api.protocolrecords.impl.pb;
 
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
 import org.apache.hadoop.yarn.proto.YarnServerCommonProtos.MasterKeyProto;
 import org.apache.hadoop.yarn.proto.YarnServerCommonProtos.NodeStatusProto;
+import org.apache.hadoop.yarn.proto.YarnServerCommonServiceProtos.ContainerMemoryPressureProto;
 import org.apache.hadoop.yarn.proto.YarnServerCommonServiceProtos.NodeHeartbeatRequestProto;
 import org.apache.hadoop.yarn.proto.YarnServerCommonServiceProtos.NodeHeartbeatRequestProtoOrBuilder;
+import org.apache.hadoop.yarn.server.api.protocolrecords.ContainerMemoryPressure;
 import org.apache.hadoop.yarn.server.api.protocolrecords.NodeHeartbeatRequest;
 import org.apache.hadoop.yarn.server.api.records.MasterKey;
 import org.apache.hadoop.yarn.server.api.records.NodeStatus;
@@ -36,6 +42,7 @@ public class NodeHeartbeatRequestPBImpl extends NodeHeartbeatRequest {
   private NodeStatus nodeStatus = null;
   private MasterKey lastKnownContainerTokenMasterKey = null;
   private MasterKey lastKnownNMTokenMasterKey = null;
+  private List<ContainerMemoryPressure> containerMemoryPressures = null;
   
   public NodeHeartbeatRequestPBImpl() {
     builder = NodeHeartbeatRequestProto.newBuilder();
@@ -80,6 +87,9 @@ public class NodeHeartbeatRequestPBImpl extends NodeHeartbeatRequest {
       builder.setLastKnownNmTokenMasterKey(
           convertToProtoFormat(this.lastKnownNMTokenMasterKey));
     }
+    if (this.containerMemoryPressures != null) {
+      addContainerMemoryPressuresToProto();
+    }
   }
 
   private void mergeLocalToProto() {
@@ -163,6 +173,79 @@ public class NodeHeartbeatRequestPBImpl extends NodeHeartbeatRequest {
     this.lastKnownNMTokenMasterKey = masterKey;
   }
 
+  @Override
+  public List<ContainerMemoryPressure> getContainerMemoryPressures() {
+    initContainerMemoryPressures();
+    return this.containerMemoryPressures;
+  }
+
+  @Override
+  public void setContainerMemoryPressures(
+      List<ContainerMemoryPressure> pressures) {
+    maybeInitBuilder();
+    if (pressures == null)
+      builder.clearContainerMemoryPressures();
+    this.containerMemoryPressures = pressures;
+  }
+
+  private void initContainerMemoryPressures() {
+    if (this.containerMemoryPressures != null) {
+      return;
+    }
+    NodeHeartbeatRequestProtoOrBuilder p = viaProto ? proto : builder;
+    List<ContainerMemoryPressureProto> list =
+        p.getContainerMemoryPressuresList();
+    this.containerMemoryPressures =
+        new ArrayList<ContainerMemoryPressure>(list.size());
+    for (ContainerMemoryPressureProto c : list) {
+      this.containerMemoryPressures.add(convertFromProtoFormat(c));
+    }
+  }
+
+  private void addContainerMemoryPressuresToProto() {
+    maybeInitBuilder();
+    builder.clearContainerMemoryPressures();
+    if (this.containerMemoryPressures == null)
+      return;
+    Iterable<ContainerMemoryPressureProto> iterable =
+        new Iterable<ContainerMemoryPressureProto>() {
+      @Override
+      public Iterator<ContainerMemoryPressureProto> iterator() {
+        return new Iterator<ContainerMemoryPressureProto>() {
+
+          Iterator<ContainerMemoryPressure> iter =
+              containerMemoryPressures.iterator();
+
+          @Override
+          public boolean hasNext() {
+            return iter.hasNext();
+          }
+
+          @Override
+          public ContainerMemoryPressureProto next() {
+            return convertToProtoFormat(iter.next());
+          }
+
+          @Override
+          public void remove() {
+            throw new UnsupportedOperationException();
+          }
+        };
+      }
+    };
+    builder.addAllContainerMemoryPressures(iterable);
+  }
+
+  private ContainerMemoryPressurePBImpl convertFromProtoFormat(
+      ContainerMemoryPressureProto p) {
+    return new ContainerMemoryPressurePBImpl(p);
+  }
+
+  private ContainerMemoryPressureProto convertToProtoFormat(
+      ContainerMemoryPressure t) {
+    return ((ContainerMemoryPressurePBImpl) t).getProto();
+  }
+
   private NodeStatusPBImpl convertFromProtoFormat(NodeStatusProto p) {
     return new NodeStatusPBImpl(p);
   }
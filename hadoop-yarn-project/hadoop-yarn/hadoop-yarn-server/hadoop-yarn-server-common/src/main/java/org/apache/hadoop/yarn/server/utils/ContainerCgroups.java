@@ -0,0 +1,257 @@
+/**
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package org.apache.hadoop.yarn.server.utils;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.classification.InterfaceAudience.Private;
+import org.apache.hadoop.util.Shell.ShellCommandExecutor;
+import org.apache.hadoop.yarn.api.records.ContainerId;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Charsets;
+
+/**
+ * Finds, reads and writes the cgroups of the containers. The cgroup of a
+ * container is looked up under
+ * <code>&lt;root&gt;/&lt;controller&gt;/&lt;parent&gt;/</code>, either by the
+ * container id or by the docker id of the container, and cached until the
+ * container is released.
+ * <p>
+ * This class is thread-safe.
+ */
+@Private
+public class ContainerCgroups {
+
+  private static final Log LOG = LogFactory.getLog(ContainerCgroups.class);
+
+  public static final String CONTROLLER_MEMORY = "memory";
+
+  private final String cgroupRoot;
+  private final String cgroupParent;
+  private final String dockerExecutor;
+  private final boolean lookupOnce;
+
+  // container id -> name of the cgroup of the container
+  private final ConcurrentMap<ContainerId, String> cgroupNames =
+      new ConcurrentHashMap<ContainerId, String>();
+  // containers whose cgroup could not be found, not looked up again
+  private final Set<ContainerId> noCgroup = Collections.newSetFromMap(
+      new ConcurrentHashMap<ContainerId, Boolean>());
+
+  /**
+   * @param dockerExecutor docker command used to look up the docker id of a
+   * container
+   * @param lookupOnce whether a container whose cgroup was not found is not
+   * looked up again until it is released, for the callers sampling the
+   * containers over and over
+   */
+  public ContainerCgroups(String cgroupRoot, String cgroupParent,
+      String dockerExecutor, boolean lookupOnce) {
+    this.cgroupRoot = cgroupRoot;
+    this.cgroupParent = cgroupParent;
+    this.dockerExecutor = dockerExecutor;
+    this.lookupOnce = lookupOnce;
+  }
+
+  public String getCgroupRoot() {
+    return cgroupRoot;
+  }
+
+  public String pathForCgroup(String controller, String cgroupName) {
+    return cgroupRoot + "/" + controller + "/" + cgroupParent + "/"
+        + cgroupName;
+  }
+
+  /**
+   * @return the name of the cgroup of the container, or null if there is none
+   */
+  public String getCgroupName(ContainerId containerId) {
+    String cgroupName = cgroupNames.get(containerId);
+    if (cgroupName != null || noCgroup.contains(containerId)) {
+      return cgroupName;
+    }
+    if (new File(pathForCgroup(CONTROLLER_MEMORY,
+        containerId.toString())).isDirectory()) {
+      cgroupName = containerId.toString();
+    } else {
+      // docker names the cgroup of a container after its id, so it is
+      // looked up once and cached for the lifetime of the container
+      cgroupName = lookupDockerId(containerId);
+      if (cgroupName == null || !new File(pathForCgroup(CONTROLLER_MEMORY,
+          cgroupName)).isDirectory()) {
+        if (lookupOnce) {
+          LOG.info("No memory cgroup found for " + containerId);
+          noCgroup.add(containerId);
+        }
+        return null;
+      }
+    }
+    cgroupNames.put(containerId, cgroupName);
+    return cgroupName;
+  }
+
+  /**
+   * @return the containers whose cgroup was found and not released since
+   */
+  public Set<ContainerId> getContainers() {
+    return Collections.unmodifiableSet(cgroupNames.keySet());
+  }
+
+  /**
+   * Forget a finished container.
+   */
+  public void release(ContainerId containerId) {
+    cgroupNames.remove(containerId);
+    noCgroup.remove(containerId);
+  }
+
+  /**
+   * Forget the containers which are not running anymore.
+   */
+  public void retain(Set<ContainerId> running) {
+    cgroupNames.keySet().retainAll(running);
+    noCgroup.retainAll(running);
+  }
+
+  public void clear() {
+    cgroupNames.clear();
+    noCgroup.clear();
+  }
+
+  @VisibleForTesting
+  protected String lookupDockerId(ContainerId containerId) {
+    ShellCommandExecutor shExec = new ShellCommandExecutor(new String[]{
+        dockerExecutor, "inspect", "--format", "{{.Id}}",
+        containerId.toString()});
+    try {
+      shExec.execute();
+      String dockerId = shExec.getOutput().trim();
+      return dockerId.isEmpty() ? null : dockerId;
+    } catch (IOException e) {
+      LOG.warn("Unable to get the docker id of container " + containerId, e);
+      return null;
+    } finally {
+      shExec.close();
+    }
+  }
+
+  /**
+   * @return the lines of the file, none if the kernel does not have it
+   */
+  public List<String> readLines(String controller, String cgroupName,
+      String param) throws IOException {
+    File file = new File(pathForCgroup(controller, cgroupName), param);
+    List<String> lines = new ArrayList<String>();
+    if (!file.exists()) {
+      return lines;
+    }
+    BufferedReader in = new BufferedReader(new InputStreamReader(
+        new FileInputStream(file), Charsets.UTF_8));
+    try {
+      String line;
+      while ((line = in.readLine()) != null) {
+        lines.add(line);
+      }
+    } finally {
+      in.close();
+    }
+    return lines;
+  }
+
+  /**
+   * @return the first line of the file, null if the kernel does not have it
+   */
+  public String read(String controller, String cgroupName, String param)
+      throws IOException {
+    List<String> lines = readLines(controller, cgroupName, param);
+    return lines.isEmpty() ? null : lines.get(0).trim();
+  }
+
+  /**
+   * Read a file holding a single counter.
+   * @throws IOException if the file is missing or not a counter
+   */
+  public long readValue(String controller, String cgroupName, String param)
+      throws IOException {
+    String value = read(controller, cgroupName, param);
+    if (value == null) {
+      throw new IOException("No " + param + " for cgroup " + cgroupName);
+    }
+    try {
+      return Long.parseLong(value);
+    } catch (NumberFormatException e) {
+      throw new IOException("Invalid " + param + " for cgroup "
+          + cgroupName, e);
+    }
+  }
+
+  /**
+   * Read a file made of "key value" lines.
+   * @return the counters of the file, none if the kernel does not have it
+   */
+  public Map<String, Long> readStat(String controller, String cgroupName,
+      String param) throws IOException {
+    Map<String, Long> stat = new HashMap<String, Long>();
+    for (String line : readLines(controller, cgroupName, param)) {
+      String[] fields = line.trim().split("\\s+");
+      if (fields.length == 2) {
+        try {
+          stat.put(fields[0], Long.parseLong(fields[1]));
+        } catch (NumberFormatException e) {
+          // not a counter
+        }
+      }
+    }
+    return stat;
+  }
+
+  public void write(String controller, String cgroupName, String param,
+      String value) throws IOException {
+    String path = pathForCgroup(controller, cgroupName);
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("updateCgroup: " + path + ": " + param + "=" + value);
+    }
+    OutputStream out = new FileOutputStream(new File(path, param));
+    try {
+      out.write(value.getBytes(Charsets.UTF_8));
+    } catch (IOException e) {
+      throw new IOException("Unable to set " + param + "=" + value
+          + " for cgroup at: " + path, e);
+    } finally {
+      out.close();
+    }
+  }
+}
@@ -0,0 +1,538 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.yarn.server.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.management.NotCompliantMBeanException;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.classification.InterfaceAudience.Private;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.metrics2.util.MBeans;
+import org.apache.hadoop.yarn.api.records.ApplicationAttemptId;
+import org.apache.hadoop.yarn.api.records.ApplicationId;
+import org.apache.hadoop.yarn.api.records.ContainerId;
+import org.apache.hadoop.yarn.api.records.NodeId;
+import org.apache.hadoop.yarn.api.records.Resource;
+import org.apache.hadoop.yarn.conf.YarnConfiguration;
+
+import com.google.common.annotations.VisibleForTesting;
+
+/**
+ * Fixed size ring buffer of binary scheduling events (suspends, resumes,
+ * allocations, cpuset changes), replacing the info logs of the scheduling
+ * hot path. Recording an event takes no lock and allocates nothing: every
+ * event is a slot of {@link #RECORD_LONGS} longs, the writer claims a slot
+ * with a counter and marks it with its sequence number once written, so a
+ * dump can skip the slots being overwritten meanwhile. When the buffer is
+ * full the oldest events are overwritten.
+ *
+ * The buffer is dumped through JMX or the RM web services, the dump is
+ * decoded offline with
+ * <code>java org.apache.hadoop.yarn.server.utils.SchedulingTrace
+ * &lt;dump file&gt;</code>.
+ */
+@Private
+public class SchedulingTrace implements SchedulingTraceBeans {
+
+  private static final Log LOG = LogFactory.getLog(SchedulingTrace.class);
+
+  public enum EventType {
+    /**
+     * a container was suspended, resource is what was taken from it in the
+     * RM, what it is left with in the NM
+     */
+    SUSPEND,
+    /** the scheduler tried to resume a container on a node */
+    RESUME_ATTEMPT,
+    /** the resume attempt failed, the reason says why */
+    RESUME_SKIPPED,
+    /**
+     * a container was resumed, resource is what it got back in the RM, what
+     * it now has in the NM
+     */
+    RESUME,
+    /** a new container was allocated on a node */
+    ALLOCATION,
+    /** the cpuset of a container changed, extra is the cpuset */
+    CPUSET_CHANGE
+  }
+
+  public enum SkipReason {
+    NONE,
+    /** the queue is at its limit */
+    QUEUE_LIMIT,
+    /** the user is at its limit */
+    USER_LIMIT,
+    /** the node is too small for the resource to resume */
+    NODE_CAPACITY,
+    /** the node has not enough available resource now */
+    NODE_AVAILABLE,
+    /** the container waits for more scheduling opportunities */
+    OPPORTUNITY,
+    /** the application refused the resource */
+    NOT_NEEDED
+  }
+
+  static final int MAGIC = 0x59545243;
+  static final int VERSION = 1;
+  static final int RECORD_LONGS = 8;
+
+  public static final int DEFAULT_CAPACITY = 65536;
+
+  private static volatile SchedulingTrace instance =
+      new SchedulingTrace(DEFAULT_CAPACITY);
+  private static ObjectName beanName;
+
+  private final int capacity;
+  private final int mask;
+  // slot i: sequence number + 1 once written, time, type/reason/node,
+  // cluster timestamp, application/attempt, container, memory/vcores, extra
+  private final AtomicLongArray slots;
+  private final AtomicLong next = new AtomicLong();
+  private final ConcurrentMap<NodeId, Integer> nodeIndex =
+      new ConcurrentHashMap<NodeId, Integer>();
+  private final AtomicInteger nextNodeIndex = new AtomicInteger(1);
+  // index -> nodes removed from the cluster, kept while the buffer may still
+  // hold their events
+  private final ConcurrentMap<Integer, RemovedNode> removedNodes =
+      new ConcurrentHashMap<Integer, RemovedNode>();
+
+  private static class RemovedNode {
+    final NodeId nodeId;
+    // sequence number of the next event when the node was removed
+    final long removedAt;
+
+    RemovedNode(NodeId nodeId, long removedAt) {
+      this.nodeId = nodeId;
+      this.removedAt = removedAt;
+    }
+  }
+
+  /**
+   * @param capacity number of events kept, rounded up to a power of two, 0
+   * to record nothing
+   */
+  public SchedulingTrace(int capacity) {
+    if (capacity <= 0) {
+      this.capacity = 0;
+      this.mask = 0;
+      this.slots = null;
+    } else {
+      int size = Integer.highestOneBit(capacity);
+      this.capacity = size == capacity ? size : size << 1;
+      this.mask = this.capacity - 1;
+      this.slots = new AtomicLongArray(this.capacity * RECORD_LONGS);
+    }
+  }
+
+  /**
+   * @return the trace of this process
+   */
+  public static SchedulingTrace get() {
+    return instance;
+  }
+
+  /**
+   * Replace the trace of this process with one sized from the configuration
+   * and publish it through JMX. Only the first call does it, daemons sharing
+   * a process (mini clusters) or restarted in it share the trace.
+   * @param serviceName JMX service name, ResourceManager or NodeManager
+   */
+  public static synchronized SchedulingTrace initialize(Configuration conf,
+      String serviceName) {
+    if (beanName != null) {
+      return instance;
+    }
+    SchedulingTrace trace = new SchedulingTrace(conf.getInt(
+        YarnConfiguration.SCHEDULING_TRACE_SIZE,
+        YarnConfiguration.DEFAULT_SCHEDULING_TRACE_SIZE));
+    instance = trace;
+    try {
+      beanName = MBeans.register(serviceName, "SchedulingTrace",
+          new StandardMBean(trace, SchedulingTraceBeans.class));
+    } catch (NotCompliantMBeanException e) {
+      LOG.warn("Error registering SchedulingTrace MBean", e);
+    }
+    return trace;
+  }
+
+  public void suspend(ContainerId containerId, NodeId nodeId,
+      Resource preempted) {
+    record(EventType.SUSPEND, SkipReason.NONE, containerId, nodeId,
+        preempted, 0);
+  }
+
+  public void resumeAttempt(ContainerId containerId, NodeId nodeId,
+      Resource toResume) {
+    record(EventType.RESUME_ATTEMPT, SkipReason.NONE, containerId, nodeId,
+        toResume, 0);
+  }
+
+  public void resumeSkipped(ContainerId containerId, NodeId nodeId,
+      Resource toResume, SkipReason reason) {
+    record(EventType.RESUME_SKIPPED, reason, containerId, nodeId, toResume, 0);
+  }
+
+  public void resume(ContainerId containerId, NodeId nodeId,
+      Resource resumed) {
+    record(EventType.RESUME, SkipReason.NONE, containerId, nodeId, resumed, 0);
+  }
+
+  public void allocation(ContainerId containerId, NodeId nodeId,
+      Resource allocated) {
+    record(EventType.ALLOCATION, SkipReason.NONE, containerId, nodeId,
+        allocated, 0);
+  }
+
+  /**
+   * Only the first 64 cores of the cpuset are kept, the vcores of the event
+   * are the number of cores of the whole cpuset.
+   */
+  public void cpusetChange(ContainerId containerId, BitSet cores) {
+    long bits = 0;
+    int count = 0;
+    if (cores != null) {
+      count = cores.cardinality();
+      for (int core = cores.nextSetBit(0); core >= 0 && core < 64;
+          core = cores.nextSetBit(core + 1)) {
+        bits |= 1L << core;
+      }
+    }
+    record(EventType.CPUSET_CHANGE, SkipReason.NONE, containerId, null,
+        0, count, bits);
+  }
+
+  private void record(EventType type, SkipReason reason,
+      ContainerId containerId, NodeId nodeId, Resource resource, long extra) {
+    record(type, reason, containerId, nodeId,
+        resource == null ? 0 : resource.getMemory(),
+        resource == null ? 0 : resource.getVirtualCores(), extra);
+  }
+
+  private void record(EventType type, SkipReason reason,
+      ContainerId containerId, NodeId nodeId, int memory, int vcores,
+      long extra) {
+    if (slots == null) {
+      return;
+    }
+    long seq = next.getAndIncrement();
+    int base = (int) (seq & mask) * RECORD_LONGS;
+    // invalidate the slot while it is written
+    slots.set(base, 0);
+    slots.set(base + 1, System.currentTimeMillis());
+    slots.set(base + 2, type.ordinal() | reason.ordinal() << 8
+        | (long) getNodeIndex(nodeId) << 32);
+    if (containerId != null) {
+      ApplicationAttemptId attemptId = containerId.getApplicationAttemptId();
+      ApplicationId appId = attemptId.getApplicationId();
+      slots.set(base + 3, appId.getClusterTimestamp());
+      slots.set(base + 4, (long) appId.getId() << 32
+          | (attemptId.getAttemptId() & 0xffffffffL));
+      slots.set(base + 5, containerId.getContainerId());
+    } else {
+      slots.set(base + 3, 0);
+      slots.set(base + 4, 0);
+      slots.set(base + 5, 0);
+    }
+    slots.set(base + 6, (long) memory << 32 | (vcores & 0xffffffffL));
+    slots.set(base + 7, extra);
+    slots.set(base, seq + 1);
+  }
+
+  /**
+   * Forget a node which left the cluster once its events are overwritten.
+   * A node coming back gets a new index.
+   */
+  public void removeNode(NodeId nodeId) {
+    Integer index = nodeIndex.remove(nodeId);
+    if (index != null && slots != null) {
+      removedNodes.put(index, new RemovedNode(nodeId, next.get()));
+    }
+    pruneRemovedNodes();
+  }
+
+  /**
+   * Drop the removed nodes whose events were all overwritten.
+   */
+  private void pruneRemovedNodes() {
+    long oldest = next.get() - capacity;
+    for (Iterator<RemovedNode> i = removedNodes.values().iterator();
+        i.hasNext();) {
+      if (i.next().removedAt <= oldest) {
+        i.remove();
+      }
+    }
+  }
+
+  @VisibleForTesting
+  int getNumNodes() {
+    return nodeIndex.size() + removedNodes.size();
+  }
+
+  private int getNodeIndex(NodeId nodeId) {
+    if (nodeId == null) {
+      return 0;
+    }
+    Integer index = nodeIndex.get(nodeId);
+    if (index == null) {
+      Integer newIndex = nextNodeIndex.getAndIncrement();
+      index = nodeIndex.putIfAbsent(nodeId, newIndex);
+      if (index == null) {
+        index = newIndex;
+      }
+    }
+    return index;
+  }
+
+  @Override
+  public int getCapacity() {
+    return capacity;
+  }
+
+  @Override
+  public long getRecorded() {
+    return next.get();
+  }
+
+  /**
+   * Dump the events still in the buffer, oldest first. The events being
+   * written during the dump are left out.
+   */
+  @Override
+  public byte[] getDump() {
+    List<long[]> records = new ArrayList<long[]>();
+    if (slots != null) {
+      long end = next.get();
+      for (long seq = Math.max(0, end - capacity); seq < end; ++seq) {
+        int base = (int) (seq & mask) * RECORD_LONGS;
+        // not written yet, or already overwritten
+        if (slots.get(base) != seq + 1) {
+          continue;
+        }
+        long[] record = new long[RECORD_LONGS];
+        for (int i = 1; i < RECORD_LONGS; ++i) {
+          record[i] = slots.get(base + i);
+        }
+        // overwritten while read
+        if (slots.get(base) != seq + 1) {
+          continue;
+        }
+        record[0] = seq;
+        records.add(record);
+      }
+    }
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(
+        64 + records.size() * RECORD_LONGS * 8);
+    DataOutputStream out = new DataOutputStream(bytes);
+    try {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      pruneRemovedNodes();
+      Map<Integer, NodeId> nodes = new HashMap<Integer, NodeId>();
+      for (Map.Entry<NodeId, Integer> node : nodeIndex.entrySet()) {
+        nodes.put(node.getValue(), node.getKey());
+      }
+      for (Map.Entry<Integer, RemovedNode> node : removedNodes.entrySet()) {
+        nodes.put(node.getKey(), node.getValue().nodeId);
+      }
+      out.writeInt(nodes.size());
+      for (Map.Entry<Integer, NodeId> node : nodes.entrySet()) {
+        out.writeInt(node.getKey());
+        out.writeUTF(node.getValue().toString());
+      }
+      out.writeInt(records.size());
+      for (long[] record : records) {
+        for (long value : record) {
+          out.writeLong(value);
+        }
+      }
+      out.flush();
+    } catch (IOException e) {
+      // cannot happen on a byte array
+      throw new IllegalStateException(e);
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * A decoded event.
+   */
+  public static class Event {
+    private final long seq;
+    private final long time;
+    private final EventType type;
+    private final SkipReason reason;
+    private final String node;
+    private final ContainerId containerId;
+    private final int memory;
+    private final int vcores;
+    private final long extra;
+
+    Event(long[] record, Map<Integer, String> nodes) {
+      seq = record[0];
+      time = record[1];
+      type = EventType.values()[(int) (record[2] & 0xff)];
+      reason = SkipReason.values()[(int) (record[2] >> 8 & 0xff)];
+      int index = (int) (record[2] >>> 32);
+      node = index == 0 ? null : nodes.get(index);
+      if (record[3] == 0 && record[4] == 0 && record[5] == 0) {
+        containerId = null;
+      } else {
+        containerId = ContainerId.newContainerId(
+            ApplicationAttemptId.newInstance(ApplicationId.newInstance(
+                record[3], (int) (record[4] >>> 32)), (int) record[4]),
+            record[5]);
+      }
+      memory = (int) (record[6] >>> 32);
+      vcores = (int) record[6];
+      extra = record[7];
+    }
+
+    public long getSequenceNumber() {
+      return seq;
+    }
+
+    public long getTime() {
+      return time;
+    }
+
+    public EventType getType() {
+      return type;
+    }
+
+    public SkipReason getReason() {
+      return reason;
+    }
+
+    public String getNode() {
+      return node;
+    }
+
+    public ContainerId getContainerId() {
+      return containerId;
+    }
+
+    public int getMemory() {
+      return memory;
+    }
+
+    public int getVirtualCores() {
+      return vcores;
+    }
+
+    public long getExtra() {
+      return extra;
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder sb = new StringBuilder();
+      sb.append(seq).append(' ').append(time).append(' ').append(type);
+      if (type == EventType.RESUME_SKIPPED) {
+        sb.append(' ').append(reason);
+      }
+      sb.append(" container=").append(containerId);
+      if (node != null) {
+        sb.append(" node=").append(node);
+      }
+      if (type == EventType.CPUSET_CHANGE) {
+        sb.append(" cores=").append(vcores)
+          .append(" cpuset=").append(BitSet.valueOf(new long[] {extra}));
+      } else {
+        sb.append(" memory=").append(memory).append(" vcores=").append(vcores);
+      }
+      return sb.toString();
+    }
+  }
+
+  /**
+   * Decode a dump made by {@link #getDump()}.
+   */
+  public static List<Event> decode(InputStream dump) throws IOException {
+    DataInputStream in = new DataInputStream(dump);
+    if (in.readInt() != MAGIC) {
+      throw new IOException("Not a scheduling trace");
+    }
+    int version = in.readInt();
+    if (version != VERSION) {
+      throw new IOException("Unsupported scheduling trace version " + version);
+    }
+    Map<Integer, String> nodes = new HashMap<Integer, String>();
+    for (int i = in.readInt(); i > 0; --i) {
+      int index = in.readInt();
+      nodes.put(index, in.readUTF());
+    }
+    int count = in.readInt();
+    List<Event> events = new ArrayList<Event>(count);
+    try {
+      for (int i = 0; i < count; ++i) {
+        long[] record = new long[RECORD_LONGS];
+        for (int j = 0; j < RECORD_LONGS; ++j) {
+          record[j] = in.readLong();
+        }
+        events.add(new Event(record, nodes));
+      }
+    } catch (EOFException e) {
+      LOG.warn("Truncated scheduling trace, " + events.size() + " of "
+          + count + " events read");
+    }
+    return events;
+  }
+
+  /**
+   * Print the events of a dump file, one per line.
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length != 1) {
+      System.err.println("Usage: java " + SchedulingTrace.class.getName()
+          + " <dump file>");
+      System.exit(-1);
+    }
+    InputStream in = new FileInputStream(args[0]);
+    try {
+      for (Event event : decode(in)) {
+        System.out.println(event);
+      }
+    } finally {
+      in.close();
+    }
+  }
+}
@@ -36,6 +36,7 @@ import org.apache.hadoop.yarn.api.records.impl.pb.ApplicationIdPBImpl;
 import org.apache.hadoop.yarn.api.records.impl.pb.ContainerIdPBImpl;
 import org.apache.hadoop.yarn.api.records.impl.pb.SerializedExceptionPBImpl;
 import org.apache.hadoop.yarn.factory.providers.RecordFactoryProvider;
+import org.apache.hadoop.yarn.server.api.protocolrecords.ContainerMemoryPressure;
 import org.apache.hadoop.yarn.server.api.protocolrecords.impl.pb.NodeHeartbeatRequestPBImpl;
 import org.apache.hadoop.yarn.server.api.protocolrecords.impl.pb.NodeHeartbeatResponsePBImpl;
 import org.apache.hadoop.yarn.server.api.protocolrecords.impl.pb.RegisterNodeManagerRequestPBImpl;
@@ -89,11 +90,21 @@ public class TestYarnServerApiClasses {
     original.setLastKnownContainerTokenMasterKey(getMasterKey());
     original.setLastKnownNMTokenMasterKey(getMasterKey());
     original.setNodeStatus(getNodeStatus());
+    original.setContainerMemoryPressures(Arrays.asList(
+        ContainerMemoryPressure.newInstance(getContainerId(1, 1), 80, 2048,
+            512, 30)));
     NodeHeartbeatRequestPBImpl copy = new NodeHeartbeatRequestPBImpl(
         original.getProto());
     assertEquals(1, copy.getLastKnownContainerTokenMasterKey().getKeyId());
     assertEquals(1, copy.getLastKnownNMTokenMasterKey().getKeyId());
     assertEquals("localhost", copy.getNodeStatus().getNodeId().getHost());
+    assertEquals(1, copy.getContainerMemoryPressures().size());
+    ContainerMemoryPressure pressure = copy.getContainerMemoryPressures().get(0);
+    assertEquals(getContainerId(1, 1), pressure.getContainerId());
+    assertEquals(80, pressure.getScore());
+    assertEquals(2048, pressure.getUsageMb());
+    assertEquals(512, pressure.getSwapMb());
+    assertEquals(30, pressure.getMajorFaultsPerSec());
   }
 
   /**
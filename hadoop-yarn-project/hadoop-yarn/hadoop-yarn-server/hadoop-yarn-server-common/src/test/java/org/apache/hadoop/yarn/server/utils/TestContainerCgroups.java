@@ -0,0 +1,149 @@
+/**
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package org.apache.hadoop.yarn.server.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.fs.FileUtil;
+import org.apache.hadoop.yarn.api.records.ApplicationAttemptId;
+import org.apache.hadoop.yarn.api.records.ApplicationId;
+import org.apache.hadoop.yarn.api.records.ContainerId;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestContainerCgroups {
+
+  private static final File cgroupRoot = new File("target",
+      TestContainerCgroups.class.getName() + "-cgroups");
+
+  private ContainerId containerId1;
+  private ContainerId containerId2;
+
+  private static class TestCgroups extends ContainerCgroups {
+    String dockerId;
+    int lookups = 0;
+
+    TestCgroups(boolean lookupOnce) {
+      super(cgroupRoot.getAbsolutePath(), "docker", "docker", lookupOnce);
+    }
+
+    @Override
+    protected String lookupDockerId(ContainerId containerId) {
+      lookups++;
+      return dockerId;
+    }
+  }
+
+  @Before
+  public void setup() {
+    FileUtil.fullyDelete(cgroupRoot);
+    assertTrue(cgroupRoot.mkdirs());
+    ApplicationAttemptId attemptId = ApplicationAttemptId.newInstance(
+        ApplicationId.newInstance(0, 1), 1);
+    containerId1 = ContainerId.newContainerId(attemptId, 1);
+    containerId2 = ContainerId.newContainerId(attemptId, 2);
+  }
+
+  @After
+  public void tearDown() {
+    FileUtil.fullyDelete(cgroupRoot);
+  }
+
+  @Test
+  public void testGetCgroupName() {
+    String dockerId = "4f2a5c0e9d1b";
+    createCgroup(containerId1.toString());
+    createCgroup(dockerId);
+    TestCgroups cgroups = new TestCgroups(false);
+    cgroups.dockerId = dockerId;
+
+    // named after the container, docker is not asked
+    assertEquals(containerId1.toString(), cgroups.getCgroupName(containerId1));
+    assertEquals(0, cgroups.lookups);
+    // named after the docker id, looked up once
+    assertEquals(dockerId, cgroups.getCgroupName(containerId2));
+    assertEquals(dockerId, cgroups.getCgroupName(containerId2));
+    assertEquals(1, cgroups.lookups);
+    assertEquals(2, cgroups.getContainers().size());
+
+    cgroups.release(containerId2);
+    assertEquals(dockerId, cgroups.getCgroupName(containerId2));
+    assertEquals(2, cgroups.lookups);
+  }
+
+  @Test
+  public void testMissingCgroup() {
+    TestCgroups cgroups = new TestCgroups(false);
+    assertNull(cgroups.getCgroupName(containerId1));
+    assertNull(cgroups.getCgroupName(containerId1));
+    assertEquals(2, cgroups.lookups);
+
+    cgroups = new TestCgroups(true);
+    assertNull(cgroups.getCgroupName(containerId1));
+    assertNull(cgroups.getCgroupName(containerId1));
+    assertEquals(1, cgroups.lookups);
+    // looked up again once it is not running anymore
+    cgroups.retain(Collections.<ContainerId>emptySet());
+    assertNull(cgroups.getCgroupName(containerId1));
+    assertEquals(2, cgroups.lookups);
+  }
+
+  @Test
+  public void testReadWrite() throws IOException {
+    String name = containerId1.toString();
+    createCgroup(name);
+    ContainerCgroups cgroups = new TestCgroups(false);
+
+    cgroups.write("memory", name, "memory.limit_in_bytes", "1024");
+    assertEquals(1024, cgroups.readValue("memory", name,
+        "memory.limit_in_bytes"));
+    assertEquals("1024", cgroups.read("memory", name,
+        "memory.limit_in_bytes"));
+
+    FileUtils.writeStringToFile(new File(cgroups.pathForCgroup("memory", name),
+        "memory.stat"), "cache 10\nrss 20\nhierarchical_memory_limit x\n");
+    Map<String, Long> stat = cgroups.readStat("memory", name, "memory.stat");
+    assertEquals(2, stat.size());
+    assertEquals(20, (long) stat.get("rss"));
+
+    // files the kernel does not have
+    assertNull(cgroups.read("memory", name, "memory.missing"));
+    assertTrue(cgroups.readStat("memory", name, "memory.missing").isEmpty());
+    try {
+      cgroups.readValue("memory", name, "memory.missing");
+      fail("a missing counter is not 0");
+    } catch (IOException e) {
+      // expected
+    }
+  }
+
+  private void createCgroup(String name) {
+    assertTrue(new File(cgroupRoot, "memory/docker/" + name).mkdirs());
+  }
+}
@@ -0,0 +1,171 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.yarn.server.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.util.BitSet;
+import java.util.List;
+
+import org.apache.hadoop.yarn.api.records.ApplicationAttemptId;
+import org.apache.hadoop.yarn.api.records.ApplicationId;
+import org.apache.hadoop.yarn.api.records.ContainerId;
+import org.apache.hadoop.yarn.api.records.NodeId;
+import org.apache.hadoop.yarn.api.records.Resource;
+import org.apache.hadoop.yarn.server.utils.SchedulingTrace.Event;
+import org.apache.hadoop.yarn.server.utils.SchedulingTrace.EventType;
+import org.apache.hadoop.yarn.server.utils.SchedulingTrace.SkipReason;
+import org.junit.Test;
+
+public class TestSchedulingTrace {
+
+  private final ContainerId containerId = ContainerId.newContainerId(
+      ApplicationAttemptId.newInstance(
+          ApplicationId.newInstance(1449018421839L, 7), 2), 42);
+  private final NodeId nodeId = NodeId.newInstance("host1", 45454);
+
+  private static List<Event> decode(SchedulingTrace trace) throws Exception {
+    return SchedulingTrace.decode(new ByteArrayInputStream(trace.getDump()));
+  }
+
+  @Test
+  public void testRecordAndDecode() throws Exception {
+    SchedulingTrace trace = new SchedulingTrace(16);
+    trace.suspend(containerId, nodeId, Resource.newInstance(1024, 1));
+    trace.resumeAttempt(containerId, nodeId, Resource.newInstance(512, 1));
+    trace.resumeSkipped(containerId, nodeId, Resource.newInstance(512, 1),
+        SkipReason.OPPORTUNITY);
+    trace.resume(containerId, nodeId, Resource.newInstance(512, 1));
+    trace.allocation(containerId, null, Resource.newInstance(2048, 2));
+    BitSet cores = new BitSet();
+    cores.set(1);
+    cores.set(3);
+    cores.set(70);
+    trace.cpusetChange(containerId, cores);
+
+    List<Event> events = decode(trace);
+    assertEquals(6, events.size());
+    assertEquals(6, trace.getRecorded());
+
+    Event suspend = events.get(0);
+    assertEquals(0, suspend.getSequenceNumber());
+    assertEquals(EventType.SUSPEND, suspend.getType());
+    assertEquals(containerId, suspend.getContainerId());
+    assertEquals(nodeId.toString(), suspend.getNode());
+    assertEquals(1024, suspend.getMemory());
+    assertEquals(1, suspend.getVirtualCores());
+
+    Event skipped = events.get(2);
+    assertEquals(EventType.RESUME_SKIPPED, skipped.getType());
+    assertEquals(SkipReason.OPPORTUNITY, skipped.getReason());
+
+    Event allocation = events.get(4);
+    assertEquals(EventType.ALLOCATION, allocation.getType());
+    assertNull(allocation.getNode());
+    assertEquals(2048, allocation.getMemory());
+
+    // cores above 63 are counted but not kept
+    Event cpuset = events.get(5);
+    assertEquals(EventType.CPUSET_CHANGE, cpuset.getType());
+    assertEquals(3, cpuset.getVirtualCores());
+    assertEquals((1L << 1) | (1L << 3), cpuset.getExtra());
+    assertTrue(cpuset.toString().contains("cpuset={1, 3}"));
+  }
+
+  @Test
+  public void testOverwriteOldest() throws Exception {
+    SchedulingTrace trace = new SchedulingTrace(5);
+    assertEquals(8, trace.getCapacity());
+    for (int i = 0; i < 20; ++i) {
+      trace.allocation(containerId, nodeId, Resource.newInstance(i, 1));
+    }
+    List<Event> events = decode(trace);
+    assertEquals(8, events.size());
+    for (int i = 0; i < 8; ++i) {
+      assertEquals(12 + i, events.get(i).getSequenceNumber());
+      assertEquals(12 + i, events.get(i).getMemory());
+    }
+  }
+
+  @Test
+  public void testRemovedNodes() throws Exception {
+    SchedulingTrace trace = new SchedulingTrace(4);
+    NodeId otherNodeId = NodeId.newInstance("host2", 45454);
+    trace.allocation(containerId, nodeId, Resource.newInstance(1, 1));
+    trace.allocation(containerId, otherNodeId, Resource.newInstance(2, 1));
+    trace.removeNode(nodeId);
+    assertEquals(2, trace.getNumNodes());
+    // still named while its events are in the buffer
+    assertEquals(nodeId.toString(), decode(trace).get(0).getNode());
+
+    for (int i = 0; i < 4; ++i) {
+      trace.allocation(containerId, otherNodeId, Resource.newInstance(3, 1));
+    }
+    decode(trace);
+    assertEquals(1, trace.getNumNodes());
+
+    // a node coming back gets a new index
+    trace.allocation(containerId, nodeId, Resource.newInstance(4, 1));
+    assertEquals(2, trace.getNumNodes());
+    List<Event> events = decode(trace);
+    assertEquals(nodeId.toString(), events.get(events.size() - 1).getNode());
+  }
+
+  @Test
+  public void testDisabled() throws Exception {
+    SchedulingTrace trace = new SchedulingTrace(0);
+    trace.suspend(containerId, nodeId, Resource.newInstance(1024, 1));
+    assertEquals(0, trace.getCapacity());
+    assertTrue(decode(trace).isEmpty());
+  }
+
+  @Test(timeout = 30000)
+  public void testConcurrentWriters() throws Exception {
+    final SchedulingTrace trace = new SchedulingTrace(1024);
+    Thread[] writers = new Thread[4];
+    for (int i = 0; i < writers.length; ++i) {
+      final int memory = i;
+      writers[i] = new Thread() {
+        @Override
+        public void run() {
+          for (int j = 0; j < 10000; ++j) {
+            trace.allocation(containerId, nodeId,
+                Resource.newInstance(memory, j));
+          }
+        }
+      };
+      writers[i].start();
+    }
+    // dumps while written only hold complete events
+    while (writers[0].isAlive()) {
+      for (Event event : decode(trace)) {
+        assertEquals(containerId, event.getContainerId());
+        assertTrue(event.getMemory() >= 0 && event.getMemory() < 4);
+      }
+    }
+    for (Thread writer : writers) {
+      writer.join();
+    }
+    assertEquals(40000, trace.getRecorded());
+    assertEquals(1024, decode(trace).size());
+  }
+}
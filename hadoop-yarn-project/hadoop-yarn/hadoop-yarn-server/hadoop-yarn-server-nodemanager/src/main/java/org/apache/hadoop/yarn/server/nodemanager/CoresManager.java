@@ -4,6 +4,7 @@ import java.util.Set;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.yarn.api.records.ContainerId;
+import org.apache.hadoop.yarn.server.nodemanager.util.CpuTopology;
 
 public interface CoresManager {
 	
@@ -17,6 +18,15 @@ public interface CoresManager {
 	
 	//called when a container finished execution
 	public void releaseCores(ContainerId cntId);
+
+	//numa nodes local to the cores of the container, empty if the memory of
+	//containers is not bound
+	public Set<Integer> getMemoryNodes(ContainerId cntId);
+
+	//number of containers running on each core
+	public int[] getCoresOccupancy();
+
+	public CpuTopology getTopology();
 	
 
 }
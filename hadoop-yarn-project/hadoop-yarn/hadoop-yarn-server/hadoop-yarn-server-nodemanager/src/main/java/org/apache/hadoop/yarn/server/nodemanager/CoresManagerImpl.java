@@ -1,5 +1,11 @@
 package org.apache.hadoop.yarn.server.nodemanager;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -9,216 +15,430 @@ import java.util.Set;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.yarn.api.records.ContainerId;
 import org.apache.hadoop.yarn.conf.YarnConfiguration;
+import org.apache.hadoop.yarn.server.nodemanager.util.CpuTopology;
+import org.apache.hadoop.yarn.server.utils.SchedulingTrace;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import com.google.common.annotations.VisibleForTesting;
+
+/**
+ * Assigns cpusets to containers. Cores are kept in one min-heap per socket,
+ * keyed by the number of containers running on each core, so that picking
+ * the least loaded core or updating the load of a core is O(log n). A cpuset
+ * is taken from a single socket whenever one has enough free cores.
+ */
 public class CoresManagerImpl implements CoresManager {
-	
+
 	 private static final Log LOG = LogFactory
 		      .getLog(CoresManagerImpl.class);
-	
-	private Set<Integer> totalCores = new HashSet<Integer>();
-	
-	private Set<Integer> unUsedCores = new HashSet<Integer>();
-	
-	//should be initialized at start
-	private Map<Integer,Set<ContainerId>> coresToContainer = new HashMap<Integer,Set<ContainerId>>();
-    
-	private Map<ContainerId, Set<Integer>> containerToCores = new HashMap<ContainerId, Set<Integer>>();
+
+	private CpuTopology topology;
+
+	private int numCores;
+
+	//number of containers running on each core
+	private int[] coreLoad;
+
+	//number of cores of each socket without any container
+	private int[] freeCoresOfSocket;
+
+	private CoreHeap[] socketHeaps;
+
+	//number of cores shared by more than one container
+	private int overlappedCores;
+
+	private boolean bindMemory;
+
+	private Map<ContainerId, BitSet> containerToCores = new HashMap<ContainerId, BitSet>();
 
 	@Override
 	public void init(Configuration conf) {
-        //we get cores fisrt		
 		int virtualCores =
 		        conf.getInt(
 		            YarnConfiguration.NM_VCORES, YarnConfiguration.DEFAULT_NM_VCORES);
+		init(conf, CpuTopology.read(new File(CpuTopology.SYSFS_CPU_DIR),
+			virtualCores));
+	}
 
-         //we initialize the total cores and unused cores
-		for(int i=0;i<virtualCores;i++){
-			totalCores.add(i);
-			unUsedCores.add(i);
-			Set<ContainerId> cntIdSet = new HashSet<ContainerId>();
-			coresToContainer.put(i, cntIdSet);
-		}
-	}
-
-	
-	private Set<Integer> getAvailableCores(int num) {
-		Set<Integer> returnedResults = new HashSet<Integer>();
-		int index = 0;
-		assert(num <= totalCores.size());
-		
-	    if(unUsedCores.size() > 0){
-			for(Integer core : unUsedCores){
-				returnedResults.add(core);
-				index++;
-				if(index >= num){
-					break;
-				}
+	@VisibleForTesting
+	synchronized void init(Configuration conf, CpuTopology topology) {
+		this.topology = topology;
+		this.numCores = topology.getNumCores();
+		this.bindMemory = conf.getBoolean(
+			YarnConfiguration.NM_CORES_MANAGER_NUMA_MEMORY_BINDING,
+			YarnConfiguration.DEFAULT_NM_CORES_MANAGER_NUMA_MEMORY_BINDING);
+		this.coreLoad = new int[numCores];
+		this.freeCoresOfSocket = new int[topology.getNumSockets()];
+		this.socketHeaps = new CoreHeap[topology.getNumSockets()];
+		for (int socket = 0; socket < socketHeaps.length; socket++) {
+			socketHeaps[socket] = new CoreHeap(coreLoad);
+		}
+		for (int core = 0; core < numCores; core++) {
+			int socket = topology.getSocket(core);
+			socketHeaps[socket].add(core);
+			freeCoresOfSocket[socket]++;
+		}
+		this.overlappedCores = 0;
+		this.containerToCores.clear();
+	}
+
+	/**
+	 * Pick the least loaded cores, staying on one socket when possible.
+	 * @param exclude cores which must not be picked
+	 * @param preferredSocket socket to pick from first, -1 if none
+	 */
+	private BitSet pickCores(int num, BitSet exclude, int preferredSocket) {
+		BitSet picked = new BitSet(numCores);
+		int[] free = freeCoresOfSocket.clone();
+		List<Integer> polled = new ArrayList<Integer>();
+		int remaining = num;
+		while (remaining > 0) {
+			int socket = chooseSocket(remaining, free, preferredSocket);
+			if (socket < 0) {
+				LOG.warn("Only " + (num - remaining) + " cores left for " + num
+					+ " requested");
+				break;
+			}
+			int core = socketHeaps[socket].poll();
+			polled.add(core);
+			if (coreLoad[core] == 0) {
+				free[socket]--;
+			}
+			if (exclude.get(core)) {
+				continue;
+			}
+			picked.set(core);
+			remaining--;
+			preferredSocket = socket;
+		}
+		// the loads are updated by the caller
+		for (Integer core : polled) {
+			socketHeaps[topology.getSocket(core)].add(core);
+		}
+		return picked;
+	}
+
+	/**
+	 * @return the socket to take the next core from, -1 if there is none left
+	 */
+	private int chooseSocket(int remaining, int[] free, int preferredSocket) {
+		if (preferredSocket >= 0 && free[preferredSocket] >= remaining) {
+			return preferredSocket;
+		}
+		// the socket which fits the remaining cores the closest
+		int bestFit = -1;
+		int mostFree = -1;
+		for (int socket = 0; socket < free.length; socket++) {
+			if (free[socket] >= remaining
+				&& (bestFit < 0 || free[socket] < free[bestFit])) {
+				bestFit = socket;
 			}
+			if (free[socket] > 0
+				&& (mostFree < 0 || free[socket] > free[mostFree])) {
+				mostFree = socket;
+			}
+		}
+		if (bestFit >= 0) {
+			return bestFit;
+		}
+		if (preferredSocket >= 0 && free[preferredSocket] > 0) {
+			return preferredSocket;
 		}
-			
-		while(index < num){
-	       Integer value = 0;
-		   int     min = Integer.MAX_VALUE;
-			   
-		   for(Map.Entry<Integer, Set<ContainerId>> entry: coresToContainer.entrySet()){
-			//find min core each time
-		     if(returnedResults.contains(entry.getKey())){
-		    	 continue;
-		     }
-		     
-		     if(entry.getValue().size() < min){
-		    	 value = entry.getKey();
-		    	 min   = entry.getValue().size();
-		     }
-		  }
-		returnedResults.add(value);
-		index++;
-		}
-		
-		return returnedResults;
-	}
-	
+		if (mostFree >= 0) {
+			return mostFree;
+		}
+		// all cores are used, share the least loaded ones
+		int leastLoaded = -1;
+		for (int socket = 0; socket < socketHeaps.length; socket++) {
+			if (socketHeaps[socket].isEmpty()) {
+				continue;
+			}
+			int load = coreLoad[socketHeaps[socket].peek()];
+			if (leastLoaded < 0
+				|| load < coreLoad[socketHeaps[leastLoaded].peek()]
+				|| (load == coreLoad[socketHeaps[leastLoaded].peek()]
+				&& socket == preferredSocket)) {
+				leastLoaded = socket;
+			}
+		}
+		return leastLoaded;
+	}
+
+	/**
+	 * @return the socket holding most of the given cores, -1 if there are none
+	 */
+	private int mainSocket(BitSet cores) {
+		int[] count = new int[socketHeaps.length];
+		int main = -1;
+		for (int core = cores.nextSetBit(0); core >= 0;
+		     core = cores.nextSetBit(core + 1)) {
+			int socket = topology.getSocket(core);
+			count[socket]++;
+			if (main < 0 || count[socket] > count[main]) {
+				main = socket;
+			}
+		}
+		return main;
+	}
+
 	@Override
 	public synchronized Set<Integer> allocateCores(ContainerId cntId, int num){
-		
-		Set<Integer> returnedResults = this.getAvailableCores(num);
-		this.allcoateCoresforContainer(returnedResults, cntId);
-		LogOverlapWarning();
-		
-		return returnedResults;
-	}
-	
-	private void allcoateCoresforContainer(Set<Integer> cores,ContainerId cntId){
-		
-		LOG.info("allocate cores: "+cores+" on container "+cntId);
-		
-		for(Integer core : cores){
-			 unUsedCores.remove(core);
-		 }
-		 
-		for(Integer core : cores){
-		     coresToContainer.get(core).add(cntId);
-		}
-
-		if(containerToCores.get(cntId) == null){
+		BitSet owned = containerToCores.get(cntId);
+		if (owned == null) {
+			owned = new BitSet(numCores);
+		}
+		BitSet cores = pickCores(num, owned, mainSocket(owned));
+		this.allocateCoresforContainer(cores, cntId);
+		return toSet(cores);
+	}
+
+	private void allocateCoresforContainer(BitSet cores,ContainerId cntId){
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("allocate cores: " + cores + " on container " + cntId);
+		}
+
+		for (int core = cores.nextSetBit(0); core >= 0;
+		     core = cores.nextSetBit(core + 1)) {
+			int load = ++coreLoad[core];
+			if (load == 1) {
+				freeCoresOfSocket[topology.getSocket(core)]--;
+			} else if (load == 2) {
+				overlappedCores++;
+				LOG.info("cpuset overlap warning on core " + core + ", "
+					+ overlappedCores + " cores overlapped");
+			}
+			socketHeaps[topology.getSocket(core)].update(core);
+		}
+
+		BitSet owned = containerToCores.get(cntId);
+		if(owned == null){
 		  //first allocated
-		  containerToCores.put(cntId, cores);	
+		  owned = (BitSet) cores.clone();
+		  containerToCores.put(cntId, owned);
 		}else{
 		  //newly allocated cores
-		   containerToCores.get(cntId).addAll(cores);
+		  owned.or(cores);
 		}
-		LOG.info("allocate cpuset "+cores);
+		SchedulingTrace.get().cpusetChange(cntId, owned);
 	}
 
 	@Override
 	public synchronized void releaseCores(ContainerId cntId) {
-		Set<Integer> cores= new HashSet<Integer>();
-		
-		if(containerToCores.get(cntId) == null){
+		BitSet cores = containerToCores.get(cntId);
+		if(cores == null){
 			return;
 		}
-		cores.addAll(containerToCores.get(cntId));
-		this.releaseCoresforContainer(cntId, cores);
-		LogOverlapWarning();
-		
-	}
-	
-	private synchronized void releaseCoresforContainer(ContainerId cntId, Set<Integer> cores){
-		
-		LOG.info("release cores: "+cores+" on container "+cntId);
-		
-		for(Integer core : cores){
-			if(coresToContainer.get(core).size() == 0){
-				unUsedCores.add(core);
-			}
-		}
-		
-		for(Integer core : cores){
-			coresToContainer.get(core).remove(cntId);
+		this.releaseCoresforContainer(cntId, (BitSet) cores.clone());
+	}
+
+	private void releaseCoresforContainer(ContainerId cntId, BitSet cores){
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("release cores: " + cores + " on container " + cntId);
 		}
-		
-		for(Integer core : cores){
-			//remove core one by one
-			containerToCores.get(cntId).remove(core);
+
+		for (int core = cores.nextSetBit(0); core >= 0;
+		     core = cores.nextSetBit(core + 1)) {
+			int load = --coreLoad[core];
+			if (load == 0) {
+				freeCoresOfSocket[topology.getSocket(core)]++;
+			} else if (load == 1) {
+				overlappedCores--;
+			}
+			socketHeaps[topology.getSocket(core)].update(core);
 		}
-		
+
+		BitSet owned = containerToCores.get(cntId);
+		owned.andNot(cores);
+		SchedulingTrace.get().cpusetChange(cntId, owned);
 		//if there are no cores on this map, remove the entry
-		if(containerToCores.get(cntId).size() == 0){
+		if(owned.isEmpty()){
 		    containerToCores.remove(cntId);
 		}
-		
-		LOG.info("release cpuset "+cores);
 	}
-	
+
   @Override
   public synchronized Set<Integer> resetCores(ContainerId cntId, int num) {
-		Set<Integer> cores = this.containerToCores.get(cntId);
-		Set<Integer> returnedCores = new HashSet<Integer>();
-		
-	   //for a partially preempted container, its cores are null
-	  if(cores != null){
-	   if(num < cores.size()){
-		//find the core that is used least
-		for(int i=0; i<num; i++){
-			int min = Integer.MAX_VALUE;
-			Integer value = 0;
-			for(Integer core : cores){
-				if(returnedCores.contains(core)){
-					continue;
+	BitSet cores = this.containerToCores.get(cntId);
+
+	//for a fully preempted container, its cores are null
+	if(cores == null){
+		BitSet newAllocated = this.pickCores(num, new BitSet(numCores), -1);
+		this.allocateCoresforContainer(newAllocated, cntId);
+	}else if(num < cores.cardinality()){
+		//keep the cores used least, on the socket holding most of them
+		final int socket = mainSocket(cores);
+		List<Integer> owned = toList(cores);
+		Collections.sort(owned, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer core1, Integer core2) {
+				if (coreLoad[core1] != coreLoad[core2]) {
+					return coreLoad[core1] - coreLoad[core2];
 				}
-				
-				if(coresToContainer.get(core).size() < min){
-					value = core;
-					min   = coresToContainer.get(core).size();
+				boolean local1 = topology.getSocket(core1) == socket;
+				boolean local2 = topology.getSocket(core2) == socket;
+				if (local1 != local2) {
+					return local1 ? -1 : 1;
 				}
+				return core1 - core2;
 			}
-			returnedCores.add(value);
-		}
-		//remove cores to container mapping
-		Set<Integer> toRemoved=new HashSet<Integer>();
-		for(Integer core : cores){
-			if(returnedCores.contains(core)){
-				continue;
-			}
-			toRemoved.add(core);
+		});
+		BitSet toRemoved = new BitSet(numCores);
+		for (Integer core : owned.subList(num, owned.size())) {
+			toRemoved.set(core);
 		}
-		
 		this.releaseCoresforContainer(cntId, toRemoved);
-					
-	//for num >= cores.size(), we need to give more cores to this container
-	}else{
-	   returnedCores.addAll(cores);	
-	   int required = num - cores.size();
-	   if(required > 0){
-		   Set<Integer> newAllocated = this.getAvailableCores(required);
-		   returnedCores.addAll(newAllocated);
-		   this.allcoateCoresforContainer(newAllocated, cntId);
-	   }
-	   
-	}
- 
- //for a fully preempted container
- }else{
-	 Set<Integer> newAllocated = this.getAvailableCores(num);
-	 returnedCores.addAll(newAllocated);
-	 this.allcoateCoresforContainer(newAllocated, cntId);
- }
-	
-	LOG.info("get reset cores "+returnedCores);
-	return returnedCores;
-}
- 
-  private void LogOverlapWarning(){
-	  for(Integer core : this.coresToContainer.keySet()){
-		  
-		  if(this.coresToContainer.get(core).size() > 1){
-			  LOG.info("cpuset overlap warning on core"+core+"size:"+this.coresToContainer.get(core).size());
-			  LOG.info("cores: "+ core + "containers:"+this.coresToContainer.get(core));
-		  }
-	  }
-	  
+	//for num > cores.size(), we need to give more cores to this container
+	}else if(num > cores.cardinality()){
+		BitSet newAllocated = this.pickCores(num - cores.cardinality(), cores,
+			mainSocket(cores));
+		this.allocateCoresforContainer(newAllocated, cntId);
+	}
+
+	BitSet returnedCores = this.containerToCores.get(cntId);
+	if (LOG.isDebugEnabled()) {
+		LOG.debug("get reset cores " + returnedCores);
+	}
+	return returnedCores == null ? new HashSet<Integer>() : toSet(returnedCores);
   }
 
+	@Override
+	public synchronized Set<Integer> getMemoryNodes(ContainerId cntId) {
+		Set<Integer> nodes = new HashSet<Integer>();
+		BitSet cores = containerToCores.get(cntId);
+		if (!bindMemory || topology.getNumNodes() <= 1 || cores == null) {
+			return nodes;
+		}
+		for (int core = cores.nextSetBit(0); core >= 0;
+		     core = cores.nextSetBit(core + 1)) {
+			nodes.add(topology.getNode(core));
+		}
+		return nodes;
+	}
+
+	@Override
+	public synchronized int[] getCoresOccupancy() {
+		return coreLoad.clone();
+	}
+
+	@Override
+	public CpuTopology getTopology() {
+		return topology;
+	}
+
+	@VisibleForTesting
+	synchronized int getOverlappedCores() {
+		return overlappedCores;
+	}
+
+	private static Set<Integer> toSet(BitSet cores) {
+		return new HashSet<Integer>(toList(cores));
+	}
+
+	private static List<Integer> toList(BitSet cores) {
+		List<Integer> list = new ArrayList<Integer>(cores.cardinality());
+		for (int core = cores.nextSetBit(0); core >= 0;
+		     core = cores.nextSetBit(core + 1)) {
+			list.add(core);
+		}
+		return list;
+	}
+
+	/**
+	 * Indexed binary min-heap of the cores of a socket, ordered by load and
+	 * then by core id. The position of each core is tracked so that the load of
+	 * a core can be updated in place.
+	 */
+	private static class CoreHeap {
+		private final int[] load;
+		private final int[] heap;
+		// index of each core in the heap, -1 if the core is not in the heap
+		private final int[] position;
+		private int size = 0;
+
+		CoreHeap(int[] load) {
+			this.load = load;
+			this.heap = new int[load.length];
+			this.position = new int[load.length];
+			Arrays.fill(position, -1);
+		}
+
+		boolean isEmpty() {
+			return size == 0;
+		}
+
+		int peek() {
+			return heap[0];
+		}
+
+		void add(int core) {
+			heap[size] = core;
+			position[core] = size;
+			size++;
+			siftUp(size - 1);
+		}
+
+		int poll() {
+			int core = heap[0];
+			size--;
+			position[core] = -1;
+			if (size > 0) {
+				heap[0] = heap[size];
+				position[heap[0]] = 0;
+				siftDown(0);
+			}
+			return core;
+		}
+
+		void update(int core) {
+			int index = position[core];
+			if (index >= 0) {
+				siftDown(siftUp(index));
+			}
+		}
+
+		private boolean less(int core1, int core2) {
+			return load[core1] < load[core2]
+				|| (load[core1] == load[core2] && core1 < core2);
+		}
+
+		private int siftUp(int index) {
+			int core = heap[index];
+			while (index > 0) {
+				int parent = (index - 1) / 2;
+				if (!less(core, heap[parent])) {
+					break;
+				}
+				heap[index] = heap[parent];
+				position[heap[index]] = index;
+				index = parent;
+			}
+			heap[index] = core;
+			position[core] = index;
+			return index;
+		}
+
+		private void siftDown(int index) {
+			int core = heap[index];
+			while (true) {
+				int child = 2 * index + 1;
+				if (child >= size) {
+					break;
+				}
+				if (child + 1 < size && less(heap[child + 1], heap[child])) {
+					child++;
+				}
+				if (!less(heap[child], core)) {
+					break;
+				}
+				heap[index] = heap[child];
+				position[heap[index]] = index;
+				index = child;
+			}
+			heap[index] = core;
+			position[core] = index;
+		}
+	}
 }
@@ -201,6 +201,10 @@ public class DockerContainerExecutor extends ContainerExecutor {
 
     }
     LOG.info("container" + containerIdStr + "cpu: " + cpuSetString);
+    // bind the memory to the numa nodes of the cpuset
+    Set<Integer> memoryNodes = container.getMemoryNodes();
+    String cpuSetMems = memoryNodes == null || memoryNodes.isEmpty() ? ""
+            : " --cpuset-mems " + StringUtils.join(",", memoryNodes);
     String memory = Integer.toString(container.getResource().getMemory());
     String localDirMount = toMount(localDirs);
     String logDirMount = toMount(logDirs);
@@ -215,6 +219,7 @@ public class DockerContainerExecutor extends ContainerExecutor {
             .append("--cpuset-cpus")
             .append(" ")
             .append(cpuSetString)
+            .append(cpuSetMems)
             .append(" ")
             .append("--memory=" + memory + "m")
             .append(" ")
@@ -65,6 +65,7 @@ import org.apache.hadoop.yarn.server.nodemanager.security.NMContainerTokenSecret
 import org.apache.hadoop.yarn.server.nodemanager.security.NMTokenSecretManagerInNM;
 import org.apache.hadoop.yarn.server.nodemanager.webapp.WebServer;
 import org.apache.hadoop.yarn.server.security.ApplicationACLsManager;
+import org.apache.hadoop.yarn.server.utils.SchedulingTrace;
 
 import com.google.common.annotations.VisibleForTesting;
 
@@ -228,6 +229,8 @@ public class NodeManager extends CompositeService
 		// NodeManager level dispatcher
 		this.dispatcher = new AsyncDispatcher();
 
+		SchedulingTrace.initialize(conf, "NodeManager");
+
 		this.coresManager = new CoresManagerImpl();
 		this.coresManager.init(conf);
 
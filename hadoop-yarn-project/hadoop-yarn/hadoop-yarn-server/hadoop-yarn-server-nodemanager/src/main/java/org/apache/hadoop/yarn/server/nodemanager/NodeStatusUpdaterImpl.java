@@ -56,6 +56,7 @@ import org.apache.hadoop.yarn.exceptions.YarnRuntimeException;
 import org.apache.hadoop.yarn.server.api.ResourceManagerConstants;
 import org.apache.hadoop.yarn.server.api.ResourceTracker;
 import org.apache.hadoop.yarn.server.api.ServerRMProxy;
+import org.apache.hadoop.yarn.server.api.protocolrecords.ContainerMemoryPressure;
 import org.apache.hadoop.yarn.server.api.protocolrecords.NMContainerStatus;
 import org.apache.hadoop.yarn.server.api.protocolrecords.NodeContainerUpdate;
 import org.apache.hadoop.yarn.server.api.protocolrecords.NodeHeartbeatRequest;
@@ -314,6 +315,14 @@ public class NodeStatusUpdaterImpl extends AbstractService implements
       .setBlockNewContainerRequests(false);
   }
 
+  private List<ContainerMemoryPressure> getContainerMemoryPressures() {
+    if (!(context.getContainerManager() instanceof ContainerManagerImpl)) {
+      return Collections.emptyList();
+    }
+    return ((ContainerManagerImpl) context.getContainerManager())
+      .getContainersMonitor().getContainerMemoryPressures();
+  }
+
   private List<ApplicationId> createKeepAliveApplicationList() {
     if (!tokenKeepAliveEnabled) {
       return Collections.emptyList();
@@ -594,6 +603,7 @@ public class NodeStatusUpdaterImpl extends AbstractService implements
                     .getContainerTokenSecretManager().getCurrentKey(),
                   NodeStatusUpdaterImpl.this.context.getNMTokenSecretManager()
                     .getCurrentKey());
+            request.setContainerMemoryPressures(getContainerMemoryPressures());
             response = resourceTracker.nodeHeartbeat(request);
             //get next heartbeat interval from response
             nextHeartBeatInterval = response.getNextHeartBeatInterval();
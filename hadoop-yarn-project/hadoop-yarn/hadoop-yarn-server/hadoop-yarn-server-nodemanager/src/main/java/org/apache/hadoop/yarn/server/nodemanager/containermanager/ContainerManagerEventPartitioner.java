@@ -0,0 +1,85 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.yarn.server.nodemanager.containermanager;
+
+import org.apache.hadoop.yarn.api.records.ContainerId;
+import org.apache.hadoop.yarn.event.Event;
+import org.apache.hadoop.yarn.event.PartitionedAsyncDispatcher.Partitioner;
+import org.apache.hadoop.yarn.server.nodemanager.containermanager.application.Application;
+import org.apache.hadoop.yarn.server.nodemanager.containermanager.application.ApplicationEvent;
+import org.apache.hadoop.yarn.server.nodemanager.containermanager.container.Container;
+import org.apache.hadoop.yarn.server.nodemanager.containermanager.container.ContainerEvent;
+import org.apache.hadoop.yarn.server.nodemanager.containermanager.launcher.ContainersLauncherEvent;
+import org.apache.hadoop.yarn.server.nodemanager.containermanager.localizer.event.ApplicationLocalizationEvent;
+import org.apache.hadoop.yarn.server.nodemanager.containermanager.localizer.event.ContainerLocalizationEvent;
+import org.apache.hadoop.yarn.server.nodemanager.containermanager.loghandler.event.LogHandlerAppFinishedEvent;
+import org.apache.hadoop.yarn.server.nodemanager.containermanager.loghandler.event.LogHandlerAppStartedEvent;
+import org.apache.hadoop.yarn.server.nodemanager.containermanager.loghandler.event.LogHandlerContainerFinishedEvent;
+import org.apache.hadoop.yarn.server.nodemanager.containermanager.monitor.ContainersMonitorEvent;
+import org.apache.hadoop.yarn.server.nodemanager.containermanager.updater.ContainersUpdaterEvent;
+
+/**
+ * Partitions the events of the container manager dispatcher by application:
+ * the events of an application and of its containers, whichever service
+ * they are for, are handled in order. Events that are not about a single
+ * application (cache cleanups...) have no partition.
+ */
+public class ContainerManagerEventPartitioner implements Partitioner {
+
+  @Override
+  public Object getPartitionKey(Event event) {
+    if (event instanceof ContainerEvent) {
+      return getApplication(((ContainerEvent) event).getContainerID());
+    } else if (event instanceof ApplicationEvent) {
+      return ((ApplicationEvent) event).getApplicationID();
+    } else if (event instanceof ContainersLauncherEvent) {
+      return getApplication(((ContainersLauncherEvent) event).getContainer());
+    } else if (event instanceof ContainersMonitorEvent) {
+      return getApplication(((ContainersMonitorEvent) event).getContainerId());
+    } else if (event instanceof ContainersUpdaterEvent) {
+      return getApplication(((ContainersUpdaterEvent) event).getContainer());
+    } else if (event instanceof ContainerLocalizationEvent) {
+      return getApplication(
+          ((ContainerLocalizationEvent) event).getContainer());
+    } else if (event instanceof ApplicationLocalizationEvent) {
+      Application app = ((ApplicationLocalizationEvent) event).getApplication();
+      return app == null ? null : app.getAppId();
+    } else if (event instanceof AuxServicesEvent) {
+      return ((AuxServicesEvent) event).getApplicationID();
+    } else if (event instanceof LogHandlerAppStartedEvent) {
+      return ((LogHandlerAppStartedEvent) event).getApplicationId();
+    } else if (event instanceof LogHandlerAppFinishedEvent) {
+      return ((LogHandlerAppFinishedEvent) event).getApplicationId();
+    } else if (event instanceof LogHandlerContainerFinishedEvent) {
+      return getApplication(
+          ((LogHandlerContainerFinishedEvent) event).getContainerId());
+    }
+    return null;
+  }
+
+  private static Object getApplication(ContainerId containerId) {
+    return containerId == null ? null
+        : containerId.getApplicationAttemptId().getApplicationId();
+  }
+
+  private static Object getApplication(Container container) {
+    return container == null ? null
+        : getApplication(container.getContainerId());
+  }
+}
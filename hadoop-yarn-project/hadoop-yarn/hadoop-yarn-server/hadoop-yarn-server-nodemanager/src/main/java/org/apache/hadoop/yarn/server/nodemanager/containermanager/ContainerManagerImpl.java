@@ -82,6 +82,7 @@ import org.apache.hadoop.yarn.api.records.impl.pb.ProtoUtils;
 import org.apache.hadoop.yarn.conf.YarnConfiguration;
 import org.apache.hadoop.yarn.event.AsyncDispatcher;
 import org.apache.hadoop.yarn.event.EventHandler;
+import org.apache.hadoop.yarn.event.PartitionedAsyncDispatcher;
 import org.apache.hadoop.yarn.exceptions.InvalidAuxServiceException;
 import org.apache.hadoop.yarn.exceptions.InvalidContainerException;
 import org.apache.hadoop.yarn.exceptions.NMNotYetReadyException;
@@ -132,6 +133,8 @@ import org.apache.hadoop.yarn.server.nodemanager.containermanager.loghandler.eve
 import org.apache.hadoop.yarn.server.nodemanager.containermanager.monitor.ContainersMonitor;
 import org.apache.hadoop.yarn.server.nodemanager.containermanager.monitor.ContainersMonitorEventType;
 import org.apache.hadoop.yarn.server.nodemanager.containermanager.monitor.ContainersMonitorImpl;
+import org.apache.hadoop.yarn.server.nodemanager.containermanager.updater.ContainersUpdater;
+import org.apache.hadoop.yarn.server.nodemanager.containermanager.updater.ContainersUpdaterEventType;
 import org.apache.hadoop.yarn.server.nodemanager.metrics.NodeManagerMetrics;
 import org.apache.hadoop.yarn.server.nodemanager.recovery.NMStateStoreService;
 import org.apache.hadoop.yarn.server.nodemanager.recovery.NMStateStoreService.RecoveredApplicationsState;
@@ -160,6 +163,7 @@ public class ContainerManagerImpl extends CompositeService implements
     private Server server;
     private final ResourceLocalizationService rsrcLocalizationSrvc;
     private final ContainersLauncher containersLauncher;
+    private final ContainersUpdater containersUpdater;
     private final AuxServices auxiliaryServices;
     private final NodeManagerMetrics metrics;
 
@@ -185,13 +189,17 @@ public class ContainerManagerImpl extends CompositeService implements
         this.context = context;
         this.dirsHandler = dirsHandler;
 
-        // ContainerManager level dispatcher.
-        dispatcher = new AsyncDispatcher();
+        // ContainerManager level dispatcher, partitioned by application when
+        // configured with several lanes.
+        dispatcher = new PartitionedAsyncDispatcher("ContainerManagerDispatcher",
+                YarnConfiguration.NM_CONTAINER_MGR_DISPATCHER_LANES,
+                new ContainerManagerEventPartitioner());
         this.deletionService = deletionContext;
         this.metrics = metrics;
 
         rsrcLocalizationSrvc =
                 createResourceLocalizationService(exec, deletionContext, context);
+        rsrcLocalizationSrvc.setMetrics(metrics);
         addService(rsrcLocalizationSrvc);
 
         containersLauncher = createContainersLauncher(context, exec);
@@ -209,6 +217,10 @@ public class ContainerManagerImpl extends CompositeService implements
                 new ContainersMonitorImpl(exec, dispatcher, this.context);
         addService(this.containersMonitor);
 
+        // the updater reads the memory usage of containers from the monitor
+        containersUpdater = createContainersUpdater(context);
+        addService(containersUpdater);
+
         dispatcher.register(ContainerEventType.class,
                 new ContainerEventDispatcher());
         dispatcher.register(ApplicationEventType.class,
@@ -217,6 +229,7 @@ public class ContainerManagerImpl extends CompositeService implements
         dispatcher.register(AuxServicesEventType.class, auxiliaryServices);
         dispatcher.register(ContainersMonitorEventType.class, containersMonitor);
         dispatcher.register(ContainersLauncherEventType.class, containersLauncher);
+        dispatcher.register(ContainersUpdaterEventType.class, containersUpdater);
 
         addService(dispatcher);
 
@@ -393,6 +406,11 @@ public class ContainerManagerImpl extends CompositeService implements
         return new ContainersLauncher(context, this.dispatcher, exec, dirsHandler, this);
     }
 
+    protected ContainersUpdater createContainersUpdater(Context context) {
+        return new ContainersUpdater(context, this.metrics,
+                this.containersMonitor, this.nodeStatusUpdater);
+    }
+
     @Override
     protected void serviceStart() throws Exception {
 
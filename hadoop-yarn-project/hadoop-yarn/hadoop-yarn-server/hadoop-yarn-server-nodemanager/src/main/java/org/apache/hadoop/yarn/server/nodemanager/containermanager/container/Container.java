@@ -58,4 +58,15 @@ public interface Container extends EventHandler<ContainerEvent> {
   
   Set<Integer> getCpuCores();
 
+  /**
+   * @return the numa nodes the memory of the container is bound to, empty if
+   * it is not bound
+   */
+  Set<Integer> getMemoryNodes();
+
+  /**
+   * @return whether the container was recovered after a restart of the NM
+   */
+  boolean isRecovered();
+
 }
@@ -26,10 +26,8 @@ import java.util.Collection;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.Lock;
@@ -40,7 +38,6 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.Path;
-import org.apache.hadoop.io.Text;
 import org.apache.hadoop.security.Credentials;
 import org.apache.hadoop.yarn.api.records.ContainerExitStatus;
 import org.apache.hadoop.yarn.api.records.ContainerId;
@@ -54,9 +51,9 @@ import org.apache.hadoop.yarn.event.Dispatcher;
 import org.apache.hadoop.yarn.event.EventHandler;
 import org.apache.hadoop.yarn.security.ContainerTokenIdentifier;
 import org.apache.hadoop.yarn.server.api.protocolrecords.NMContainerStatus;
+import org.apache.hadoop.yarn.server.api.protocolrecords.NodeContainerUpdate;
 import org.apache.hadoop.yarn.server.nodemanager.Context;
 import org.apache.hadoop.yarn.server.nodemanager.NMAuditLogger;
-import org.apache.hadoop.yarn.server.nodemanager.ContainerExecutor.ExitCode;
 import org.apache.hadoop.yarn.server.nodemanager.NMAuditLogger.AuditConstants;
 import org.apache.hadoop.yarn.server.nodemanager.containermanager.AuxServicesEvent;
 import org.apache.hadoop.yarn.server.nodemanager.containermanager.AuxServicesEventType;
@@ -73,10 +70,13 @@ import org.apache.hadoop.yarn.server.nodemanager.containermanager.localizer.shar
 import org.apache.hadoop.yarn.server.nodemanager.containermanager.loghandler.event.LogHandlerContainerFinishedEvent;
 import org.apache.hadoop.yarn.server.nodemanager.containermanager.monitor.ContainerStartMonitoringEvent;
 import org.apache.hadoop.yarn.server.nodemanager.containermanager.monitor.ContainerStopMonitoringEvent;
+import org.apache.hadoop.yarn.server.nodemanager.containermanager.updater.ContainersUpdaterEvent;
+import org.apache.hadoop.yarn.server.nodemanager.containermanager.updater.ContainersUpdaterEventType;
 import org.apache.hadoop.yarn.server.nodemanager.metrics.NodeManagerMetrics;
 import org.apache.hadoop.yarn.server.nodemanager.recovery.NMStateStoreService;
 import org.apache.hadoop.yarn.server.nodemanager.recovery.NMStateStoreService.RecoveredContainerStatus;
 import org.apache.hadoop.yarn.server.utils.BuilderUtils;
+import org.apache.hadoop.yarn.server.utils.SchedulingTrace;
 import org.apache.hadoop.yarn.state.InvalidStateTransitonException;
 import org.apache.hadoop.yarn.state.MultipleArcTransition;
 import org.apache.hadoop.yarn.state.SingleArcTransition;
@@ -85,8 +85,6 @@ import org.apache.hadoop.yarn.state.StateMachineFactory;
 import org.apache.hadoop.yarn.util.Clock;
 import org.apache.hadoop.yarn.util.ConverterUtils;
 import org.apache.hadoop.yarn.util.SystemClock;
-import org.apache.hadoop.yarn.server.api.protocolrecords.NodeContainerUpdate;
-import org.apache.hadoop.util.Shell.ShellCommandExecutor;
 
 public class ContainerImpl implements Container {
 
@@ -100,14 +98,12 @@ public class ContainerImpl implements Container {
 	private final ContainerTokenIdentifier containerTokenIdentifier;
 	private final ContainerId containerId;
 	private final Resource resource;
-	private Resource currentResource;
 	private final String user;
 	private int exitCode = ContainerExitStatus.INVALID;
 	private final StringBuilder diagnostics;
 	private boolean wasLaunched;
 	private long containerLaunchStartTime;
 	private final Context context;
-	private DockerCommandThread dockerUpdateThread = new DockerCommandThread();
 	private static Clock clock = new SystemClock();
 
 	/**
@@ -142,6 +138,10 @@ public class ContainerImpl implements Container {
 	 * whether container was marked as killed after recovery
 	 */
 	private boolean recoveredAsKilled = false;
+	/**
+	 * whether container was created by the recovery after a restart
+	 */
+	private boolean recovered = false;
 
 	private long appArrivalTime;
 	private long deadline;
@@ -159,7 +159,6 @@ public class ContainerImpl implements Container {
 		this.containerTokenIdentifier = containerTokenIdentifier;
 		this.containerId = containerTokenIdentifier.getContainerID();
 		this.resource = containerTokenIdentifier.getResource();
-		this.currentResource = resource;
 		this.diagnostics = new StringBuilder();
 		this.credentials = creds;
 		this.metrics = metrics;
@@ -190,6 +189,7 @@ public class ContainerImpl implements Container {
 		this.recoveredStatus = recoveredStatus;
 		this.exitCode = exitCode;
 		this.recoveredAsKilled = wasKilled;
+		this.recovered = true;
 		this.diagnostics.append(diagnostics);
 	}
 
@@ -205,7 +205,6 @@ public class ContainerImpl implements Container {
 		this.containerTokenIdentifier = containerTokenIdentifier;
 		this.containerId = containerTokenIdentifier.getContainerID();
 		this.resource = containerTokenIdentifier.getResource();
-		this.currentResource = resource;
 		this.diagnostics = new StringBuilder();
 		this.credentials = creds;
 		this.metrics = metrics;
@@ -537,6 +536,9 @@ public class ContainerImpl implements Container {
 		eventHandler.handle(new ApplicationContainerFinishedEvent(containerId));
 		// Remove the container from the resource-monitor
 		eventHandler.handle(new ContainerStopMonitoringEvent(containerId));
+		// Drop any container update that has not been applied yet
+		eventHandler.handle(new ContainersUpdaterEvent(this,
+			ContainersUpdaterEventType.CLEANUP_CONTAINER));
 		// Tell the logService too
 		eventHandler.handle(new LogHandlerContainerFinishedEvent(
 			containerId, exitCode));
@@ -825,8 +827,6 @@ public class ContainerImpl implements Container {
 			container.wasLaunched = true;
 			long duration = clock.getTime() - container.containerLaunchStartTime;
 			container.metrics.addContainerLaunchDuration(duration);
-			//we start docker container update thread here
-			container.dockerUpdateThread.start();
 
 			if (container.recoveredAsKilled) {
 				LOG.info("Killing " + container.containerId
@@ -849,282 +849,27 @@ public class ContainerImpl implements Container {
 		public void transition(ContainerImpl container, ContainerEvent event) {
 
 			ContainerResourceUpdate updateEvent = (ContainerResourceUpdate) event;
-			LOG.info("container" + event.getContainerID() + "receive resource update event"
-				+ "memory" + updateEvent.getNodeContainerUpdate().getMemory()
-				+ "cores" + updateEvent.getNodeContainerUpdate().getCores()
-				+ "suspend" + updateEvent.getNodeContainerUpdate().getSuspend()
-				+ "resume" + updateEvent.getNodeContainerUpdate().getResume());
-			container.processResourceUpdate(updateEvent.getNodeContainerUpdate());
-		}
-	}
-
-
-	/**
-	 * TO launch thread to process contaienr udpate event
-	 *
-	 */
-
-
-	private class DockerCommandThread extends Thread {
-
-		Queue<Integer> memoryUpdateActorList = new LinkedList<Integer>();
-		Queue<Integer> quotaUpdateActorList = new LinkedList<Integer>();
-		Queue<Set<Integer>> cpuUpdateActorList = new LinkedList<Set<Integer>>();
-
-		public DockerCommandThread() {
-
-
-		}
-
-		private void DockerCommandCpuQuota(Integer quota) {
-			List<String> commandPrefix = new ArrayList<String>();
-			commandPrefix.add("docker");
-			commandPrefix.add("update");
-			List<String> commandQuota = new ArrayList<String>();
-			commandQuota.addAll(commandPrefix);
-			commandQuota.add("--cpu-quota");
-			commandQuota.add(quota.toString());
-			commandQuota.add(containerId.toString());
-			String[] commandArrayQuota = commandQuota.toArray(new String[commandQuota.size()]);
-			this.runDockerUpdateCommand(commandArrayQuota);
-
-		}
-
-		private void DockerCommandCpuSet(Set<Integer> cores) {
-			List<String> commandPrefix = new ArrayList<String>();
-			commandPrefix.add("docker");
-			commandPrefix.add("update");
-			List<String> commandCores = new ArrayList<String>();
-			commandCores.addAll(commandPrefix);
-			commandCores.add("--cpuset-cpus");
-
-			int index = 0;
-			String coresStr = new String();
-			for (Integer core : cores) {
-				coresStr = coresStr + core.toString();
-				index++;
-				if (index < cores.size()) {
-					coresStr = coresStr + ",";
-				}
-			}
-
-			commandCores.add(coresStr);
-			commandCores.add(containerId.toString());
-			String[] commandArrayCores = commandCores.toArray(new String[commandCores.size()]);
-			this.runDockerUpdateCommand(commandArrayCores);
-
-
-		}
-
-		private void DockerCommandMeory(Integer memory) {
-			List<String> commandPrefix = new ArrayList<String>();
-			commandPrefix.add("docker");
-			commandPrefix.add("update");
-			List<String> commandMemory = new ArrayList<String>();
-			commandMemory.addAll(commandPrefix);
-			commandMemory.add("--memory");
-			commandMemory.add(memory.toString() + "m");
-			commandMemory.add(containerId.toString());
-			String[] commandArrayMemory = commandMemory.toArray(new String[commandMemory.size()]);
-			this.runDockerUpdateCommand(commandArrayMemory);
-
-
-		}
-
-		private int runDockerUpdateCommand(String[] command) {
-			String commandString = new String();
-			for (String c : command) {
-				commandString += c;
-				commandString += " ";
-			}
-			LOG.info("run docker commands:" + commandString);
-			ShellCommandExecutor shExec = null;
-			int count = 10;
-			while (count > 0) {
-				//we try 10 times if fails due to device busy
-				try {
-					shExec = new ShellCommandExecutor(command);
-					shExec.execute();
-
-				} catch (IOException e) {
-					if (null == shExec) {
-						return -1;
-					}
-					int exitCode = shExec.getExitCode();
-					if (exitCode != ExitCode.FORCE_KILLED.getExitCode()
-						&& exitCode != ExitCode.TERMINATED.getExitCode()) {
-						LOG.warn("Exception from Docker update with container ID: "
-							+ containerId + " and exit code: " + exitCode, e);
-					}
-					count--;
-					continue;
-
-				} finally {
-					if (shExec != null) {
-						shExec.close();
-					}
-				}
-				LOG.info("command execution successfully");
-				break;
-			}
-			if (count > 0) {
-
-				LOG.info("command execution successfully and commands updates for" + count + " times");
-			} else {
-
-				LOG.info("command execution fails");
-			}
-			return 0;
-		}
-
-		@Override
-		public void run() {
-			LOG.info("thread entered for container " + getContainerId() + " current state is " + stateMachine.getCurrentState());
-            List<Text> tokens = credentials.getAllSecretKeys();
-            LOG.info("\n====================");
-            for (Text token: tokens){
-                LOG.info("token: " + token.toString());
-            }
-            LOG.info("tokens number: " + tokens.size());
-            LOG.info("\n====================");
-			while (stateMachine.getCurrentState() == ContainerState.RUNNING) {
-
-				//LOG.info("thread loop for container "+getContainerId()+" memorysize "+memoryUpdateActorList.size()
-				//		                                                +" cpusize "+cpuUpdateActorList.size());
-				synchronized (quotaUpdateActorList) {
-					//first check the quota list if it is empty
-					if (quotaUpdateActorList.size() > 0) {
-						LOG.info("quota size " + quotaUpdateActorList.size());
-						int quota = quotaUpdateActorList.poll();
-						DockerCommandCpuQuota(quota);
-						continue;
-					}
-				}
-
-				synchronized (cpuUpdateActorList) {
-					//then update cpuset
-					if (cpuUpdateActorList.size() > 0) {
-						LOG.info("cpu size " + cpuUpdateActorList.size());
-						Set<Integer> cpuSet = cpuUpdateActorList.poll();
-						DockerCommandCpuSet(cpuSet);
-						continue;
-					}
-				}
-
-				synchronized (memoryUpdateActorList) {
-					//finally we update memory
-					if (memoryUpdateActorList.size() > 0) {
-						LOG.info("memory size " + memoryUpdateActorList.size());
-						int memory = memoryUpdateActorList.poll();
-						DockerCommandMeory(memory);
-						continue;
-					}
-				}
-				//if we come here it means we need to sleep for 3s
-				try {
-					Thread.sleep(1000);
-				} catch (InterruptedException e) {
-					e.printStackTrace();
-				}
-			}
-
-			LOG.info("thread ended for container " + getContainerId() + " the final state is " + stateMachine.getCurrentState());
-		}
-
-
-		public void processNodeContainerUpdate(NodeContainerUpdate nodeContainerUpdate) {
-			//if this is a resumed container
-			boolean resumed = nodeContainerUpdate.getResume();
-			boolean quotaFreeze = false;
-			//we fisrt update cpu cores
-			Integer targetCores = nodeContainerUpdate.getCores();
-			//then we update resource requirement, first we update cpu set
-			Set<Integer> cores = context.getCoresManager().resetCores(containerId, targetCores);
-
-			LOG.info("node container update cores" + cores);
-			//all cores are preempted
-			if (cores.size() == 0) {
-				//in this case, we run the docker on core 0
-				cores.add(0);
-				//we will not resume its all capacity
-				quotaFreeze = true;
-			}
-
-			synchronized (cpuUpdateActorList) {
-				//then update cpuset
-				if (cpuUpdateActorList.size() > 0) {
-					cpuUpdateActorList.clear();
-				}
-				cpuUpdateActorList.add(cores);
-			}
-
-			//we then update cpuset, we only free container when all the resource has been deprived
-			if (quotaFreeze) {
-				synchronized (quotaUpdateActorList) {
-					//first check the quota list if it is empty
-					if (quotaUpdateActorList.size() > 0) {
-						quotaUpdateActorList.clear();
-					}
-					quotaUpdateActorList.add(1000);
-				}
-			} else if (resumed) {
-				synchronized (quotaUpdateActorList) {
-					//first check the quota list if it is empty
-					if (quotaUpdateActorList.size() > 0) {
-						quotaUpdateActorList.clear();
-					}
-					quotaUpdateActorList.add(-1);
-				}
+			NodeContainerUpdate update = updateEvent.getNodeContainerUpdate();
+			Resource resource =
+				Resource.newInstance(update.getMemory(), update.getCores());
+			if (update.getSuspend()) {
+				SchedulingTrace.get().suspend(container.containerId, null, resource);
+			} else if (update.getResume()) {
+				SchedulingTrace.get().resume(container.containerId, null, resource);
 			}
-
-
-			//we then update memory usage
-			List<Integer> toAdded = new ArrayList<Integer>();
-			Integer currentMemory = currentResource.getMemory();
-			Integer targetMemory = nodeContainerUpdate.getMemory();
-
-			//the minimum memory for a container
-			if (targetMemory < 128) {
-				targetMemory = 128;
-			}
-
-			if (targetMemory < currentMemory) {
-
-				while (currentMemory > targetMemory) {
-
-					if (currentMemory > 1024) {
-						currentMemory -= 1024;
-					} else {
-						currentMemory /= 2;
-					}
-
-					toAdded.add(currentMemory);
-				}
-				toAdded.add(targetMemory);
-				LOG.info("node container update memory" + targetMemory);
-
-			} else {
-				toAdded.add(targetMemory);
-				LOG.info("node container update memory" + targetMemory);
-			}
-
-			synchronized (memoryUpdateActorList) {
-				//finally we update memory
-				if (memoryUpdateActorList.size() > 0) {
-					memoryUpdateActorList.clear();
-				}
-				memoryUpdateActorList.addAll(toAdded);
+			if (LOG.isDebugEnabled()) {
+				LOG.debug("container " + event.getContainerID()
+					+ " receive resource update event memory " + update.getMemory()
+					+ " cores " + update.getCores()
+					+ " suspend " + update.getSuspend()
+					+ " resume " + update.getResume());
 			}
+			container.dispatcher.getEventHandler().handle(
+				new ContainersUpdaterEvent(container,
+					updateEvent.getNodeContainerUpdate()));
 		}
 	}
 
-	private void processResourceUpdate(NodeContainerUpdate nodeContainerUpdate) {
-		LOG.info("process resource update: container  " + getContainerId() + " cores " + nodeContainerUpdate.getCores()
-			+ " memory " + nodeContainerUpdate.getMemory());
-		dockerUpdateThread.processNodeContainerUpdate(nodeContainerUpdate);
-		;
-	}
-
 
 	/**
 	 * Transition from RUNNING or KILLING state to EXITED_WITH_SUCCESS state
@@ -1531,4 +1276,14 @@ public class ContainerImpl implements Container {
 
 	}
 
+	@Override
+	public Set<Integer> getMemoryNodes() {
+		return context.getCoresManager().getMemoryNodes(containerId);
+	}
+
+	@Override
+	public boolean isRecovered() {
+		return recovered;
+	}
+
 }
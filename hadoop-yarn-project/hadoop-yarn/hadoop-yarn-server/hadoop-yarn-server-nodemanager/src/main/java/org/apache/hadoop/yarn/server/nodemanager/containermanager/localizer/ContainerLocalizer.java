@@ -55,6 +55,7 @@ import org.apache.hadoop.util.DiskChecker;
 import org.apache.hadoop.yarn.YarnUncaughtExceptionHandler;
 import org.apache.hadoop.yarn.api.records.LocalResource;
 import org.apache.hadoop.yarn.api.records.SerializedException;
+import org.apache.hadoop.yarn.conf.YarnConfiguration;
 import org.apache.hadoop.yarn.exceptions.YarnException;
 import org.apache.hadoop.yarn.factories.RecordFactory;
 import org.apache.hadoop.yarn.factory.providers.RecordFactoryProvider;
@@ -186,8 +187,12 @@ public class ContainerLocalizer {
   }
 
   ExecutorService createDownloadThreadPool() {
-    return Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
-      .setNameFormat("ContainerLocalizer Downloader").build());
+    // the NM hands out as many resources at a time
+    int nThreads = Math.max(1, new YarnConfiguration(conf).getInt(
+        YarnConfiguration.NM_LOCALIZER_PRIVATE_FETCH_THREAD_COUNT,
+        YarnConfiguration.DEFAULT_NM_LOCALIZER_PRIVATE_FETCH_THREAD_COUNT));
+    return Executors.newFixedThreadPool(nThreads, new ThreadFactoryBuilder()
+      .setNameFormat("ContainerLocalizer Downloader #%d").build());
   }
 
   CompletionService<Path> createCompletionService(ExecutorService exec) {
@@ -0,0 +1,298 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.yarn.server.nodemanager.containermanager.localizer;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.util.Time;
+
+/**
+ * Runs the downloads of the node on a pool of threads, the downloads of the
+ * containers which matter most first, and at most a given number at a time
+ * from every filesystem so that one slow or remote filesystem does not take
+ * all the threads. The slots of a filesystem are shared with the downloads
+ * made by the {@link ContainerLocalizer}s, which take them through
+ * {@link #tryAcquireSlot(Path)}.
+ * <p>
+ * Downloads of the same priority run in the order they were submitted. A
+ * download which cannot get a slot of its filesystem waits without holding a
+ * thread, so the downloads from other filesystems go first.
+ */
+class DownloadScheduler {
+
+  /**
+   * A download, with the time it spent waiting and running.
+   */
+  class Download extends FutureTask<Path> implements Comparable<Download> {
+    private final LocalizerContext.Priority priority;
+    private final long sequence;
+    private final String fileSystem;
+    private final long submitTime;
+    private volatile long startTime = -1;
+    private volatile long endTime = -1;
+    // whether the download holds a thread and a slot of its filesystem
+    private boolean started = false;
+
+    Download(Callable<Path> download, LocalizerContext.Priority priority,
+        long sequence, String fileSystem) {
+      super(download);
+      this.priority = priority;
+      this.sequence = sequence;
+      this.fileSystem = fileSystem;
+      this.submitTime = Time.monotonicNow();
+    }
+
+    @Override
+    public void run() {
+      startTime = Time.monotonicNow();
+      super.run();
+    }
+
+    @Override
+    protected void done() {
+      endTime = Time.monotonicNow();
+      finished(this);
+      completed.add(this);
+    }
+
+    void reject(RejectedExecutionException e) {
+      setException(e);
+    }
+
+    @Override
+    public int compareTo(Download other) {
+      int diff = priority.compareTo(other.priority);
+      if (diff != 0) {
+        return diff;
+      }
+      return sequence < other.sequence ? -1
+          : (sequence == other.sequence ? 0 : 1);
+    }
+
+    public LocalizerContext.Priority getPriority() {
+      return priority;
+    }
+
+    /**
+     * @return ms between the submission and the start of the download, -1 if
+     * it did not start
+     */
+    public long getWaitTime() {
+      return startTime < 0 ? -1 : startTime - submitTime;
+    }
+
+    /**
+     * @return ms the download ran, -1 if it did not start
+     */
+    public long getDownloadTime() {
+      return startTime < 0 || endTime < 0 ? -1 : endTime - startTime;
+    }
+  }
+
+  private final ExecutorService executor;
+  private final int numThreads;
+  private final int maxPerFileSystem;
+
+  private final PriorityQueue<Download> waiting = new PriorityQueue<Download>();
+  // filesystem -> downloads running from it, here or in container localizers
+  private final Map<String, Integer> running = new HashMap<String, Integer>();
+  private int numRunning = 0;
+  private long sequence = 0;
+  // whether dispatch() is running, so a rejected download does not call it
+  // again from its done()
+  private boolean dispatching = false;
+  private final BlockingQueue<Future<Path>> completed =
+      new LinkedBlockingQueue<Future<Path>>();
+
+  /**
+   * @param executor pool running the downloads
+   * @param numThreads threads of the pool
+   * @param maxPerFileSystem downloads running at a time from a filesystem, 0
+   *                         for no limit
+   */
+  DownloadScheduler(ExecutorService executor, int numThreads,
+      int maxPerFileSystem) {
+    this.executor = executor;
+    this.numThreads = numThreads;
+    this.maxPerFileSystem = maxPerFileSystem;
+  }
+
+  /**
+   * Submit a download.
+   *
+   * @param download the download
+   * @param source the path downloaded
+   * @param priority the priority of the download, null for the lowest
+   * @return the future of the download, also returned by {@link #take()}
+   * once it is done
+   * @throws RejectedExecutionException if the pool is shut down
+   */
+  synchronized Future<Path> submit(Callable<Path> download, Path source,
+      LocalizerContext.Priority priority) {
+    if (executor.isShutdown()) {
+      throw new RejectedExecutionException("Download pool is shut down");
+    }
+    Download d = new Download(download,
+        priority == null ? LocalizerContext.Priority.NORMAL : priority,
+        sequence++, getFileSystem(source));
+    waiting.add(d);
+    dispatch();
+    return d;
+  }
+
+  /**
+   * @return the next download done, waiting for one if needed
+   */
+  Future<Path> take() throws InterruptedException {
+    return completed.take();
+  }
+
+  /**
+   * Take a slot of the filesystem of a path for a download run elsewhere.
+   * @return false if the filesystem has no slot left
+   */
+  synchronized boolean tryAcquireSlot(Path source) {
+    String fileSystem = getFileSystem(source);
+    if (!hasSlot(fileSystem)) {
+      return false;
+    }
+    incrRunning(fileSystem, 1);
+    return true;
+  }
+
+  /**
+   * Give back a slot taken by {@link #tryAcquireSlot(Path)}.
+   */
+  void releaseSlot(Path source) {
+    synchronized (this) {
+      incrRunning(getFileSystem(source), -1);
+    }
+    dispatch();
+  }
+
+  synchronized int getNumWaiting() {
+    return waiting.size();
+  }
+
+  synchronized int getNumRunning(Path source) {
+    Integer n = running.get(getFileSystem(source));
+    return n == null ? 0 : n;
+  }
+
+  private void finished(Download d) {
+    synchronized (this) {
+      if (d.started) {
+        d.started = false;
+        numRunning--;
+        incrRunning(d.fileSystem, -1);
+      } else {
+        // cancelled before it started
+        waiting.remove(d);
+      }
+    }
+    dispatch();
+  }
+
+  /**
+   * Start the waiting downloads, in priority order, while there are threads
+   * and slots of their filesystem left.
+   */
+  private synchronized void dispatch() {
+    if (dispatching) {
+      // a download rejected below finished, the loop below goes on
+      return;
+    }
+    dispatching = true;
+    List<Download> noSlot = null;
+    try {
+      while (numRunning < numThreads && !waiting.isEmpty()) {
+        Download d = waiting.poll();
+        if (!hasSlot(d.fileSystem)) {
+          if (noSlot == null) {
+            noSlot = new ArrayList<Download>();
+          }
+          noSlot.add(d);
+          continue;
+        }
+        d.started = true;
+        numRunning++;
+        incrRunning(d.fileSystem, 1);
+        try {
+          executor.execute(d);
+        } catch (RejectedExecutionException e) {
+          if (!executor.isShutdown()) {
+            // the pool is full, try again once a download is done
+            d.started = false;
+            numRunning--;
+            incrRunning(d.fileSystem, -1);
+            waiting.add(d);
+            break;
+          }
+          // done() gives the thread and the slot back
+          d.reject(e);
+        }
+      }
+    } finally {
+      dispatching = false;
+      if (noSlot != null) {
+        waiting.addAll(noSlot);
+      }
+    }
+  }
+
+  private boolean hasSlot(String fileSystem) {
+    if (maxPerFileSystem <= 0) {
+      return true;
+    }
+    Integer n = running.get(fileSystem);
+    return n == null || n < maxPerFileSystem;
+  }
+
+  private void incrRunning(String fileSystem, int delta) {
+    Integer n = running.get(fileSystem);
+    int value = (n == null ? 0 : n) + delta;
+    if (value <= 0) {
+      running.remove(fileSystem);
+    } else {
+      running.put(fileSystem, value);
+    }
+  }
+
+  /**
+   * @return the scheme and authority of the path, which tell its filesystem
+   */
+  static String getFileSystem(Path source) {
+    URI uri = source.toUri();
+    return uri.getScheme() + "://"
+        + (uri.getAuthority() == null ? "" : uri.getAuthority());
+  }
+}
@@ -29,10 +29,23 @@ import com.google.common.cache.LoadingCache;
 
 public class LocalizerContext {
 
+  /**
+   * Order in which the resources of containers are downloaded, most urgent
+   * first.
+   */
+  public enum Priority {
+    /** the container runs the application master */
+    AM,
+    /** the container was recovered after a restart, its work resumes */
+    RECOVERED,
+    NORMAL
+  }
+
   private final String user;
   private final ContainerId containerId;
   private final Credentials credentials;
   private final LoadingCache<Path,Future<FileStatus>> statCache;
+  private final Priority priority;
 
   public LocalizerContext(String user, ContainerId containerId,
       Credentials credentials) {
@@ -42,10 +55,17 @@ public class LocalizerContext {
   public LocalizerContext(String user, ContainerId containerId,
       Credentials credentials,
       LoadingCache<Path,Future<FileStatus>> statCache) {
+    this(user, containerId, credentials, statCache, Priority.NORMAL);
+  }
+
+  public LocalizerContext(String user, ContainerId containerId,
+      Credentials credentials,
+      LoadingCache<Path,Future<FileStatus>> statCache, Priority priority) {
     this.user = user;
     this.containerId = containerId;
     this.credentials = credentials;
     this.statCache = statCache;
+    this.priority = priority;
   }
 
   public String getUser() {
@@ -63,4 +83,8 @@ public class LocalizerContext {
   public LoadingCache<Path,Future<FileStatus>> getStatCache() {
     return statCache;
   }
+
+  public Priority getPriority() {
+    return priority;
+  }
 }
@@ -37,11 +37,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.CancellationException;
-import java.util.concurrent.CompletionService;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
@@ -74,6 +72,7 @@ import org.apache.hadoop.service.AbstractService;
 import org.apache.hadoop.service.CompositeService;
 import org.apache.hadoop.util.DiskChecker;
 import org.apache.hadoop.util.StringUtils;
+import org.apache.hadoop.util.Time;
 import org.apache.hadoop.yarn.api.records.ApplicationId;
 import org.apache.hadoop.yarn.api.records.ContainerId;
 import org.apache.hadoop.yarn.api.records.LocalResource;
@@ -123,6 +122,7 @@ import org.apache.hadoop.yarn.server.nodemanager.containermanager.localizer.even
 import org.apache.hadoop.yarn.server.nodemanager.containermanager.localizer.event.ResourceRequestEvent;
 import org.apache.hadoop.yarn.server.nodemanager.containermanager.localizer.security.LocalizerTokenIdentifier;
 import org.apache.hadoop.yarn.server.nodemanager.containermanager.localizer.security.LocalizerTokenSecretManager;
+import org.apache.hadoop.yarn.server.nodemanager.metrics.NodeManagerMetrics;
 import org.apache.hadoop.yarn.server.nodemanager.recovery.NMStateStoreService;
 import org.apache.hadoop.yarn.server.nodemanager.recovery.NMStateStoreService.LocalResourceTrackerState;
 import org.apache.hadoop.yarn.server.nodemanager.recovery.NMStateStoreService.RecoveredLocalizationState;
@@ -162,6 +162,7 @@ public class ResourceLocalizationService extends CompositeService
 
   private LocalDirsHandlerService dirsHandler;
   private Context nmContext;
+  private NodeManagerMetrics metrics;
 
   /**
    * Map of LocalResourceTrackers keyed by username, for private
@@ -197,6 +198,14 @@ public class ResourceLocalizationService extends CompositeService
     this.nmContext = context;
   }
 
+  /**
+   * Set the metrics the waiting and download times of the resources are
+   * reported to.
+   */
+  public void setMetrics(NodeManagerMetrics metrics) {
+    this.metrics = metrics;
+  }
+
   FileContext getLocalFileContext(Configuration conf) {
     try {
       return FileContext.getLocalFSFileContext(conf);
@@ -442,7 +451,8 @@ public class ResourceLocalizationService extends CompositeService
     LoadingCache<Path,Future<FileStatus>> statCache =
         CacheBuilder.newBuilder().build(FSDownload.createStatusCacheLoader(getConfig()));
     LocalizerContext ctxt = new LocalizerContext(
-        c.getUser(), c.getContainerId(), c.getCredentials(), statCache);
+        c.getUser(), c.getContainerId(), c.getCredentials(), statCache,
+        getLocalizationPriority(c));
     Map<LocalResourceVisibility, Collection<LocalResourceRequest>> rsrcs =
       rsrcReqs.getRequestedResources();
     for (Map.Entry<LocalResourceVisibility, Collection<LocalResourceRequest>> e :
@@ -457,6 +467,23 @@ public class ResourceLocalizationService extends CompositeService
     }
   }
 
+  /**
+   * The resources of the AM go first as no other container of the application
+   * can start before it, then the resources of the containers recovered after
+   * a restart of the NM, which were already running.
+   */
+  private static LocalizerContext.Priority getLocalizationPriority(
+      Container c) {
+    if ((c.getContainerId().getContainerId()
+        & ContainerId.CONTAINER_ID_BITMASK) == 1) {
+      return LocalizerContext.Priority.AM;
+    }
+    if (c.isRecovered()) {
+      return LocalizerContext.Priority.RECOVERED;
+    }
+    return LocalizerContext.Priority.NORMAL;
+  }
+
   /**
    * Once a container's resources are localized, kill the corresponding
    * {@link ContainerLocalizer}
@@ -628,6 +655,16 @@ public class ResourceLocalizationService extends CompositeService
     return localizerTracker.publicLocalizer;
   }
 
+  /**
+   * @return the scheduler of the public downloads, whose per filesystem
+   * slots the private downloads take too, or null if there is none
+   */
+  private DownloadScheduler getDownloadScheduler() {
+    PublicLocalizer publicLocalizer =
+        localizerTracker == null ? null : localizerTracker.publicLocalizer;
+    return publicLocalizer == null ? null : publicLocalizer.scheduler;
+  }
+
   @VisibleForTesting
   @Private
   public LocalizerRunner getLocalizerRunner(String locId) {
@@ -762,7 +799,7 @@ public class ResourceLocalizationService extends CompositeService
     final FileContext lfs;
     final Configuration conf;
     final ExecutorService threadPool;
-    final CompletionService<Path> queue;
+    final DownloadScheduler scheduler;
     // Its shared between public localizer and dispatcher thread.
     final Map<Future<Path>,LocalizerResourceRequestEvent> pending;
 
@@ -773,7 +810,11 @@ public class ResourceLocalizationService extends CompositeService
       this.pending = Collections.synchronizedMap(
           new HashMap<Future<Path>, LocalizerResourceRequestEvent>());
       this.threadPool = createLocalizerExecutor(conf);
-      this.queue = new ExecutorCompletionService<Path>(threadPool);
+      this.scheduler = new DownloadScheduler(threadPool,
+          conf.getInt(YarnConfiguration.NM_LOCALIZER_FETCH_THREAD_COUNT,
+              YarnConfiguration.DEFAULT_NM_LOCALIZER_FETCH_THREAD_COUNT),
+          conf.getInt(YarnConfiguration.NM_LOCALIZER_FETCH_PER_FILESYSTEM_MAX,
+              YarnConfiguration.DEFAULT_NM_LOCALIZER_FETCH_PER_FILESYSTEM_MAX));
     }
 
     public void addResource(LocalizerResourceRequestEvent request) {
@@ -812,8 +853,9 @@ public class ResourceLocalizationService extends CompositeService
             // explicitly synchronize pending here to avoid future task
             // completing and being dequeued before pending updated
             synchronized (pending) {
-              pending.put(queue.submit(new FSDownload(lfs, null, conf,
-                  publicDirDestPath, resource, request.getContext().getStatCache())),
+              pending.put(scheduler.submit(new FSDownload(lfs, null, conf,
+                  publicDirDestPath, resource, request.getContext().getStatCache()),
+                  key.getPath(), request.getContext().getPriority()),
                   request);
             }
           } catch (IOException e) {
@@ -848,7 +890,7 @@ public class ResourceLocalizationService extends CompositeService
         // TODO shutdown, better error handling esp. DU
         while (!Thread.currentThread().isInterrupted()) {
           try {
-            Future<Path> completed = queue.take();
+            Future<Path> completed = scheduler.take();
             LocalizerResourceRequestEvent assoc = pending.remove(completed);
             try {
               Path local = completed.get();
@@ -858,12 +900,16 @@ public class ResourceLocalizationService extends CompositeService
                 return;
               }
               LocalResourceRequest key = assoc.getResource().getRequest();
-              publicRsrc.handle(new ResourceLocalizedEvent(key, local, FileUtil
-                .getDU(new File(local.toUri()))));
+              long size = FileUtil.getDU(new File(local.toUri()));
+              downloaded(completed, key, size);
+              publicRsrc.handle(new ResourceLocalizedEvent(key, local, size));
               assoc.getResource().unlock();
             } catch (ExecutionException e) {
               LOG.info("Failed to download resource " + assoc.getResource(),
                   e.getCause());
+              if (metrics != null) {
+                metrics.failedLocalization();
+              }
               LocalResourceRequest req = assoc.getResource().getRequest();
               publicRsrc.handle(new ResourceFailedLocalizationEvent(req,
                   e.getMessage()));
@@ -883,6 +929,25 @@ public class ResourceLocalizationService extends CompositeService
       }
     }
 
+    private void downloaded(Future<Path> completed, LocalResourceRequest key,
+        long size) {
+      if (!(completed instanceof DownloadScheduler.Download)) {
+        return;
+      }
+      DownloadScheduler.Download download =
+          (DownloadScheduler.Download) completed;
+      if (LOG.isDebugEnabled()) {
+        LOG.debug("Downloaded public rsrc " + key + " (" + size
+            + " bytes) for a " + download.getPriority() + " container in "
+            + download.getDownloadTime() + " ms after waiting "
+            + download.getWaitTime() + " ms");
+      }
+      if (metrics != null) {
+        metrics.addLocalizationWaitTime(download.getWaitTime());
+        metrics.addLocalizationDownloadTime(download.getDownloadTime());
+      }
+    }
+
   }
 
   /**
@@ -895,9 +960,14 @@ public class ResourceLocalizationService extends CompositeService
     final LocalizerContext context;
     final String localizerId;
     final Map<LocalResourceRequest,LocalizerResourceRequestEvent> scheduled;
+    // when the resources were handed out, for the download time
+    private final Map<LocalResourceRequest,Long> scheduledTimes;
     // Its a shared list between Private Localizer and dispatcher thread.
     final List<LocalizerResourceRequestEvent> pending;
     private AtomicBoolean killContainerLocalizer = new AtomicBoolean(false);
+    // resources handed out at every heartbeat, which the container localizer
+    // downloads in parallel
+    private final int maxScheduled;
 
     // TODO: threadsafe, use outer?
     private final RecordFactory recordFactory =
@@ -912,6 +982,10 @@ public class ResourceLocalizationService extends CompositeService
             .synchronizedList(new ArrayList<LocalizerResourceRequestEvent>());
       this.scheduled =
           new HashMap<LocalResourceRequest, LocalizerResourceRequestEvent>();
+      this.scheduledTimes = new HashMap<LocalResourceRequest, Long>();
+      this.maxScheduled = Math.max(1, getConfig().getInt(
+          YarnConfiguration.NM_LOCALIZER_PRIVATE_FETCH_THREAD_COUNT,
+          YarnConfiguration.DEFAULT_NM_LOCALIZER_PRIVATE_FETCH_THREAD_COUNT));
     }
 
     public void addResource(LocalizerResourceRequestEvent request) {
@@ -928,6 +1002,7 @@ public class ResourceLocalizationService extends CompositeService
      * @return the next resource to be localized
      */
     private LocalResource findNextResource() {
+      DownloadScheduler downloads = getDownloadScheduler();
       synchronized (pending) {
         for (Iterator<LocalizerResourceRequestEvent> i = pending.iterator();
             i.hasNext();) {
@@ -948,6 +1023,12 @@ public class ResourceLocalizationService extends CompositeService
          if (nRsrc.tryAcquire()) {
            if (nRsrc.getState() == ResourceState.DOWNLOADING) {
              LocalResourceRequest nextRsrc = nRsrc.getRequest();
+             // leave it for a later heartbeat if its filesystem is busy
+             if (downloads != null
+                 && !downloads.tryAcquireSlot(nextRsrc.getPath())) {
+               nRsrc.unlock();
+               continue;
+             }
              LocalResource next =
                  recordFactory.newRecordInstance(LocalResource.class);
              next.setResource(ConverterUtils.getYarnUrlFromPath(nextRsrc
@@ -957,6 +1038,11 @@ public class ResourceLocalizationService extends CompositeService
              next.setVisibility(evt.getVisibility());
              next.setPattern(evt.getPattern());
              scheduled.put(nextRsrc, evt);
+             long now = Time.monotonicNow();
+             scheduledTimes.put(nextRsrc, now);
+             if (metrics != null) {
+               metrics.addLocalizationWaitTime(now - evt.getRequestTime());
+             }
              return next;
            } else {
              // Need to release acquired lock
@@ -1003,10 +1089,15 @@ public class ResourceLocalizationService extends CompositeService
                   .getPathFromYarnURL(stat.getLocalPath()), stat.getLocalSize()));
             } catch (URISyntaxException e) { }
 
+            Long scheduledTime = scheduledTimes.get(req);
+            if (metrics != null && scheduledTime != null) {
+              metrics.addLocalizationDownloadTime(
+                  Time.monotonicNow() - scheduledTime);
+            }
+
             // unlocking the resource and removing it from scheduled resource
             // list
-            assoc.getResource().unlock();
-            scheduled.remove(req);
+            unschedule(req, assoc);
             break;
           case FETCH_PENDING:
             break;
@@ -1017,11 +1108,13 @@ public class ResourceLocalizationService extends CompositeService
             getLocalResourcesTracker(req.getVisibility(), user, applicationId)
               .handle(new ResourceFailedLocalizationEvent(
                   req, diagnostics));
+            if (metrics != null) {
+              metrics.failedLocalization();
+            }
 
             // unlocking the resource and removing it from scheduled resource
             // list
-            assoc.getResource().unlock();
-            scheduled.remove(req);
+            unschedule(req, assoc);
             break;
           default:
             LOG.info("Unknown status: " + stat.getStatus());
@@ -1041,12 +1134,13 @@ public class ResourceLocalizationService extends CompositeService
       List<ResourceLocalizationSpec> rsrcs =
           new ArrayList<ResourceLocalizationSpec>();
 
-      /*
-       * TODO : It doesn't support multiple downloads per ContainerLocalizer
-       * at the same time. We need to think whether we should support this.
-       */
-      LocalResource next = findNextResource();
-      if (next != null) {
+      // The ContainerLocalizer downloads up to maxScheduled resources at a
+      // time, hand out as many at every heartbeat.
+      for (int i = 0; i < maxScheduled; i++) {
+        LocalResource next = findNextResource();
+        if (next == null) {
+          break;
+        }
         try {
           ResourceLocalizationSpec resource =
               NodeManagerBuilderUtils.newResourceLocalizationSpec(next,
@@ -1068,6 +1162,17 @@ public class ResourceLocalizationService extends CompositeService
       return response;
     }
 
+    private void unschedule(LocalResourceRequest req,
+        LocalizerResourceRequestEvent assoc) {
+      assoc.getResource().unlock();
+      scheduled.remove(req);
+      scheduledTimes.remove(req);
+      DownloadScheduler downloads = getDownloadScheduler();
+      if (downloads != null) {
+        downloads.releaseSlot(req.getPath());
+      }
+    }
+
     private Path getPathForLocalization(LocalResource rsrc) throws IOException,
         URISyntaxException {
       String user = context.getUser();
@@ -1134,8 +1239,12 @@ public class ResourceLocalizationService extends CompositeService
           dispatcher.getEventHandler().handle(new ContainerResourceFailedEvent(
               cId, null, exception.getMessage()));
         }
+        DownloadScheduler downloads = getDownloadScheduler();
         for (LocalizerResourceRequestEvent event : scheduled.values()) {
           event.getResource().unlock();
+          if (downloads != null) {
+            downloads.releaseSlot(event.getResource().getRequest().getPath());
+          }
         }
         delService.delete(null, nmPrivateCTokensPath, new Path[] {});
       }
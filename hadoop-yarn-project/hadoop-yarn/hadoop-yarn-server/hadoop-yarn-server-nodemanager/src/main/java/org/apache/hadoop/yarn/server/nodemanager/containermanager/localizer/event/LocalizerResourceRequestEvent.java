@@ -17,6 +17,7 @@
 */
 package org.apache.hadoop.yarn.server.nodemanager.containermanager.localizer.event;
 
+import org.apache.hadoop.util.Time;
 import org.apache.hadoop.yarn.api.records.LocalResourceVisibility;
 import org.apache.hadoop.yarn.server.nodemanager.containermanager.localizer.LocalizedResource;
 import org.apache.hadoop.yarn.server.nodemanager.containermanager.localizer.LocalizerContext;
@@ -33,6 +34,7 @@ public class LocalizerResourceRequestEvent extends LocalizerEvent {
   private final LocalizedResource resource;
   private final LocalResourceVisibility vis;
   private final String pattern;
+  private final long requestTime;
 
   public LocalizerResourceRequestEvent(LocalizedResource resource,
       LocalResourceVisibility vis, LocalizerContext context, String pattern) {
@@ -42,6 +44,7 @@ public class LocalizerResourceRequestEvent extends LocalizerEvent {
     this.context = context;
     this.resource = resource;
     this.pattern = pattern;
+    this.requestTime = Time.monotonicNow();
   }
 
   public LocalizedResource getResource() {
@@ -60,4 +63,11 @@ public class LocalizerResourceRequestEvent extends LocalizerEvent {
     return pattern;
   }
 
+  /**
+   * @return monotonic time in ms when the resource was requested
+   */
+  public long getRequestTime() {
+    return requestTime;
+  }
+
 }
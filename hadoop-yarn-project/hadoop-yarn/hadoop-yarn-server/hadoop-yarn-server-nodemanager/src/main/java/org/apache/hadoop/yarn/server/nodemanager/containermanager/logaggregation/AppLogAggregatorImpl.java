@@ -31,6 +31,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.commons.logging.Log;
@@ -116,6 +117,10 @@ public class AppLogAggregatorImpl implements AppLogAggregator {
   private final int retentionSize;
   private final long rollingMonitorInterval;
   private final boolean logAggregationInRolling;
+  // upload only what the logs grew since the previous upload
+  private final boolean incremental;
+  // permits shared by the applications to upload logs, null for no limit
+  private final Semaphore uploadPermits;
   private final NodeId nodeId;
   // This variable is only for testing
   private final AtomicBoolean waiting = new AtomicBoolean(false);
@@ -131,6 +136,19 @@ public class AppLogAggregatorImpl implements AppLogAggregator {
       Map<ApplicationAccessType, String> appAcls,
       LogAggregationContext logAggregationContext, Context context,
       FileContext lfs) {
+    this(dispatcher, deletionService, conf, appId, userUgi, nodeId,
+        dirsHandler, remoteNodeLogFileForApp, retentionPolicy, appAcls,
+        logAggregationContext, context, lfs, null);
+  }
+
+  public AppLogAggregatorImpl(Dispatcher dispatcher,
+      DeletionService deletionService, Configuration conf,
+      ApplicationId appId, UserGroupInformation userUgi, NodeId nodeId,
+      LocalDirsHandlerService dirsHandler, Path remoteNodeLogFileForApp,
+      ContainerLogsRetentionPolicy retentionPolicy,
+      Map<ApplicationAccessType, String> appAcls,
+      LogAggregationContext logAggregationContext, Context context,
+      FileContext lfs, Semaphore uploadPermits) {
     this.dispatcher = dispatcher;
     this.conf = conf;
     this.delService = deletionService;
@@ -147,6 +165,10 @@ public class AppLogAggregatorImpl implements AppLogAggregator {
     this.logAggregationContext = logAggregationContext;
     this.context = context;
     this.nodeId = nodeId;
+    this.uploadPermits = uploadPermits;
+    this.incremental = conf.getBoolean(
+        YarnConfiguration.NM_LOG_AGG_INCREMENTAL_ENABLED,
+        YarnConfiguration.DEFAULT_NM_LOG_AGG_INCREMENTAL_ENABLED);
     int configuredRentionSize =
         conf.getInt(NM_LOG_AGGREGATION_NUM_LOG_FILES_SIZE_PER_APP,
             DEFAULT_NM_LOG_AGGREGATION_NUM_LOG_FILES_SIZE_PER_APP);
@@ -193,11 +215,13 @@ public class AppLogAggregatorImpl implements AppLogAggregator {
       }
       this.rollingMonitorInterval = configuredRollingMonitorInterval;
     }
-    this.logAggregationInRolling =
-        this.rollingMonitorInterval <= 0 || this.logAggregationContext == null
-            || this.logAggregationContext.getRolledLogsIncludePattern() == null
-            || this.logAggregationContext.getRolledLogsIncludePattern()
-              .isEmpty() ? false : true;
+    // The incremental uploads roll all the logs, the others only the rolled
+    // logs the application asked for.
+    this.logAggregationInRolling = this.rollingMonitorInterval > 0
+        && (this.incremental || (this.logAggregationContext != null
+            && this.logAggregationContext.getRolledLogsIncludePattern() != null
+            && !this.logAggregationContext.getRolledLogsIncludePattern()
+              .isEmpty()));
   }
 
   private void uploadLogsForContainers(boolean appFinished) {
@@ -205,6 +229,21 @@ public class AppLogAggregatorImpl implements AppLogAggregator {
       return;
     }
 
+    // Spread the uploads of the applications rolling at the same time.
+    if (this.uploadPermits != null) {
+      this.uploadPermits.acquireUninterruptibly();
+    }
+    try {
+      doUploadLogsForContainers(appFinished);
+    } finally {
+      if (this.uploadPermits != null) {
+        this.uploadPermits.release();
+      }
+    }
+  }
+
+  private void doUploadLogsForContainers(boolean appFinished) {
+
     if (UserGroupInformation.isSecurityEnabled()) {
       Credentials systemCredentials =
           context.getSystemCredentialsForApps().get(appId);
@@ -267,7 +306,8 @@ public class AppLogAggregatorImpl implements AppLogAggregator {
           containerLogAggregators.put(container, aggregator);
         }
         Set<Path> uploadedFilePathsInThisCycle =
-            aggregator.doContainerLogAggregation(writer, appFinished);
+            aggregator.doContainerLogAggregation(writer, appFinished,
+              finishedContainers.contains(container));
         if (uploadedFilePathsInThisCycle.size() > 0) {
           uploadedLogsInThisCycle = true;
         }
@@ -284,11 +324,22 @@ public class AppLogAggregatorImpl implements AppLogAggregator {
 
       // Before upload logs, make sure the number of existing logs
       // is smaller than the configured NM log aggregation retention size.
-      if (uploadedLogsInThisCycle) {
+      // The incremental uploads are all kept: each of them only holds what
+      // the logs grew in its cycle, deleting the oldest would lose the
+      // beginning of the logs of the containers still running.
+      if (uploadedLogsInThisCycle && !this.incremental) {
         cleanOldLogs();
       }
 
       if (writer != null) {
+        if (this.incremental) {
+          try {
+            writer.writeContainerIndex();
+          } catch (IOException e) {
+            LOG.warn("Cannot write the container index of the logs of app "
+                + this.applicationId, e);
+          }
+        }
         writer.close();
       }
 
@@ -545,13 +596,21 @@ public class AppLogAggregatorImpl implements AppLogAggregator {
     private final ContainerId containerId;
     private Set<String> uploadedFileMeta =
         new HashSet<String>();
+    // bytes of the logs uploaded so far, by path, when uploading incrementally
+    private final Map<String, Long> uploadedOffsets;
     
     public ContainerLogAggregator(ContainerId containerId) {
       this.containerId = containerId;
+      this.uploadedOffsets = incremental ? new HashMap<String, Long>() : null;
     }
 
+    /**
+     * @return the logs to delete: those uploaded in this cycle, or when
+     * uploading incrementally, all the logs uploaded once the container is
+     * finished, as a running container may still append to them
+     */
     public Set<Path> doContainerLogAggregation(LogWriter writer,
-        boolean appFinished) {
+        boolean appFinished, boolean containerFinished) {
       LOG.info("Uploading logs for container " + containerId
           + ". Current good log dirs are "
           + StringUtils.join(",", dirsHandler.getLogDirsForRead()));
@@ -559,7 +618,10 @@ public class AppLogAggregatorImpl implements AppLogAggregator {
       final LogValue logValue =
           new LogValue(dirsHandler.getLogDirsForRead(), containerId,
             userUgi.getShortUserName(), logAggregationContext,
-            this.uploadedFileMeta, appFinished);
+            // the offsets tell the logs which grew, whatever their mtime
+            this.uploadedOffsets == null ? this.uploadedFileMeta
+                : new HashSet<String>(),
+            appFinished, this.uploadedOffsets);
       try {
         writer.append(logKey, logValue);
       } catch (Exception e) {
@@ -580,7 +642,16 @@ public class AppLogAggregatorImpl implements AppLogAggregator {
           });
 
       this.uploadedFileMeta = Sets.newHashSet(mask);
-      return logValue.getCurrentUpLoadedFilesPath();
+      if (this.uploadedOffsets == null) {
+        return logValue.getCurrentUpLoadedFilesPath();
+      }
+      Set<Path> uploadedPaths = new HashSet<Path>();
+      if (containerFinished || appFinished) {
+        for (String uploaded : this.uploadedOffsets.keySet()) {
+          uploadedPaths.add(new Path(uploaded));
+        }
+      }
+      return uploadedPaths;
     }
   }
 
@@ -26,6 +26,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.logging.Log;
@@ -101,6 +102,8 @@ public class LogAggregationService extends AbstractService implements
   private final ConcurrentMap<ApplicationId, AppLogAggregator> appLogAggregators;
 
   private final ExecutorService threadPool;
+  // limits the applications uploading logs at a time, null for no limit
+  private Semaphore uploadPermits;
   
   public LogAggregationService(Dispatcher dispatcher, Context context,
       DeletionService deletionService, LocalDirsHandlerService dirsHandler) {
@@ -124,6 +127,12 @@ public class LogAggregationService extends AbstractService implements
     this.remoteRootLogDirSuffix =
         conf.get(YarnConfiguration.NM_REMOTE_APP_LOG_DIR_SUFFIX,
             YarnConfiguration.DEFAULT_NM_REMOTE_APP_LOG_DIR_SUFFIX);
+    int maxConcurrentUploads =
+        conf.getInt(YarnConfiguration.NM_LOG_AGG_MAX_CONCURRENT_UPLOADS,
+            YarnConfiguration.DEFAULT_NM_LOG_AGG_MAX_CONCURRENT_UPLOADS);
+    if (maxConcurrentUploads > 0) {
+      this.uploadPermits = new Semaphore(maxConcurrentUploads, true);
+    }
 
     super.serviceInit(conf);
   }
@@ -356,7 +365,7 @@ public class LogAggregationService extends AbstractService implements
             getConfig(), appId, userUgi, this.nodeId, dirsHandler,
             getRemoteNodeLogFileForApp(appId, user), logRetentionPolicy,
             appAcls, logAggregationContext, this.context,
-            getLocalFileContext(getConfig()));
+            getLocalFileContext(getConfig()), this.uploadPermits);
     if (this.appLogAggregators.putIfAbsent(appId, appLogAggregator) != null) {
       throw new YarnRuntimeException("Duplicate initApp for " + appId);
     }
@@ -0,0 +1,171 @@
+/**
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package org.apache.hadoop.yarn.server.nodemanager.containermanager.monitor;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.yarn.api.records.ContainerId;
+import org.apache.hadoop.yarn.conf.YarnConfiguration;
+import org.apache.hadoop.yarn.server.utils.ContainerCgroups;
+import org.apache.hadoop.yarn.util.ResourceCalculatorProcessTree;
+
+import com.google.common.annotations.VisibleForTesting;
+
+/**
+ * Reads the physical memory and cpu usage of the containers confined in a
+ * cgroup from the counters of their memory and cpuacct cgroups, which the
+ * kernel keeps up to date, rather than summing them over the processes of the
+ * containers. The cgroup of a container is looked up where the cgroups
+ * container resizer finds it, either by the container id or by the docker id
+ * of the container.
+ * <p>
+ * The memory is the rss of the cgroup. Pages shared by the processes of a
+ * container, after a fork for instance, are counted once.
+ * <p>
+ * This class is not thread-safe, it is used by the monitoring thread only.
+ */
+public class ContainerCgroupsUsage {
+
+	private static final Log LOG =
+		LogFactory.getLog(ContainerCgroupsUsage.class);
+
+	static final String CONTROLLER_MEMORY = ContainerCgroups.CONTROLLER_MEMORY;
+	static final String CONTROLLER_CPUACCT = "cpuacct";
+	static final String MEMORY_STAT = "memory.stat";
+	static final String CPUACCT_USAGE = "cpuacct.usage";
+
+	/**
+	 * Usage of a container as of its last sample.
+	 */
+	public static class Usage {
+		private final long rssMemorySize;
+		private final float cpuUsagePercent;
+		private final long cpuTimeNs;
+		private final long time;
+
+		Usage(long rssMemorySize, float cpuUsagePercent, long cpuTimeNs,
+			long time) {
+			this.rssMemorySize = rssMemorySize;
+			this.cpuUsagePercent = cpuUsagePercent;
+			this.cpuTimeNs = cpuTimeNs;
+			this.time = time;
+		}
+
+		/**
+		 * @return rss of the cgroup in bytes
+		 */
+		public long getRssMemorySize() {
+			return rssMemorySize;
+		}
+
+		/**
+		 * @return cpu usage since the previous sample, 200 if two cores were
+		 * used, {@link ResourceCalculatorProcessTree#UNAVAILABLE} at the first
+		 * sample
+		 */
+		public float getCpuUsagePercent() {
+			return cpuUsagePercent;
+		}
+	}
+
+	private final ContainerCgroups cgroups;
+	private final Map<ContainerId, Usage> lastUsages =
+		new HashMap<ContainerId, Usage>();
+
+	public ContainerCgroupsUsage(Configuration conf) {
+		this(new ContainerCgroups(
+			conf.get(YarnConfiguration.NM_CONTAINER_RESIZER_CGROUPS_ROOT,
+				YarnConfiguration.DEFAULT_NM_CONTAINER_RESIZER_CGROUPS_ROOT),
+			conf.get(YarnConfiguration.NM_CONTAINER_RESIZER_CGROUPS_PARENT,
+				YarnConfiguration.DEFAULT_NM_CONTAINER_RESIZER_CGROUPS_PARENT),
+			conf.get(YarnConfiguration.NM_DOCKER_CONTAINER_EXECUTOR_EXEC_NAME,
+				YarnConfiguration.NM_DEFAULT_DOCKER_CONTAINER_EXECUTOR_EXEC_NAME),
+			true));
+	}
+
+	@VisibleForTesting
+	ContainerCgroupsUsage(ContainerCgroups cgroups) {
+		this.cgroups = cgroups;
+	}
+
+	/**
+	 * Sample the usage of a running container.
+	 *
+	 * @param containerId the container
+	 * @param now current time in ms
+	 * @return the usage of the container, null if it is not confined in a
+	 * cgroup or its counters cannot be read
+	 */
+	public Usage sample(ContainerId containerId, long now) {
+		String cgroupName = cgroups.getCgroupName(containerId);
+		if (cgroupName == null) {
+			return null;
+		}
+		try {
+			long rss = readRss(cgroupName);
+			long cpuTimeNs = cgroups.readValue(CONTROLLER_CPUACCT, cgroupName,
+				CPUACCT_USAGE);
+			float cpuUsagePercent = ResourceCalculatorProcessTree.UNAVAILABLE;
+			Usage last = lastUsages.get(containerId);
+			if (last != null && now > last.time) {
+				// ns of cpu per ms, over 1e6 ns per ms, in percent
+				cpuUsagePercent = (cpuTimeNs - last.cpuTimeNs) * 100f
+					/ ((now - last.time) * 1000000f);
+			}
+			Usage usage = new Usage(rss, cpuUsagePercent, cpuTimeNs, now);
+			lastUsages.put(containerId, usage);
+			return usage;
+		} catch (IOException e) {
+			LOG.warn("Unable to read the cgroups of " + containerId
+				+ ", its usage is computed from its processes", e);
+			return null;
+		}
+	}
+
+	/**
+	 * Forget a container which is not monitored anymore.
+	 */
+	public void remove(ContainerId containerId) {
+		cgroups.release(containerId);
+		lastUsages.remove(containerId);
+	}
+
+	/**
+	 * @return the hierarchical rss of the cgroup if the kernel has it, the rss
+	 * of the cgroup itself otherwise
+	 */
+	private long readRss(String cgroupName) throws IOException {
+		Map<String, Long> stat =
+			cgroups.readStat(CONTROLLER_MEMORY, cgroupName, MEMORY_STAT);
+		Long rss = stat.get("total_rss");
+		if (rss == null) {
+			rss = stat.get("rss");
+		}
+		if (rss == null) {
+			throw new IOException("No rss in " + MEMORY_STAT + " for cgroup "
+				+ cgroupName);
+		}
+		return rss;
+	}
+}
@@ -0,0 +1,235 @@
+/**
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package org.apache.hadoop.yarn.server.nodemanager.containermanager.monitor;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.yarn.api.records.ContainerId;
+import org.apache.hadoop.yarn.conf.YarnConfiguration;
+import org.apache.hadoop.yarn.server.api.protocolrecords.ContainerMemoryPressure;
+import org.apache.hadoop.yarn.server.utils.ContainerCgroups;
+
+import com.google.common.annotations.VisibleForTesting;
+
+/**
+ * Samples the memory cgroup of the running containers and turns their memory
+ * usage, swap and major page fault rate into a pressure score reported to the
+ * RM in the node heartbeat. The cgroup of a container is looked up where the
+ * cgroups container resizer finds it, either by the container id or by the
+ * docker id of the container.
+ * <p>
+ * The score adds three parts, each one growing linearly between a low and a
+ * high mark:
+ * <ul>
+ *   <li>the working set, from 80% to 120% of the allocation, up to 50</li>
+ *   <li>the swap, from nothing to 10% of the allocation, up to 25</li>
+ *   <li>the major faults per second, from none to the configured rate, up
+ *   to 25</li>
+ * </ul>
+ */
+public class ContainerMemoryPressureMonitor {
+
+	private static final Log LOG =
+		LogFactory.getLog(ContainerMemoryPressureMonitor.class);
+
+	static final String CONTROLLER_MEMORY = ContainerCgroups.CONTROLLER_MEMORY;
+	static final String MEMORY_USAGE_IN_BYTES = "memory.usage_in_bytes";
+	static final String MEMORY_STAT = "memory.stat";
+
+	static final float USAGE_LOW = 0.8f;
+	static final float USAGE_HIGH = 1.2f;
+	static final float SWAP_HIGH = 0.1f;
+	static final int USAGE_WEIGHT = 50;
+	static final int SWAP_WEIGHT = 25;
+	static final int FAULT_WEIGHT = 25;
+	static final int RELIEF_REPORTS = 3;
+
+	private static class Sample {
+		final long time;
+		final long majorFaults;
+
+		Sample(long time, long majorFaults) {
+			this.time = time;
+			this.majorFaults = majorFaults;
+		}
+	}
+
+	private final ContainerCgroups cgroups;
+	private final float majorFaultRateHigh;
+
+	private final Map<ContainerId, Sample> lastSamples =
+		new HashMap<ContainerId, Sample>();
+	// containers under pressure or recently relieved -> their last sample
+	private final Map<ContainerId, ContainerMemoryPressure> pressures =
+		new HashMap<ContainerId, ContainerMemoryPressure>();
+	// containers no longer under pressure -> heartbeats left to report it,
+	// more than one in case a heartbeat is lost
+	private final Map<ContainerId, Integer> relieved =
+		new HashMap<ContainerId, Integer>();
+
+	public ContainerMemoryPressureMonitor(Configuration conf) {
+		this(conf, new ContainerCgroups(
+			conf.get(YarnConfiguration.NM_CONTAINER_RESIZER_CGROUPS_ROOT,
+				YarnConfiguration.DEFAULT_NM_CONTAINER_RESIZER_CGROUPS_ROOT),
+			conf.get(YarnConfiguration.NM_CONTAINER_RESIZER_CGROUPS_PARENT,
+				YarnConfiguration.DEFAULT_NM_CONTAINER_RESIZER_CGROUPS_PARENT),
+			conf.get(YarnConfiguration.NM_DOCKER_CONTAINER_EXECUTOR_EXEC_NAME,
+				YarnConfiguration.NM_DEFAULT_DOCKER_CONTAINER_EXECUTOR_EXEC_NAME),
+			true));
+	}
+
+	@VisibleForTesting
+	ContainerMemoryPressureMonitor(Configuration conf, ContainerCgroups cgroups) {
+		this.cgroups = cgroups;
+		this.majorFaultRateHigh = Math.max(1, conf.getFloat(
+			YarnConfiguration.NM_MEMORY_PRESSURE_MONITOR_MAJOR_FAULT_RATE,
+			YarnConfiguration.DEFAULT_NM_MEMORY_PRESSURE_MONITOR_MAJOR_FAULT_RATE));
+	}
+
+	/**
+	 * Sample the running containers. Containers not in the map anymore are
+	 * forgotten.
+	 *
+	 * @param allocatedMemory allocated memory in bytes of the running containers
+	 * @param now current time in ms
+	 */
+	public synchronized void sample(Map<ContainerId, Long> allocatedMemory,
+	                                long now) {
+		cgroups.retain(allocatedMemory.keySet());
+		for (Iterator<ContainerId> i = lastSamples.keySet().iterator();
+		     i.hasNext(); ) {
+			ContainerId containerId = i.next();
+			if (!allocatedMemory.containsKey(containerId)) {
+				i.remove();
+				pressures.remove(containerId);
+				relieved.remove(containerId);
+			}
+		}
+
+		for (Map.Entry<ContainerId, Long> entry : allocatedMemory.entrySet()) {
+			ContainerId containerId = entry.getKey();
+			String cgroupName = cgroups.getCgroupName(containerId);
+			if (cgroupName == null) {
+				continue;
+			}
+			try {
+				sample(containerId, cgroupName, entry.getValue(), now);
+			} catch (IOException e) {
+				LOG.warn("Unable to sample the memory of container " + containerId, e);
+			}
+		}
+	}
+
+	private void sample(ContainerId containerId, String cgroupName,
+	                    long allocated, long now) throws IOException {
+		Map<String, Long> stat =
+			cgroups.readStat(CONTROLLER_MEMORY, cgroupName, MEMORY_STAT);
+		long usage = cgroups.readValue(CONTROLLER_MEMORY, cgroupName,
+			MEMORY_USAGE_IN_BYTES);
+		// the inactive page cache can be reclaimed without hurting anyone
+		long workingSet = Math.max(0, usage - getStat(stat, "inactive_file"));
+		long swap = getStat(stat, "swap");
+		long majorFaults = getStat(stat, "pgmajfault");
+
+		float majorFaultRate = 0;
+		Sample last = lastSamples.get(containerId);
+		if (last != null && now > last.time && majorFaults >= last.majorFaults) {
+			majorFaultRate =
+				(majorFaults - last.majorFaults) * 1000f / (now - last.time);
+		}
+		lastSamples.put(containerId, new Sample(now, majorFaults));
+
+		int score = computeScore(workingSet, allocated, swap, majorFaultRate,
+			majorFaultRateHigh);
+		ContainerMemoryPressure pressure = ContainerMemoryPressure.newInstance(
+			containerId, score, (int) (workingSet >> 20), (int) (swap >> 20),
+			(int) majorFaultRate);
+		if (score > 0) {
+			if (LOG.isDebugEnabled()) {
+				LOG.debug("Memory pressure of " + containerId + ": " + score);
+			}
+			pressures.put(containerId, pressure);
+			relieved.remove(containerId);
+		} else if (relieved.containsKey(containerId)) {
+			// the relief reports carry the usage the RM may shrink the container to
+			pressures.put(containerId, pressure);
+		} else if (pressures.containsKey(containerId)) {
+			pressures.put(containerId, pressure);
+			relieved.put(containerId, RELIEF_REPORTS);
+		}
+	}
+
+	/**
+	 * @return the pressure of the containers under pressure, and the last
+	 * sample, with a zero score, of each container recently relieved
+	 */
+	public synchronized List<ContainerMemoryPressure> pullPressures() {
+		List<ContainerMemoryPressure> result =
+			new ArrayList<ContainerMemoryPressure>(pressures.values());
+		for (Iterator<Map.Entry<ContainerId, Integer>> i =
+			     relieved.entrySet().iterator(); i.hasNext(); ) {
+			Map.Entry<ContainerId, Integer> entry = i.next();
+			if (entry.getValue() <= 1) {
+				i.remove();
+				pressures.remove(entry.getKey());
+			} else {
+				entry.setValue(entry.getValue() - 1);
+			}
+		}
+		return result;
+	}
+
+	@VisibleForTesting
+	static int computeScore(long workingSet, long allocated, long swap,
+	                        float majorFaultRate, float majorFaultRateHigh) {
+		float score = 0;
+		if (allocated > 0) {
+			float usage = (float) workingSet / allocated;
+			score += USAGE_WEIGHT
+				* clamp((usage - USAGE_LOW) / (USAGE_HIGH - USAGE_LOW));
+			score += SWAP_WEIGHT * clamp(swap / (SWAP_HIGH * allocated));
+		}
+		score += FAULT_WEIGHT * clamp(majorFaultRate / majorFaultRateHigh);
+		return Math.min(ContainerMemoryPressure.MAX_SCORE, Math.round(score));
+	}
+
+	private static float clamp(float value) {
+		return Math.max(0, Math.min(1, value));
+	}
+
+	/**
+	 * @return the hierarchical counter if the kernel has it, the counter of the
+	 * cgroup itself otherwise, 0 if neither is there
+	 */
+	private static long getStat(Map<String, Long> stat, String key) {
+		Long value = stat.get("total_" + key);
+		if (value == null) {
+			value = stat.get(key);
+		}
+		return value == null ? 0 : value;
+	}
+}
@@ -27,6 +27,7 @@ import org.apache.hadoop.metrics2.annotation.Metric;
 import org.apache.hadoop.metrics2.annotation.Metrics;
 import org.apache.hadoop.metrics2.lib.DefaultMetricsSystem;
 import org.apache.hadoop.metrics2.lib.MetricsRegistry;
+import org.apache.hadoop.metrics2.lib.MutableCounterInt;
 import org.apache.hadoop.metrics2.lib.MutableGaugeInt;
 import org.apache.hadoop.metrics2.lib.MutableStat;
 import org.apache.hadoop.yarn.api.records.ContainerId;
@@ -47,6 +48,8 @@ public class ContainerMetrics implements MetricsSource {
   public static final String VCORE_LIMIT_METRIC_NAME = "vCoreLimit";
   public static final String PMEM_USAGE_METRIC_NAME = "pMemUsageMBs";
   private static final String PHY_CPU_USAGE_METRIC_NAME = "pCpuUsagePercent";
+  public static final String MEMORY_SHRINK_METRIC_NAME = "memoryShrinkMs";
+  public static final String SHRINK_OOM_KILLS_METRIC_NAME = "shrinkOomKills";
 
   // Use a multiplier of 1000 to avoid losing too much precision when
   // converting to integers
@@ -74,6 +77,12 @@ public class ContainerMetrics implements MetricsSource {
   @Metric
   public MutableGaugeInt cpuVcoreLimit;
 
+  @Metric
+  public MutableStat memoryShrinkMsStat;
+
+  @Metric
+  public MutableCounterInt shrinkOomKills;
+
   static final MetricsInfo RECORD_INFO =
       info("ContainerResource", "Resource limit and usage by container");
 
@@ -122,6 +131,11 @@ public class ContainerMetrics implements MetricsSource {
         VMEM_LIMIT_METRIC_NAME, "Virtual memory limit in MBs", 0);
     this.cpuVcoreLimit = registry.newGauge(
         VCORE_LIMIT_METRIC_NAME, "CPU limit in number of vcores", 0);
+    this.memoryShrinkMsStat = registry.newStat(
+        MEMORY_SHRINK_METRIC_NAME, "Time to shrink the memory limit", "Shrink",
+        "Ms", true);
+    this.shrinkOomKills = registry.newCounter(
+        SHRINK_OOM_KILLS_METRIC_NAME, "Processes OOM killed while shrinking", 0);
   }
 
   ContainerMetrics tag(MetricsInfo info, ContainerId containerId) {
@@ -203,6 +217,15 @@ public class ContainerMetrics implements MetricsSource {
     }
   }
 
+  public void recordMemoryShrink(long durationMs, int oomKills) {
+    if (durationMs >= 0) {
+      this.memoryShrinkMsStat.add(durationMs);
+    }
+    if (oomKills > 0) {
+      this.shrinkOomKills.incr(oomKills);
+    }
+  }
+
   public void recordProcessId(String processId) {
     registry.tag(PROCESSID_INFO, processId);
   }
@@ -18,11 +18,26 @@
 
 package org.apache.hadoop.yarn.server.nodemanager.containermanager.monitor;
 
+import java.util.List;
+
 import org.apache.hadoop.service.Service;
+import org.apache.hadoop.yarn.api.records.ContainerId;
 import org.apache.hadoop.yarn.event.EventHandler;
+import org.apache.hadoop.yarn.server.api.protocolrecords.ContainerMemoryPressure;
 import org.apache.hadoop.yarn.server.nodemanager.ResourceView;
 
 public interface ContainersMonitor extends Service,
     EventHandler<ContainersMonitorEvent>, ResourceView {
 
+  /**
+   * @return the resident memory in bytes of the process tree of the container
+   * as of the last monitoring round, or -1 if it is not known
+   */
+  long getRssMemorySize(ContainerId containerId);
+
+  /**
+   * @return the memory pressure to report in the next node heartbeat, empty if
+   * the memory pressure is not monitored
+   */
+  List<ContainerMemoryPressure> getContainerMemoryPressures();
 }
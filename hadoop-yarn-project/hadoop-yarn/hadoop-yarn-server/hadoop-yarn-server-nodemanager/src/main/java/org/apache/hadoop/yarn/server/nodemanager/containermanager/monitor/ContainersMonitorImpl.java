@@ -19,26 +19,35 @@
 package org.apache.hadoop.yarn.server.nodemanager.containermanager.monitor;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.service.AbstractService;
 import org.apache.hadoop.util.StringUtils.TraditionalBinaryPrefix;
+import org.apache.hadoop.util.Time;
 import org.apache.hadoop.yarn.api.records.ContainerExitStatus;
 import org.apache.hadoop.yarn.api.records.ContainerId;
 import org.apache.hadoop.yarn.conf.YarnConfiguration;
 import org.apache.hadoop.yarn.event.AsyncDispatcher;
 import org.apache.hadoop.yarn.event.Dispatcher;
+import org.apache.hadoop.yarn.server.api.protocolrecords.ContainerMemoryPressure;
 import org.apache.hadoop.yarn.server.nodemanager.ContainerExecutor;
 import org.apache.hadoop.yarn.server.nodemanager.Context;
+import org.apache.hadoop.yarn.server.nodemanager.containermanager.container.Container;
 import org.apache.hadoop.yarn.server.nodemanager.containermanager.container.ContainerKillEvent;
+import org.apache.hadoop.yarn.server.nodemanager.containermanager.container.ContainerState;
 import org.apache.hadoop.yarn.server.nodemanager.util.NodeManagerHardwareUtils;
+import org.apache.hadoop.yarn.util.ProcfsBasedProcessTree;
+import org.apache.hadoop.yarn.util.ProcfsSnapshot;
 import org.apache.hadoop.yarn.util.ResourceCalculatorProcessTree;
 import org.apache.hadoop.yarn.util.ResourceCalculatorPlugin;
 
@@ -55,11 +64,26 @@ public class ContainersMonitorImpl extends AbstractService implements
 	private boolean containerMetricsEnabled;
 	private long containerMetricsPeriodMs;
 
+	// null if the memory pressure of the containers is not monitored
+	private ContainerMemoryPressureMonitor memoryPressureMonitor;
+	private MemoryPressureThread memoryPressureThread;
+	private long memoryPressureInterval;
+
+	// null if every procfs process tree scans procfs itself
+	private ProcfsSnapshot procfsSnapshot;
+	// null if the usage of the containers is not read from their cgroups
+	private ContainerCgroupsUsage cgroupsUsage;
+
 	final List<ContainerId> containersToBeRemoved;
 	final Map<ContainerId, ProcessTreeInfo> containersToBeAdded;
 	Map<ContainerId, ProcessTreeInfo> trackingContainers =
 		new HashMap<ContainerId, ProcessTreeInfo>();
 
+	// rss of the tracked containers as of the last monitoring round, read by
+	// the containers updater
+	private final ConcurrentMap<ContainerId, Long> containersRssUsage =
+		new ConcurrentHashMap<ContainerId, Long>();
+
 	final ContainerExecutor containerExecutor;
 	private final Dispatcher eventDispatcher;
 	private final Context context;
@@ -109,6 +133,19 @@ public class ContainersMonitorImpl extends AbstractService implements
 		this.conf = conf;
 		LOG.info(" Using ResourceCalculatorProcessTree : "
 			+ this.processTreeClass);
+		if (conf.getBoolean(
+			YarnConfiguration.NM_CONTAINER_MON_PROCFS_SNAPSHOT_ENABLED,
+			YarnConfiguration.DEFAULT_NM_CONTAINER_MON_PROCFS_SNAPSHOT_ENABLED)
+			&& ProcfsBasedProcessTree.isAvailable()) {
+			this.procfsSnapshot = new ProcfsSnapshot();
+			LOG.info("Procfs process trees built from a shared snapshot");
+		}
+		if (conf.getBoolean(
+			YarnConfiguration.NM_CONTAINER_MON_CGROUPS_USAGE_ENABLED,
+			YarnConfiguration.DEFAULT_NM_CONTAINER_MON_CGROUPS_USAGE_ENABLED)) {
+			this.cgroupsUsage = new ContainerCgroupsUsage(conf);
+			LOG.info("Usage of the containers read from their cgroups");
+		}
 
 		this.containerMetricsEnabled =
 			conf.getBoolean(YarnConfiguration.NM_CONTAINER_METRICS_ENABLE,
@@ -174,6 +211,17 @@ public class ContainersMonitorImpl extends AbstractService implements
 					1) + "). Thrashing might happen.");
 			}
 		}
+
+		if (conf.getBoolean(YarnConfiguration.NM_MEMORY_PRESSURE_MONITOR_ENABLED,
+			YarnConfiguration.DEFAULT_NM_MEMORY_PRESSURE_MONITOR_ENABLED)) {
+			this.memoryPressureInterval = conf.getLong(
+				YarnConfiguration.NM_MEMORY_PRESSURE_MONITOR_INTERVAL_MS,
+				YarnConfiguration.DEFAULT_NM_MEMORY_PRESSURE_MONITOR_INTERVAL_MS);
+			this.memoryPressureMonitor = new ContainerMemoryPressureMonitor(conf);
+			this.memoryPressureThread = new MemoryPressureThread();
+			LOG.info("Memory pressure of the containers sampled every "
+				+ memoryPressureInterval + " ms");
+		}
 		super.serviceInit(conf);
 	}
 
@@ -202,6 +250,9 @@ public class ContainersMonitorImpl extends AbstractService implements
 		if (this.isEnabled()) {
 			this.monitoringThread.start();
 		}
+		if (memoryPressureThread != null) {
+			memoryPressureThread.start();
+		}
 		super.serviceStart();
 	}
 
@@ -215,6 +266,14 @@ public class ContainersMonitorImpl extends AbstractService implements
 				;
 			}
 		}
+		if (memoryPressureThread != null) {
+			memoryPressureThread.interrupt();
+			try {
+				memoryPressureThread.join();
+			} catch (InterruptedException e) {
+				;
+			}
+		}
 		super.serviceStop();
 	}
 
@@ -382,11 +441,24 @@ public class ContainersMonitorImpl extends AbstractService implements
 								containerId, containerMetricsPeriodMs).finished();
 						}
 						trackingContainers.remove(containerId);
+						containersRssUsage.remove(containerId);
+						if (cgroupsUsage != null) {
+							cgroupsUsage.remove(containerId);
+						}
 						LOG.info("Stopping resource-monitoring for " + containerId);
 					}
 					containersToBeRemoved.clear();
 				}
 
+				// One scan of procfs for all the process trees
+				if (procfsSnapshot != null && !trackingContainers.isEmpty()) {
+					try {
+						procfsSnapshot.refresh();
+					} catch (Exception e) {
+						LOG.warn("Uncaught exception while scanning procfs", e);
+					}
+				}
+
 				// Now do the monitoring for the trackingContainers
 				// Check memory usage and kill any overflowing containers
 				long vmemStillInUsage = 0;
@@ -412,6 +484,10 @@ public class ContainersMonitorImpl extends AbstractService implements
 
 								ResourceCalculatorProcessTree pt =
 									ResourceCalculatorProcessTree.getResourceCalculatorProcessTree(pId, processTreeClass, conf);
+								if (procfsSnapshot != null
+									&& pt instanceof ProcfsBasedProcessTree) {
+									((ProcfsBasedProcessTree) pt).setProcfsSnapshot(procfsSnapshot);
+								}
 								ptInfo.setPid(pId);
 								ptInfo.setProcessTree(pt);
 
@@ -443,16 +519,26 @@ public class ContainersMonitorImpl extends AbstractService implements
 						// cpuUsagePercentPerCore should be 300% and
 						// cpuUsageTotalCoresPercentage should be 50%
 						float cpuUsagePercentPerCore = pTree.getCpuUsagePercent();
+						// as processes begin with an age 1, we want to see if there
+						// are processes more than 1 iteration old.
+						long curMemUsageOfAgedProcesses = pTree.getVirtualMemorySize(1);
+						long curRssMemUsageOfAgedProcesses = pTree.getRssMemorySize(1);
+						ContainerCgroupsUsage.Usage cgroupUsage = cgroupsUsage == null
+							? null : cgroupsUsage.sample(containerId, Time.monotonicNow());
+						if (cgroupUsage != null) {
+							// the cgroup counts the pages shared after a fork once, so
+							// there is no need to spare young processes
+							currentPmemUsage = cgroupUsage.getRssMemorySize();
+							curRssMemUsageOfAgedProcesses = currentPmemUsage;
+							cpuUsagePercentPerCore = cgroupUsage.getCpuUsagePercent();
+						}
+						containersRssUsage.put(containerId, currentPmemUsage);
 						float cpuUsageTotalCoresPercentage = cpuUsagePercentPerCore /
 							resourceCalculatorPlugin.getNumProcessors();
 
 						// Multiply by 1000 to avoid losing data when converting to int
 						int milliVcoresUsed = (int) (cpuUsageTotalCoresPercentage * 1000
 							* maxVCoresAllottedForContainers / nodeCpuPercentageForYARN);
-						// as processes begin with an age 1, we want to see if there
-						// are processes more than 1 iteration old.
-						long curMemUsageOfAgedProcesses = pTree.getVirtualMemorySize(1);
-						long curRssMemUsageOfAgedProcesses = pTree.getRssMemorySize(1);
 						long vmemLimit = ptInfo.getVmemLimit();
 						long pmemLimit = ptInfo.getPmemLimit();
 						LOG.info(String.format(
@@ -516,6 +602,7 @@ public class ContainersMonitorImpl extends AbstractService implements
 								new ContainerKillEvent(containerId,
 									containerExitStatus, msg));
 							it.remove();
+							containersRssUsage.remove(containerId);
 							LOG.info("Removed ProcessTree with root " + pId);
 						} else {
 							// Accounting the total memory in usage for all containers that
@@ -567,6 +654,56 @@ public class ContainersMonitorImpl extends AbstractService implements
 		}
 	}
 
+	/**
+	 * Samples the memory pressure of the running containers. It does not
+	 * depend on the memory checks, so it has its own thread.
+	 */
+	private class MemoryPressureThread extends Thread {
+		public MemoryPressureThread() {
+			super("Container Memory Pressure Monitor");
+			setDaemon(true);
+		}
+
+		@Override
+		public void run() {
+			while (!isInterrupted()) {
+				Map<ContainerId, Long> allocatedMemory = new HashMap<ContainerId, Long>();
+				for (Container container : context.getContainers().values()) {
+					if (container.getContainerState() == ContainerState.RUNNING) {
+						allocatedMemory.put(container.getContainerId(),
+							container.getResource().getMemory() * 1024L * 1024L);
+					}
+				}
+				try {
+					memoryPressureMonitor.sample(allocatedMemory, Time.monotonicNow());
+				} catch (Exception e) {
+					LOG.warn("Uncaught exception while sampling the memory pressure"
+						+ " of the containers", e);
+				}
+
+				try {
+					Thread.sleep(memoryPressureInterval);
+				} catch (InterruptedException e) {
+					break;
+				}
+			}
+		}
+	}
+
+	@Override
+	public List<ContainerMemoryPressure> getContainerMemoryPressures() {
+		if (memoryPressureMonitor == null) {
+			return Collections.emptyList();
+		}
+		return memoryPressureMonitor.pullPressures();
+	}
+
+	@Override
+	public long getRssMemorySize(ContainerId containerId) {
+		Long rss = containersRssUsage.get(containerId);
+		return rss == null ? -1 : rss;
+	}
+
 	@Override
 	public long getVmemAllocatedForContainers() {
 		return this.maxVmemAllottedForContainers;
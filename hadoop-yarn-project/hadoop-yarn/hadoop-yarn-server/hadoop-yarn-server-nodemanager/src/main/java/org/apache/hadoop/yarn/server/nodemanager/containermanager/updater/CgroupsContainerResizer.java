@@ -0,0 +1,212 @@
+/**
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package org.apache.hadoop.yarn.server.nodemanager.containermanager.updater;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.yarn.api.records.ContainerId;
+import org.apache.hadoop.yarn.conf.YarnConfiguration;
+import org.apache.hadoop.yarn.server.utils.ContainerCgroups;
+
+import com.google.common.annotations.VisibleForTesting;
+
+/**
+ * Resizes containers by writing their limits directly to the cgroup
+ * filesystem, without forking a process per update. The cgroup of a container
+ * is looked up under
+ * <code>&lt;root&gt;/&lt;controller&gt;/&lt;parent&gt;/</code>, either by the
+ * container id or by the docker id of the container. Containers whose cgroup
+ * cannot be found are resized with <code>docker update</code> if the fallback
+ * is enabled.
+ * <p>
+ * If enabled, a container whose cores have all been preempted is also frozen
+ * with the freezer controller, the same way <code>docker pause</code> does,
+ * and thawed when it gets an unlimited cpu quota back.
+ */
+public class CgroupsContainerResizer implements ContainerResizer {
+
+	private static final Log LOG =
+		LogFactory.getLog(CgroupsContainerResizer.class);
+
+	static final String CONTROLLER_CPU = "cpu";
+	static final String CONTROLLER_CPUSET = "cpuset";
+	static final String CONTROLLER_FREEZER = "freezer";
+	static final String CONTROLLER_MEMORY = ContainerCgroups.CONTROLLER_MEMORY;
+	static final String CPU_QUOTA_US = "cpu.cfs_quota_us";
+	static final String CPUSET_CPUS = "cpuset.cpus";
+	static final String FREEZER_STATE = "freezer.state";
+	static final String MEMORY_LIMIT_IN_BYTES = "memory.limit_in_bytes";
+	static final String MEMORY_STAT = "memory.stat";
+	static final String MEMORY_OOM_CONTROL = "memory.oom_control";
+
+	static final String FROZEN = "FROZEN";
+	static final String THAWED = "THAWED";
+
+	private Configuration conf;
+	private ContainerCgroups cgroups;
+	private ContainerResizer fallbackResizer;
+	private boolean freezeSuspended;
+
+	@Override
+	public void setConf(Configuration conf) {
+		this.conf = conf;
+	}
+
+	@Override
+	public Configuration getConf() {
+		return conf;
+	}
+
+	@Override
+	public void init() throws IOException {
+		// a container resized before docker created its cgroup is looked up
+		// again at the next resize
+		this.cgroups = createCgroups(
+			conf.get(YarnConfiguration.NM_CONTAINER_RESIZER_CGROUPS_ROOT,
+				YarnConfiguration.DEFAULT_NM_CONTAINER_RESIZER_CGROUPS_ROOT),
+			conf.get(YarnConfiguration.NM_CONTAINER_RESIZER_CGROUPS_PARENT,
+				YarnConfiguration.DEFAULT_NM_CONTAINER_RESIZER_CGROUPS_PARENT),
+			conf.get(YarnConfiguration.NM_DOCKER_CONTAINER_EXECUTOR_EXEC_NAME,
+				YarnConfiguration.NM_DEFAULT_DOCKER_CONTAINER_EXECUTOR_EXEC_NAME));
+		if (!new File(cgroups.getCgroupRoot()).isDirectory()) {
+			throw new IOException("Cgroup root " + cgroups.getCgroupRoot()
+				+ " does not exist");
+		}
+		this.freezeSuspended = conf.getBoolean(
+			YarnConfiguration.NM_CONTAINER_RESIZER_CGROUPS_FREEZE_SUSPENDED,
+			YarnConfiguration.DEFAULT_NM_CONTAINER_RESIZER_CGROUPS_FREEZE_SUSPENDED);
+		if (conf.getBoolean(
+			YarnConfiguration.NM_CONTAINER_RESIZER_CGROUPS_DOCKER_FALLBACK,
+			YarnConfiguration.DEFAULT_NM_CONTAINER_RESIZER_CGROUPS_DOCKER_FALLBACK)) {
+			DockerContainerResizer dockerResizer = new DockerContainerResizer();
+			dockerResizer.setConf(conf);
+			dockerResizer.init();
+			this.fallbackResizer = dockerResizer;
+		}
+	}
+
+	@Override
+	public List<ContainerResize> resize(List<ContainerResize> resizes) {
+		List<ContainerResize> failed = new ArrayList<ContainerResize>();
+		List<ContainerResize> notFound = new ArrayList<ContainerResize>();
+		for (ContainerResize resize : resizes) {
+			String cgroupName = cgroups.getCgroupName(resize.getContainerId());
+			if (cgroupName == null) {
+				notFound.add(resize);
+				continue;
+			}
+			try {
+				switch (resize.getType()) {
+					case CPU_QUOTA:
+						if (freezeSuspended
+							&& resize.getValue() == ContainersUpdater.UNLIMITED_CPU_QUOTA) {
+							cgroups.write(CONTROLLER_FREEZER, cgroupName, FREEZER_STATE,
+								THAWED);
+						}
+						cgroups.write(CONTROLLER_CPU, cgroupName, CPU_QUOTA_US,
+							Integer.toString(resize.getValue()));
+						if (freezeSuspended
+							&& resize.getValue() == ContainersUpdater.SUSPENDED_CPU_QUOTA) {
+							cgroups.write(CONTROLLER_FREEZER, cgroupName, FREEZER_STATE,
+								FROZEN);
+						}
+						break;
+					case CPUSET:
+						cgroups.write(CONTROLLER_CPUSET, cgroupName, CPUSET_CPUS,
+							resize.getCpusetString());
+						break;
+					case MEMORY:
+						cgroups.write(CONTROLLER_MEMORY, cgroupName, MEMORY_LIMIT_IN_BYTES,
+							Long.toString(resize.getValue() * 1024L * 1024L));
+						break;
+					default:
+						throw new IOException("Unknown resize " + resize);
+				}
+			} catch (IOException e) {
+				LOG.warn("Unable to apply " + resize, e);
+				failed.add(resize);
+			}
+		}
+
+		if (!notFound.isEmpty()) {
+			if (fallbackResizer != null) {
+				failed.addAll(fallbackResizer.resize(notFound));
+			} else {
+				LOG.warn("No cgroup found for " + notFound);
+				failed.addAll(notFound);
+			}
+		}
+		return failed;
+	}
+
+	@Override
+	public ContainerMemoryUsage getMemoryUsage(ContainerId containerId) {
+		String cgroupName = cgroups.getCgroupName(containerId);
+		if (cgroupName == null) {
+			return fallbackResizer == null ? null
+				: fallbackResizer.getMemoryUsage(containerId);
+		}
+		try {
+			Map<String, Long> stat =
+				cgroups.readStat(CONTROLLER_MEMORY, cgroupName, MEMORY_STAT);
+			Long rss = stat.get("rss");
+			if (rss == null) {
+				return null;
+			}
+			Long cache = stat.get("cache");
+			// oom_kill is only reported by kernels 4.13 and later
+			Long oomKills = cgroups.readStat(CONTROLLER_MEMORY, cgroupName,
+				MEMORY_OOM_CONTROL).get("oom_kill");
+			return new ContainerMemoryUsage((int) (rss >> 20),
+				cache == null ? -1 : (int) (cache >> 20),
+				oomKills == null ? -1 : oomKills.intValue());
+		} catch (IOException e) {
+			LOG.warn("Unable to read the memory usage of container " + containerId,
+				e);
+			return null;
+		}
+	}
+
+	@Override
+	public void release(ContainerId containerId) {
+		cgroups.release(containerId);
+		if (fallbackResizer != null) {
+			fallbackResizer.release(containerId);
+		}
+	}
+
+	@VisibleForTesting
+	void setFallbackResizer(ContainerResizer fallbackResizer) {
+		this.fallbackResizer = fallbackResizer;
+	}
+
+	@VisibleForTesting
+	ContainerCgroups createCgroups(String cgroupRoot, String cgroupParent,
+	                               String dockerExecutor) {
+		return new ContainerCgroups(cgroupRoot, cgroupParent, dockerExecutor,
+			false);
+	}
+}
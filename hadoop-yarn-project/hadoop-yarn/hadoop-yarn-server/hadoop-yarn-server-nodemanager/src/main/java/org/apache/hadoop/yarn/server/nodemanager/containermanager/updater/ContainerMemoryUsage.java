@@ -0,0 +1,59 @@
+/**
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package org.apache.hadoop.yarn.server.nodemanager.containermanager.updater;
+
+/**
+ * Memory usage of a container as seen by a {@link ContainerResizer}, used to
+ * plan how fast the memory limit of the container can be shrunk.
+ */
+public class ContainerMemoryUsage {
+
+	private final int rssMb;
+	private final int cacheMb;
+	private final int oomKills;
+
+	/**
+	 * @param rssMb anonymous memory of the container
+	 * @param cacheMb page cache charged to the container, -1 if unknown
+	 * @param oomKills processes of the container killed by the OOM killer so
+	 *                 far, -1 if unknown
+	 */
+	public ContainerMemoryUsage(int rssMb, int cacheMb, int oomKills) {
+		this.rssMb = rssMb;
+		this.cacheMb = cacheMb;
+		this.oomKills = oomKills;
+	}
+
+	public int getRssMb() {
+		return rssMb;
+	}
+
+	public int getCacheMb() {
+		return cacheMb;
+	}
+
+	public int getOomKills() {
+		return oomKills;
+	}
+
+	@Override
+	public String toString() {
+		return "rss=" + rssMb + "MB cache=" + cacheMb + "MB oomKills=" + oomKills;
+	}
+}
@@ -0,0 +1,104 @@
+/**
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package org.apache.hadoop.yarn.server.nodemanager.containermanager.updater;
+
+import java.util.Collections;
+import java.util.Set;
+
+import org.apache.hadoop.util.StringUtils;
+import org.apache.hadoop.yarn.api.records.ContainerId;
+
+/**
+ * A single resource limit to apply to a running container.
+ */
+public class ContainerResize {
+
+	public enum Type {
+		CPU_QUOTA,
+		CPUSET,
+		MEMORY
+	}
+
+	private final ContainerId containerId;
+	private final Type type;
+	private final int value;
+	private final Set<Integer> cores;
+
+	private ContainerResize(ContainerId containerId, Type type, int value,
+	                        Set<Integer> cores) {
+		this.containerId = containerId;
+		this.type = type;
+		this.value = value;
+		this.cores = cores;
+	}
+
+	/**
+	 * @param quota cfs quota in microseconds, -1 for no limit
+	 */
+	public static ContainerResize newCpuQuota(ContainerId containerId,
+	                                          int quota) {
+		return new ContainerResize(containerId, Type.CPU_QUOTA, quota, null);
+	}
+
+	public static ContainerResize newCpuset(ContainerId containerId,
+	                                        Set<Integer> cores) {
+		return new ContainerResize(containerId, Type.CPUSET, cores.size(),
+			Collections.unmodifiableSet(cores));
+	}
+
+	/**
+	 * @param memory memory limit in MB
+	 */
+	public static ContainerResize newMemory(ContainerId containerId,
+	                                        int memory) {
+		return new ContainerResize(containerId, Type.MEMORY, memory, null);
+	}
+
+	public ContainerId getContainerId() {
+		return containerId;
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	/**
+	 * @return the cpu quota, the number of cores or the memory in MB
+	 */
+	public int getValue() {
+		return value;
+	}
+
+	public Set<Integer> getCores() {
+		return cores;
+	}
+
+	/**
+	 * @return the cpuset as a comma separated list of cores
+	 */
+	public String getCpusetString() {
+		return StringUtils.join(",", cores);
+	}
+
+	@Override
+	public String toString() {
+		return containerId + " " + type + " "
+			+ (type == Type.CPUSET ? getCpusetString() : Integer.toString(value));
+	}
+}
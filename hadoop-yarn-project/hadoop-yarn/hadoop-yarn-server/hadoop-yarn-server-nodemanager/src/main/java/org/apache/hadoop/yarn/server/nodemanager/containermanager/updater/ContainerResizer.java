@@ -0,0 +1,51 @@
+/**
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package org.apache.hadoop.yarn.server.nodemanager.containermanager.updater;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configurable;
+import org.apache.hadoop.yarn.api.records.ContainerId;
+
+/**
+ * Backend used by the {@link ContainersUpdater} to change the resource limits
+ * of running containers.
+ */
+public interface ContainerResizer extends Configurable {
+
+	void init() throws IOException;
+
+	/**
+	 * Apply a batch of resizes. A batch holds at most one resize per container.
+	 * @return the resizes which could not be applied
+	 */
+	List<ContainerResize> resize(List<ContainerResize> resizes);
+
+	/**
+	 * @return the current memory usage of the container, or null if the
+	 * resizer cannot tell
+	 */
+	ContainerMemoryUsage getMemoryUsage(ContainerId containerId);
+
+	/**
+	 * Called once a container has finished, to release what is cached for it.
+	 */
+	void release(ContainerId containerId);
+}
@@ -0,0 +1,556 @@
+/**
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package org.apache.hadoop.yarn.server.nodemanager.containermanager.updater;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.service.AbstractService;
+import org.apache.hadoop.util.ReflectionUtils;
+import org.apache.hadoop.yarn.api.records.ContainerId;
+import org.apache.hadoop.yarn.conf.YarnConfiguration;
+import org.apache.hadoop.yarn.event.EventHandler;
+import org.apache.hadoop.yarn.server.api.protocolrecords.NodeContainerUpdate;
+import org.apache.hadoop.yarn.server.nodemanager.Context;
+import org.apache.hadoop.yarn.server.nodemanager.NodeStatusUpdater;
+import org.apache.hadoop.yarn.server.nodemanager.containermanager.container.Container;
+import org.apache.hadoop.yarn.server.nodemanager.containermanager.container.ContainerState;
+import org.apache.hadoop.yarn.server.nodemanager.containermanager.monitor.ContainerMetrics;
+import org.apache.hadoop.yarn.server.nodemanager.containermanager.monitor.ContainersMonitor;
+import org.apache.hadoop.yarn.server.nodemanager.metrics.NodeManagerMetrics;
+import org.apache.hadoop.yarn.util.Clock;
+import org.apache.hadoop.yarn.util.SystemClock;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Applies the {@link NodeContainerUpdate}s pushed by the RM (resize, suspend,
+ * resume) to running containers.
+ * <p>
+ * Updates are applied by a small node-wide pool of worker threads fed by a
+ * queue of containers with pending steps. Each container is queued at most
+ * once, so the steps of a container are applied in order, while a newer
+ * update of the same container supersedes the steps of an older one that
+ * were not applied yet. A worker takes the next step of every container
+ * queued at that time and hands them to the {@link ContainerResizer} as one
+ * batch.
+ * <p>
+ * Memory is shrunk following the {@link MemoryShrinkPlanner}, which is asked
+ * for one limit at a time with the usage of the container read right before.
+ * <p>
+ * When enabled, an out-of-band heartbeat is sent once all the steps of a
+ * suspend or a shrink were applied, so that the RM can hand out the freed
+ * resources without waiting for the next heartbeat.
+ */
+public class ContainersUpdater extends AbstractService
+	implements EventHandler<ContainersUpdaterEvent> {
+
+	private static final Log LOG = LogFactory.getLog(ContainersUpdater.class);
+
+	/** cpu quota of a container whose cores have all been preempted */
+	@VisibleForTesting
+	static final int SUSPENDED_CPU_QUOTA = 1000;
+
+	/** cpu quota which lifts the cfs limit of a resumed container */
+	@VisibleForTesting
+	static final int UNLIMITED_CPU_QUOTA = -1;
+
+	private final Context context;
+	private final NodeManagerMetrics metrics;
+	private final ContainersMonitor containersMonitor;
+	private final NodeStatusUpdater nodeStatusUpdater;
+	private final Clock clock = new SystemClock();
+
+	@VisibleForTesting
+	final ConcurrentMap<ContainerId, ContainerUpdateState> containers =
+		new ConcurrentHashMap<ContainerId, ContainerUpdateState>();
+
+	// containers with pending steps, each container is queued at most once
+	@VisibleForTesting
+	final BlockingQueue<ContainerUpdateState> readyContainers =
+		new LinkedBlockingQueue<ContainerUpdateState>();
+
+	private ExecutorService updateExecutor;
+	private int threadCount;
+	private int batchSize;
+	private MemoryShrinkPlanner shrinkPlanner;
+	private boolean containerMetricsEnabled;
+	private long containerMetricsPeriodMs;
+	private boolean outOfBandHeartbeat;
+
+	@VisibleForTesting
+	ContainerResizer resizer;
+
+	public ContainersUpdater(Context context, NodeManagerMetrics metrics,
+	                         ContainersMonitor containersMonitor) {
+		this(context, metrics, containersMonitor, null);
+	}
+
+	public ContainersUpdater(Context context, NodeManagerMetrics metrics,
+	                         ContainersMonitor containersMonitor,
+	                         NodeStatusUpdater nodeStatusUpdater) {
+		super("containers-updater");
+		this.context = context;
+		this.metrics = metrics;
+		this.containersMonitor = containersMonitor;
+		this.nodeStatusUpdater = nodeStatusUpdater;
+	}
+
+	@Override
+	protected void serviceInit(Configuration conf) throws Exception {
+		threadCount = conf.getInt(
+			YarnConfiguration.NM_CONTAINER_UPDATER_THREAD_COUNT,
+			YarnConfiguration.DEFAULT_NM_CONTAINER_UPDATER_THREAD_COUNT);
+		batchSize = conf.getInt(
+			YarnConfiguration.NM_CONTAINER_UPDATER_BATCH_SIZE,
+			YarnConfiguration.DEFAULT_NM_CONTAINER_UPDATER_BATCH_SIZE);
+		shrinkPlanner = new MemoryShrinkPlanner(conf.getInt(
+			YarnConfiguration.NM_CONTAINER_UPDATER_SHRINK_HEADROOM_MB,
+			YarnConfiguration.DEFAULT_NM_CONTAINER_UPDATER_SHRINK_HEADROOM_MB));
+		containerMetricsEnabled = conf.getBoolean(
+			YarnConfiguration.NM_CONTAINER_METRICS_ENABLE,
+			YarnConfiguration.DEFAULT_NM_CONTAINER_METRICS_ENABLE);
+		containerMetricsPeriodMs = conf.getLong(
+			YarnConfiguration.NM_CONTAINER_METRICS_PERIOD_MS,
+			YarnConfiguration.DEFAULT_NM_CONTAINER_METRICS_PERIOD_MS);
+		outOfBandHeartbeat = nodeStatusUpdater != null && conf.getBoolean(
+			YarnConfiguration.NM_CONTAINER_UPDATER_OUT_OF_BAND_HEARTBEAT,
+			YarnConfiguration.DEFAULT_NM_CONTAINER_UPDATER_OUT_OF_BAND_HEARTBEAT);
+		resizer = ReflectionUtils.newInstance(
+			conf.getClass(YarnConfiguration.NM_CONTAINER_RESIZER_CLASS,
+				DockerContainerResizer.class, ContainerResizer.class), conf);
+		resizer.init();
+		LOG.info("Using " + resizer.getClass().getName() + " to resize containers");
+		super.serviceInit(conf);
+	}
+
+	@Override
+	protected void serviceStart() throws Exception {
+		updateExecutor = Executors.newFixedThreadPool(threadCount,
+			new ThreadFactoryBuilder()
+				.setNameFormat("ContainersUpdater #%d")
+				.setDaemon(true)
+				.build());
+		for (int i = 0; i < threadCount; i++) {
+			updateExecutor.execute(new UpdateWorker());
+		}
+		super.serviceStart();
+	}
+
+	@Override
+	protected void serviceStop() throws Exception {
+		if (updateExecutor != null) {
+			updateExecutor.shutdownNow();
+		}
+		for (ContainerUpdateState state : containers.values()) {
+			state.cancel();
+		}
+		containers.clear();
+		readyContainers.clear();
+		super.serviceStop();
+	}
+
+	@Override
+	public void handle(ContainersUpdaterEvent event) {
+		Container container = event.getContainer();
+		ContainerId containerId = container.getContainerId();
+		switch (event.getType()) {
+			case UPDATE_CONTAINER:
+				ContainerUpdateState state = containers.get(containerId);
+				if (state == null) {
+					// the events of a container may be handled concurrently, only
+					// one state of the container must get in
+					ContainerUpdateState created = new ContainerUpdateState(container);
+					state = containers.putIfAbsent(containerId, created);
+					if (state == null) {
+						state = created;
+					}
+				}
+				if (state.offer(event.getNodeContainerUpdate())) {
+					readyContainers.add(state);
+				}
+				break;
+			case CLEANUP_CONTAINER:
+				state = containers.remove(containerId);
+				if (state != null) {
+					state.cancel();
+				}
+				if (resizer != null) {
+					resizer.release(containerId);
+				}
+				break;
+			default:
+				;
+		}
+	}
+
+	/**
+	 * @return the memory usage of the container, read from the resizer or else
+	 * from the last round of the containers monitor, null if unknown
+	 */
+	private ContainerMemoryUsage getMemoryUsage(ContainerId containerId) {
+		ContainerMemoryUsage usage = resizer.getMemoryUsage(containerId);
+		if (usage == null && containersMonitor != null) {
+			long rss = containersMonitor.getRssMemorySize(containerId);
+			if (rss >= 0) {
+				usage = new ContainerMemoryUsage((int) (rss >> 20), -1, -1);
+			}
+		}
+		return usage;
+	}
+
+	/**
+	 * Apply the next step of each container of the batch and queue again the
+	 * containers which still have steps left.
+	 */
+	@VisibleForTesting
+	void applyBatch(List<ContainerUpdateState> batch) {
+		List<ContainerUpdateState> states = new ArrayList<ContainerUpdateState>();
+		List<ContainerResize> resizes = new ArrayList<ContainerResize>();
+		for (ContainerUpdateState state : batch) {
+			Container container = state.container;
+			if (container.getContainerState() != ContainerState.RUNNING) {
+				// the container is done, updates are only sent while it runs
+				for (ContainerResize resize : state.drop()) {
+					LOG.warn("Failed to apply " + resize + ", container in state "
+						+ container.getContainerState());
+					metrics.failedContainerUpdate();
+				}
+				containers.remove(container.getContainerId(), state);
+				continue;
+			}
+			ContainerResize resize = state.next();
+			if (resize != null) {
+				states.add(state);
+				resizes.add(resize);
+			}
+		}
+
+		Set<ContainerResize> failed = new HashSet<ContainerResize>();
+		if (!resizes.isEmpty()) {
+			long start = clock.getTime();
+			try {
+				failed.addAll(resizer.resize(resizes));
+			} catch (RuntimeException e) {
+				LOG.warn("Unable to resize containers " + resizes, e);
+				failed.addAll(resizes);
+			}
+			metrics.addContainerUpdateApplyDuration(clock.getTime() - start);
+		}
+
+		boolean suspended = false;
+		for (int i = 0; i < states.size(); i++) {
+			ContainerUpdateState state = states.get(i);
+			ContainerResize resize = resizes.get(i);
+			if (failed.contains(resize)) {
+				LOG.warn("Failed to apply " + resize);
+				metrics.failedContainerUpdate();
+				state.failed(resize);
+			} else {
+				state.applied(resize);
+			}
+			suspended |= state.suspendDone();
+			if (state.reschedule()) {
+				readyContainers.add(state);
+			}
+		}
+		if (suspended && outOfBandHeartbeat) {
+			nodeStatusUpdater.sendOutofBandHeartBeat();
+		}
+	}
+
+	private class UpdateWorker implements Runnable {
+		@Override
+		public void run() {
+			while (!Thread.currentThread().isInterrupted()) {
+				List<ContainerUpdateState> batch = new ArrayList<ContainerUpdateState>();
+				try {
+					batch.add(readyContainers.take());
+				} catch (InterruptedException e) {
+					return;
+				}
+				readyContainers.drainTo(batch, batchSize - 1);
+				try {
+					applyBatch(batch);
+				} catch (RuntimeException e) {
+					LOG.error("Error while updating containers", e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Pending steps of one container. The cpu quota is applied first, then the
+	 * cpuset and finally the memory limit, which may take several steps.
+	 */
+	@VisibleForTesting
+	class ContainerUpdateState {
+		private final Container container;
+		// memory limit the container is currently running with
+		private int currentMemory;
+		private Integer pendingQuota;
+		private Set<Integer> pendingCores;
+		// memory limit the container has to reach
+		private Integer pendingMemory;
+		private long receivedTime;
+		private boolean scheduled = false;
+		private boolean cancelled = false;
+		// start of the ongoing shrink, -1 if the memory is not being shrunk
+		private long shrinkStartTime = -1;
+		private int shrinkStartOomKills = -1;
+		private int lastOomKills = -1;
+		// a suspend or a shrink has steps left
+		private boolean suspendPending = false;
+
+		ContainerUpdateState(Container container) {
+			this.container = container;
+			this.currentMemory = container.getResource().getMemory();
+		}
+
+		/**
+		 * Replace the pending steps with the ones of the given update.
+		 * @return true if the container has to be queued
+		 */
+		boolean offer(NodeContainerUpdate nodeContainerUpdate) {
+			ContainerId containerId = container.getContainerId();
+			// the cores are reassigned right away to keep the bookkeeping of the
+			// cores manager in line with the RM
+			Set<Integer> cores = context.getCoresManager().resetCores(containerId,
+				nodeContainerUpdate.getCores());
+			Integer quota = null;
+			if (cores.size() == 0) {
+				// all cores are preempted, we run the container on core 0 and
+				// freeze it with the cpu quota
+				cores.add(0);
+				quota = SUSPENDED_CPU_QUOTA;
+			} else if (nodeContainerUpdate.getResume()) {
+				quota = UNLIMITED_CPU_QUOTA;
+			}
+
+			synchronized (this) {
+				int before = pendingSteps();
+				if (quota != null) {
+					pendingQuota = quota;
+				}
+				pendingCores = cores;
+				pendingMemory =
+					MemoryShrinkPlanner.getTarget(nodeContainerUpdate.getMemory());
+				receivedTime = clock.getTime();
+				suspendPending = nodeContainerUpdate.getSuspend();
+				metrics.pendingContainerUpdates(pendingSteps() - before);
+
+				if (LOG.isDebugEnabled()) {
+					LOG.debug("Container " + containerId + " update: cores " + cores
+						+ " quota " + quota + " memory " + pendingMemory);
+				}
+				if (scheduled || cancelled) {
+					return false;
+				}
+				scheduled = true;
+				return true;
+			}
+		}
+
+		synchronized ContainerResize next() {
+			ContainerId containerId = container.getContainerId();
+			ContainerResize resize = null;
+			boolean stepDone = true;
+			if (!cancelled) {
+				if (pendingQuota != null) {
+					resize = ContainerResize.newCpuQuota(containerId, pendingQuota);
+					pendingQuota = null;
+				} else if (pendingCores != null) {
+					resize = ContainerResize.newCpuset(containerId, pendingCores);
+					pendingCores = null;
+				} else if (pendingMemory != null) {
+					resize = ContainerResize.newMemory(containerId, nextMemoryLimit());
+					if (resize.getValue() == pendingMemory) {
+						pendingMemory = null;
+					} else {
+						stepDone = false;
+					}
+				}
+			}
+			if (resize == null) {
+				scheduled = false;
+			} else {
+				if (stepDone) {
+					metrics.endPendingContainerUpdates(1);
+				}
+				metrics.addContainerUpdateDelay(clock.getTime() - receivedTime);
+			}
+			return resize;
+		}
+
+		private int nextMemoryLimit() {
+			if (pendingMemory >= currentMemory) {
+				if (shrinkStartTime >= 0) {
+					// the container is grown again before reaching its target
+					endShrink(false);
+				}
+				return pendingMemory;
+			}
+			ContainerMemoryUsage usage = getMemoryUsage(container.getContainerId());
+			if (shrinkStartTime < 0) {
+				shrinkStartTime = clock.getTime();
+				shrinkStartOomKills = usage == null ? -1 : usage.getOomKills();
+				lastOomKills = shrinkStartOomKills;
+			} else if (usage != null) {
+				lastOomKills = usage.getOomKills();
+			}
+			int limit = shrinkPlanner.nextLimit(currentMemory, pendingMemory, usage);
+			if (LOG.isDebugEnabled()) {
+				LOG.debug("Container " + container.getContainerId() + " memory "
+					+ currentMemory + "MB -> " + limit + "MB, target " + pendingMemory
+					+ "MB, usage " + usage);
+			}
+			return limit;
+		}
+
+		synchronized void applied(ContainerResize resize) {
+			if (resize.getType() == ContainerResize.Type.MEMORY) {
+				currentMemory = resize.getValue();
+				if (pendingMemory == null && shrinkStartTime >= 0) {
+					ContainerMemoryUsage usage =
+						getMemoryUsage(container.getContainerId());
+					if (usage != null) {
+						lastOomKills = usage.getOomKills();
+					}
+					endShrink(true);
+				}
+			}
+		}
+
+		synchronized void failed(ContainerResize resize) {
+			if (resize.getType() != ContainerResize.Type.MEMORY) {
+				return;
+			}
+			// give up on the target rather than retrying the same limit, the
+			// next update of the container plans from where it stopped
+			if (pendingMemory != null) {
+				pendingMemory = null;
+				metrics.endPendingContainerUpdates(1);
+			}
+			if (shrinkStartTime >= 0) {
+				endShrink(false);
+			}
+		}
+
+		/**
+		 * Report how long the memory took to shrink and how many processes the
+		 * OOM killer took meanwhile.
+		 */
+		private void endShrink(boolean reached) {
+			ContainerId containerId = container.getContainerId();
+			long duration = clock.getTime() - shrinkStartTime;
+			int oomKills = 0;
+			if (shrinkStartOomKills >= 0 && lastOomKills > shrinkStartOomKills) {
+				oomKills = lastOomKills - shrinkStartOomKills;
+				metrics.shrinkOomKills(oomKills);
+			}
+			if (reached) {
+				metrics.addContainerMemoryShrinkDuration(duration);
+				if (containerMetricsEnabled) {
+					ContainerMetrics.forContainer(containerId, containerMetricsPeriodMs)
+						.recordMemoryShrink(duration, oomKills);
+				}
+				LOG.info("Container " + containerId + " memory shrunk to "
+					+ currentMemory + "MB in " + duration + "ms, " + oomKills
+					+ " OOM kills");
+			} else {
+				LOG.info("Container " + containerId + " stopped shrinking at "
+					+ currentMemory + "MB after " + duration + "ms, " + oomKills
+					+ " OOM kills");
+			}
+			shrinkStartTime = -1;
+			shrinkStartOomKills = -1;
+			lastOomKills = -1;
+		}
+
+		/**
+		 * @return true if the last step of a suspend or a shrink was just done
+		 */
+		synchronized boolean suspendDone() {
+			if (suspendPending && pendingSteps() == 0) {
+				suspendPending = false;
+				return true;
+			}
+			return false;
+		}
+
+		/**
+		 * @return true if the container has to be queued again
+		 */
+		synchronized boolean reschedule() {
+			if (!cancelled && pendingSteps() > 0) {
+				return true;
+			}
+			scheduled = false;
+			return false;
+		}
+
+		/**
+		 * Cancel the pending steps, which cannot be applied any more.
+		 * @return the steps which were pending
+		 */
+		synchronized List<ContainerResize> drop() {
+			ContainerId containerId = container.getContainerId();
+			List<ContainerResize> dropped = new ArrayList<ContainerResize>();
+			if (pendingQuota != null) {
+				dropped.add(ContainerResize.newCpuQuota(containerId, pendingQuota));
+			}
+			if (pendingCores != null) {
+				dropped.add(ContainerResize.newCpuset(containerId, pendingCores));
+			}
+			if (pendingMemory != null) {
+				dropped.add(ContainerResize.newMemory(containerId, pendingMemory));
+			}
+			cancel();
+			return dropped;
+		}
+
+		synchronized void cancel() {
+			cancelled = true;
+			metrics.endPendingContainerUpdates(pendingSteps());
+			pendingQuota = null;
+			pendingCores = null;
+			pendingMemory = null;
+			if (shrinkStartTime >= 0) {
+				endShrink(false);
+			}
+		}
+
+		private int pendingSteps() {
+			return (pendingQuota == null ? 0 : 1) + (pendingCores == null ? 0 : 1)
+				+ (pendingMemory == null ? 0 : 1);
+		}
+	}
+}
@@ -0,0 +1,171 @@
+/**
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package org.apache.hadoop.yarn.server.nodemanager.containermanager.updater;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.util.Shell.ShellCommandExecutor;
+import org.apache.hadoop.yarn.api.records.ContainerId;
+import org.apache.hadoop.yarn.conf.YarnConfiguration;
+import org.apache.hadoop.yarn.server.nodemanager.ContainerExecutor.ExitCode;
+
+import com.google.common.annotations.VisibleForTesting;
+
+/**
+ * Resizes containers with the <code>docker update</code> command. Resizes of a
+ * batch that set the same limit are applied with a single command.
+ */
+public class DockerContainerResizer implements ContainerResizer {
+
+	private static final Log LOG =
+		LogFactory.getLog(DockerContainerResizer.class);
+
+	@VisibleForTesting
+	static final int DOCKER_UPDATE_RETRIES = 10;
+
+	private Configuration conf;
+	private String dockerExecutor;
+
+	@Override
+	public void setConf(Configuration conf) {
+		this.conf = conf;
+	}
+
+	@Override
+	public Configuration getConf() {
+		return conf;
+	}
+
+	@Override
+	public void init() throws IOException {
+		this.dockerExecutor = conf.get(
+			YarnConfiguration.NM_DOCKER_CONTAINER_EXECUTOR_EXEC_NAME,
+			YarnConfiguration.NM_DEFAULT_DOCKER_CONTAINER_EXECUTOR_EXEC_NAME);
+	}
+
+	@Override
+	public List<ContainerResize> resize(List<ContainerResize> resizes) {
+		// group the containers which get the same limit
+		Map<List<String>, List<ContainerResize>> commands =
+			new LinkedHashMap<List<String>, List<ContainerResize>>();
+		for (ContainerResize resize : resizes) {
+			List<String> option = getUpdateOption(resize);
+			List<ContainerResize> sameOption = commands.get(option);
+			if (sameOption == null) {
+				sameOption = new ArrayList<ContainerResize>();
+				commands.put(option, sameOption);
+			}
+			sameOption.add(resize);
+		}
+
+		List<ContainerResize> failed = new ArrayList<ContainerResize>();
+		for (Map.Entry<List<String>, List<ContainerResize>> command
+			: commands.entrySet()) {
+			List<ContainerResize> sameOption = command.getValue();
+			if (sameOption.size() > 1
+				&& runDockerUpdateCommand(command.getKey(), sameOption, 1)) {
+				continue;
+			}
+			// we do not know which container failed in a batched command, so
+			// each of them is retried on its own
+			for (ContainerResize resize : sameOption) {
+				if (!runDockerUpdateCommand(command.getKey(),
+					Collections.singletonList(resize),
+					DOCKER_UPDATE_RETRIES)) {
+					failed.add(resize);
+				}
+			}
+		}
+		return failed;
+	}
+
+	@Override
+	public ContainerMemoryUsage getMemoryUsage(ContainerId containerId) {
+		// docker stats is far too slow to be polled between updates
+		return null;
+	}
+
+	@Override
+	public void release(ContainerId containerId) {
+		// nothing is cached per container
+	}
+
+	@VisibleForTesting
+	static List<String> getUpdateOption(ContainerResize resize) {
+		List<String> option = new ArrayList<String>(2);
+		switch (resize.getType()) {
+			case CPU_QUOTA:
+				option.add("--cpu-quota");
+				option.add(Integer.toString(resize.getValue()));
+				break;
+			case CPUSET:
+				option.add("--cpuset-cpus");
+				option.add(resize.getCpusetString());
+				break;
+			case MEMORY:
+				option.add("--memory");
+				option.add(resize.getValue() + "m");
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown resize " + resize);
+		}
+		return option;
+	}
+
+	private boolean runDockerUpdateCommand(List<String> option,
+	                                       List<ContainerResize> resizes, int attempts) {
+		List<String> command = new ArrayList<String>();
+		command.add(dockerExecutor);
+		command.add("update");
+		command.addAll(option);
+		for (ContainerResize resize : resizes) {
+			command.add(resize.getContainerId().toString());
+		}
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("run docker command: " + command);
+		}
+		// we retry the update when it fails due to device busy
+		for (int attempt = 0; attempt < attempts; attempt++) {
+			ShellCommandExecutor shExec = new ShellCommandExecutor(
+				command.toArray(new String[command.size()]));
+			try {
+				shExec.execute();
+				return true;
+			} catch (IOException e) {
+				int exitCode = shExec.getExitCode();
+				if (exitCode != ExitCode.FORCE_KILLED.getExitCode()
+					&& exitCode != ExitCode.TERMINATED.getExitCode()) {
+					LOG.warn("Exception from Docker update " + option + " of "
+						+ resizes.size() + " containers with exit code: " + exitCode, e);
+				}
+			} finally {
+				shExec.close();
+			}
+		}
+		return false;
+	}
+}
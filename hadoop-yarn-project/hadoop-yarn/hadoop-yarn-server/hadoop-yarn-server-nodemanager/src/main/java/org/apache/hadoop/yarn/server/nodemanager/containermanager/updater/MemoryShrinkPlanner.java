@@ -0,0 +1,109 @@
+/**
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package org.apache.hadoop.yarn.server.nodemanager.containermanager.updater;
+
+import com.google.common.annotations.VisibleForTesting;
+
+/**
+ * Picks the memory limits a container goes through while its memory is
+ * shrunk. The planner is asked for one limit at a time, with the memory usage
+ * of the container read right before, so that the schedule follows what the
+ * container actually uses:
+ * <ul>
+ * <li>as long as the target leaves room for the anonymous memory of the
+ * container, the limit is set to the target in one go and the kernel
+ * reclaims the page cache;</li>
+ * <li>otherwise the limit jumps to just above the anonymous memory, and is
+ * then lowered step by step so that the container can swap out its pages
+ * without being OOM killed.</li>
+ * </ul>
+ * Without usage, the limit is lowered by fixed steps from the current limit.
+ */
+public class MemoryShrinkPlanner {
+
+	/** the minimum memory for a container */
+	@VisibleForTesting
+	static final int MIN_CONTAINER_MEMORY_MB = 128;
+
+	/** the largest memory step used below the working set of a container */
+	@VisibleForTesting
+	static final int MAX_MEMORY_SHRINK_STEP_MB = 1024;
+
+	private final int headroomMb;
+
+	/**
+	 * @param headroomMb memory left above the anonymous memory of a container
+	 *                   when the limit is set close to it
+	 */
+	public MemoryShrinkPlanner(int headroomMb) {
+		this.headroomMb = headroomMb;
+	}
+
+	/**
+	 * The target limit a container is shrunk or grown to.
+	 */
+	public static int getTarget(int targetMemory) {
+		return Math.max(targetMemory, MIN_CONTAINER_MEMORY_MB);
+	}
+
+	/**
+	 * @param currentMemory limit the container is running with
+	 * @param targetMemory limit the container has to reach
+	 * @param usage memory usage of the container, null if unknown
+	 * @return the next limit to apply
+	 */
+	public int nextLimit(int currentMemory, int targetMemory,
+	                     ContainerMemoryUsage usage) {
+		int target = getTarget(targetMemory);
+		if (target >= currentMemory) {
+			// memory is grown in one go
+			return target;
+		}
+		if (usage == null) {
+			return nextFixedStep(currentMemory, target);
+		}
+		if (usage.getCacheMb() >= 0
+			&& usage.getRssMb() + usage.getCacheMb() <= target) {
+			// nothing has to be reclaimed
+			return target;
+		}
+		int safeMemory = usage.getRssMb() + headroomMb;
+		if (safeMemory <= target) {
+			// only page cache has to be reclaimed
+			return target;
+		}
+		if (safeMemory < currentMemory) {
+			return safeMemory;
+		}
+		// near the working set, anonymous pages have to be swapped out
+		return nextFixedStep(currentMemory, target);
+	}
+
+	@VisibleForTesting
+	static int nextFixedStep(int currentMemory, int target) {
+		int memory;
+		if (currentMemory > MAX_MEMORY_SHRINK_STEP_MB) {
+			memory = currentMemory - MAX_MEMORY_SHRINK_STEP_MB;
+		} else {
+			memory = currentMemory / 2;
+		}
+		// never shrink below the target on the way down
+		return Math.max(memory, target);
+	}
+}
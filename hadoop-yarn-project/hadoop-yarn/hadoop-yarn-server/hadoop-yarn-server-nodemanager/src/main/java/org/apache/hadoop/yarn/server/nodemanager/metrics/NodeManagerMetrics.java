@@ -48,6 +48,24 @@ public class NodeManagerMetrics {
   @Metric MutableGaugeInt availableVCores;
   @Metric("Container launch duration")
       MutableRate containerLaunchDuration;
+  @Metric("# of container update steps waiting to be applied")
+      MutableGaugeInt containerUpdatesPending;
+  @Metric("# of container update steps which could not be applied")
+      MutableCounterInt containerUpdatesFailed;
+  @Metric("Container update apply duration")
+      MutableRate containerUpdateApplyDuration;
+  @Metric("Delay between receiving a container update and applying it")
+      MutableRate containerUpdateDelay;
+  @Metric("Time to shrink the memory of a container to its target")
+      MutableRate containerMemoryShrinkDuration;
+  @Metric("# of container processes OOM killed while shrinking memory")
+      MutableCounterInt containerShrinkOomKills;
+  @Metric("Delay between requesting a resource and starting its download")
+      MutableRate localizationWaitTime;
+  @Metric("Time to download a resource")
+      MutableRate localizationDownloadTime;
+  @Metric("# of resources which failed to download")
+      MutableCounterInt localizationFailures;
 
   private long allocatedMB;
   private long availableMB;
@@ -125,6 +143,46 @@ public class NodeManagerMetrics {
     containerLaunchDuration.add(value);
   }
 
+  public void pendingContainerUpdates(int steps) {
+    containerUpdatesPending.incr(steps);
+  }
+
+  public void endPendingContainerUpdates(int steps) {
+    containerUpdatesPending.decr(steps);
+  }
+
+  public void failedContainerUpdate() {
+    containerUpdatesFailed.incr();
+  }
+
+  public void addContainerUpdateApplyDuration(long value) {
+    containerUpdateApplyDuration.add(value);
+  }
+
+  public void addContainerUpdateDelay(long value) {
+    containerUpdateDelay.add(value);
+  }
+
+  public void addContainerMemoryShrinkDuration(long value) {
+    containerMemoryShrinkDuration.add(value);
+  }
+
+  public void shrinkOomKills(int kills) {
+    containerShrinkOomKills.incr(kills);
+  }
+
+  public void addLocalizationWaitTime(long value) {
+    localizationWaitTime.add(value);
+  }
+
+  public void addLocalizationDownloadTime(long value) {
+    localizationDownloadTime.add(value);
+  }
+
+  public void failedLocalization() {
+    localizationFailures.incr();
+  }
+
   public int getRunningContainers() {
     return containersRunning.value();
   }
@@ -143,4 +201,24 @@ public class NodeManagerMetrics {
   public int getCompletedContainers() {
     return containersCompleted.value();
   }
+
+  @VisibleForTesting
+  public int getPendingContainerUpdates() {
+    return containerUpdatesPending.value();
+  }
+
+  @VisibleForTesting
+  public int getFailedContainerUpdates() {
+    return containerUpdatesFailed.value();
+  }
+
+  @VisibleForTesting
+  public int getShrinkOomKills() {
+    return containerShrinkOomKills.value();
+  }
+
+  @VisibleForTesting
+  public int getLocalizationFailures() {
+    return localizationFailures.value();
+  }
 }
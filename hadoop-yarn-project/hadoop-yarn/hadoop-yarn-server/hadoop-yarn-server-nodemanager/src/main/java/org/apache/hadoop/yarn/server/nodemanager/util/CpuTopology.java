@@ -0,0 +1,137 @@
+/**
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package org.apache.hadoop.yarn.server.nodemanager.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Charsets;
+
+/**
+ * Socket and NUMA node of each core of the node, as reported by
+ * <code>/sys/devices/system/cpu</code>. Cores whose topology cannot be read
+ * are put on socket 0 and NUMA node 0.
+ */
+public class CpuTopology {
+
+	private static final Log LOG = LogFactory.getLog(CpuTopology.class);
+
+	public static final String SYSFS_CPU_DIR = "/sys/devices/system/cpu";
+
+	private final int[] socketOfCore;
+	private final int[] nodeOfCore;
+	private final int numSockets;
+	private final int numNodes;
+
+	@VisibleForTesting
+	public CpuTopology(int[] socketOfCore, int[] nodeOfCore) {
+		this.socketOfCore = socketOfCore;
+		this.nodeOfCore = nodeOfCore;
+		this.numSockets = max(socketOfCore) + 1;
+		this.numNodes = max(nodeOfCore) + 1;
+	}
+
+	/**
+	 * Topology of a node where all cores share one socket and one NUMA node.
+	 */
+	public static CpuTopology flat(int numCores) {
+		return new CpuTopology(new int[numCores], new int[numCores]);
+	}
+
+	/**
+	 * Read the topology of the first <code>numCores</code> cores.
+	 * @param cpuDir the sysfs cpu directory, usually {@link #SYSFS_CPU_DIR}
+	 */
+	public static CpuTopology read(File cpuDir, int numCores) {
+		int[] sockets = new int[numCores];
+		int[] nodes = new int[numCores];
+		for (int core = 0; core < numCores; core++) {
+			File coreDir = new File(cpuDir, "cpu" + core);
+			sockets[core] = readInt(
+				new File(coreDir, "topology/physical_package_id"));
+			// the numa node of a core shows up as a nodeN link in its directory
+			String[] entries = coreDir.list();
+			if (entries != null) {
+				for (String entry : entries) {
+					if (entry.matches("node[0-9]+")) {
+						nodes[core] = Integer.parseInt(entry.substring(4));
+						break;
+					}
+				}
+			}
+		}
+		CpuTopology topology = new CpuTopology(sockets, nodes);
+		LOG.info("Cpu topology: " + topology);
+		return topology;
+	}
+
+	private static int readInt(File file) {
+		try {
+			// -1 is reported by cores without a physical package
+			return Math.max(0, Integer.parseInt(
+				FileUtils.readFileToString(file, Charsets.UTF_8.name()).trim()));
+		} catch (IOException e) {
+			return 0;
+		} catch (NumberFormatException e) {
+			LOG.warn("Unable to parse " + file, e);
+			return 0;
+		}
+	}
+
+	private static int max(int[] values) {
+		int max = 0;
+		for (int value : values) {
+			max = Math.max(max, value);
+		}
+		return max;
+	}
+
+	public int getNumCores() {
+		return socketOfCore.length;
+	}
+
+	public int getNumSockets() {
+		return numSockets;
+	}
+
+	public int getNumNodes() {
+		return numNodes;
+	}
+
+	public int getSocket(int core) {
+		return socketOfCore[core];
+	}
+
+	public int getNode(int core) {
+		return nodeOfCore[core];
+	}
+
+	@Override
+	public String toString() {
+		return numSockets + " sockets, " + numNodes + " numa nodes, sockets "
+			+ Arrays.toString(socketOfCore) + ", nodes "
+			+ Arrays.toString(nodeOfCore);
+	}
+}
@@ -0,0 +1,101 @@
+/**
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package org.apache.hadoop.yarn.server.nodemanager.webapp;
+
+import static org.apache.hadoop.yarn.webapp.view.JQueryUI.DATATABLES;
+import static org.apache.hadoop.yarn.webapp.view.JQueryUI.DATATABLES_ID;
+import static org.apache.hadoop.yarn.webapp.view.JQueryUI.initID;
+import static org.apache.hadoop.yarn.webapp.view.JQueryUI.tableInit;
+
+import org.apache.hadoop.yarn.server.nodemanager.Context;
+import org.apache.hadoop.yarn.server.nodemanager.CoresManager;
+import org.apache.hadoop.yarn.server.nodemanager.util.CpuTopology;
+import org.apache.hadoop.yarn.webapp.SubView;
+import org.apache.hadoop.yarn.webapp.hamlet.Hamlet;
+import org.apache.hadoop.yarn.webapp.hamlet.Hamlet.BODY;
+import org.apache.hadoop.yarn.webapp.hamlet.Hamlet.TABLE;
+import org.apache.hadoop.yarn.webapp.hamlet.Hamlet.TBODY;
+import org.apache.hadoop.yarn.webapp.view.HtmlBlock;
+
+import com.google.inject.Inject;
+
+/**
+ * Number of containers running on each core of the node.
+ */
+public class CoresPage extends NMView {
+
+  @Override protected void preHead(Page.HTML<_> html) {
+    commonPreHead(html);
+    setTitle("Cores of this node");
+    set(DATATABLES_ID, "cores");
+    set(initID(DATATABLES, "cores"), coresTableInit());
+    setTableStyles(html, "cores");
+  }
+
+  private String coresTableInit() {
+    return tableInit().
+        // core, socket, numa node, containers
+        append(", aoColumns:[{sType:'numeric'}, {sType:'numeric'}, " +
+            "{sType:'numeric'}, {sType:'numeric'}]} ").toString();
+  }
+
+  @Override
+  protected Class<? extends SubView> content() {
+    return CoresBlock.class;
+  }
+
+  public static class CoresBlock extends HtmlBlock {
+
+    private final Context nmContext;
+
+    @Inject
+    public CoresBlock(Context nmContext) {
+      this.nmContext = nmContext;
+    }
+
+    @Override
+    protected void render(Block html) {
+      TBODY<TABLE<BODY<Hamlet>>> tableBody = html.body()
+        .table("#cores")
+          .thead()
+            .tr()
+              .td()._("Core")._()
+              .td()._("Socket")._()
+              .td()._("NUMA node")._()
+              .td()._("Containers")._()
+            ._()
+          ._().tbody();
+      CoresManager coresManager = this.nmContext.getCoresManager();
+      if (coresManager != null) {
+        CpuTopology topology = coresManager.getTopology();
+        int[] occupancy = coresManager.getCoresOccupancy();
+        for (int core = 0; core < occupancy.length; core++) {
+          tableBody
+            .tr()
+              .td(String.valueOf(core))
+              .td(String.valueOf(topology.getSocket(core)))
+              .td(String.valueOf(topology.getNode(core)))
+              .td(String.valueOf(occupancy[core]))
+            ._();
+        }
+      }
+      tableBody._()._()._();
+    }
+  }
+}
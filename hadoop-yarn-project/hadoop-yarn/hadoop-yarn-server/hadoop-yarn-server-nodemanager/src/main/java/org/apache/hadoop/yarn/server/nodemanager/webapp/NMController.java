@@ -67,6 +67,10 @@ public class NMController extends Controller implements YarnWebParams {
     render(AllContainersPage.class);
   }
 
+  public void cores() {
+    render(CoresPage.class);
+  }
+
   public void application() {
     render(ApplicationPage.class);
   }
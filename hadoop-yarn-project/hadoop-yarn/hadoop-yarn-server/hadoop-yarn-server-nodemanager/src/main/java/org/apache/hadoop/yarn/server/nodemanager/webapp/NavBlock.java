@@ -53,6 +53,8 @@ public class NavBlock extends HtmlBlock implements YarnWebParams {
             ._()
           .li()
             .a(url("allContainers"), "List of Containers")._()
+          .li()
+            .a(url("cores"), "Cores")._()
         ._()
       .h3("Tools")
         .ul()
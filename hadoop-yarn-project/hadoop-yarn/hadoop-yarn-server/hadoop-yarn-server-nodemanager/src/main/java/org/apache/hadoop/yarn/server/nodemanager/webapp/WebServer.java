@@ -119,6 +119,7 @@ public class WebServer extends AbstractService {
       route("/node", NMController.class, "node");
       route("/allApplications", NMController.class, "allApplications");
       route("/allContainers", NMController.class, "allContainers");
+      route("/cores", NMController.class, "cores");
       route(pajoin("/application", APPLICATION_ID), NMController.class,
           "application");
       route(pajoin("/container", CONTAINER_ID), NMController.class,
@@ -0,0 +1,157 @@
+/**
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package org.apache.hadoop.yarn.server.nodemanager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileUtil;
+import org.apache.hadoop.yarn.api.records.ApplicationAttemptId;
+import org.apache.hadoop.yarn.api.records.ApplicationId;
+import org.apache.hadoop.yarn.api.records.ContainerId;
+import org.apache.hadoop.yarn.conf.YarnConfiguration;
+import org.apache.hadoop.yarn.server.nodemanager.util.CpuTopology;
+import org.junit.Test;
+
+public class TestCoresManagerImpl {
+
+  private static final File cpuDir = new File("target",
+      TestCoresManagerImpl.class.getName() + "-cpu");
+
+  // two sockets of 4 cores, cores are interleaved between the sockets
+  private static final int[] SOCKETS = {0, 1, 0, 1, 0, 1, 0, 1};
+
+  private CoresManagerImpl createCoresManager(boolean bindMemory) {
+    Configuration conf = new Configuration();
+    conf.setBoolean(YarnConfiguration.NM_CORES_MANAGER_NUMA_MEMORY_BINDING,
+        bindMemory);
+    CoresManagerImpl coresManager = new CoresManagerImpl();
+    coresManager.init(conf, new CpuTopology(SOCKETS, SOCKETS));
+    return coresManager;
+  }
+
+  private static ContainerId containerId(int id) {
+    ApplicationId appId = ApplicationId.newInstance(0, 1);
+    return ContainerId.newContainerId(
+        ApplicationAttemptId.newInstance(appId, 1), id);
+  }
+
+  private static Set<Integer> cores(Integer... cores) {
+    return new HashSet<Integer>(Arrays.asList(cores));
+  }
+
+  @Test
+  public void testCpusetsStayOnOneSocket() {
+    CoresManagerImpl coresManager = createCoresManager(false);
+    assertEquals(cores(0, 2, 4), coresManager.allocateCores(containerId(1), 3));
+    // socket 0 has one core left, socket 1 fits the container
+    assertEquals(cores(1, 3), coresManager.allocateCores(containerId(2), 2));
+    // best fit, the last core of socket 0
+    assertEquals(cores(6), coresManager.allocateCores(containerId(3), 1));
+    assertEquals(0, coresManager.getOverlappedCores());
+  }
+
+  @Test
+  public void testLeastLoadedCoresAreShared() {
+    CoresManagerImpl coresManager = createCoresManager(false);
+    coresManager.allocateCores(containerId(1), 4);
+    coresManager.allocateCores(containerId(2), 4);
+    // all cores are used, the next container shares the least loaded ones
+    Set<Integer> shared = coresManager.allocateCores(containerId(3), 2);
+    assertEquals(2, shared.size());
+    assertEquals(2, coresManager.getOverlappedCores());
+    Set<Integer> next = coresManager.allocateCores(containerId(4), 2);
+    for (Integer core : next) {
+      assertTrue(!shared.contains(core));
+    }
+
+    coresManager.releaseCores(containerId(3));
+    coresManager.releaseCores(containerId(4));
+    assertEquals(0, coresManager.getOverlappedCores());
+    int[] occupancy = coresManager.getCoresOccupancy();
+    for (int load : occupancy) {
+      assertEquals(1, load);
+    }
+  }
+
+  @Test
+  public void testResetCores() {
+    CoresManagerImpl coresManager = createCoresManager(false);
+    ContainerId container = containerId(1);
+    coresManager.allocateCores(container, 4);
+    coresManager.allocateCores(containerId(2), 2);
+
+    // shrink to two cores
+    Set<Integer> cores = coresManager.resetCores(container, 2);
+    assertEquals(2, cores.size());
+    // all cores are preempted
+    assertTrue(coresManager.resetCores(container, 0).isEmpty());
+    // the returned sets are copies
+    cores.add(7);
+    // resumed, the container gets the free socket 0 cores back
+    assertEquals(cores(0, 2, 4, 6), coresManager.resetCores(container, 4));
+    // grown on its own socket first
+    coresManager.releaseCores(containerId(2));
+    Set<Integer> grown = coresManager.resetCores(container, 6);
+    assertEquals(6, grown.size());
+    assertTrue(grown.containsAll(cores(0, 2, 4, 6)));
+    assertEquals(0, coresManager.getOverlappedCores());
+  }
+
+  @Test
+  public void testMemoryNodes() {
+    CoresManagerImpl coresManager = createCoresManager(true);
+    coresManager.allocateCores(containerId(1), 2);
+    assertEquals(cores(0), coresManager.getMemoryNodes(containerId(1)));
+    assertTrue(createCoresManager(false).getMemoryNodes(containerId(1))
+        .isEmpty());
+  }
+
+  @Test
+  public void testReadTopology() throws IOException {
+    FileUtil.fullyDelete(cpuDir);
+    try {
+      for (int core = 0; core < 4; core++) {
+        File coreDir = new File(cpuDir, "cpu" + core);
+        assertTrue(new File(coreDir, "topology").mkdirs());
+        FileUtils.writeStringToFile(
+            new File(coreDir, "topology/physical_package_id"),
+            Integer.toString(core / 2) + "\n");
+        assertTrue(new File(coreDir, "node" + (core / 2)).mkdir());
+      }
+      // cores missing from sysfs are put on socket 0
+      CpuTopology topology = CpuTopology.read(cpuDir, 6);
+      assertEquals(2, topology.getNumSockets());
+      assertEquals(2, topology.getNumNodes());
+      assertEquals(1, topology.getSocket(3));
+      assertEquals(1, topology.getNode(2));
+      assertEquals(0, topology.getSocket(5));
+    } finally {
+      FileUtil.fullyDelete(cpuDir);
+    }
+  }
+}
@@ -0,0 +1,202 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.yarn.server.nodemanager.containermanager.localizer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.yarn.server.nodemanager.containermanager.localizer.LocalizerContext.Priority;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestDownloadScheduler {
+
+  private ExecutorService executor;
+  private final List<String> started =
+      Collections.synchronizedList(new ArrayList<String>());
+
+  private class BlockingDownload implements Callable<Path> {
+    private final String name;
+    private final CountDownLatch release;
+
+    BlockingDownload(String name, CountDownLatch release) {
+      this.name = name;
+      this.release = release;
+    }
+
+    @Override
+    public Path call() throws Exception {
+      started.add(name);
+      assertTrue(release.await(10, TimeUnit.SECONDS));
+      return new Path("file:///local/" + name);
+    }
+  }
+
+  @Before
+  public void setup() {
+    executor = Executors.newFixedThreadPool(1);
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test(timeout = 10000)
+  public void testPriorityOrder() throws Exception {
+    DownloadScheduler scheduler = new DownloadScheduler(executor, 1, 0);
+    CountDownLatch release = new CountDownLatch(1);
+    CountDownLatch done = new CountDownLatch(0);
+    Path source = new Path("hdfs://nn:8020/rsrc");
+
+    // holds the only thread while the others are queued
+    scheduler.submit(new BlockingDownload("first", release), source,
+        Priority.NORMAL);
+    scheduler.submit(new BlockingDownload("normal", done), source,
+        Priority.NORMAL);
+    scheduler.submit(new BlockingDownload("recovered", done), source,
+        Priority.RECOVERED);
+    scheduler.submit(new BlockingDownload("am", done), source, Priority.AM);
+    scheduler.submit(new BlockingDownload("default", done), source, null);
+    assertEquals(4, scheduler.getNumWaiting());
+
+    release.countDown();
+    for (int i = 0; i < 5; i++) {
+      scheduler.take().get();
+    }
+    assertEquals(0, scheduler.getNumWaiting());
+    assertEquals(0, scheduler.getNumRunning(source));
+    assertEquals(5, started.size());
+    assertEquals("first", started.get(0));
+    assertEquals("am", started.get(1));
+    assertEquals("recovered", started.get(2));
+    // same priority, in submission order
+    assertEquals("normal", started.get(3));
+    assertEquals("default", started.get(4));
+  }
+
+  @Test(timeout = 10000)
+  public void testPerFileSystemLimit() throws Exception {
+    executor.shutdown();
+    executor = Executors.newFixedThreadPool(2);
+    DownloadScheduler scheduler = new DownloadScheduler(executor, 2, 1);
+    CountDownLatch release = new CountDownLatch(1);
+    Path slow = new Path("s3a://bucket/rsrc");
+    Path fast = new Path("hdfs://nn:8020/rsrc");
+
+    // a container localizer downloads from the slow filesystem
+    assertTrue(scheduler.tryAcquireSlot(slow));
+    assertFalse(scheduler.tryAcquireSlot(new Path("s3a://bucket/other")));
+    assertTrue(scheduler.tryAcquireSlot(new Path("s3a://other/rsrc")));
+    scheduler.releaseSlot(new Path("s3a://other/rsrc"));
+
+    // so the download from it waits, the one from another filesystem does not
+    Future<Path> slowDownload = scheduler.submit(
+        new BlockingDownload("slow", release), slow, Priority.AM);
+    Future<Path> fastDownload = scheduler.submit(
+        new BlockingDownload("fast", release), fast, Priority.NORMAL);
+    assertEquals(1, scheduler.getNumWaiting());
+    assertEquals(1, scheduler.getNumRunning(slow));
+    assertEquals(1, scheduler.getNumRunning(fast));
+
+    release.countDown();
+    assertSame(fastDownload, scheduler.take());
+    assertEquals(1, scheduler.getNumWaiting());
+
+    scheduler.releaseSlot(slow);
+    assertSame(slowDownload, scheduler.take());
+    assertEquals(new Path("file:///local/slow"), slowDownload.get());
+    assertEquals(0, scheduler.getNumWaiting());
+    assertEquals(0, scheduler.getNumRunning(slow));
+
+    DownloadScheduler.Download download =
+        (DownloadScheduler.Download) slowDownload;
+    assertEquals(Priority.AM, download.getPriority());
+    assertTrue(download.getWaitTime() >= 0);
+    assertTrue(download.getDownloadTime() >= 0);
+  }
+
+  @Test(timeout = 10000)
+  public void testShutdown() throws Exception {
+    DownloadScheduler scheduler = new DownloadScheduler(executor, 1, 0);
+    executor.shutdown();
+    try {
+      scheduler.submit(new BlockingDownload("rejected", new CountDownLatch(0)),
+          new Path("hdfs://nn:8020/rsrc"), Priority.NORMAL);
+      fail("Download submitted to a shut down pool");
+    } catch (RejectedExecutionException e) {
+      // expected
+    }
+    assertEquals(0, scheduler.getNumWaiting());
+    assertTrue(started.isEmpty());
+  }
+
+  @Test(timeout = 30000)
+  public void testShutdownWithManyWaiting() throws Exception {
+    DownloadScheduler scheduler = new DownloadScheduler(executor, 1, 0);
+    CountDownLatch release = new CountDownLatch(1);
+    Path source = new Path("hdfs://nn:8020/rsrc");
+    int numWaiting = 20000;
+
+    Future<Path> first = scheduler.submit(
+        new BlockingDownload("first", release), source, Priority.NORMAL);
+    for (int i = 0; i < numWaiting; i++) {
+      scheduler.submit(new BlockingDownload("waiting" + i, release), source,
+          Priority.NORMAL);
+    }
+    assertEquals(numWaiting, scheduler.getNumWaiting());
+
+    // every waiting download is rejected once the first is done, one after
+    // the other rather than each from the done() of the previous one
+    executor.shutdown();
+    release.countDown();
+    int rejected = 0;
+    for (int i = 0; i <= numWaiting; i++) {
+      Future<Path> download = scheduler.take();
+      try {
+        download.get();
+        assertSame(first, download);
+      } catch (ExecutionException e) {
+        assertTrue(e.getCause() instanceof RejectedExecutionException);
+        rejected++;
+      }
+    }
+    assertEquals(numWaiting, rejected);
+    assertEquals(0, scheduler.getNumWaiting());
+    assertEquals(0, scheduler.getNumRunning(source));
+    assertEquals(1, started.size());
+  }
+}
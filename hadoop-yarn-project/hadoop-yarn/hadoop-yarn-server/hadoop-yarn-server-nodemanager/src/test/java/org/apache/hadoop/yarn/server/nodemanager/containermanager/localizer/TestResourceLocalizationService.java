@@ -1538,6 +1538,128 @@ public class TestResourceLocalizationService {
   
   
 
+  @Test(timeout = 100000)
+  @SuppressWarnings("unchecked")
+  public void testParallelPrivateDownloadsShareFileSystemSlots()
+      throws Exception {
+    DrainDispatcher dispatcher1 = null;
+    try {
+      dispatcher1 = new DrainDispatcher();
+      String user = "testuser";
+      ApplicationId appId = BuilderUtils.newApplicationId(1, 1);
+
+      Path localDir = lfs.makeQualified(new Path(basedir, "0"));
+      conf.setStrings(YarnConfiguration.NM_LOCAL_DIRS, localDir.toString());
+      // two resources handed out per heartbeat, two downloads at a time from
+      // a filesystem
+      conf.setInt(YarnConfiguration.NM_LOCALIZER_PRIVATE_FETCH_THREAD_COUNT,
+          2);
+      conf.setInt(YarnConfiguration.NM_LOCALIZER_FETCH_PER_FILESYSTEM_MAX, 2);
+
+      LocalDirsHandlerService localDirHandler = new LocalDirsHandlerService();
+      localDirHandler.init(conf);
+      EventHandler<ApplicationEvent> applicationBus = mock(EventHandler.class);
+      dispatcher1.register(ApplicationEventType.class, applicationBus);
+      EventHandler<ContainerEvent> containerBus = mock(EventHandler.class);
+      dispatcher1.register(ContainerEventType.class, containerBus);
+
+      ContainerExecutor exec = mock(ContainerExecutor.class);
+      DeletionService delService = mock(DeletionService.class);
+
+      dispatcher1.init(conf);
+      dispatcher1.start();
+
+      ResourceLocalizationService rls =
+          new ResourceLocalizationService(dispatcher1, exec, delService,
+            localDirHandler, nmContext);
+      dispatcher1.register(LocalizationEventType.class, rls);
+      rls.init(conf);
+      DownloadScheduler downloads = rls.getPublicLocalizer().scheduler;
+
+      rls.handle(createApplicationLocalizationEvent(user, appId));
+
+      List<LocalResourceRequest> reqs = new ArrayList<LocalResourceRequest>();
+      for (int i = 1; i <= 3; i++) {
+        reqs.add(new LocalResourceRequest(new Path("file:///tmp/rsrc" + i),
+            123L, LocalResourceType.FILE, LocalResourceVisibility.PRIVATE,
+            ""));
+      }
+      Path fileSystem = reqs.get(0).getPath();
+
+      // pre-populate the LocalizerRunner so that it is not started
+      ContainerImpl container1 = createMockContainer(user, 1);
+      String localizerId1 = container1.getContainerId().toString();
+      rls.getPrivateLocalizers().put(
+        localizerId1,
+        rls.new LocalizerRunner(new LocalizerContext(user, container1
+          .getContainerId(), new Credentials()), localizerId1));
+      LocalizerRunner localizerRunner1 = rls.getLocalizerRunner(localizerId1);
+
+      Map<LocalResourceVisibility, Collection<LocalResourceRequest>> rsrcs =
+          new HashMap<LocalResourceVisibility,
+                      Collection<LocalResourceRequest>>();
+      rsrcs.put(LocalResourceVisibility.PRIVATE, reqs);
+      dispatcher1.getEventHandler().handle(
+        new ContainerLocalizationRequestEvent(container1, rsrcs));
+      Assert
+        .assertTrue(waitForPrivateDownloadToStart(rls, localizerId1, 3, 200));
+
+      // the first heartbeat hands out two resources, which take the two
+      // slots of the filesystem
+      LocalizerHeartbeatResponse response =
+          rls.heartbeat(createLocalizerStatus(localizerId1));
+      assertEquals(LocalizerAction.LIVE, response.getLocalizerAction());
+      assertEquals(2, response.getResourceSpecs().size());
+      assertEquals(2, localizerRunner1.scheduled.size());
+      assertEquals(2, downloads.getNumRunning(fileSystem));
+      LocalResourceRequest first = new LocalResourceRequest(
+          response.getResourceSpecs().get(0).getResource());
+      LocalResourceRequest second = new LocalResourceRequest(
+          response.getResourceSpecs().get(1).getResource());
+
+      // the filesystem is busy, the third resource waits
+      response = rls.heartbeat(createLocalizerStatus(localizerId1));
+      assertEquals(0, response.getResourceSpecs().size());
+      assertEquals(2, localizerRunner1.scheduled.size());
+      LocalizedResource third = getLocalizedResource(rls, reqs.get(2),
+          LocalResourceVisibility.PRIVATE, user, appId);
+      assertEquals(1, third.sem.availablePermits());
+
+      // a download succeeds, its slot goes to the third resource
+      LocalizerStatus status = createLocalizerStatus(localizerId1);
+      LocalResourceStatus success = new LocalResourceStatusPBImpl();
+      success.setResource(first);
+      success.setStatus(ResourceStatusType.FETCH_SUCCESS);
+      success.setLocalPath(ConverterUtils.getYarnUrlFromPath(new Path(
+          localDir, "rsrc")));
+      success.setLocalSize(10);
+      status.addResourceStatus(success);
+      response = rls.heartbeat(status);
+      assertEquals(1, response.getResourceSpecs().size());
+      assertEquals(reqs.get(2), new LocalResourceRequest(
+          response.getResourceSpecs().get(0).getResource()));
+      assertEquals(0, third.sem.availablePermits());
+      assertEquals(2, localizerRunner1.scheduled.size());
+      assertEquals(2, downloads.getNumRunning(fileSystem));
+
+      // a download fails, its slot is given back
+      response = rls.heartbeat(
+          createLocalizerStatusForFailedResource(localizerId1, second));
+      assertEquals(LocalizerAction.DIE, response.getLocalizerAction());
+      assertEquals(1, localizerRunner1.scheduled.size());
+      assertEquals(1, downloads.getNumRunning(fileSystem));
+
+      // the localizer exits with the third resource still scheduled
+      localizerRunner1.run();
+      assertEquals(0, downloads.getNumRunning(fileSystem));
+      assertEquals(1, third.sem.availablePermits());
+    } finally {
+      if (dispatcher1 != null) {
+        dispatcher1.stop();
+      }
+    }
+  }
+
   @Test(timeout = 10000)
   @SuppressWarnings("unchecked")
   public void testLocalResourcePath() throws Exception {
@@ -1474,6 +1474,75 @@ public class TestLogAggregationService extends BaseContainerManagerTest {
   }
 
 
+  @Test (timeout = 50000)
+  public void testIncrementalLogAggregationKeepsAllUploads() throws Exception {
+    this.conf.set(YarnConfiguration.NM_LOG_DIRS, localLogDir.getAbsolutePath());
+    this.conf.set(YarnConfiguration.NM_REMOTE_APP_LOG_DIR,
+      this.remoteRootLogDir.getAbsolutePath());
+    this.conf.setLong(
+      YarnConfiguration.NM_LOG_AGGREGATION_ROLL_MONITORING_INTERVAL_SECONDS,
+      3600);
+    this.conf.setBoolean(YarnConfiguration.NM_LOG_AGG_INCREMENTAL_ENABLED,
+      true);
+    // would keep only the last upload, which holds only the last logs
+    this.conf.setInt(YarnConfiguration.NM_PREFIX
+        + "log-aggregation.num-log-files-per-app", 1);
+    this.conf.setLong(YarnConfiguration.DEBUG_NM_DELETE_DELAY_SEC, 3600);
+
+    ApplicationId application = BuilderUtils.newApplicationId(123456, 1);
+    ApplicationAttemptId appAttemptId =
+        BuilderUtils.newApplicationAttemptId(application, 1);
+    ContainerId container = BuilderUtils.newContainerId(appAttemptId, 1);
+
+    Context context = spy(this.context);
+    ConcurrentMap<ApplicationId, Application> maps =
+        new ConcurrentHashMap<ApplicationId, Application>();
+    Application app = mock(Application.class);
+    Map<ContainerId, Container> containers = new HashMap<ContainerId, Container>();
+    containers.put(container, mock(Container.class));
+    maps.put(application, app);
+    when(app.getContainers()).thenReturn(containers);
+    when(context.getApplications()).thenReturn(maps);
+
+    LogAggregationService logAggregationService =
+        new LogAggregationService(dispatcher, context, this.delSrvc,
+          super.dirsHandler);
+    logAggregationService.init(this.conf);
+    logAggregationService.start();
+
+    File appLogDir =
+        new File(localLogDir, ConverterUtils.toString(application));
+    appLogDir.mkdir();
+    logAggregationService.handle(new LogHandlerAppStartedEvent(application,
+      this.user, null, ContainerLogsRetentionPolicy.ALL_CONTAINERS, this.acls,
+      Records.newRecord(LogAggregationContext.class)));
+
+    writeContainerLogs(appLogDir, container,
+      new String[] { "stdout", "stderr", "syslog" });
+    AppLogAggregatorImpl aggregator =
+        (AppLogAggregatorImpl) logAggregationService.getAppLogAggregators()
+          .get(application);
+    aggregator.doLogAggregationOutOfBand();
+    Assert.assertTrue(waitAndCheckLogNum(logAggregationService, application,
+      50, 1, false, null));
+
+    Thread.sleep(2000);
+
+    writeContainerLogs(appLogDir, container,
+      new String[] { "stdout_1", "stderr_1", "syslog_1" });
+    aggregator.doLogAggregationOutOfBand();
+    // the first upload is still there
+    Assert.assertTrue(waitAndCheckLogNum(logAggregationService, application,
+      50, 2, false, null));
+
+    logAggregationService.handle(
+      new LogHandlerContainerFinishedEvent(container, 0));
+    dispatcher.await();
+    logAggregationService.handle(new LogHandlerAppFinishedEvent(application));
+    logAggregationService.stop();
+    assertEquals(0, logAggregationService.getNumAggregators());
+  }
+
   @Test (timeout = 20000)
   public void testAddNewTokenSentFromRMForLogAggregation() throws Exception {
     Configuration conf = new YarnConfiguration();
@@ -0,0 +1,146 @@
+/**
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package org.apache.hadoop.yarn.server.nodemanager.containermanager.monitor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileUtil;
+import org.apache.hadoop.yarn.api.records.ApplicationAttemptId;
+import org.apache.hadoop.yarn.api.records.ApplicationId;
+import org.apache.hadoop.yarn.api.records.ContainerId;
+import org.apache.hadoop.yarn.conf.YarnConfiguration;
+import org.apache.hadoop.yarn.server.utils.ContainerCgroups;
+import org.apache.hadoop.yarn.util.ResourceCalculatorProcessTree;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestContainerCgroupsUsage {
+
+  private static final File cgroupRoot = new File("target",
+      TestContainerCgroupsUsage.class.getName() + "-cgroups");
+
+  private static final long MB = 1024 * 1024;
+
+  private Configuration conf;
+  private ContainerId containerId1;
+  private ContainerId containerId2;
+
+  private static class TestCgroups extends ContainerCgroups {
+    String dockerId;
+    int lookups = 0;
+
+    TestCgroups(Configuration conf) {
+      super(conf.get(YarnConfiguration.NM_CONTAINER_RESIZER_CGROUPS_ROOT),
+          YarnConfiguration.DEFAULT_NM_CONTAINER_RESIZER_CGROUPS_PARENT,
+          "docker", true);
+    }
+
+    @Override
+    protected String lookupDockerId(ContainerId containerId) {
+      lookups++;
+      return dockerId;
+    }
+  }
+
+  @Before
+  public void setup() throws IOException {
+    FileUtil.fullyDelete(cgroupRoot);
+    assertTrue(cgroupRoot.mkdirs());
+    conf = new Configuration();
+    conf.set(YarnConfiguration.NM_CONTAINER_RESIZER_CGROUPS_ROOT,
+        cgroupRoot.getAbsolutePath());
+    ApplicationAttemptId attemptId = ApplicationAttemptId.newInstance(
+        ApplicationId.newInstance(0, 1), 1);
+    containerId1 = ContainerId.newContainerId(attemptId, 1);
+    containerId2 = ContainerId.newContainerId(attemptId, 2);
+  }
+
+  @After
+  public void tearDown() {
+    FileUtil.fullyDelete(cgroupRoot);
+  }
+
+  @Test
+  public void testSample() throws IOException {
+    TestCgroups cgroups = new TestCgroups(conf);
+    ContainerCgroupsUsage usage = new ContainerCgroupsUsage(cgroups);
+    writeCgroup(cgroups, "docker1", "cache 4096\nrss 100\ntotal_rss "
+        + (300 * MB) + "\n", 0);
+    cgroups.dockerId = "docker1";
+
+    // no cpu usage until there are two samples
+    ContainerCgroupsUsage.Usage sample = usage.sample(containerId1, 1000);
+    assertEquals(300 * MB, sample.getRssMemorySize());
+    assertEquals(ResourceCalculatorProcessTree.UNAVAILABLE,
+        sample.getCpuUsagePercent(), 0.01);
+
+    // 3 s of cpu in 2 s
+    writeCgroup(cgroups, "docker1", "rss " + (200 * MB) + "\n", 3000000000L);
+    sample = usage.sample(containerId1, 3000);
+    assertEquals(200 * MB, sample.getRssMemorySize());
+    assertEquals(150, sample.getCpuUsagePercent(), 0.01);
+    assertEquals(1, cgroups.lookups);
+  }
+
+  @Test
+  public void testNoCgroup() throws IOException {
+    TestCgroups cgroups = new TestCgroups(conf);
+    ContainerCgroupsUsage usage = new ContainerCgroupsUsage(cgroups);
+    assertNull(usage.sample(containerId1, 1000));
+    assertNull(usage.sample(containerId1, 2000));
+    // not looked up again
+    assertEquals(1, cgroups.lookups);
+
+    // a cgroup named after the container needs no lookup
+    writeCgroup(cgroups, containerId2.toString(), "rss 100\n", 0);
+    assertEquals(100, usage.sample(containerId2, 1000).getRssMemorySize());
+    assertEquals(1, cgroups.lookups);
+
+    // unreadable counters
+    writeCgroup(cgroups, containerId2.toString(), "cache 100\n", 0);
+    assertNull(usage.sample(containerId2, 2000));
+
+    usage.remove(containerId1);
+    assertNull(usage.sample(containerId1, 3000));
+    assertEquals(2, cgroups.lookups);
+  }
+
+  private void writeCgroup(ContainerCgroups cgroups, String cgroupName,
+      String memoryStat, long cpuUsageNs) throws IOException {
+    File memory = new File(cgroups.pathForCgroup(
+        ContainerCgroupsUsage.CONTROLLER_MEMORY, cgroupName));
+    File cpuacct = new File(cgroups.pathForCgroup(
+        ContainerCgroupsUsage.CONTROLLER_CPUACCT, cgroupName));
+    assertTrue(memory.isDirectory() || memory.mkdirs());
+    assertTrue(cpuacct.isDirectory() || cpuacct.mkdirs());
+    FileUtils.writeStringToFile(
+        new File(memory, ContainerCgroupsUsage.MEMORY_STAT), memoryStat);
+    FileUtils.writeStringToFile(
+        new File(cpuacct, ContainerCgroupsUsage.CPUACCT_USAGE),
+        cpuUsageNs + "\n");
+  }
+}
@@ -0,0 +1,212 @@
+/**
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.apache.hadoop.yarn.server.nodemanager.containermanager.monitor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileUtil;
+import org.apache.hadoop.yarn.api.records.ApplicationAttemptId;
+import org.apache.hadoop.yarn.api.records.ApplicationId;
+import org.apache.hadoop.yarn.api.records.ContainerId;
+import org.apache.hadoop.yarn.conf.YarnConfiguration;
+import org.apache.hadoop.yarn.server.api.protocolrecords.ContainerMemoryPressure;
+import org.apache.hadoop.yarn.server.utils.ContainerCgroups;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestContainerMemoryPressureMonitor {
+
+  private static final File cgroupRoot = new File("target",
+      TestContainerMemoryPressureMonitor.class.getName() + "-cgroups");
+
+  private static final long MB = 1024 * 1024;
+
+  private Configuration conf;
+  private ContainerId containerId1;
+  private ContainerId containerId2;
+
+  private static class TestCgroups extends ContainerCgroups {
+    String dockerId;
+    int lookups = 0;
+
+    TestCgroups(Configuration conf) {
+      super(conf.get(YarnConfiguration.NM_CONTAINER_RESIZER_CGROUPS_ROOT),
+          YarnConfiguration.DEFAULT_NM_CONTAINER_RESIZER_CGROUPS_PARENT,
+          "docker", true);
+    }
+
+    @Override
+    protected String lookupDockerId(ContainerId containerId) {
+      lookups++;
+      return dockerId;
+    }
+  }
+
+  @Before
+  public void setup() throws IOException {
+    FileUtil.fullyDelete(cgroupRoot);
+    assertTrue(cgroupRoot.mkdirs());
+    conf = new Configuration();
+    conf.set(YarnConfiguration.NM_CONTAINER_RESIZER_CGROUPS_ROOT,
+        cgroupRoot.getAbsolutePath());
+    conf.setFloat(YarnConfiguration.NM_MEMORY_PRESSURE_MONITOR_MAJOR_FAULT_RATE,
+        100);
+    ApplicationAttemptId attemptId = ApplicationAttemptId.newInstance(
+        ApplicationId.newInstance(0, 1), 1);
+    containerId1 = ContainerId.newContainerId(attemptId, 1);
+    containerId2 = ContainerId.newContainerId(attemptId, 2);
+  }
+
+  @After
+  public void tearDown() {
+    FileUtil.fullyDelete(cgroupRoot);
+  }
+
+  @Test
+  public void testComputeScore() {
+    long allocated = 1000 * MB;
+    // up to 80% of the allocation there is no pressure
+    assertEquals(0, ContainerMemoryPressureMonitor.computeScore(
+        800 * MB, allocated, 0, 0, 100));
+    assertEquals(25, ContainerMemoryPressureMonitor.computeScore(
+        1000 * MB, allocated, 0, 0, 100));
+    assertEquals(50, ContainerMemoryPressureMonitor.computeScore(
+        1500 * MB, allocated, 0, 0, 100));
+    // half of the swap mark and half of the fault rate
+    assertEquals(25, ContainerMemoryPressureMonitor.computeScore(
+        0, allocated, 50 * MB, 50, 100));
+    assertEquals(ContainerMemoryPressure.MAX_SCORE,
+        ContainerMemoryPressureMonitor.computeScore(
+            2000 * MB, allocated, 500 * MB, 1000, 100));
+  }
+
+  @Test
+  public void testSample() throws IOException {
+    writeMemory(containerId1.toString(), 1100 * MB, 100 * MB, 0, 0);
+    TestCgroups cgroups = new TestCgroups(conf);
+    ContainerMemoryPressureMonitor monitor =
+        new ContainerMemoryPressureMonitor(conf, cgroups);
+    Map<ContainerId, Long> allocated = new HashMap<ContainerId, Long>();
+    allocated.put(containerId1, 1000 * MB);
+
+    // the inactive page cache does not count
+    monitor.sample(allocated, 1000);
+    List<ContainerMemoryPressure> pressures = monitor.pullPressures();
+    assertEquals(1, pressures.size());
+    ContainerMemoryPressure pressure = pressures.get(0);
+    assertEquals(containerId1, pressure.getContainerId());
+    assertEquals(25, pressure.getScore());
+    assertEquals(1000, pressure.getUsageMb());
+
+    // 300 major faults in 3 seconds
+    writeMemory(containerId1.toString(), 1100 * MB, 100 * MB, 100 * MB, 300);
+    monitor.sample(allocated, 4000);
+    pressure = monitor.pullPressures().get(0);
+    assertEquals(75, pressure.getScore());
+    assertEquals(100, pressure.getSwapMb());
+    assertEquals(100, pressure.getMajorFaultsPerSec());
+    assertEquals(0, cgroups.lookups);
+  }
+
+  @Test
+  public void testRelief() throws IOException {
+    writeMemory(containerId1.toString(), 1000 * MB, 0, 0, 0);
+    TestCgroups cgroups = new TestCgroups(conf);
+    ContainerMemoryPressureMonitor monitor =
+        new ContainerMemoryPressureMonitor(conf, cgroups);
+    Map<ContainerId, Long> allocated = new HashMap<ContainerId, Long>();
+    allocated.put(containerId1, 1000 * MB);
+    monitor.sample(allocated, 1000);
+    assertEquals(25, monitor.pullPressures().get(0).getScore());
+
+    // the relief is reported for a few heartbeats
+    writeMemory(containerId1.toString(), 500 * MB, 0, 0, 0);
+    monitor.sample(allocated, 2000);
+    for (int i = 0; i < ContainerMemoryPressureMonitor.RELIEF_REPORTS; i++) {
+      List<ContainerMemoryPressure> pressures = monitor.pullPressures();
+      assertEquals(1, pressures.size());
+      assertEquals(0, pressures.get(0).getScore());
+      assertEquals(500, pressures.get(0).getUsageMb());
+    }
+    assertTrue(monitor.pullPressures().isEmpty());
+  }
+
+  @Test
+  public void testFinishedContainerForgotten() throws IOException {
+    writeMemory(containerId1.toString(), 1000 * MB, 0, 0, 0);
+    TestCgroups cgroups = new TestCgroups(conf);
+    ContainerMemoryPressureMonitor monitor =
+        new ContainerMemoryPressureMonitor(conf, cgroups);
+    Map<ContainerId, Long> allocated = new HashMap<ContainerId, Long>();
+    allocated.put(containerId1, 1000 * MB);
+    monitor.sample(allocated, 1000);
+
+    allocated.clear();
+    monitor.sample(allocated, 2000);
+    assertTrue(monitor.pullPressures().isEmpty());
+  }
+
+  @Test
+  public void testDockerIdCgroup() throws IOException {
+    String dockerId = "4f2a5c0e9d1b";
+    writeMemory(dockerId, 1200 * MB, 0, 0, 0);
+    TestCgroups cgroups = new TestCgroups(conf);
+    ContainerMemoryPressureMonitor monitor =
+        new ContainerMemoryPressureMonitor(conf, cgroups);
+    cgroups.dockerId = dockerId;
+    Map<ContainerId, Long> allocated = new HashMap<ContainerId, Long>();
+    allocated.put(containerId1, 1000 * MB);
+    monitor.sample(allocated, 1000);
+    monitor.sample(allocated, 2000);
+    assertEquals(50, monitor.pullPressures().get(0).getScore());
+    assertEquals(1, cgroups.lookups);
+
+    // no cgroup at all, looked up only once
+    cgroups.dockerId = null;
+    allocated.put(containerId2, 1000 * MB);
+    monitor.sample(allocated, 3000);
+    monitor.sample(allocated, 4000);
+    assertEquals(1, monitor.pullPressures().size());
+    assertEquals(2, cgroups.lookups);
+  }
+
+  private void writeMemory(String name, long usage, long inactiveFile,
+      long swap, long majorFaults) throws IOException {
+    File dir = new File(cgroupRoot, "memory/docker/" + name);
+    if (!dir.isDirectory()) {
+      assertTrue(dir.mkdirs());
+    }
+    FileUtils.writeStringToFile(new File(dir,
+        ContainerMemoryPressureMonitor.MEMORY_USAGE_IN_BYTES), usage + "\n");
+    FileUtils.writeStringToFile(new File(dir,
+        ContainerMemoryPressureMonitor.MEMORY_STAT),
+        "cache " + inactiveFile + "\ninactive_file " + inactiveFile
+        + "\nswap 0\npgmajfault 0\ntotal_inactive_file " + inactiveFile
+        + "\ntotal_swap " + swap + "\ntotal_pgmajfault " + majorFaults + "\n");
+  }
+}
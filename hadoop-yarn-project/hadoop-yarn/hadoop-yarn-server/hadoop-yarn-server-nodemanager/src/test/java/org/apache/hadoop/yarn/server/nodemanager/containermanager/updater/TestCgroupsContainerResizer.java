@@ -0,0 +1,265 @@
+/**
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package org.apache.hadoop.yarn.server.nodemanager.containermanager.updater;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileUtil;
+import org.apache.hadoop.yarn.api.records.ApplicationAttemptId;
+import org.apache.hadoop.yarn.api.records.ApplicationId;
+import org.apache.hadoop.yarn.api.records.ContainerId;
+import org.apache.hadoop.yarn.conf.YarnConfiguration;
+import org.apache.hadoop.yarn.server.utils.ContainerCgroups;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestCgroupsContainerResizer {
+
+  private static final File cgroupRoot = new File("target",
+      TestCgroupsContainerResizer.class.getName() + "-cgroups");
+
+  private Configuration conf;
+  private ContainerId containerId1;
+  private ContainerId containerId2;
+
+  private static class TestResizer extends CgroupsContainerResizer {
+    String dockerId;
+    int lookups = 0;
+
+    @Override
+    ContainerCgroups createCgroups(String cgroupRoot, String cgroupParent,
+        String dockerExecutor) {
+      return new ContainerCgroups(cgroupRoot, cgroupParent, dockerExecutor,
+          false) {
+        @Override
+        protected String lookupDockerId(ContainerId containerId) {
+          lookups++;
+          return dockerId;
+        }
+      };
+    }
+  }
+
+  /**
+   * Records what falls back to docker.
+   */
+  private static class FallbackResizer extends DockerContainerResizer {
+    final List<ContainerResize> resized = new ArrayList<ContainerResize>();
+
+    @Override
+    public List<ContainerResize> resize(List<ContainerResize> resizes) {
+      resized.addAll(resizes);
+      return Collections.emptyList();
+    }
+  }
+
+  @Before
+  public void setup() throws IOException {
+    FileUtil.fullyDelete(cgroupRoot);
+    assertTrue(cgroupRoot.mkdirs());
+    conf = new Configuration();
+    conf.set(YarnConfiguration.NM_CONTAINER_RESIZER_CGROUPS_ROOT,
+        cgroupRoot.getAbsolutePath());
+    conf.setBoolean(
+        YarnConfiguration.NM_CONTAINER_RESIZER_CGROUPS_DOCKER_FALLBACK, false);
+    ApplicationId appId = ApplicationId.newInstance(0, 1);
+    ApplicationAttemptId attemptId = ApplicationAttemptId.newInstance(appId, 1);
+    containerId1 = ContainerId.newContainerId(attemptId, 1);
+    containerId2 = ContainerId.newContainerId(attemptId, 2);
+  }
+
+  @After
+  public void tearDown() {
+    FileUtil.fullyDelete(cgroupRoot);
+  }
+
+  @Test
+  public void testResizeByContainerId() throws IOException {
+    createCgroup(containerId1.toString());
+    createCgroup(containerId2.toString());
+    TestResizer resizer = createResizer();
+
+    List<ContainerResize> failed = resizer.resize(Arrays.asList(
+        ContainerResize.newCpuQuota(containerId1, 1000),
+        ContainerResize.newCpuset(containerId2,
+            new HashSet<Integer>(Arrays.asList(2, 3))),
+        ContainerResize.newMemory(containerId1, 512)));
+    assertTrue(failed.isEmpty());
+    assertEquals("1000", read("cpu", containerId1.toString(),
+        CgroupsContainerResizer.CPU_QUOTA_US));
+    assertEquals("2,3", read("cpuset", containerId2.toString(),
+        CgroupsContainerResizer.CPUSET_CPUS));
+    assertEquals(Long.toString(512L * 1024 * 1024), read("memory",
+        containerId1.toString(), CgroupsContainerResizer.MEMORY_LIMIT_IN_BYTES));
+    // the cgroups are named after the containers, docker is never asked
+    assertEquals(0, resizer.lookups);
+  }
+
+  @Test
+  public void testResizeByDockerId() throws IOException {
+    String dockerId = "4f2a5c0e9d1b";
+    createCgroup(dockerId);
+    TestResizer resizer = createResizer();
+    resizer.dockerId = dockerId;
+
+    assertTrue(resizer.resize(Arrays.asList(
+        ContainerResize.newMemory(containerId1, 1024))).isEmpty());
+    assertTrue(resizer.resize(Arrays.asList(
+        ContainerResize.newCpuQuota(containerId1, -1))).isEmpty());
+    assertEquals(Long.toString(1024L * 1024 * 1024), read("memory", dockerId,
+        CgroupsContainerResizer.MEMORY_LIMIT_IN_BYTES));
+    assertEquals("-1", read("cpu", dockerId,
+        CgroupsContainerResizer.CPU_QUOTA_US));
+    // the docker id is looked up once per container
+    assertEquals(1, resizer.lookups);
+
+    resizer.release(containerId1);
+    resizer.resize(Arrays.asList(ContainerResize.newCpuQuota(containerId1, -1)));
+    assertEquals(2, resizer.lookups);
+  }
+
+  @Test
+  public void testMissingCgroup() throws IOException {
+    createCgroup(containerId1.toString());
+    TestResizer resizer = createResizer();
+
+    ContainerResize missing = ContainerResize.newMemory(containerId2, 1024);
+    List<ContainerResize> failed = resizer.resize(Arrays.asList(
+        ContainerResize.newMemory(containerId1, 1024), missing));
+    assertEquals(Arrays.asList(missing), failed);
+
+    // with the fallback the container is resized by docker instead
+    FallbackResizer fallback = new FallbackResizer();
+    resizer.setFallbackResizer(fallback);
+    failed = resizer.resize(Arrays.asList(missing));
+    assertTrue(failed.isEmpty());
+    assertEquals(Arrays.asList(missing), fallback.resized);
+  }
+
+  @Test
+  public void testFreezeSuspended() throws IOException {
+    createCgroup(containerId1.toString());
+    File freezerState = new File(cgroupRoot, "freezer/docker/"
+        + containerId1 + "/" + CgroupsContainerResizer.FREEZER_STATE);
+
+    // by default a suspended container only gets the small cpu quota
+    TestResizer resizer = createResizer();
+    assertTrue(resizer.resize(Arrays.asList(ContainerResize.newCpuQuota(
+        containerId1, ContainersUpdater.SUSPENDED_CPU_QUOTA))).isEmpty());
+    assertFalse(freezerState.exists());
+
+    conf.setBoolean(
+        YarnConfiguration.NM_CONTAINER_RESIZER_CGROUPS_FREEZE_SUSPENDED, true);
+    resizer = createResizer();
+    assertTrue(resizer.resize(Arrays.asList(ContainerResize.newCpuQuota(
+        containerId1, ContainersUpdater.SUSPENDED_CPU_QUOTA))).isEmpty());
+    assertEquals(CgroupsContainerResizer.FROZEN, read("freezer",
+        containerId1.toString(), CgroupsContainerResizer.FREEZER_STATE));
+
+    assertTrue(resizer.resize(Arrays.asList(ContainerResize.newCpuQuota(
+        containerId1, ContainersUpdater.UNLIMITED_CPU_QUOTA))).isEmpty());
+    assertEquals(CgroupsContainerResizer.THAWED, read("freezer",
+        containerId1.toString(), CgroupsContainerResizer.FREEZER_STATE));
+    assertEquals("-1", read("cpu", containerId1.toString(),
+        CgroupsContainerResizer.CPU_QUOTA_US));
+  }
+
+  @Test
+  public void testMemoryUsage() throws IOException {
+    createCgroup(containerId1.toString());
+    createCgroup(containerId2.toString());
+    TestResizer resizer = createResizer();
+    write("memory", containerId1.toString(), CgroupsContainerResizer.MEMORY_STAT,
+        "cache 1073741824\nrss 536870912\nrss_huge 0\nmapped_file 0\n");
+    write("memory", containerId1.toString(),
+        CgroupsContainerResizer.MEMORY_OOM_CONTROL,
+        "oom_kill_disable 0\nunder_oom 0\noom_kill 2\n");
+
+    ContainerMemoryUsage usage = resizer.getMemoryUsage(containerId1);
+    assertEquals(512, usage.getRssMb());
+    assertEquals(1024, usage.getCacheMb());
+    assertEquals(2, usage.getOomKills());
+
+    // older kernels do not count the OOM kills
+    write("memory", containerId2.toString(), CgroupsContainerResizer.MEMORY_STAT,
+        "cache 0\nrss 1048576\n");
+    usage = resizer.getMemoryUsage(containerId2);
+    assertEquals(1, usage.getRssMb());
+    assertEquals(-1, usage.getOomKills());
+
+    ApplicationId appId = ApplicationId.newInstance(0, 2);
+    assertNull(resizer.getMemoryUsage(ContainerId.newContainerId(
+        ApplicationAttemptId.newInstance(appId, 1), 1)));
+  }
+
+  @Test
+  public void testDockerUpdateOptions() {
+    assertEquals(Arrays.asList("--cpu-quota", "1000"),
+        DockerContainerResizer.getUpdateOption(
+            ContainerResize.newCpuQuota(containerId1, 1000)));
+    assertEquals(Arrays.asList("--cpuset-cpus", "0"),
+        DockerContainerResizer.getUpdateOption(ContainerResize.newCpuset(
+            containerId1, new HashSet<Integer>(Arrays.asList(0)))));
+    assertEquals(Arrays.asList("--memory", "128m"),
+        DockerContainerResizer.getUpdateOption(
+            ContainerResize.newMemory(containerId1, 128)));
+  }
+
+  private TestResizer createResizer() throws IOException {
+    TestResizer resizer = new TestResizer();
+    resizer.setConf(conf);
+    resizer.init();
+    return resizer;
+  }
+
+  private void createCgroup(String name) throws IOException {
+    for (String controller : new String[]{"cpu", "cpuset", "freezer",
+        "memory"}) {
+      File dir = new File(cgroupRoot, controller + "/docker/" + name);
+      assertTrue(dir.mkdirs());
+    }
+  }
+
+  private void write(String controller, String name, String param,
+      String content) throws IOException {
+    FileUtils.writeStringToFile(
+        new File(cgroupRoot, controller + "/docker/" + name + "/" + param),
+        content);
+  }
+
+  private String read(String controller, String name, String param)
+      throws IOException {
+    return FileUtils.readFileToString(
+        new File(cgroupRoot, controller + "/docker/" + name + "/" + param));
+  }
+}
@@ -0,0 +1,374 @@
+/**
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package org.apache.hadoop.yarn.server.nodemanager.containermanager.updater;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.yarn.api.records.ApplicationAttemptId;
+import org.apache.hadoop.yarn.api.records.ApplicationId;
+import org.apache.hadoop.yarn.api.records.ContainerId;
+import org.apache.hadoop.yarn.api.records.Resource;
+import org.apache.hadoop.yarn.conf.YarnConfiguration;
+import org.apache.hadoop.yarn.server.api.protocolrecords.NodeContainerUpdate;
+import org.apache.hadoop.yarn.server.nodemanager.Context;
+import org.apache.hadoop.yarn.server.nodemanager.CoresManager;
+import org.apache.hadoop.yarn.server.nodemanager.NodeStatusUpdater;
+import org.apache.hadoop.yarn.server.nodemanager.containermanager.container.Container;
+import org.apache.hadoop.yarn.server.nodemanager.containermanager.container.ContainerState;
+import org.apache.hadoop.yarn.server.nodemanager.metrics.NodeManagerMetrics;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+public class TestContainersUpdater {
+
+  private CoresManager coresManager;
+  private NodeManagerMetrics metrics;
+  private RecordingResizer resizer;
+  private ContainersUpdater updater;
+
+  /**
+   * Records the batches instead of resizing anything.
+   */
+  private static class RecordingResizer extends DockerContainerResizer {
+    final List<List<ContainerResize>> batches =
+        new ArrayList<List<ContainerResize>>();
+    ContainerMemoryUsage usage;
+
+    @Override
+    public List<ContainerResize> resize(List<ContainerResize> resizes) {
+      batches.add(new ArrayList<ContainerResize>(resizes));
+      return Collections.emptyList();
+    }
+
+    @Override
+    public ContainerMemoryUsage getMemoryUsage(ContainerId containerId) {
+      return usage;
+    }
+  }
+
+  @Before
+  public void setup() {
+    coresManager = mock(CoresManager.class);
+    Context context = mock(Context.class);
+    when(context.getCoresManager()).thenReturn(coresManager);
+    metrics = mock(NodeManagerMetrics.class);
+    updater = new ContainersUpdater(context, metrics, null);
+    updater.init(new Configuration());
+    // the updater is not started, batches are applied by the test
+    resizer = new RecordingResizer();
+    updater.resizer = resizer;
+  }
+
+  @After
+  public void tearDown() {
+    updater.stop();
+  }
+
+  @Test
+  public void testUpdatesAreCoalescedPerContainer() {
+    Container container = createContainer(1, 4096);
+    when(coresManager.resetCores(any(ContainerId.class), anyInt()))
+        .thenReturn(new HashSet<Integer>(Arrays.asList(1, 2)));
+
+    updater.handle(new ContainersUpdaterEvent(container,
+        createUpdate(container.getContainerId(), 2048, 2, false, false)));
+    updater.handle(new ContainersUpdaterEvent(container,
+        createUpdate(container.getContainerId(), 1024, 2, false, false)));
+
+    // the container is queued once, the second update supersedes the first
+    assertEquals(1, updater.readyContainers.size());
+    // cpuset and memory
+    verify(metrics).pendingContainerUpdates(eq(2));
+    // still cpuset and memory, with a new target
+    verify(metrics).pendingContainerUpdates(eq(0));
+
+    List<Integer> memory = new ArrayList<Integer>();
+    drain();
+    for (List<ContainerResize> batch : resizer.batches) {
+      assertEquals(1, batch.size());
+      if (batch.get(0).getType() == ContainerResize.Type.MEMORY) {
+        memory.add(batch.get(0).getValue());
+      }
+    }
+    assertEquals(ContainerResize.Type.CPUSET,
+        resizer.batches.get(0).get(0).getType());
+    assertEquals(Arrays.asList(3072, 2048, 1024), memory);
+    assertTrue(updater.readyContainers.isEmpty());
+
+    // the next update starts from the memory which was applied
+    updater.handle(new ContainersUpdaterEvent(container,
+        createUpdate(container.getContainerId(), 4096, 2, false, true)));
+    resizer.batches.clear();
+    drain();
+    assertEquals(3, resizer.batches.size());
+    assertEquals(ContainerResize.Type.CPU_QUOTA,
+        resizer.batches.get(0).get(0).getType());
+    assertEquals(ContainersUpdater.UNLIMITED_CPU_QUOTA,
+        resizer.batches.get(0).get(0).getValue());
+    assertEquals(4096, resizer.batches.get(2).get(0).getValue());
+  }
+
+  @Test
+  public void testContainersAreResizedInBatches() {
+    Container container1 = createContainer(1, 2048);
+    Container container2 = createContainer(2, 2048);
+    // all cores are preempted
+    when(coresManager.resetCores(any(ContainerId.class), anyInt()))
+        .thenAnswer(new Answer<Set<Integer>>() {
+          @Override
+          public Set<Integer> answer(InvocationOnMock invocation) {
+            return new HashSet<Integer>();
+          }
+        });
+
+    updater.handle(new ContainersUpdaterEvent(container1,
+        createUpdate(container1.getContainerId(), 2048, 0, true, false)));
+    updater.handle(new ContainersUpdaterEvent(container2,
+        createUpdate(container2.getContainerId(), 2048, 0, true, false)));
+    // quota, cpuset and memory
+    verify(metrics, times(2)).pendingContainerUpdates(eq(3));
+
+    drain();
+    assertEquals(3, resizer.batches.size());
+    List<ContainerResize> first = resizer.batches.get(0);
+    assertEquals(2, first.size());
+    for (ContainerResize resize : first) {
+      // both containers are frozen on core 0
+      assertEquals(ContainerResize.Type.CPU_QUOTA, resize.getType());
+      assertEquals(ContainersUpdater.SUSPENDED_CPU_QUOTA, resize.getValue());
+    }
+    assertEquals("0", resizer.batches.get(1).get(0).getCpusetString());
+  }
+
+  @Test
+  public void testCleanupDropsPendingUpdates() {
+    Container container = createContainer(1, 4096);
+    when(coresManager.resetCores(any(ContainerId.class), anyInt()))
+        .thenReturn(new HashSet<Integer>(Arrays.asList(1)));
+    updater.handle(new ContainersUpdaterEvent(container,
+        createUpdate(container.getContainerId(), 2048, 1, false, false)));
+
+    updater.handle(new ContainersUpdaterEvent(container,
+        ContainersUpdaterEventType.CLEANUP_CONTAINER));
+    assertTrue(updater.containers.isEmpty());
+    verify(metrics).endPendingContainerUpdates(eq(2));
+    drain();
+    assertTrue(resizer.batches.isEmpty());
+  }
+
+  @Test(timeout = 10000)
+  public void testConcurrentFirstUpdates() throws Exception {
+    when(coresManager.resetCores(any(ContainerId.class), anyInt()))
+        .thenReturn(new HashSet<Integer>(Arrays.asList(1)));
+    for (int id = 1; id <= 100; id++) {
+      final Container container = createContainer(id, 4096);
+      final CountDownLatch start = new CountDownLatch(1);
+      Thread[] threads = new Thread[2];
+      for (int i = 0; i < threads.length; i++) {
+        // mocks are stubbed before the threads start
+        final ContainersUpdaterEvent event = new ContainersUpdaterEvent(
+            container, createUpdate(container.getContainerId(), 1024 * (i + 1),
+                1, false, false));
+        threads[i] = new Thread() {
+          @Override
+          public void run() {
+            try {
+              start.await();
+            } catch (InterruptedException e) {
+              return;
+            }
+            updater.handle(event);
+          }
+        };
+        threads[i].start();
+      }
+      start.countDown();
+      for (Thread thread : threads) {
+        thread.join();
+      }
+      // both updates went to the same state, which is queued once
+      assertEquals(1, updater.readyContainers.size());
+      assertSame(updater.readyContainers.peek(),
+          updater.containers.get(container.getContainerId()));
+      updater.readyContainers.clear();
+    }
+  }
+
+  @Test
+  public void testUpdatesOfStoppedContainerFail() {
+    Container container = createContainer(1, 4096);
+    when(coresManager.resetCores(any(ContainerId.class), anyInt()))
+        .thenReturn(new HashSet<Integer>(Arrays.asList(1)));
+    updater.handle(new ContainersUpdaterEvent(container,
+        createUpdate(container.getContainerId(), 2048, 1, false, false)));
+
+    // the container is killed before the updater gets to it
+    when(container.getContainerState()).thenReturn(ContainerState.KILLING);
+    drain();
+    assertTrue(resizer.batches.isEmpty());
+    assertTrue(updater.containers.isEmpty());
+    // cpuset and memory
+    verify(metrics, times(2)).failedContainerUpdate();
+    verify(metrics).endPendingContainerUpdates(eq(2));
+  }
+
+  @Test
+  public void testShrinkFollowsMemoryUsage() {
+    Container container = createContainer(1, 40960);
+    when(coresManager.resetCores(any(ContainerId.class), anyInt()))
+        .thenReturn(new HashSet<Integer>(Arrays.asList(1)));
+
+    // mostly page cache, the target is reached in one step
+    resizer.usage = new ContainerMemoryUsage(1024, 30000, 0);
+    updater.handle(new ContainersUpdaterEvent(container,
+        createUpdate(container.getContainerId(), 2048, 1, false, false)));
+    drain();
+    assertEquals(Arrays.asList(2048), memorySteps());
+    verify(metrics).addContainerMemoryShrinkDuration(anyLong());
+
+    // the limit jumps right above the rss, then follows it while it is
+    // swapped out
+    Container container2 = createContainer(2, 40960);
+    resizer.batches.clear();
+    resizer.usage = new ContainerMemoryUsage(8192, 4096, 3);
+    updater.handle(new ContainersUpdaterEvent(container2,
+        createUpdate(container2.getContainerId(), 2048, 1, false, false)));
+    List<ContainersUpdater.ContainerUpdateState> batch =
+        new ArrayList<ContainersUpdater.ContainerUpdateState>();
+    // cpuset and the first memory step
+    for (int i = 0; i < 2; i++) {
+      batch.clear();
+      updater.readyContainers.drainTo(batch);
+      updater.applyBatch(batch);
+    }
+    assertEquals(Arrays.asList(8192 + 256), memorySteps());
+    // the rss does not go down, the memory is shrunk by fixed steps
+    batch.clear();
+    updater.readyContainers.drainTo(batch);
+    updater.applyBatch(batch);
+    assertEquals(Arrays.asList(8192 + 256, 8192 + 256 - 1024), memorySteps());
+    // the rss went down and a process was OOM killed
+    resizer.usage = new ContainerMemoryUsage(1500, 100, 4);
+    drain();
+    assertEquals(Arrays.asList(8192 + 256, 8192 + 256 - 1024, 2048),
+        memorySteps());
+    verify(metrics).shrinkOomKills(eq(1));
+    verify(metrics, times(2)).addContainerMemoryShrinkDuration(anyLong());
+  }
+
+  @Test
+  public void testOutOfBandHeartbeatOnceSuspended() {
+    updater.stop();
+    Context context = mock(Context.class);
+    when(context.getCoresManager()).thenReturn(coresManager);
+    NodeStatusUpdater nodeStatusUpdater = mock(NodeStatusUpdater.class);
+    updater = new ContainersUpdater(context, metrics, null, nodeStatusUpdater);
+    Configuration conf = new Configuration();
+    conf.setBoolean(
+        YarnConfiguration.NM_CONTAINER_UPDATER_OUT_OF_BAND_HEARTBEAT, true);
+    updater.init(conf);
+    updater.resizer = resizer;
+    when(coresManager.resetCores(any(ContainerId.class), anyInt()))
+        .thenReturn(new HashSet<Integer>(Arrays.asList(1)));
+
+    // a resize which is not a suspend waits for the next heartbeat
+    Container container = createContainer(1, 4096);
+    updater.handle(new ContainersUpdaterEvent(container,
+        createUpdate(container.getContainerId(), 2048, 1, false, false)));
+    drain();
+    verify(nodeStatusUpdater, never()).sendOutofBandHeartBeat();
+
+    // the heartbeat is sent once the last step of the shrink is applied
+    updater.handle(new ContainersUpdaterEvent(container,
+        createUpdate(container.getContainerId(), 1024, 1, true, false)));
+    List<ContainersUpdater.ContainerUpdateState> batch =
+        new ArrayList<ContainersUpdater.ContainerUpdateState>();
+    updater.readyContainers.drainTo(batch);
+    updater.applyBatch(batch);
+    verify(nodeStatusUpdater, never()).sendOutofBandHeartBeat();
+    drain();
+    verify(nodeStatusUpdater).sendOutofBandHeartBeat();
+  }
+
+  private List<Integer> memorySteps() {
+    List<Integer> memory = new ArrayList<Integer>();
+    for (List<ContainerResize> batch : resizer.batches) {
+      for (ContainerResize resize : batch) {
+        if (resize.getType() == ContainerResize.Type.MEMORY) {
+          memory.add(resize.getValue());
+        }
+      }
+    }
+    return memory;
+  }
+
+  private void drain() {
+    while (!updater.readyContainers.isEmpty()) {
+      List<ContainersUpdater.ContainerUpdateState> batch =
+          new ArrayList<ContainersUpdater.ContainerUpdateState>();
+      updater.readyContainers.drainTo(batch);
+      updater.applyBatch(batch);
+    }
+  }
+
+  private Container createContainer(int id, int memory) {
+    ApplicationId appId = ApplicationId.newInstance(0, 1);
+    ApplicationAttemptId attemptId = ApplicationAttemptId.newInstance(appId, 1);
+    ContainerId containerId = ContainerId.newContainerId(attemptId, id);
+    Container container = mock(Container.class);
+    when(container.getContainerId()).thenReturn(containerId);
+    when(container.getResource()).thenReturn(Resource.newInstance(memory, 2));
+    when(container.getContainerState()).thenReturn(ContainerState.RUNNING);
+    return container;
+  }
+
+  private NodeContainerUpdate createUpdate(ContainerId containerId, int memory,
+      int cores, boolean suspend, boolean resume) {
+    NodeContainerUpdate update = mock(NodeContainerUpdate.class);
+    when(update.getContainerId()).thenReturn(containerId);
+    when(update.getMemory()).thenReturn(memory);
+    when(update.getCores()).thenReturn(cores);
+    when(update.getSuspend()).thenReturn(suspend);
+    when(update.getResume()).thenReturn(resume);
+    return update;
+  }
+}
@@ -0,0 +1,78 @@
+/**
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package org.apache.hadoop.yarn.server.nodemanager.containermanager.updater;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class TestMemoryShrinkPlanner {
+
+  private final MemoryShrinkPlanner planner = new MemoryShrinkPlanner(256);
+
+  @Test
+  public void testFixedStepsWithoutUsage() {
+    assertEquals(Arrays.asList(3072, 2048, 1000), plan(4096, 1000));
+    // never shrink below the target on the way down
+    assertEquals(Arrays.asList(1000), plan(1500, 1000));
+    assertEquals(Arrays.asList(512, 256, 128), plan(1024, 0));
+    // memory is grown in one go
+    assertEquals(Arrays.asList(4096), plan(2048, 4096));
+  }
+
+  @Test
+  public void testJumpToTargetWhenUsageAllows() {
+    // everything fits under the target
+    assertEquals(2048, planner.nextLimit(40960, 2048,
+        new ContainerMemoryUsage(1000, 1000, 0)));
+    // only page cache has to be reclaimed
+    assertEquals(2048, planner.nextLimit(40960, 2048,
+        new ContainerMemoryUsage(1792, 30000, 0)));
+    // the cache is unknown, the rss is enough to decide
+    assertEquals(2048, planner.nextLimit(40960, 2048,
+        new ContainerMemoryUsage(1024, -1, -1)));
+  }
+
+  @Test
+  public void testJumpToWorkingSetThenStep() {
+    ContainerMemoryUsage usage = new ContainerMemoryUsage(8192, 4096, 0);
+    // right above the rss
+    assertEquals(8448, planner.nextLimit(40960, 2048, usage));
+    // near the working set, fixed steps
+    assertEquals(7424, planner.nextLimit(8448, 2048, usage));
+    assertEquals(2048, planner.nextLimit(2500, 2048, usage));
+    // the target is never below the minimum container memory
+    assertEquals(MemoryShrinkPlanner.MIN_CONTAINER_MEMORY_MB,
+        planner.nextLimit(200, 0, new ContainerMemoryUsage(190, 0, 0)));
+  }
+
+  private List<Integer> plan(int current, int target) {
+    List<Integer> steps = new ArrayList<Integer>();
+    int memory = current;
+    do {
+      memory = planner.nextLimit(memory, target, null);
+      steps.add(memory);
+    } while (memory != MemoryShrinkPlanner.getTarget(target));
+    return steps;
+  }
+}
@@ -19,6 +19,7 @@
 package org.apache.hadoop.yarn.server.nodemanager.webapp;
 
 import java.io.IOException;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -147,4 +148,14 @@ public Set<Integer> getCpuCores() {
 	// TODO Auto-generated method stub
 	return null;
 }
+
+@Override
+public Set<Integer> getMemoryNodes() {
+	return Collections.emptySet();
+}
+
+@Override
+public boolean isRecovered() {
+	return false;
+}
 }
@@ -1,6 +1,8 @@
 package org.apache.hadoo.yarn.server.resourcemanager.dockermonitor;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Future;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.yarn.api.records.ApplicationId;
@@ -8,6 +10,8 @@ import org.apache.hadoop.yarn.api.records.ContainerId;
 import org.apache.hadoop.yarn.api.records.Resource;
 import org.apache.hadoop.yarn.server.resourcemanager.RMContext;
 
+import com.google.common.util.concurrent.Futures;
+
 public abstract class  AbstractDockerMonitor implements DockerMonitor {
   
 	boolean isWorking;
@@ -60,6 +64,19 @@ public abstract class  AbstractDockerMonitor implements DockerMonitor {
 		return null;
 	}
 	
+	/**
+	 * Execute the commands one at a time, the results are done on return.
+	 */
+	@Override
+	public List<Future<Boolean>> containerCommands(List<DockerCommand> commands) {
+		List<Future<Boolean>> results =
+			new ArrayList<Future<Boolean>>(commands.size());
+		for (DockerCommand command : commands) {
+			results.add(Futures.immediateFuture(ExecuteCommand(command)));
+		}
+		return results;
+	}
+	
 	public abstract boolean ExecuteCommand(DockerCommand command);
 	
 	public abstract void closeMonitor();
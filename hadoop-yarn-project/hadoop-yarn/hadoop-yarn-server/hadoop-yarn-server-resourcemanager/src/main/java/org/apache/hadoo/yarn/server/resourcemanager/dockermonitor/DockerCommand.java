@@ -8,9 +8,13 @@ import org.apache.hadoop.yarn.api.records.Resource;
 
 public class DockerCommand {
 	
-	static int DEHYDRATE = 00; 
-	static int RESUME    = 01;
-	static int UPDATE    = 02;
+	public static final int DEHYDRATE = 00; 
+	public static final int RESUME    = 01;
+	public static final int UPDATE    = 02;
+
+	private static final String NAME = DockerCommand.class.getName();
+	// number of entries of a command map
+	private static final int MAP_SIZE = 5;
 	
 	String containerId;
 	
@@ -39,8 +43,9 @@ public class DockerCommand {
 	}
 	
 	static Map<String,String> commandToMap(DockerCommand command){
-		Map<String,String> dockerCommand = new HashMap<String,String>();
-		dockerCommand.put("__name__", DockerCommand.class.getName());
+		// sized so that it never rehashes
+		Map<String,String> dockerCommand = new HashMap<String,String>(MAP_SIZE * 4 / 3 + 1);
+		dockerCommand.put("__name__", NAME);
 		dockerCommand.put("containerId", command.getContainerId());
 		dockerCommand.put("commandType", Integer.toString(command.getType()));
 		
@@ -1,6 +1,7 @@
 package org.apache.hadoo.yarn.server.resourcemanager.dockermonitor;
 
 import java.util.List;
+import java.util.concurrent.Future;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.yarn.api.records.ApplicationId;
@@ -22,5 +23,12 @@ public interface DockerMonitor{
 	public List<DockerInfo> pollAppContainerStatus(ApplicationId applicationId);
 	
 	public List<DockerInfo> pollContainersStatus(List<ContainerId> containerIds);
+	
+	/**
+	 * Execute a batch of commands without waiting for their results, the
+	 * backend may send them all at once. The caller bounds how long it waits.
+	 * @return for each command, in order, whether it succeeded
+	 */
+	public List<Future<Boolean>> containerCommands(List<DockerCommand> commands);
 	 	
 }
@@ -1,16 +1,26 @@
 package org.apache.hadoo.yarn.server.resourcemanager.dockermonitor;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.util.Time;
 import org.apache.hadoop.yarn.conf.YarnConfiguration;
 import org.apache.hadoop.yarn.server.resourcemanager.RMContext;
 import org.apache.hadoop.yarn.server.resourcemanager.monitor.capacity.ProportionalCapacityPreemptionPolicy;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import com.google.common.util.concurrent.Futures;
+
+import net.razorvine.pickle.PickleException;
 import net.razorvine.pyro.*;
 
 public class PythonDockerMonitor extends AbstractDockerMonitor {
@@ -22,6 +32,11 @@ public class PythonDockerMonitor extends AbstractDockerMonitor {
 	private PyroProxy pyroProxy = null;
 	//remote object name
     private String pyClassName;
+	//delay before connecting again after a failure
+	private long minRetryInterval;
+	private long maxRetryInterval;
+	private long retryInterval;
+	private long nextRetryTime = 0;
 	
 	@Override
 	public boolean Init(Configuration conf) {
@@ -29,13 +44,36 @@ public class PythonDockerMonitor extends AbstractDockerMonitor {
 		//TODO be careful for this, will cause serious error if misconfigured
 		this.pyClassName = conf.get(YarnConfiguration.DOCKER_PYTHON_RPC_OBJECT, 
 				                             YarnConfiguration.DEFAULT_DOCKER_PYTHON_RPC_OBJECT);  
+		this.minRetryInterval = conf.getLong(
+				YarnConfiguration.DOCKER_PYTHON_RPC_RETRY_INTERVAL_MS,
+				YarnConfiguration.DEFAULT_DOCKER_PYTHON_RPC_RETRY_INTERVAL_MS);
+		this.maxRetryInterval = Math.max(minRetryInterval, conf.getLong(
+				YarnConfiguration.DOCKER_PYTHON_RPC_MAX_RETRY_INTERVAL_MS,
+				YarnConfiguration.DEFAULT_DOCKER_PYTHON_RPC_MAX_RETRY_INTERVAL_MS));
+		this.retryInterval = minRetryInterval;
 		
+		//the python master may be started after the RM, we connect again on
+		//the next command if it is not there yet
+		if(!connect()){
+			LOG.warn("python docker monitor is not reachable yet, retry in "
+					+ retryInterval + " ms");
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Locate the name server and the remote docker daemon. On failure the next
+	 * attempt is delayed, the delay doubling up to the max retry interval.
+	 */
+	private boolean connect() {
 		//fisrt we try to locate name server
 		try{
 			nameServerProxy = NameServerProxy.locateNS(null);
 						
 		}catch(IOException e){
 			LOG.info("failed to locate name server"+e.getMessage());
+			backOff();
 			return false;
 		}
 		
@@ -45,20 +83,42 @@ public class PythonDockerMonitor extends AbstractDockerMonitor {
 			
 		}catch(IOException e){
 			LOG.info("ns loop up exception"+e.getMessage());
+			backOff();
 			return false;
 		}
 		
 		this.isWorking = true;
+		this.retryInterval = minRetryInterval;
 		LOG.info("initially pythonDockerMonitor successfully");
 		
 		return true;
 	}
+	
+	private void backOff() {
+		closeMonitor();
+		isWorking = false;
+		nextRetryTime = Time.monotonicNow() + retryInterval;
+		retryInterval = Math.min(retryInterval * 2, maxRetryInterval);
+	}
 
-	@Override
-	public boolean ExecuteCommand(DockerCommand command) {
+	/**
+	 * @return true if connected to the remote docker daemon, connecting again
+	 * if the retry delay is over
+	 */
+	private boolean ensureConnected() {
 		if(!isWorking){
-			LOG.info("python docker monitor is not working");
-		    return false;	
+			if(Time.monotonicNow() < nextRetryTime || !connect()){
+				LOG.info("python docker monitor is not working");
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public synchronized boolean ExecuteCommand(DockerCommand command) {
+		if(!ensureConnected()){
+			return false;
 		}
 		
 		LOG.info("execute command:"+command.getType()+" on container "+command.getContainerId());
@@ -68,24 +128,120 @@ public class PythonDockerMonitor extends AbstractDockerMonitor {
 			result=(boolean) pyroProxy.call("containerCommand", commandMap);
 		}catch(IOException e){
 			LOG.info("call remote object exception at "+command.getType()+"container :"+command.getContainerId());
-			nameServerProxy.close();
-			pyroProxy.close();
-			isWorking=false;
+			backOff();
+		}catch(PyroException e){
+			LOG.info("command "+command.getType()+" failed on container "+command.getContainerId()+": "+e.getMessage());
+		}catch(PickleException e){
+			LOG.info("invalid result of command "+command.getType()+" on container "+command.getContainerId()+": "+e.getMessage());
 		}
 		return result;
 	}
 
+	/**
+	 * Send all the commands pipelined on the connection to the remote docker
+	 * daemon, without waiting for the results. The batch costs about one round
+	 * trip instead of one per command. The lock of the monitor is only held
+	 * while sending.
+	 */
+	@Override
+	public synchronized List<Future<Boolean>> containerCommands(List<DockerCommand> commands) {
+		List<Future<Boolean>> results = new ArrayList<Future<Boolean>>(commands.size());
+		if(!commands.isEmpty() && ensureConnected()){
+			LOG.info("execute " + commands.size() + " commands");
+			for(DockerCommand command : commands){
+				try{
+					results.add(new CommandResult(command, pyroProxy.call_async(
+							"containerCommand", DockerCommand.commandToMap(command))));
+				}catch(IOException e){
+					LOG.info("call remote object exception at "+command.getType()+"container :"+command.getContainerId());
+					backOff();
+					break;
+				}catch(PyroException e){
+					LOG.info("command "+command.getType()+" failed on container "+command.getContainerId()+": "+e.getMessage());
+					results.add(Futures.immediateFuture(false));
+				}catch(PickleException e){
+					LOG.info("command "+command.getType()+" on container "+command.getContainerId()+" cannot be sent: "+e.getMessage());
+					results.add(Futures.immediateFuture(false));
+				}
+			}
+		}
+		while(results.size() < commands.size()){
+			results.add(Futures.immediateFuture(false));
+		}
+		return results;
+	}
+
+	/**
+	 * Whether a command sent asynchronously succeeded. A failed connection is
+	 * connected again by the proxy on the next call.
+	 */
+	private static class CommandResult implements Future<Boolean> {
+		private final DockerCommand command;
+		private final PyroFuture future;
+
+		CommandResult(DockerCommand command, PyroFuture future) {
+			this.command = command;
+			this.future = future;
+		}
+
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			return future.cancel(mayInterruptIfRunning);
+		}
+
+		@Override
+		public boolean isCancelled() {
+			return future.isCancelled();
+		}
+
+		@Override
+		public boolean isDone() {
+			return future.isDone();
+		}
+
+		@Override
+		public Boolean get() throws InterruptedException {
+			try{
+				return toResult(future.get());
+			}catch(ExecutionException e){
+				return failed(e);
+			}
+		}
+
+		@Override
+		public Boolean get(long timeout, TimeUnit unit)
+				throws InterruptedException, TimeoutException {
+			try{
+				return toResult(future.get(timeout, unit));
+			}catch(ExecutionException e){
+				return failed(e);
+			}
+		}
+
+		private static Boolean toResult(Object value) {
+			return Boolean.TRUE.equals(value);
+		}
+
+		private Boolean failed(ExecutionException e) {
+			LOG.info("command " + command.getType() + " failed on container "
+					+ command.getContainerId() + ": " + e.getCause());
+			return false;
+		}
+	}
+
 	@Override
-	public void closeMonitor() {
+	public synchronized void closeMonitor() {
 		// TODO Auto-generated method stub
 		if(nameServerProxy != null){
 			
 			nameServerProxy.close();
+			nameServerProxy = null;
 		}
 		
 		if(pyroProxy != null){
 			
 			pyroProxy.close();
+			pyroProxy = null;
 		}
 		
 	}
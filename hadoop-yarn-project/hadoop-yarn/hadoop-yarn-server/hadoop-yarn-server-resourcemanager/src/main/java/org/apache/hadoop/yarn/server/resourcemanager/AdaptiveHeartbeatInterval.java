@@ -0,0 +1,222 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.yarn.server.resourcemanager;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.yarn.api.records.NodeId;
+import org.apache.hadoop.yarn.conf.YarnConfiguration;
+import org.apache.hadoop.yarn.exceptions.YarnRuntimeException;
+import org.apache.hadoop.yarn.util.Clock;
+import org.apache.hadoop.yarn.util.SystemClock;
+
+import com.google.common.annotations.VisibleForTesting;
+
+/**
+ * Chooses the interval until the next heartbeat of every node from its
+ * activity, so that container updates reach the NMs sooner without lowering
+ * the interval of the whole cluster:
+ * <ul>
+ * <li>a node which was just sent container updates, or which the scheduler
+ * wants back sooner, heartbeats at the minimum interval so that the RM learns
+ * quickly that they were applied;</li>
+ * <li>a node allocating containers faster than the busy rate heartbeats
+ * faster than the configured interval, in proportion to its rate;</li>
+ * <li>a node without containers doubles its interval at every heartbeat, up
+ * to the maximum interval;</li>
+ * <li>other nodes heartbeat at the configured interval.</li>
+ * </ul>
+ * The intervals wanted by the nodes are tracked to estimate the heartbeats per
+ * second they would cost. Above the configured maximum every interval is
+ * stretched by the same factor, so that the heartbeats of the cluster meet
+ * the maximum once every node heartbeated. The intervals of nodes with
+ * container updates are never stretched beyond the configured interval.
+ *
+ * This class is thread-safe.
+ */
+public class AdaptiveHeartbeatInterval {
+
+  private static class NodeState {
+    // interval before the heartbeats are capped
+    long wanted;
+    long interval;
+    long lastHeartbeat;
+    long lastAllocations;
+  }
+
+  private final long defaultInterval;
+  private final long minInterval;
+  private final long maxInterval;
+  private final float busyAllocationRate;
+  private final int maxHeartbeatsPerSecond;
+  private final Clock clock;
+
+  private final Map<NodeId, NodeState> nodes = new HashMap<NodeId, NodeState>();
+  // sum of 1000 / interval over the nodes
+  private double heartbeatsPerSecond = 0;
+  // sum of 1000 / wanted interval over the nodes
+  private double wantedHeartbeatsPerSecond = 0;
+  private long lastPurge;
+
+  public AdaptiveHeartbeatInterval(Configuration conf, long defaultInterval) {
+    this(defaultInterval,
+        conf.getLong(YarnConfiguration.RM_NM_HEARTBEAT_INTERVAL_MIN_MS,
+            YarnConfiguration.DEFAULT_RM_NM_HEARTBEAT_INTERVAL_MIN_MS),
+        conf.getLong(YarnConfiguration.RM_NM_HEARTBEAT_INTERVAL_MAX_MS,
+            YarnConfiguration.DEFAULT_RM_NM_HEARTBEAT_INTERVAL_MAX_MS),
+        conf.getFloat(
+            YarnConfiguration.RM_NM_HEARTBEAT_INTERVAL_BUSY_ALLOCATION_RATE,
+            YarnConfiguration
+                .DEFAULT_RM_NM_HEARTBEAT_INTERVAL_BUSY_ALLOCATION_RATE),
+        conf.getInt(YarnConfiguration.RM_NM_HEARTBEATS_PER_SECOND_MAX,
+            YarnConfiguration.DEFAULT_RM_NM_HEARTBEATS_PER_SECOND_MAX),
+        new SystemClock());
+  }
+
+  @VisibleForTesting
+  AdaptiveHeartbeatInterval(long defaultInterval, long minInterval,
+      long maxInterval, float busyAllocationRate, int maxHeartbeatsPerSecond,
+      Clock clock) {
+    if (minInterval <= 0 || minInterval > defaultInterval
+        || maxInterval < defaultInterval) {
+      throw new YarnRuntimeException("Invalid Configuration. "
+          + YarnConfiguration.RM_NM_HEARTBEAT_INTERVAL_MIN_MS + " ("
+          + minInterval + ") should be larger than 0 and at most "
+          + YarnConfiguration.RM_NM_HEARTBEAT_INTERVAL_MS + " ("
+          + defaultInterval + "), itself at most "
+          + YarnConfiguration.RM_NM_HEARTBEAT_INTERVAL_MAX_MS + " ("
+          + maxInterval + ").");
+    }
+    if (busyAllocationRate <= 0) {
+      throw new YarnRuntimeException("Invalid Configuration. "
+          + YarnConfiguration.RM_NM_HEARTBEAT_INTERVAL_BUSY_ALLOCATION_RATE
+          + " should be larger than 0.");
+    }
+    this.defaultInterval = defaultInterval;
+    this.minInterval = minInterval;
+    this.maxInterval = maxInterval;
+    this.busyAllocationRate = busyAllocationRate;
+    this.maxHeartbeatsPerSecond = maxHeartbeatsPerSecond;
+    this.clock = clock;
+    this.lastPurge = clock.getTime();
+  }
+
+  /**
+   * Get the interval until the next heartbeat of a node.
+   * @param nodeId the node which is heartbeating
+   * @param schedulerInterval the interval the scheduler asks for
+   * @param updatesSent whether container updates are sent in this heartbeat
+   * @param allocations the number of containers ever allocated on the node
+   * @param containers the number of containers on the node, -1 if unknown
+   * @return the interval in milliseconds
+   */
+  public synchronized long getInterval(NodeId nodeId, long schedulerInterval,
+      boolean updatesSent, long allocations, int containers) {
+    long now = clock.getTime();
+    purgeLostNodes(now);
+    NodeState state = nodes.get(nodeId);
+    if (state == null) {
+      state = new NodeState();
+      state.wanted = defaultInterval;
+      state.interval = defaultInterval;
+      state.lastHeartbeat = now;
+      state.lastAllocations = allocations;
+      nodes.put(nodeId, state);
+      heartbeatsPerSecond += 1000.0 / state.interval;
+      wantedHeartbeatsPerSecond += 1000.0 / state.wanted;
+    }
+    long allocated = Math.max(0, allocations - state.lastAllocations);
+    long elapsed = now - state.lastHeartbeat;
+
+    boolean urgent = updatesSent || schedulerInterval < defaultInterval;
+    long interval;
+    if (urgent) {
+      interval = Math.max(minInterval,
+          schedulerInterval < defaultInterval ? schedulerInterval : minInterval);
+    } else if (allocated > 0 && elapsed > 0
+        && allocated * 1000.0 / elapsed > busyAllocationRate) {
+      double rate = allocated * 1000.0 / elapsed;
+      interval = Math.max(minInterval,
+          (long) (defaultInterval * busyAllocationRate / rate));
+    } else if (allocated == 0 && containers == 0) {
+      interval = Math.min(maxInterval,
+          2 * Math.max(state.interval, defaultInterval));
+    } else {
+      interval = defaultInterval;
+    }
+
+    wantedHeartbeatsPerSecond += 1000.0 / interval - 1000.0 / state.wanted;
+    state.wanted = interval;
+    if (maxHeartbeatsPerSecond > 0
+        && wantedHeartbeatsPerSecond > maxHeartbeatsPerSecond) {
+      long stretched = (long) Math.ceil(
+          interval * wantedHeartbeatsPerSecond / maxHeartbeatsPerSecond);
+      interval = Math.max(interval,
+          Math.min(stretched, urgent ? defaultInterval : maxInterval));
+    }
+
+    heartbeatsPerSecond += 1000.0 / interval - 1000.0 / state.interval;
+    state.interval = interval;
+    state.lastHeartbeat = now;
+    state.lastAllocations = allocations;
+    return interval;
+  }
+
+  /**
+   * Forget a node which left the cluster.
+   */
+  public synchronized void removeNode(NodeId nodeId) {
+    NodeState state = nodes.remove(nodeId);
+    if (state != null) {
+      heartbeatsPerSecond -= 1000.0 / state.interval;
+      wantedHeartbeatsPerSecond -= 1000.0 / state.wanted;
+    }
+  }
+
+  /**
+   * Forget the nodes which stopped heartbeating without leaving (lost,
+   * restarted with another port...), at most once every two maximum
+   * intervals.
+   */
+  private void purgeLostNodes(long now) {
+    if (now - lastPurge < 2 * maxInterval) {
+      return;
+    }
+    lastPurge = now;
+    Iterator<NodeState> it = nodes.values().iterator();
+    while (it.hasNext()) {
+      NodeState state = it.next();
+      if (now - state.lastHeartbeat > 2 * maxInterval) {
+        heartbeatsPerSecond -= 1000.0 / state.interval;
+        wantedHeartbeatsPerSecond -= 1000.0 / state.wanted;
+        it.remove();
+      }
+    }
+  }
+
+  /**
+   * @return the heartbeats per second expected with the current intervals
+   */
+  public synchronized double getHeartbeatsPerSecond() {
+    return heartbeatsPerSecond;
+  }
+}
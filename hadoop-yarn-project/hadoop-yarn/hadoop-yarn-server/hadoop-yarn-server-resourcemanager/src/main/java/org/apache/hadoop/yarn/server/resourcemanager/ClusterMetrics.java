@@ -29,7 +29,9 @@ import org.apache.hadoop.metrics2.annotation.Metric;
 import org.apache.hadoop.metrics2.annotation.Metrics;
 import org.apache.hadoop.metrics2.lib.DefaultMetricsSystem;
 import org.apache.hadoop.metrics2.lib.MetricsRegistry;
+import org.apache.hadoop.metrics2.lib.MutableCounterLong;
 import org.apache.hadoop.metrics2.lib.MutableGaugeInt;
+import org.apache.hadoop.metrics2.lib.MutableGaugeLong;
 import org.apache.hadoop.metrics2.lib.MutableRate;
 import com.google.common.annotations.VisibleForTesting;
 
@@ -46,6 +48,24 @@ public class ClusterMetrics {
   @Metric("# of Rebooted NMs") MutableGaugeInt numRebootedNMs;
   @Metric("AM container launch delay") MutableRate aMLaunchDelay;
   @Metric("AM register delay") MutableRate aMRegisterDelay;
+  @Metric("# of containers killed by preemption")
+  MutableCounterLong preemptionKills;
+  @Metric("# of containers shrunk by preemption")
+  MutableCounterLong preemptionShrinks;
+  @Metric("# of containers suspended by preemption")
+  MutableCounterLong preemptionSuspends;
+  @Metric("Estimated work in ms saved by not killing preempted containers")
+  MutableCounterLong preemptionSavedWorkMs;
+  @Metric("Time in ms the last recovery took to load the state")
+  MutableGaugeLong recoveryLoadStateTime;
+  @Metric("Time in ms the last recovery took to recover the apps")
+  MutableGaugeLong recoveryAppsTime;
+  @Metric("Time in ms the last recovery took") MutableGaugeLong recoveryTime;
+  @Metric("# of apps recovered") MutableGaugeInt numRecoveredApps;
+  @Metric("# of completed apps recovered without their attempts")
+  MutableGaugeInt numLazilyRecoveredApps;
+  @Metric("# of completed apps whose attempts were recovered when needed")
+  MutableCounterLong lazyAppAttemptRecoveries;
 
   private static final MetricsInfo RECORD_INFO = info("ClusterMetrics",
   "Metrics for the Yarn Cluster");
@@ -158,4 +178,84 @@ public class ClusterMetrics {
     aMRegisterDelay.add(delay);
   }
 
+  public void incrPreemptionKills() {
+    preemptionKills.incr();
+  }
+
+  public long getPreemptionKills() {
+    return preemptionKills.value();
+  }
+
+  public void incrPreemptionShrinks() {
+    preemptionShrinks.incr();
+  }
+
+  public long getPreemptionShrinks() {
+    return preemptionShrinks.value();
+  }
+
+  public void incrPreemptionSuspends() {
+    preemptionSuspends.incr();
+  }
+
+  public long getPreemptionSuspends() {
+    return preemptionSuspends.value();
+  }
+
+  public void addPreemptionSavedWork(long savedWorkMs) {
+    preemptionSavedWorkMs.incr(savedWorkMs);
+  }
+
+  public long getPreemptionSavedWork() {
+    return preemptionSavedWorkMs.value();
+  }
+
+  public void setRecoveryLoadStateTime(long time) {
+    recoveryLoadStateTime.set(time);
+  }
+
+  public long getRecoveryLoadStateTime() {
+    return recoveryLoadStateTime.value();
+  }
+
+  public void setRecoveryAppsTime(long time) {
+    recoveryAppsTime.set(time);
+  }
+
+  public long getRecoveryAppsTime() {
+    return recoveryAppsTime.value();
+  }
+
+  public void setRecoveryTime(long time) {
+    recoveryTime.set(time);
+  }
+
+  public long getRecoveryTime() {
+    return recoveryTime.value();
+  }
+
+  public void setNumRecoveredApps(int num) {
+    numRecoveredApps.set(num);
+  }
+
+  public int getNumRecoveredApps() {
+    return numRecoveredApps.value();
+  }
+
+  public void setNumLazilyRecoveredApps(int num) {
+    numLazilyRecoveredApps.set(num);
+  }
+
+  public int getNumLazilyRecoveredApps() {
+    return numLazilyRecoveredApps.value();
+  }
+
+  public void incrLazyAppAttemptRecoveries() {
+    lazyAppAttemptRecoveries.incr();
+  }
+
+  public long getLazyAppAttemptRecoveries() {
+    return lazyAppAttemptRecoveries.value();
+  }
+
 }
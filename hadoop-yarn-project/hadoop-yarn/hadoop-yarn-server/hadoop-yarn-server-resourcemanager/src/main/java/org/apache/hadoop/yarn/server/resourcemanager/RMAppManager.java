@@ -191,7 +191,12 @@ public class RMAppManager implements EventHandler<RMAppManagerEvent>,
 
   @VisibleForTesting
   public void logApplicationSummary(ApplicationId appId) {
-    ApplicationSummary.logAppSummary(rmContext.getRMApps().get(appId));
+    RMApp app = rmContext.getRMApps().get(appId);
+    // logged when the app completed, before the RM restarted
+    if (app instanceof RMAppImpl && ((RMAppImpl) app).hasLazyAppAttempts()) {
+      return;
+    }
+    ApplicationSummary.logAppSummary(app);
   }
 
   protected synchronized int getCompletedAppsListSize() {
@@ -423,9 +428,24 @@ public class RMAppManager implements EventHandler<RMAppManagerEvent>,
     Map<ApplicationId, ApplicationStateData> appStates =
         state.getApplicationState();
     LOG.info("Recovering " + appStates.size() + " applications");
+    long start = System.currentTimeMillis();
+    int numLazyApps = 0;
     for (ApplicationStateData appState : appStates.values()) {
       recoverApplication(appState, state);
+      RMApp app = rmContext.getRMApps().get(
+          appState.getApplicationSubmissionContext().getApplicationId());
+      if (app instanceof RMAppImpl && ((RMAppImpl) app).hasLazyAppAttempts()) {
+        numLazyApps++;
+      }
     }
+    long recoveryTime = System.currentTimeMillis() - start;
+    ClusterMetrics metrics = ClusterMetrics.getMetrics();
+    metrics.setRecoveryAppsTime(recoveryTime);
+    metrics.setNumRecoveredApps(appStates.size());
+    metrics.setNumLazilyRecoveredApps(numLazyApps);
+    LOG.info("Recovered " + appStates.size() + " applications in "
+        + recoveryTime + " ms, " + numLazyApps
+        + " completed applications without their attempts");
   }
 
   @Override
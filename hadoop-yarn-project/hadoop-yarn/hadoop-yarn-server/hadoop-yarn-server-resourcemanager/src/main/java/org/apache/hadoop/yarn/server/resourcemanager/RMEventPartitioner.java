@@ -0,0 +1,108 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.yarn.server.resourcemanager;
+
+import org.apache.hadoop.yarn.api.records.ApplicationAttemptId;
+import org.apache.hadoop.yarn.api.records.ContainerId;
+import org.apache.hadoop.yarn.event.Event;
+import org.apache.hadoop.yarn.event.PartitionedAsyncDispatcher.Partitioner;
+import org.apache.hadoop.yarn.server.resourcemanager.amlauncher.AMLauncherEvent;
+import org.apache.hadoop.yarn.server.resourcemanager.rmapp.RMAppEvent;
+import org.apache.hadoop.yarn.server.resourcemanager.rmapp.attempt.RMAppAttempt;
+import org.apache.hadoop.yarn.server.resourcemanager.rmapp.attempt.RMAppAttemptEvent;
+import org.apache.hadoop.yarn.server.resourcemanager.rmcontainer.RMContainerEvent;
+import org.apache.hadoop.yarn.server.resourcemanager.rmnode.RMNode;
+import org.apache.hadoop.yarn.server.resourcemanager.rmnode.RMNodeEvent;
+import org.apache.hadoop.yarn.server.resourcemanager.scheduler.ContainerPreemptEvent;
+import org.apache.hadoop.yarn.server.resourcemanager.scheduler.event.AppAddedSchedulerEvent;
+import org.apache.hadoop.yarn.server.resourcemanager.scheduler.event.AppAttemptAddedSchedulerEvent;
+import org.apache.hadoop.yarn.server.resourcemanager.scheduler.event.AppAttemptRemovedSchedulerEvent;
+import org.apache.hadoop.yarn.server.resourcemanager.scheduler.event.AppRemovedSchedulerEvent;
+import org.apache.hadoop.yarn.server.resourcemanager.scheduler.event.ContainerExpiredSchedulerEvent;
+import org.apache.hadoop.yarn.server.resourcemanager.scheduler.event.NodeAddedSchedulerEvent;
+import org.apache.hadoop.yarn.server.resourcemanager.scheduler.event.NodeRemovedSchedulerEvent;
+import org.apache.hadoop.yarn.server.resourcemanager.scheduler.event.NodeResourceUpdateSchedulerEvent;
+import org.apache.hadoop.yarn.server.resourcemanager.scheduler.event.NodeUpdateSchedulerEvent;
+
+/**
+ * Partitions the events of the RM dispatcher by application: the events of
+ * an application, its attempts and its containers are handled in order. Node
+ * events are partitioned by node. Other events (fatal errors, node labels...)
+ * have no partition.
+ */
+public class RMEventPartitioner implements Partitioner {
+
+  @Override
+  public Object getPartitionKey(Event event) {
+    if (event instanceof RMContainerEvent) {
+      return getApplication(((RMContainerEvent) event).getContainerId());
+    } else if (event instanceof RMAppAttemptEvent) {
+      return getApplication(
+          ((RMAppAttemptEvent) event).getApplicationAttemptId());
+    } else if (event instanceof RMAppEvent) {
+      return ((RMAppEvent) event).getApplicationId();
+    } else if (event instanceof RMNodeEvent) {
+      return ((RMNodeEvent) event).getNodeId();
+    } else if (event instanceof NodeUpdateSchedulerEvent) {
+      return getNode(((NodeUpdateSchedulerEvent) event).getRMNode());
+    } else if (event instanceof NodeAddedSchedulerEvent) {
+      return getNode(((NodeAddedSchedulerEvent) event).getAddedRMNode());
+    } else if (event instanceof NodeRemovedSchedulerEvent) {
+      return getNode(((NodeRemovedSchedulerEvent) event).getRemovedRMNode());
+    } else if (event instanceof NodeResourceUpdateSchedulerEvent) {
+      return getNode(((NodeResourceUpdateSchedulerEvent) event).getRMNode());
+    } else if (event instanceof AppAddedSchedulerEvent) {
+      return ((AppAddedSchedulerEvent) event).getApplicationId();
+    } else if (event instanceof AppRemovedSchedulerEvent) {
+      return ((AppRemovedSchedulerEvent) event).getApplicationID();
+    } else if (event instanceof AppAttemptAddedSchedulerEvent) {
+      return getApplication(
+          ((AppAttemptAddedSchedulerEvent) event).getApplicationAttemptId());
+    } else if (event instanceof AppAttemptRemovedSchedulerEvent) {
+      return getApplication(
+          ((AppAttemptRemovedSchedulerEvent) event).getApplicationAttemptID());
+    } else if (event instanceof ContainerExpiredSchedulerEvent) {
+      return getApplication(
+          ((ContainerExpiredSchedulerEvent) event).getContainerId());
+    } else if (event instanceof ContainerPreemptEvent) {
+      return getApplication(((ContainerPreemptEvent) event).getAppId());
+    } else if (event instanceof AMLauncherEvent) {
+      RMAppAttempt attempt = ((AMLauncherEvent) event).getAppAttempt();
+      return attempt == null ? null : getApplication(attempt.getAppAttemptId());
+    } else if (event instanceof RMAppManagerEvent) {
+      return ((RMAppManagerEvent) event).getApplicationId();
+    } else if (event instanceof NodesListManagerEvent) {
+      return getNode(((NodesListManagerEvent) event).getNode());
+    }
+    return null;
+  }
+
+  private static Object getApplication(ApplicationAttemptId attemptId) {
+    return attemptId == null ? null : attemptId.getApplicationId();
+  }
+
+  private static Object getApplication(ContainerId containerId) {
+    return containerId == null ? null
+        : getApplication(containerId.getApplicationAttemptId());
+  }
+
+  private static Object getNode(RMNode node) {
+    return node == null ? null : node.getNodeID();
+  }
+}
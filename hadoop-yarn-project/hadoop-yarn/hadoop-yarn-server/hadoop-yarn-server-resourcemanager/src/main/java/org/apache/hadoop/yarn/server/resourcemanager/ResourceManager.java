@@ -56,9 +56,9 @@ import org.apache.hadoop.yarn.conf.ConfigurationProvider;
 import org.apache.hadoop.yarn.conf.ConfigurationProviderFactory;
 import org.apache.hadoop.yarn.conf.HAUtil;
 import org.apache.hadoop.yarn.conf.YarnConfiguration;
-import org.apache.hadoop.yarn.event.AsyncDispatcher;
 import org.apache.hadoop.yarn.event.Dispatcher;
 import org.apache.hadoop.yarn.event.EventHandler;
+import org.apache.hadoop.yarn.event.PartitionedAsyncDispatcher;
 import org.apache.hadoop.yarn.exceptions.YarnRuntimeException;
 import org.apache.hadoop.yarn.server.resourcemanager.ahs.RMApplicationHistoryWriter;
 import org.apache.hadoop.yarn.server.resourcemanager.amlauncher.AMLauncherEventType;
@@ -95,6 +95,7 @@ import org.apache.hadoop.yarn.server.resourcemanager.webapp.RMWebApp;
 import org.apache.hadoop.yarn.server.security.ApplicationACLsManager;
 import org.apache.hadoop.yarn.server.security.http.RMAuthenticationFilter;
 import org.apache.hadoop.yarn.server.security.http.RMAuthenticationFilterInitializer;
+import org.apache.hadoop.yarn.server.utils.SchedulingTrace;
 import org.apache.hadoop.yarn.server.webproxy.AppReportFetcher;
 import org.apache.hadoop.yarn.server.webproxy.ProxyUriUtils;
 import org.apache.hadoop.yarn.server.webproxy.WebAppProxy;
@@ -280,7 +281,8 @@ public class ResourceManager extends CompositeService implements Recoverable {
   }
 
   protected Dispatcher createDispatcher() {
-    return new AsyncDispatcher();
+    return new PartitionedAsyncDispatcher("RMDispatcher",
+        YarnConfiguration.RM_DISPATCHER_LANES, new RMEventPartitioner());
   }
 
   protected ResourceScheduler createScheduler() {
@@ -559,6 +561,7 @@ public class ResourceManager extends CompositeService implements Recoverable {
       }
 
       new RMNMInfo(rmContext, scheduler);
+      SchedulingTrace.initialize(conf, "ResourceManager");
 
       super.serviceInit(conf);
     }
@@ -577,9 +580,15 @@ public class ResourceManager extends CompositeService implements Recoverable {
           if (rmContext.isWorkPreservingRecoveryEnabled()) {
             rmContext.setEpoch(rmStore.getAndIncrementEpoch());
           }
+          long start = System.currentTimeMillis();
           RMState state = rmStore.loadState();
+          long loadStateTime = System.currentTimeMillis() - start;
+          ClusterMetrics.getMetrics().setRecoveryLoadStateTime(loadStateTime);
           recover(state);
-          LOG.info("Recovery ended");
+          long recoveryTime = System.currentTimeMillis() - start;
+          ClusterMetrics.getMetrics().setRecoveryTime(recoveryTime);
+          LOG.info("Recovery ended in " + recoveryTime + " ms, "
+              + loadStateTime + " ms of which loading the state");
         } catch (Exception e) {
           // the Exception from loadState() needs to be handled for
           // HA and we need to give up master status if we got fenced
@@ -609,7 +618,13 @@ public class ResourceManager extends CompositeService implements Recoverable {
     }
 
     protected void createPolicyMonitors() {
+      ResourceScheduler unwrapped = scheduler;
+      while (unwrapped instanceof WrappingResourceScheduler) {
+        unwrapped =
+            ((WrappingResourceScheduler) unwrapped).getWrappedScheduler();
+      }
       if (scheduler instanceof PreemptableResourceScheduler
+          && unwrapped instanceof PreemptableResourceScheduler
           && conf.getBoolean(YarnConfiguration.RM_SCHEDULER_ENABLE_MONITORS,
           YarnConfiguration.DEFAULT_RM_SCHEDULER_ENABLE_MONITORS)) {
         LOG.info("Loading policy monitors");
@@ -66,6 +66,9 @@ import org.apache.hadoop.yarn.server.resourcemanager.rmnode.RMNodeImpl;
 import org.apache.hadoop.yarn.server.resourcemanager.rmnode.RMNodeReconnectEvent;
 import org.apache.hadoop.yarn.server.resourcemanager.rmnode.RMNodeStartedEvent;
 import org.apache.hadoop.yarn.server.resourcemanager.rmnode.RMNodeStatusEvent;
+import org.apache.hadoop.yarn.server.resourcemanager.scheduler.AbstractYarnScheduler;
+import org.apache.hadoop.yarn.server.resourcemanager.scheduler.ResourceScheduler;
+import org.apache.hadoop.yarn.server.resourcemanager.scheduler.SchedulerNode;
 import org.apache.hadoop.yarn.server.resourcemanager.security.NMTokenSecretManagerInRM;
 import org.apache.hadoop.yarn.server.resourcemanager.security.RMContainerTokenSecretManager;
 import org.apache.hadoop.yarn.server.resourcemanager.security.authorize.RMPolicyProvider;
@@ -90,6 +93,8 @@ public class ResourceTrackerService extends AbstractService implements
   private final NMTokenSecretManagerInRM nmTokenSecretManager;
 
   private long nextHeartBeatInterval;
+  // null when every node heartbeats at nextHeartBeatInterval
+  private AdaptiveHeartbeatInterval adaptiveHeartbeatInterval;
   private Server server;
   private InetSocketAddress resourceTrackerAddress;
   private String minimumNodeManagerVersion;
@@ -139,6 +144,12 @@ public class ResourceTrackerService extends AbstractService implements
           + YarnConfiguration.RM_NM_HEARTBEAT_INTERVAL_MS
           + " should be larger than 0.");
     }
+    if (conf.getBoolean(
+        YarnConfiguration.RM_NM_HEARTBEAT_INTERVAL_ADAPTIVE_ENABLED,
+        YarnConfiguration.DEFAULT_RM_NM_HEARTBEAT_INTERVAL_ADAPTIVE_ENABLED)) {
+      adaptiveHeartbeatInterval =
+          new AdaptiveHeartbeatInterval(conf, nextHeartBeatInterval);
+    }
 
     minAllocMb = conf.getInt(
     	YarnConfiguration.RM_SCHEDULER_MINIMUM_ALLOCATION_MB,
@@ -325,6 +336,9 @@ public class ResourceTrackerService extends AbstractService implements
     // present for any running application.
     this.nmTokenSecretManager.removeNodeKey(nodeId);
     this.nmLivelinessMonitor.register(nodeId);
+    if (adaptiveHeartbeatInterval != null) {
+      adaptiveHeartbeatInterval.removeNode(nodeId);
+    }
     
     // Handle received container status, this should be processed after new
     // RMNode inserted
@@ -414,7 +428,7 @@ public class ResourceTrackerService extends AbstractService implements
     NodeHeartbeatResponse nodeHeartBeatResponse = YarnServerBuilderUtils
         .newNodeHeartbeatResponse(lastNodeHeartbeatResponse.
             getResponseId() + 1, NodeAction.NORMAL, null, null, listNodeContainerUpdates,null, null,
-             nextHeartBeatInterval);
+             getNextHeartBeatInterval(nodeId, listNodeContainerUpdates));
     rmNode.updateNodeHeartbeatResponseForCleanup(nodeHeartBeatResponse);
 
     populateKeys(request, nodeHeartBeatResponse);
@@ -429,11 +443,44 @@ public class ResourceTrackerService extends AbstractService implements
     this.rmContext.getDispatcher().getEventHandler().handle(
         new RMNodeStatusEvent(nodeId, remoteNodeStatus.getNodeHealthStatus(),
             remoteNodeStatus.getContainersStatuses(), 
-            remoteNodeStatus.getKeepAliveApplications(), nodeHeartBeatResponse));
+            remoteNodeStatus.getKeepAliveApplications(), nodeHeartBeatResponse,
+            request.getContainerMemoryPressures()));
 
     return nodeHeartBeatResponse;
   }
 
+  /**
+   * Get the interval until the next heartbeat of the node, the one the
+   * scheduler asks for, adapted to the activity of the node when enabled.
+   */
+  private long getNextHeartBeatInterval(NodeId nodeId,
+      List<NodeContainerUpdate> containerUpdates) {
+    ResourceScheduler scheduler = this.rmContext.getScheduler();
+    long interval =
+        scheduler.getNodeHeartbeatInterval(nodeId, nextHeartBeatInterval);
+    if (adaptiveHeartbeatInterval == null) {
+      return interval;
+    }
+    long allocations = 0;
+    int containers = -1;
+    if (scheduler instanceof AbstractYarnScheduler) {
+      SchedulerNode node =
+          ((AbstractYarnScheduler<?, ?>) scheduler).getSchedulerNode(nodeId);
+      if (node != null) {
+        allocations = node.getNumAllocations();
+        containers = node.getNumContainers();
+      }
+    }
+    return adaptiveHeartbeatInterval.getInterval(nodeId, interval,
+        containerUpdates != null && !containerUpdates.isEmpty(), allocations,
+        containers);
+  }
+
+  @VisibleForTesting
+  AdaptiveHeartbeatInterval getAdaptiveHeartbeatInterval() {
+    return adaptiveHeartbeatInterval;
+  }
+
   private void populateKeys(NodeHeartbeatRequest request,
       NodeHeartbeatResponse nodeHeartBeatResponse) {
 
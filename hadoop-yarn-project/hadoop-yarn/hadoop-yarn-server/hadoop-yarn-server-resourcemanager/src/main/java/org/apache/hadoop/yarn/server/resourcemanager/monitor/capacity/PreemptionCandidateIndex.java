@@ -0,0 +1,133 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.yarn.server.resourcemanager.monitor.capacity;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.hadoop.yarn.api.records.ApplicationAttemptId;
+import org.apache.hadoop.yarn.server.resourcemanager.rmcontainer.RMContainer;
+import org.apache.hadoop.yarn.server.resourcemanager.scheduler.common.fica.FiCaSchedulerApp;
+
+/**
+ * Keeps, per application, its unpreempted containers sorted by preemption
+ * priority across rounds of the preemption policy. A list is only rebuilt
+ * when the containers of the application changed since it was sorted, which
+ * is tracked by {@link FiCaSchedulerApp#getContainersVersion()}, or when the
+ * policy changed the preemption priority of one of its containers.
+ * <p>
+ * The index is only accessed by the preemption policy thread.
+ */
+class PreemptionCandidateIndex {
+
+	/**
+	 * Higher preemption priority first.
+	 */
+	static final Comparator<RMContainer> PREEMPTION_PRIORITY_COMPARATOR =
+		new Comparator<RMContainer>() {
+			@Override
+			public int compare(RMContainer a, RMContainer b) {
+				return Float.compare(b.getContainer().getPreemptionPriority(),
+					a.getContainer().getPreemptionPriority());
+			}
+		};
+
+	private static class Entry {
+		final long version;
+		final List<RMContainer> containers;
+
+		Entry(long version, List<RMContainer> containers) {
+			this.version = version;
+			this.containers = containers;
+		}
+	}
+
+	private final Map<ApplicationAttemptId, Entry> entries = new HashMap<>();
+	// applications looked up since the last call to prune()
+	private final Set<ApplicationAttemptId> used = new HashSet<>();
+	private long hits = 0;
+	private long misses = 0;
+
+	/**
+	 * @return the unpreempted containers of the application, higher preemption
+	 * priority first. The returned list is a copy the caller may modify.
+	 */
+	List<RMContainer> getSortedContainers(FiCaSchedulerApp app) {
+		ApplicationAttemptId appAttemptId = app.getApplicationAttemptId();
+		used.add(appAttemptId);
+		Entry entry;
+		// hold the application while reading so that the version matches the
+		// containers we sort
+		synchronized (app) {
+			long version = app.getContainersVersion();
+			entry = entries.get(appAttemptId);
+			if (entry == null || entry.version != version) {
+				List<RMContainer> containers =
+					new ArrayList<>(app.getUnPreemtedContainers());
+				Collections.sort(containers, PREEMPTION_PRIORITY_COMPARATOR);
+				entry = new Entry(version, containers);
+				entries.put(appAttemptId, entry);
+				misses++;
+			} else {
+				hits++;
+			}
+		}
+		return new ArrayList<>(entry.containers);
+	}
+
+	/**
+	 * Drop the sorted containers of the application, e.g. after the preemption
+	 * priority of one of them changed.
+	 */
+	void invalidate(ApplicationAttemptId appAttemptId) {
+		entries.remove(appAttemptId);
+	}
+
+	/**
+	 * Forget the applications that have not been looked up since the previous
+	 * call, they either finished or are no longer preemption candidates.
+	 */
+	void prune() {
+		for (Iterator<ApplicationAttemptId> i = entries.keySet().iterator();
+		     i.hasNext(); ) {
+			if (!used.contains(i.next())) {
+				i.remove();
+			}
+		}
+		used.clear();
+	}
+
+	int size() {
+		return entries.size();
+	}
+
+	long getHits() {
+		return hits;
+	}
+
+	long getMisses() {
+		return misses;
+	}
+}
@@ -0,0 +1,103 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.yarn.server.resourcemanager.monitor.capacity;
+
+import org.apache.hadoop.yarn.api.records.Resource;
+import org.apache.hadoop.yarn.util.resource.Resources;
+
+/**
+ * Decides how a container whose preemption was not honored in time gives its
+ * resource back, from what each way costs:
+ * <ul>
+ *   <li>killing it loses the work it did so far, which is cheap for a
+ *   container that barely started</li>
+ *   <li>shrinking it costs nothing as long as the memory taken back is memory
+ *   it does not use, which is only known once the NM reported its usage</li>
+ *   <li>suspending it keeps its work but costs freezing and resuming it, worth
+ *   it for a container with a lot of progress or a close deadline</li>
+ * </ul>
+ * Shrinking and suspending are both partial or full suspensions for the
+ * scheduler, they only differ in how much of the container is taken back.
+ */
+public class PreemptionCostModel {
+
+	public enum Action {
+		KILL, SHRINK, SUSPEND
+	}
+
+	// cost in ms of work of suspending and later resuming a container
+	private final long suspendOverhead;
+	// share of its allocation a shrunk container keeps above what it uses
+	private final float shrinkHeadroom;
+	private final float suspendProgress;
+	private final long deadlineSlack;
+
+	/**
+	 * @param suspendOverhead cost of a suspension, in ms of work
+	 * @param shrinkHeadroom  share of its allocation a shrunk container keeps
+	 *                        free above the memory it uses
+	 * @param suspendProgress progress from which an application keeps its
+	 *                        containers
+	 * @param deadlineSlack   time before its deadline under which a container
+	 *                        is not killed
+	 */
+	public PreemptionCostModel(long suspendOverhead, float shrinkHeadroom,
+	                           float suspendProgress, long deadlineSlack) {
+		this.suspendOverhead = suspendOverhead;
+		this.shrinkHeadroom = shrinkHeadroom;
+		this.suspendProgress = suspendProgress;
+		this.deadlineSlack = deadlineSlack;
+	}
+
+	/**
+	 * @param current        resource the container holds
+	 * @param toPreempt      resource to take back from it
+	 * @param runtime        time in ms the container ran, suspensions excluded
+	 * @param progress       progress of its application, from 0 to 1
+	 * @param slack          time in ms left before its deadline,
+	 *                       Long.MAX_VALUE if it has none
+	 * @param memoryPressure memory pressure score last reported by the NM
+	 * @param memoryUsage    memory in MB the container uses according to the
+	 *                       NM, negative if the NM did not report it
+	 */
+	public Action decide(Resource current, Resource toPreempt, long runtime,
+	                     float progress, long slack, int memoryPressure,
+	                     int memoryUsage) {
+		// a container without pressure can give back the memory it does not
+		// use; without a report from the NM nothing is known to be unused
+		if (memoryUsage >= 0 && memoryPressure == 0
+			&& !Resources.fitsIn(current, toPreempt)
+			&& current.getMemory() - toPreempt.getMemory()
+			>= memoryUsage + shrinkHeadroom * current.getMemory()) {
+			return Action.SHRINK;
+		}
+		if (progress >= suspendProgress || slack <= deadlineSlack) {
+			return Action.SUSPEND;
+		}
+		// killing loses the work done so far
+		return runtime < suspendOverhead ? Action.KILL : Action.SUSPEND;
+	}
+
+	/**
+	 * @return the work in ms not to be done again thanks to the action,
+	 * compared with killing the container
+	 */
+	public static long savedWork(Action action, long runtime) {
+		return action == Action.KILL ? 0 : Math.max(0, runtime);
+	}
+}
@@ -36,13 +36,18 @@ import org.apache.hadoop.util.Time;
 import org.apache.hadoop.yarn.api.records.*;
 import org.apache.hadoop.yarn.event.EventHandler;
 import org.apache.hadoop.yarn.exceptions.YarnRuntimeException;
+import org.apache.hadoop.yarn.server.resourcemanager.ClusterMetrics;
 import org.apache.hadoop.yarn.server.resourcemanager.RMContext;
 import org.apache.hadoop.yarn.server.resourcemanager.monitor.SchedulingEditPolicy;
 import org.apache.hadoop.yarn.server.resourcemanager.nodelabels.RMNodeLabelsManager;
+import org.apache.hadoop.yarn.server.resourcemanager.rmapp.RMApp;
+import org.apache.hadoop.yarn.server.resourcemanager.rmapp.attempt.RMAppAttempt;
 import org.apache.hadoop.yarn.server.resourcemanager.rmcontainer.RMContainer;
 import org.apache.hadoop.yarn.server.resourcemanager.scheduler.ContainerPreemptEvent;
 import org.apache.hadoop.yarn.server.resourcemanager.scheduler.ContainerPreemptEventType;
 import org.apache.hadoop.yarn.server.resourcemanager.scheduler.PreemptableResourceScheduler;
+import org.apache.hadoop.yarn.server.resourcemanager.scheduler.ResourceScheduler;
+import org.apache.hadoop.yarn.server.resourcemanager.scheduler.WrappingResourceScheduler;
 import org.apache.hadoop.yarn.server.resourcemanager.scheduler.capacity.CSQueue;
 import org.apache.hadoop.yarn.server.resourcemanager.scheduler.capacity.CapacityScheduler;
 import org.apache.hadoop.yarn.server.resourcemanager.scheduler.capacity.LeafQueue;
@@ -131,6 +136,52 @@ public class ProportionalCapacityPreemptionPolicy implements SchedulingEditPolic
 
 	public static final String PREEMPTION_METHOD =
 			"yarn.resourcemanager.monitor.capacity.preemption.method";
+	/**
+	 * If true, the ideal assignment of a level of the queue hierarchy is only
+	 * recomputed when the usage, demand or capacity of one of its queues
+	 * changed since the previous round, and the containers of an application
+	 * are only sorted again when they changed.
+	 */
+	public static final String INCREMENTAL_PLANNING =
+		"yarn.resourcemanager.monitor.capacity.preemption.incremental";
+	/**
+	 * Containers whose memory pressure reported by their NM reaches this score
+	 * are preempted first within their application, 0 disables it.
+	 */
+	public static final String MEMORY_PRESSURE_THRESHOLD =
+		"yarn.resourcemanager.monitor.capacity.preemption.memory-pressure-threshold";
+	/**
+	 * If true and suspension is enabled, a container whose preemption expired
+	 * is killed, shrunk or suspended depending on what each costs, see
+	 * {@link PreemptionCostModel}, instead of always being suspended. False by
+	 * default.
+	 */
+	public static final String COST_BASED =
+		"yarn.resourcemanager.monitor.capacity.preemption.cost-based";
+	/**
+	 * Cost in ms of work of suspending and resuming a container. Containers
+	 * which ran for less are killed rather than suspended.
+	 */
+	public static final String COST_SUSPEND_OVERHEAD =
+		"yarn.resourcemanager.monitor.capacity.preemption.cost.suspend-overhead-ms";
+	/**
+	 * Share of its allocation a container shrunk rather than suspended keeps
+	 * free above the memory the NM reported it uses.
+	 */
+	public static final String COST_SHRINK_HEADROOM =
+		"yarn.resourcemanager.monitor.capacity.preemption.cost.shrink-headroom";
+	/**
+	 * Progress from which the containers of an application are suspended
+	 * rather than killed.
+	 */
+	public static final String COST_SUSPEND_PROGRESS =
+		"yarn.resourcemanager.monitor.capacity.preemption.cost.suspend-progress";
+	/**
+	 * Time in ms before their deadline under which containers are suspended
+	 * rather than killed.
+	 */
+	public static final String COST_DEADLINE_SLACK =
+		"yarn.resourcemanager.monitor.capacity.preemption.cost.deadline-slack-ms";
 
 
 	// the dispatcher to send preempt and kill events
@@ -156,6 +207,17 @@ public class ProportionalCapacityPreemptionPolicy implements SchedulingEditPolic
 	//at when the container should be preempted in seconds
 	private static int testTime;
 	private static String method;
+	private boolean incrementalPlanning;
+	private int memoryPressureThreshold;
+	// null unless the preemption method is cost based
+	private PreemptionCostModel costModel;
+	// per-application containers sorted for preemption, kept across rounds
+	private final PreemptionCandidateIndex candidateIndex =
+		new PreemptionCandidateIndex();
+	// ideal assignment of each parent queue's children in the previous round
+	private Map<String, LevelAssignment> idealAssignments = new HashMap<>();
+	private Map<String, LevelAssignment> nextIdealAssignments = new HashMap<>();
+	private int reusedLevels;
 
 	public ProportionalCapacityPreemptionPolicy() {
 		clock = new SystemClock();
@@ -179,13 +241,19 @@ public class ProportionalCapacityPreemptionPolicy implements SchedulingEditPolic
 	                 PreemptableResourceScheduler sched) {
 		LOG.info("Preemption monitor:" + this.getClass().getCanonicalName());
 		assert null == scheduler : "Unexpected duplicate call to init";
-		if (!(sched instanceof CapacityScheduler)) {
+		ResourceScheduler unwrapped = sched;
+		// the preemption events still go through the wrapper
+		while (unwrapped instanceof WrappingResourceScheduler) {
+			unwrapped =
+				((WrappingResourceScheduler) unwrapped).getWrappedScheduler();
+		}
+		if (!(unwrapped instanceof CapacityScheduler)) {
 			throw new YarnRuntimeException("Class " +
-				sched.getClass().getCanonicalName() + " not instance of " +
+				unwrapped.getClass().getCanonicalName() + " not instance of " +
 				CapacityScheduler.class.getCanonicalName());
 		}
 		dispatcher = disp;
-		scheduler = (CapacityScheduler) sched;
+		scheduler = (CapacityScheduler) unwrapped;
 		maxIgnoredOverCapacity = config.getDouble(MAX_IGNORED_OVER_CAPACITY, 0.1);
 		naturalTerminationFactor =
 			config.getDouble(NATURAL_TERMINATION_FACTOR, 0.2);
@@ -196,6 +264,17 @@ public class ProportionalCapacityPreemptionPolicy implements SchedulingEditPolic
 		observeOnly = config.getBoolean(OBSERVE_ONLY, false);
 		isSuspended = config.getBoolean(IS_SUPEND_ENABLED, true);
 		method = config.get(PREEMPTION_METHOD, "ratio");
+		incrementalPlanning = config.getBoolean(INCREMENTAL_PLANNING, true);
+		memoryPressureThreshold = config.getInt(MEMORY_PRESSURE_THRESHOLD, 50);
+		costModel = null;
+		if (config.getBoolean(COST_BASED, false)) {
+			// a shrunk container keeps 20% of its allocation above its usage
+			costModel = new PreemptionCostModel(
+				config.getLong(COST_SUSPEND_OVERHEAD, 30000),
+				config.getFloat(COST_SHRINK_HEADROOM, 0.2f),
+				config.getFloat(COST_SUSPEND_PROGRESS, 0.5f),
+				config.getLong(COST_DEADLINE_SLACK, 60000));
+		}
 		isNaive = scheduler.getConfiguration().getNaive("root");
 		LOG.info("isNaive:" + isNaive);
 		isTest = scheduler.getConfiguration().getTest("root");
@@ -272,17 +351,25 @@ public class ProportionalCapacityPreemptionPolicy implements SchedulingEditPolic
 		tRoot.idealAssigned = tRoot.guaranteed;
 		Resource totalPreemptionAllowed = Resources.multiply(clusterResources,
 			percentageClusterPreemptionAllowed); // 允许抢占的资源
+		reusedLevels = 0;
+		nextIdealAssignments = new HashMap<>();
 		List<TempQueue> queues =
 			recursivelyComputeIdealAssignment(tRoot, totalPreemptionAllowed); //计算理想状态下每个app的分配
+		idealAssignments = nextIdealAssignments;
 
 		// based on ideal allocation select containers to be preempted from each
 		// queue and each application
 		Map<ApplicationAttemptId, Map<RMContainer, Resource>> toPreempt =
 			getContainersToPreempt(queues, clusterResources); // 对每个应用里的容器们计算抢占的资源
+		candidateIndex.prune();
 
 		LOG.info("toPreempt size: " + toPreempt.size());
 
 		if (LOG.isDebugEnabled()) {
+			LOG.debug("reused ideal assignment of " + reusedLevels + " of "
+				+ idealAssignments.size() + " levels, sorted containers of "
+				+ candidateIndex.size() + " applications, hits "
+				+ candidateIndex.getHits() + " misses " + candidateIndex.getMisses());
 			logToCSV(queues);
 		}
 
@@ -303,7 +390,9 @@ public class ProportionalCapacityPreemptionPolicy implements SchedulingEditPolic
 					preempted.get(container) + maxWaitTime < clock.getTime()) {
 					// suspend it
 
-					if (isSuspended) {
+					if (isSuspended && costModel != null) {
+						preemptByCost(e.getKey(), container, resource);
+					} else if (isSuspended) {
 						dispatcher.handle(new ContainerPreemptEvent(e.getKey(), container,
 							ContainerPreemptEventType.SUSPEND_CONTAINER, resource));
 						LOG.info("get container " + container.getContainerId() + " to suspend resource is "
@@ -322,6 +411,7 @@ public class ProportionalCapacityPreemptionPolicy implements SchedulingEditPolic
 							container.setPreemptionPriority(nbp +
 								alpha * rc.divide(clusterResources, container.getCurrentUsedResource(), clusterResources) +
 								fte + beta * (ddl)/ Math.abs((ddl - Time.now())));
+							candidateIndex.invalidate(e.getKey());
 							// -------------------------------------------------------------------------------
 
 							LOG.info("get container " + container.getContainerId() + " to suspend resource is "
@@ -364,6 +454,65 @@ public class ProportionalCapacityPreemptionPolicy implements SchedulingEditPolic
 		}
 	}
 
+	/**
+	 * Take back the resource of a container whose preemption expired by killing,
+	 * shrinking or suspending it, whichever costs the least.
+	 */
+	private void preemptByCost(ApplicationAttemptId appAttemptId,
+	                           RMContainer container, Resource toPreempt) {
+		long now = clock.getTime();
+		Resource current = container.getCurrentUsedResource();
+		if (current == null) {
+			current = container.getContainer().getResource();
+		}
+		long runtime = Math.max(0, now - container.getCreationTime()
+			- container.getTotalSuspendedTime());
+		long slack = Long.MAX_VALUE;
+		if (container.getDeadline() > 0) {
+			// the deadline is absolute, the arrival time plus the job deadline
+			slack = container.getDeadline() - now;
+		}
+		PreemptionCostModel.Action action = costModel.decide(current, toPreempt,
+			runtime, getProgress(appAttemptId), slack,
+			container.getMemoryPressure(), container.getMemoryUsage());
+
+		ClusterMetrics metrics = ClusterMetrics.getMetrics();
+		switch (action) {
+			case KILL:
+				dispatcher.handle(new ContainerPreemptEvent(appAttemptId, container,
+					ContainerPreemptEventType.KILL_CONTAINER,
+					container.getContainer().getResource()));
+				metrics.incrPreemptionKills();
+				break;
+			case SHRINK:
+				dispatcher.handle(new ContainerPreemptEvent(appAttemptId, container,
+					ContainerPreemptEventType.SUSPEND_CONTAINER, toPreempt));
+				metrics.incrPreemptionShrinks();
+				break;
+			default:
+				dispatcher.handle(new ContainerPreemptEvent(appAttemptId, container,
+					ContainerPreemptEventType.SUSPEND_CONTAINER, toPreempt));
+				metrics.incrPreemptionSuspends();
+		}
+		metrics.addPreemptionSavedWork(
+			PreemptionCostModel.savedWork(action, runtime));
+		LOG.info(action + " container " + container.getContainerId()
+			+ " resource " + toPreempt + " of " + current + ", ran " + runtime
+			+ " ms");
+	}
+
+	/**
+	 * @return the progress reported by the application attempt, 0 if unknown
+	 */
+	private float getProgress(ApplicationAttemptId appAttemptId) {
+		Map<ApplicationId, RMApp> apps = scheduler.getRMContext().getRMApps();
+		RMApp app = apps == null ? null
+			: apps.get(appAttemptId.getApplicationId());
+		RMAppAttempt attempt = app == null ? null
+			: app.getRMAppAttempt(appAttemptId);
+		return attempt == null ? 0 : attempt.getProgress();
+	}
+
 	/**
 	 * This method recursively computes the ideal assignment of resources to each
 	 * level of the hierarchy. This ensures that leafs that are over-capacity but
@@ -381,7 +530,7 @@ public class ProportionalCapacityPreemptionPolicy implements SchedulingEditPolic
 		if (root.getChildren() != null &&
 			root.getChildren().size() > 0) {
 			// compute ideal distribution at this level
-			computeIdealResourceDistribution(rc, root.getChildren(),
+			computeIdealResourceDistribution(rc, root.queueName, root.getChildren(),
 				totalPreemptionAllowed, root.idealAssigned);
 			// compute recursively for lower levels and build list of leafs
 			for (TempQueue t : root.getChildren()) {
@@ -402,45 +551,18 @@ public class ProportionalCapacityPreemptionPolicy implements SchedulingEditPolic
 	 * demand is satisfied.
 	 *
 	 * @param rc                     resource calculator
+	 * @param parentName             the name of the parent of the queues
 	 * @param queues                 a list of cloned queues to be assigned capacity to (this is
 	 *                               an out param)
 	 * @param totalPreemptionAllowed total amount of preemption we allow
 	 * @param tot_guarant            the amount of capacity assigned to this pool of queues
 	 */
-	private void computeIdealResourceDistribution(ResourceCalculator rc,
+	private void computeIdealResourceDistribution(ResourceCalculator rc, String parentName,
 	                                              List<TempQueue> queues, Resource totalPreemptionAllowed, Resource tot_guarant) {
 
-		// qAlloc tracks currently active queues (will decrease progressively as
-		// demand is met)
-		List<TempQueue> qAlloc = new ArrayList<>(queues);
-		// unassigned tracks how much resources are still to assign, initialized
-		// with the total capacity for this set of queues
-		Resource unassigned = Resources.clone(tot_guarant);
+		Resource unassigned =
+			computeIdealAssignedOrReuse(rc, parentName, queues, tot_guarant);
 
-		// group queues based on whether they have non-zero guaranteed capacity
-		Set<TempQueue> nonZeroGuarQueues = new HashSet<>();
-		Set<TempQueue> zeroGuarQueues = new HashSet<>();
-
-		for (TempQueue q : qAlloc) {
-			if (Resources
-				.greaterThan(rc, tot_guarant, q.guaranteed, Resources.none())) {
-				nonZeroGuarQueues.add(q);
-			} else {
-				zeroGuarQueues.add(q);
-			}
-		}
-
-		// first compute the allocation as a fixpoint based on guaranteed capacity
-		computeFixpointAllocation(rc, tot_guarant, nonZeroGuarQueues, unassigned,
-			false);
-
-		// if any capacity is left unassigned, distributed among zero-guarantee
-		// queues uniformly (i.e., not based on guaranteed capacity, as this is zero)
-		if (!zeroGuarQueues.isEmpty()
-			&& Resources.greaterThan(rc, tot_guarant, unassigned, Resources.none())) {
-			computeFixpointAllocation(rc, tot_guarant, zeroGuarQueues, unassigned,
-				true);
-		}
 		// if we still have resource left, we set fast resumtion option
 		if (unassigned.getMemory() > 0 && unassigned.getVirtualCores() > 0) {
 
@@ -489,6 +611,65 @@ public class ProportionalCapacityPreemptionPolicy implements SchedulingEditPolic
 
 	}
 
+	/**
+	 * Compute the ideal assignment of the given sibling queues, or copy the one
+	 * of the previous round if none of the queues changed since then.
+	 *
+	 * @return the resources left unassigned among the queues
+	 */
+	private Resource computeIdealAssignedOrReuse(ResourceCalculator rc,
+	                                             String parentName, List<TempQueue> queues, Resource tot_guarant) {
+		List<Object> inputs = null;
+		if (incrementalPlanning) {
+			inputs = LevelAssignment.getInputs(queues, tot_guarant);
+			LevelAssignment last = idealAssignments.get(parentName);
+			if (last != null && last.inputs.equals(inputs)) {
+				last.applyTo(queues);
+				nextIdealAssignments.put(parentName, last);
+				reusedLevels++;
+				return Resources.clone(last.unassigned);
+			}
+		}
+
+		// qAlloc tracks currently active queues (will decrease progressively as
+		// demand is met)
+		List<TempQueue> qAlloc = new ArrayList<>(queues);
+		// unassigned tracks how much resources are still to assign, initialized
+		// with the total capacity for this set of queues
+		Resource unassigned = Resources.clone(tot_guarant);
+
+		// group queues based on whether they have non-zero guaranteed capacity
+		Set<TempQueue> nonZeroGuarQueues = new HashSet<>();
+		Set<TempQueue> zeroGuarQueues = new HashSet<>();
+
+		for (TempQueue q : qAlloc) {
+			if (Resources
+				.greaterThan(rc, tot_guarant, q.guaranteed, Resources.none())) {
+				nonZeroGuarQueues.add(q);
+			} else {
+				zeroGuarQueues.add(q);
+			}
+		}
+
+		// first compute the allocation as a fixpoint based on guaranteed capacity
+		computeFixpointAllocation(rc, tot_guarant, nonZeroGuarQueues, unassigned,
+			false);
+
+		// if any capacity is left unassigned, distributed among zero-guarantee
+		// queues uniformly (i.e., not based on guaranteed capacity, as this is zero)
+		if (!zeroGuarQueues.isEmpty()
+			&& Resources.greaterThan(rc, tot_guarant, unassigned, Resources.none())) {
+			computeFixpointAllocation(rc, tot_guarant, zeroGuarQueues, unassigned,
+				true);
+		}
+
+		if (incrementalPlanning) {
+			nextIdealAssignments.put(parentName,
+				new LevelAssignment(inputs, queues, unassigned));
+		}
+		return unassigned;
+	}
+
 	/**
 	 * Given a set of queues compute the fix-point distribution of unassigned
 	 * resources among them. As pending request of a queue are exhausted, the
@@ -773,13 +954,6 @@ public class ProportionalCapacityPreemptionPolicy implements SchedulingEditPolic
 		synchronized (qT.leafQueue) {
 			NavigableSet<FiCaSchedulerApp> ns =
 				(NavigableSet<FiCaSchedulerApp>) qT.leafQueue.getApplications();
-			List<FiCaSchedulerApp> appList = new ArrayList<>(ns);
-			Collections.sort(appList, new Comparator<FiCaSchedulerApp>() {
-				@Override
-				public int compare(FiCaSchedulerApp o1, FiCaSchedulerApp o2) {
-					return rc.compare(clusterResource, o1.getHeadroom(), o2.getHeadroom());
-				}
-			});
 			qT.actuallyPreempted = Resources.clone(resToObtain);
 
 			Resource tmp = Resource.newInstance(0, 0);
@@ -833,13 +1007,6 @@ public class ProportionalCapacityPreemptionPolicy implements SchedulingEditPolic
 		synchronized (qT.leafQueue) {
 			NavigableSet<FiCaSchedulerApp> ns =
 				(NavigableSet<FiCaSchedulerApp>) qT.leafQueue.getApplications();
-			List<FiCaSchedulerApp> appList = new ArrayList<>(ns);
-			Collections.sort(appList, new Comparator<FiCaSchedulerApp>() {
-				@Override
-				public int compare(FiCaSchedulerApp o1, FiCaSchedulerApp o2) {
-					return rc.compare(clusterResource, o1.getHeadroom(), o2.getHeadroom());
-				}
-			});
 			Iterator<FiCaSchedulerApp> desc = ns.descendingIterator();
 			qT.actuallyPreempted = Resources.clone(resToObtain);
 			while (desc.hasNext()) {
@@ -881,13 +1048,6 @@ public class ProportionalCapacityPreemptionPolicy implements SchedulingEditPolic
 			// replace resToObtain by eachToObtain
 			NavigableSet<FiCaSchedulerApp> ns =
 				(NavigableSet<FiCaSchedulerApp>) qT.leafQueue.getApplications();
-			List<FiCaSchedulerApp> appList = new ArrayList<>(ns);
-			Collections.sort(appList, new Comparator<FiCaSchedulerApp>() {
-				@Override
-				public int compare(FiCaSchedulerApp o1, FiCaSchedulerApp o2) {
-					return rc.compare(clusterResource, o1.getHeadroom(), o2.getHeadroom());
-				}
-			});
 			Iterator<FiCaSchedulerApp> desc = ns.descendingIterator();
 			qT.actuallyPreempted = Resources.clone(resToObtain);
 			while (desc.hasNext()) {
@@ -937,13 +1097,6 @@ public class ProportionalCapacityPreemptionPolicy implements SchedulingEditPolic
 			// replace resToObtain by eachToObtain
 			NavigableSet<FiCaSchedulerApp> ns =
 				(NavigableSet<FiCaSchedulerApp>) qT.leafQueue.getApplications();
-			List<FiCaSchedulerApp> appList = new ArrayList<>(ns);
-			Collections.sort(appList, new Comparator<FiCaSchedulerApp>() {
-				@Override
-				public int compare(FiCaSchedulerApp o1, FiCaSchedulerApp o2) {
-					return rc.compare(clusterResource, o1.getHeadroom(), o2.getHeadroom());
-				}
-			});
 			Iterator<FiCaSchedulerApp> desc = ns.descendingIterator();
 			qT.actuallyPreempted = Resources.clone(resToObtain);
 			while (desc.hasNext()) {
@@ -1101,8 +1254,16 @@ public class ProportionalCapacityPreemptionPolicy implements SchedulingEditPolic
 			Resources.subtractFrom(rsrcPreempt, container.getContainer().getResource());
 		}
 
-		List<RMContainer> containers = 	new ArrayList<>(((FiCaSchedulerApp) app).getUnPreemtedContainers());
-		sortContainersByPreemptionPriority(containers);
+		List<RMContainer> containers;
+		if (incrementalPlanning) {
+			containers = candidateIndex.getSortedContainers(app);
+		} else {
+			containers = new ArrayList<>(app.getUnPreemtedContainers());
+			sortContainersByPreemptionPriority(containers);
+		}
+		if (memoryPressureThreshold > 0) {
+			containers = underMemoryPressureFirst(containers, memoryPressureThreshold);
+		}
 		if ("averaging".equals(method)) {
 			// a bug here: size must be less than or euqal to containers.size(),
 			// but usually a large app retains much more resource than a shot app, so fix it in the future.
@@ -1212,11 +1373,16 @@ public class ProportionalCapacityPreemptionPolicy implements SchedulingEditPolic
 	 */
 	@VisibleForTesting
 	static void sortContainersByPriority(List<RMContainer> containers) {
-		Collections.sort(containers, new Comparator<RMContainer>() {
+		Collections.sort(containers, PRIORITY_COMPARATOR);
+	}
+
+	private static final Comparator<RMContainer> PRIORITY_COMPARATOR =
+		new Comparator<RMContainer>() {
+			private final Comparator<Priority> c = new org.apache.hadoop.yarn.server
+				.resourcemanager.resource.Priority.Comparator();
+
 			@Override
 			public int compare(RMContainer a, RMContainer b) {
-				Comparator<Priority> c = new org.apache.hadoop.yarn.server
-					.resourcemanager.resource.Priority.Comparator();
 				int priorityComp = c.compare(b.getContainer().getPriority(),
 					a.getContainer().getPriority());
 				if (priorityComp != 0) {
@@ -1224,8 +1390,7 @@ public class ProportionalCapacityPreemptionPolicy implements SchedulingEditPolic
 				}
 				return b.getContainerId().compareTo(a.getContainerId());
 			}
-		});
-	}
+		};
 
 	/**
 	 * Compare by preemption priority order first, and then reversed containerId
@@ -1235,12 +1400,35 @@ public class ProportionalCapacityPreemptionPolicy implements SchedulingEditPolic
 	 */
 	@VisibleForTesting
 	static void sortContainersByPreemptionPriority(List<RMContainer> containers) {
-		Collections.sort(containers, new Comparator<RMContainer>() {
-			@Override
-			public int compare(RMContainer a, RMContainer b) {
-				return Float.compare(b.getContainer().getPreemptionPriority(), a.getContainer().getPreemptionPriority());
+		Collections.sort(containers,
+			PreemptionCandidateIndex.PREEMPTION_PRIORITY_COMPARATOR);
+	}
+
+	/**
+	 * Move the containers hurting their node to the front, keeping the order
+	 * within both groups.
+	 */
+	@VisibleForTesting
+	static List<RMContainer> underMemoryPressureFirst(List<RMContainer> containers,
+	                                                  int threshold) {
+		List<RMContainer> result = null;
+		for (RMContainer container : containers) {
+			if (container.getMemoryPressure() >= threshold) {
+				if (result == null) {
+					result = new ArrayList<>(containers.size());
+				}
+				result.add(container);
 			}
-		});
+		}
+		if (result == null) {
+			return containers;
+		}
+		for (RMContainer container : containers) {
+			if (container.getMemoryPressure() < threshold) {
+				result.add(container);
+			}
+		}
+		return result;
 	}
 
 	/**
@@ -1277,6 +1465,11 @@ public class ProportionalCapacityPreemptionPolicy implements SchedulingEditPolic
 	 * relevant for preemption in TempQueue(s). It also maintains a pointer to
 	 * the leaves. Finally it aggregates pending resources in each queue and rolls
 	 * it up to higher levels.
+	 * <p>
+	 * The caller holds the scheduler lock, so that all the queues are copied at
+	 * the same moment. Each queue is also copied under its own lock, which is
+	 * released before its children are visited: the scheduler locks a leaf
+	 * before its parent when a container completes.
 	 *
 	 * @param root             the root of the CapacityScheduler queue hierarchy
 	 * @param clusterResources the total amount of resources in the cluster
@@ -1284,6 +1477,8 @@ public class ProportionalCapacityPreemptionPolicy implements SchedulingEditPolic
 	 */
 	private TempQueue cloneQueues(CSQueue root, Resource clusterResources) {
 		TempQueue ret;
+		List<CSQueue> children = null;
+		Resource extra = Resource.newInstance(0, 0);
 		synchronized (root) {
 			String queueName = root.getQueueName();
 			float absUsed = root.getAbsoluteUsedCapacity();
@@ -1295,7 +1490,8 @@ public class ProportionalCapacityPreemptionPolicy implements SchedulingEditPolic
 
 			//differenciate the resource based on if it is suspended
 			if (isSuspended) {
-				current = root.getUsedResources();
+				// copy it, the queue keeps updating its used resource while we plan
+				current = Resources.clone(root.getUsedResources());
 			} else {
 				current = Resources.multiply(clusterResources, absUsed);
 			}
@@ -1304,7 +1500,6 @@ public class ProportionalCapacityPreemptionPolicy implements SchedulingEditPolic
 			Resource guaranteed = Resources.multiply(clusterResources, absCap);
 			Resource maxCapacity = Resources.multiply(clusterResources, absMaxCap);
 
-			Resource extra = Resource.newInstance(0, 0);
 			if (Resources.greaterThan(rc, clusterResources, current, guaranteed)) {
 				extra = Resources.subtract(current, guaranteed);
 			}
@@ -1329,21 +1524,24 @@ public class ProportionalCapacityPreemptionPolicy implements SchedulingEditPolic
 				Resource pending = Resource.newInstance(0, 0);
 				ret = new TempQueue(root.getQueueName(), current, pending, guaranteed,
 					maxCapacity, guaranteedRatio, false);
-				Resource childrensPreemptable = Resource.newInstance(0, 0);
-				for (CSQueue c : root.getChildQueues()) {
-					TempQueue subq = cloneQueues(c, clusterResources);
-					Resources.addTo(childrensPreemptable, subq.preemptableExtra);
-					ret.addChild(subq);
-				}
-				// untouchableExtra = max(extra - childrenPreemptable, 0)
-				if (Resources.greaterThanOrEqual(
-					rc, clusterResources, childrensPreemptable, extra)) {
-					//it means there are some extra resource in child node are marked untouchable.
-					ret.untouchableExtra = Resource.newInstance(0, 0);
-				} else {
-					ret.untouchableExtra =
-						Resources.subtractFrom(extra, childrensPreemptable);
-				}
+				children = new ArrayList<>(root.getChildQueues());
+			}
+		}
+		if (children != null) {
+			Resource childrensPreemptable = Resource.newInstance(0, 0);
+			for (CSQueue c : children) {
+				TempQueue subq = cloneQueues(c, clusterResources);
+				Resources.addTo(childrensPreemptable, subq.preemptableExtra);
+				ret.addChild(subq);
+			}
+			// untouchableExtra = max(extra - childrenPreemptable, 0)
+			if (Resources.greaterThanOrEqual(
+				rc, clusterResources, childrensPreemptable, extra)) {
+				//it means there are some extra resource in child node are marked untouchable.
+				ret.untouchableExtra = Resource.newInstance(0, 0);
+			} else {
+				ret.untouchableExtra =
+					Resources.subtractFrom(extra, childrensPreemptable);
 			}
 		}
 		return ret;
@@ -1591,6 +1789,61 @@ public class ProportionalCapacityPreemptionPolicy implements SchedulingEditPolic
 
 	}
 
+	/**
+	 * Ideal assignment computed for the children of one parent queue, together
+	 * with the state of the children it was computed from.
+	 */
+	static class LevelAssignment {
+		final List<Object> inputs;
+		final Resource[] idealAssigned;
+		final double[] normalizedGuarantee;
+		final int[] dominantResource;
+		final Resource unassigned;
+
+		LevelAssignment(List<Object> inputs, List<TempQueue> queues,
+		                Resource unassigned) {
+			this.inputs = inputs;
+			this.idealAssigned = new Resource[queues.size()];
+			this.normalizedGuarantee = new double[queues.size()];
+			this.dominantResource = new int[queues.size()];
+			for (int i = 0; i < queues.size(); i++) {
+				TempQueue q = queues.get(i);
+				idealAssigned[i] = Resources.clone(q.idealAssigned);
+				normalizedGuarantee[i] = q.normalizedGuarantee;
+				dominantResource[i] = q.dominantResource;
+			}
+			this.unassigned = Resources.clone(unassigned);
+		}
+
+		/**
+		 * Everything the fix-point allocation of the queues depends on.
+		 */
+		static List<Object> getInputs(List<TempQueue> queues,
+		                              Resource totGuarant) {
+			List<Object> inputs = new ArrayList<>(1 + queues.size() * 7);
+			inputs.add(Resources.clone(totGuarant));
+			for (TempQueue q : queues) {
+				inputs.add(q.queueName);
+				inputs.add(Resources.clone(q.current));
+				inputs.add(Resources.clone(q.pending));
+				inputs.add(Resources.clone(q.guaranteed));
+				inputs.add(Resources.clone(q.maxCapacity));
+				inputs.add(Resources.clone(q.untouchableExtra));
+				inputs.add(q.guaranteedRatio);
+			}
+			return inputs;
+		}
+
+		void applyTo(List<TempQueue> queues) {
+			for (int i = 0; i < queues.size(); i++) {
+				TempQueue q = queues.get(i);
+				q.idealAssigned = Resources.clone(idealAssigned[i]);
+				q.normalizedGuarantee = normalizedGuarantee[i];
+				q.dominantResource = dominantResource[i];
+			}
+		}
+	}
+
 	static class TQComparator implements Comparator<TempQueue> {
 		private ResourceCalculator rc;
 		private Resource clusterRes;
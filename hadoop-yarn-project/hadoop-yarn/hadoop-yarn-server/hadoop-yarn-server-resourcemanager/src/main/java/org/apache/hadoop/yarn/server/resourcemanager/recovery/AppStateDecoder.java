@@ -0,0 +1,196 @@
+/**
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package org.apache.hadoop.yarn.server.resourcemanager.recovery;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.yarn.api.records.ApplicationAttemptId;
+import org.apache.hadoop.yarn.api.records.ApplicationId;
+import org.apache.hadoop.yarn.conf.YarnConfiguration;
+import org.apache.hadoop.yarn.exceptions.YarnRuntimeException;
+import org.apache.hadoop.yarn.proto.YarnServerResourceManagerRecoveryProtos.ApplicationAttemptStateDataProto;
+import org.apache.hadoop.yarn.proto.YarnServerResourceManagerRecoveryProtos.ApplicationStateDataProto;
+import org.apache.hadoop.yarn.server.resourcemanager.recovery.RMStateStore.RMState;
+import org.apache.hadoop.yarn.server.resourcemanager.recovery.records.ApplicationAttemptStateData;
+import org.apache.hadoop.yarn.server.resourcemanager.recovery.records.ApplicationStateData;
+import org.apache.hadoop.yarn.server.resourcemanager.recovery.records.impl.pb.ApplicationAttemptStateDataPBImpl;
+import org.apache.hadoop.yarn.server.resourcemanager.recovery.records.impl.pb.ApplicationStateDataPBImpl;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Decodes the applications and attempts read by a state store on a pool of
+ * threads, so that decoding them overlaps with reading the next ones. Once
+ * the store has read them all, {@link #addTo(RMState)} waits for the decoding
+ * and adds every attempt to its application.
+ */
+class AppStateDecoder {
+
+  private static final Log LOG = LogFactory.getLog(AppStateDecoder.class);
+
+  // null to decode in the thread adding the data
+  private final ExecutorService pool;
+  private final List<Future<ApplicationStateData>> apps =
+      new ArrayList<Future<ApplicationStateData>>();
+  private final List<Future<ApplicationAttemptStateData>> attempts =
+      new ArrayList<Future<ApplicationAttemptStateData>>();
+
+  AppStateDecoder(Configuration conf) {
+    int numThreads = conf.getInt(YarnConfiguration.RM_RECOVERY_DECODE_THREADS,
+        YarnConfiguration.DEFAULT_RM_RECOVERY_DECODE_THREADS);
+    if (numThreads > 1) {
+      pool = Executors.newFixedThreadPool(numThreads,
+          new ThreadFactoryBuilder().setNameFormat("RM state decoder #%d")
+              .setDaemon(true).build());
+    } else {
+      pool = null;
+    }
+  }
+
+  /**
+   * Decode the stored state of an application.
+   * @param appId id the state is stored under, null if not known
+   */
+  void addApp(final ApplicationId appId, final byte[] data) {
+    apps.add(submit(new Callable<ApplicationStateData>() {
+      @Override
+      public ApplicationStateData call() throws Exception {
+        return decodeApp(appId, data);
+      }
+    }));
+  }
+
+  /**
+   * Decode the stored state of an application attempt.
+   * @param attemptId id the state is stored under, null if not known
+   */
+  void addAttempt(final ApplicationAttemptId attemptId, final byte[] data) {
+    attempts.add(submit(new Callable<ApplicationAttemptStateData>() {
+      @Override
+      public ApplicationAttemptStateData call() throws Exception {
+        return decodeAttempt(attemptId, data);
+      }
+    }));
+  }
+
+  int getNumApps() {
+    return apps.size();
+  }
+
+  int getNumAttempts() {
+    return attempts.size();
+  }
+
+  /**
+   * Wait for the decoding, add the applications to the state and the
+   * attempts to their application, then stop the decoding threads.
+   */
+  void addTo(RMState state) throws Exception {
+    try {
+      for (Future<ApplicationStateData> app : apps) {
+        ApplicationStateData appState = get(app);
+        state.appState.put(
+            appState.getApplicationSubmissionContext().getApplicationId(),
+            appState);
+      }
+      for (Future<ApplicationAttemptStateData> attempt : attempts) {
+        ApplicationAttemptStateData attemptState = get(attempt);
+        ApplicationAttemptId attemptId = attemptState.getAttemptId();
+        ApplicationStateData appState =
+            state.appState.get(attemptId.getApplicationId());
+        if (appState == null) {
+          // the app and its attempts are removed together
+          LOG.warn("Skipping attempt " + attemptId + " of an application"
+              + " which is not stored");
+          continue;
+        }
+        appState.attempts.put(attemptId, attemptState);
+      }
+    } finally {
+      close();
+    }
+  }
+
+  /**
+   * Stop the decoding threads, for a store which failed to read its state.
+   */
+  void close() {
+    if (pool != null) {
+      pool.shutdownNow();
+    }
+  }
+
+  static ApplicationStateData decodeApp(ApplicationId appId, byte[] data)
+      throws IOException {
+    ApplicationStateDataPBImpl appState = new ApplicationStateDataPBImpl(
+        ApplicationStateDataProto.parseFrom(data));
+    // also converts the submission context, the costly part of decoding
+    ApplicationId storedAppId =
+        appState.getApplicationSubmissionContext().getApplicationId();
+    if (appId != null && !appId.equals(storedAppId)) {
+      throw new YarnRuntimeException("The stored state of " + appId
+          + " contains data for " + storedAppId);
+    }
+    return appState;
+  }
+
+  static ApplicationAttemptStateData decodeAttempt(
+      ApplicationAttemptId attemptId, byte[] data) throws IOException {
+    ApplicationAttemptStateDataPBImpl attemptState =
+        new ApplicationAttemptStateDataPBImpl(
+            ApplicationAttemptStateDataProto.parseFrom(data));
+    if (attemptId != null && !attemptId.equals(attemptState.getAttemptId())) {
+      throw new YarnRuntimeException("The stored state of " + attemptId
+          + " contains data for " + attemptState.getAttemptId());
+    }
+    return attemptState;
+  }
+
+  private <T> Future<T> submit(Callable<T> decode) {
+    if (pool != null) {
+      return pool.submit(decode);
+    }
+    FutureTask<T> task = new FutureTask<T>(decode);
+    task.run();
+    return task;
+  }
+
+  private static <T> T get(Future<T> future) throws Exception {
+    try {
+      return future.get();
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof Exception) {
+        throw (Exception) cause;
+      }
+      throw e;
+    }
+  }
+}
@@ -24,9 +24,7 @@ import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.EnumSet;
-import java.util.List;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -47,8 +45,6 @@ import org.apache.hadoop.yarn.api.records.ApplicationId;
 import org.apache.hadoop.yarn.conf.YarnConfiguration;
 import org.apache.hadoop.yarn.proto.YarnServerCommonProtos.VersionProto;
 import org.apache.hadoop.yarn.proto.YarnServerResourceManagerRecoveryProtos.AMRMTokenSecretManagerStateProto;
-import org.apache.hadoop.yarn.proto.YarnServerResourceManagerRecoveryProtos.ApplicationAttemptStateDataProto;
-import org.apache.hadoop.yarn.proto.YarnServerResourceManagerRecoveryProtos.ApplicationStateDataProto;
 import org.apache.hadoop.yarn.proto.YarnServerResourceManagerRecoveryProtos.EpochProto;
 import org.apache.hadoop.yarn.security.client.RMDelegationTokenIdentifier;
 import org.apache.hadoop.yarn.server.records.Version;
@@ -59,8 +55,6 @@ import org.apache.hadoop.yarn.server.resourcemanager.recovery.records.Applicatio
 import org.apache.hadoop.yarn.server.resourcemanager.recovery.records.Epoch;
 import org.apache.hadoop.yarn.server.resourcemanager.recovery.records.RMDelegationTokenIdentifierData;
 import org.apache.hadoop.yarn.server.resourcemanager.recovery.records.impl.pb.AMRMTokenSecretManagerStatePBImpl;
-import org.apache.hadoop.yarn.server.resourcemanager.recovery.records.impl.pb.ApplicationAttemptStateDataPBImpl;
-import org.apache.hadoop.yarn.server.resourcemanager.recovery.records.impl.pb.ApplicationStateDataPBImpl;
 import org.apache.hadoop.yarn.server.resourcemanager.recovery.records.impl.pb.EpochPBImpl;
 
 import com.google.common.annotations.VisibleForTesting;
@@ -236,10 +230,8 @@ public class FileSystemRMStateStore extends RMStateStore {
   }
 
   private void loadRMAppState(RMState rmState) throws Exception {
+    AppStateDecoder decoder = new AppStateDecoder(getConfig());
     try {
-      List<ApplicationAttemptStateData> attempts =
-          new ArrayList<ApplicationAttemptStateData>();
-
       for (FileStatus appDir : listStatusWithRetries(rmAppRoot)) {
         checkAndResumeUpdateOperation(appDir.getPath());
         for (FileStatus childNodeStatus :
@@ -259,12 +251,7 @@ public class FileSystemRMStateStore extends RMStateStore {
             if (LOG.isDebugEnabled()) {
               LOG.debug("Loading application from node: " + childNodeName);
             }
-            ApplicationStateDataPBImpl appState =
-                new ApplicationStateDataPBImpl(
-                  ApplicationStateDataProto.parseFrom(childData));
-            ApplicationId appId =
-                appState.getApplicationSubmissionContext().getApplicationId();
-            rmState.appState.put(appId, appState);
+            decoder.addApp(null, childData);
           } else if (childNodeName
             .startsWith(ApplicationAttemptId.appAttemptIdStrPrefix)) {
             // attempt
@@ -272,29 +259,23 @@ public class FileSystemRMStateStore extends RMStateStore {
               LOG.debug("Loading application attempt from node: "
                   + childNodeName);
             }
-            ApplicationAttemptStateDataPBImpl attemptState =
-                new ApplicationAttemptStateDataPBImpl(
-                  ApplicationAttemptStateDataProto.parseFrom(childData));
-            attempts.add(attemptState);
+            decoder.addAttempt(null, childData);
           } else {
             LOG.info("Unknown child node with name: " + childNodeName);
           }
         }
       }
 
-      // go through all attempts and add them to their apps, Ideally, each
-      // attempt node must have a corresponding app node, because remove
-      // directory operation remove both at the same time
-      for (ApplicationAttemptStateData attemptState : attempts) {
-        ApplicationId appId = attemptState.getAttemptId().getApplicationId();
-        ApplicationStateData appState = rmState.appState.get(appId);
-        assert appState != null;
-        appState.attempts.put(attemptState.getAttemptId(), attemptState);
-      }
+      // add all attempts to their apps, Ideally, each attempt node must have
+      // a corresponding app node, because remove directory operation remove
+      // both at the same time
+      decoder.addTo(rmState);
       LOG.info("Done loading applications from FS state store");
     } catch (Exception e) {
       LOG.error("Failed to load state.", e);
       throw e;
+    } finally {
+      decoder.close();
     }
   }
 
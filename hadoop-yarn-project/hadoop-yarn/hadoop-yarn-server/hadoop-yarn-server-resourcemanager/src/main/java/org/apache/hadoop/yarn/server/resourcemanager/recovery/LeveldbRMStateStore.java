@@ -40,12 +40,9 @@ import org.apache.hadoop.security.token.delegation.DelegationKey;
 import org.apache.hadoop.yarn.api.records.ApplicationAttemptId;
 import org.apache.hadoop.yarn.api.records.ApplicationId;
 import org.apache.hadoop.yarn.conf.YarnConfiguration;
-import org.apache.hadoop.yarn.exceptions.YarnRuntimeException;
 import org.apache.hadoop.yarn.proto.YarnServerCommonProtos.VersionProto;
 import org.apache.hadoop.yarn.proto.YarnServerResourceManagerRecoveryProtos.AMRMTokenSecretManagerStateProto;
 import org.apache.hadoop.yarn.proto.YarnServerResourceManagerRecoveryProtos.EpochProto;
-import org.apache.hadoop.yarn.proto.YarnServerResourceManagerRecoveryProtos.ApplicationAttemptStateDataProto;
-import org.apache.hadoop.yarn.proto.YarnServerResourceManagerRecoveryProtos.ApplicationStateDataProto;
 import org.apache.hadoop.yarn.security.client.RMDelegationTokenIdentifier;
 import org.apache.hadoop.yarn.server.records.Version;
 import org.apache.hadoop.yarn.server.records.impl.pb.VersionPBImpl;
@@ -55,8 +52,6 @@ import org.apache.hadoop.yarn.server.resourcemanager.recovery.records.Applicatio
 import org.apache.hadoop.yarn.server.resourcemanager.recovery.records.Epoch;
 import org.apache.hadoop.yarn.server.resourcemanager.recovery.records.RMDelegationTokenIdentifierData;
 import org.apache.hadoop.yarn.server.resourcemanager.recovery.records.impl.pb.AMRMTokenSecretManagerStatePBImpl;
-import org.apache.hadoop.yarn.server.resourcemanager.recovery.records.impl.pb.ApplicationAttemptStateDataPBImpl;
-import org.apache.hadoop.yarn.server.resourcemanager.recovery.records.impl.pb.ApplicationStateDataPBImpl;
 import org.apache.hadoop.yarn.server.utils.LeveldbIterator;
 import org.apache.hadoop.yarn.util.ConverterUtils;
 import org.fusesource.leveldbjni.JniDBFactory;
@@ -348,9 +343,8 @@ public class LeveldbRMStateStore extends RMStateStore {
     }
   }
 
-  private void loadRMApps(RMState state) throws IOException {
-    int numApps = 0;
-    int numAppAttempts = 0;
+  private void loadRMApps(RMState state) throws Exception {
+    AppStateDecoder decoder = new AppStateDecoder(getConfig());
     LeveldbIterator iter = null;
     try {
       iter = new LeveldbIterator(db);
@@ -368,27 +362,27 @@ public class LeveldbRMStateStore extends RMStateStore {
           continue;
         }
 
-        numAppAttempts += loadRMApp(state, iter, appIdStr, entry.getValue());
-        ++numApps;
+        loadRMApp(decoder, iter, appIdStr, entry.getValue());
       }
+      decoder.addTo(state);
     } catch (DBException e) {
       throw new IOException(e);
     } finally {
+      decoder.close();
       if (iter != null) {
         iter.close();
       }
     }
-    LOG.info("Recovered " + numApps + " applications and " + numAppAttempts
-        + " application attempts");
+    LOG.info("Recovered " + decoder.getNumApps() + " applications and "
+        + decoder.getNumAttempts() + " application attempts");
   }
 
-  private int loadRMApp(RMState rmState, LeveldbIterator iter, String appIdStr,
-      byte[] appData) throws IOException {
-    ApplicationStateData appState = createApplicationState(appIdStr, appData);
-    ApplicationId appId =
-        appState.getApplicationSubmissionContext().getApplicationId();
-    rmState.appState.put(appId, appState);
+  private void loadRMApp(AppStateDecoder decoder, LeveldbIterator iter,
+      String appIdStr, byte[] appData) throws IOException {
+    ApplicationId appId = ConverterUtils.toApplicationId(appIdStr);
+    decoder.addApp(appId, appData);
     String attemptNodePrefix = getApplicationNodeKey(appId) + SEPARATOR;
+    int numAttempts = 0;
     while (iter.hasNext()) {
       Entry<byte[],byte[]> entry = iter.peekNext();
       String key = asString(entry.getKey());
@@ -398,35 +392,18 @@ public class LeveldbRMStateStore extends RMStateStore {
 
       String attemptId = key.substring(attemptNodePrefix.length());
       if (attemptId.startsWith(ApplicationAttemptId.appAttemptIdStrPrefix)) {
-        ApplicationAttemptStateData attemptState =
-            createAttemptState(attemptId, entry.getValue());
-        appState.attempts.put(attemptState.getAttemptId(), attemptState);
+        decoder.addAttempt(ConverterUtils.toApplicationAttemptId(attemptId),
+            entry.getValue());
+        numAttempts++;
       } else {
         LOG.warn("Ignoring unknown application key: " + key);
       }
       iter.next();
     }
-    int numAttempts = appState.attempts.size();
     if (LOG.isDebugEnabled()) {
       LOG.debug("Loaded application " + appId + " with " + numAttempts
           + " attempts");
     }
-    return numAttempts;
-  }
-
-  private ApplicationStateData createApplicationState(String appIdStr,
-      byte[] data) throws IOException {
-    ApplicationId appId = ConverterUtils.toApplicationId(appIdStr);
-    ApplicationStateDataPBImpl appState =
-        new ApplicationStateDataPBImpl(
-            ApplicationStateDataProto.parseFrom(data));
-    if (!appId.equals(
-        appState.getApplicationSubmissionContext().getApplicationId())) {
-      throw new YarnRuntimeException("The database entry for " + appId
-          + " contains data for "
-          + appState.getApplicationSubmissionContext().getApplicationId());
-    }
-    return appState;
   }
 
   @VisibleForTesting
@@ -441,21 +418,7 @@ public class LeveldbRMStateStore extends RMStateStore {
     if (data == null) {
       return null;
     }
-    return createApplicationState(appId.toString(), data);
-  }
-
-  private ApplicationAttemptStateData createAttemptState(String itemName,
-      byte[] data) throws IOException {
-    ApplicationAttemptId attemptId =
-        ConverterUtils.toApplicationAttemptId(itemName);
-    ApplicationAttemptStateDataPBImpl attemptState =
-        new ApplicationAttemptStateDataPBImpl(
-            ApplicationAttemptStateDataProto.parseFrom(data));
-    if (!attemptId.equals(attemptState.getAttemptId())) {
-      throw new YarnRuntimeException("The database entry for " + attemptId
-          + " contains data for " + attemptState.getAttemptId());
-    }
-    return attemptState;
+    return AppStateDecoder.decodeApp(appId, data);
   }
 
   private void loadAMRMTokenSecretManagerState(RMState rmState)
@@ -18,6 +18,7 @@
 
 package org.apache.hadoop.yarn.server.resourcemanager.recovery;
 
+import java.util.Collection;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -58,6 +59,7 @@ import org.apache.hadoop.yarn.server.resourcemanager.recovery.records.Applicatio
 import org.apache.hadoop.yarn.server.resourcemanager.rmapp.RMApp;
 import org.apache.hadoop.yarn.server.resourcemanager.rmapp.RMAppEvent;
 import org.apache.hadoop.yarn.server.resourcemanager.rmapp.RMAppEventType;
+import org.apache.hadoop.yarn.server.resourcemanager.rmapp.RMAppImpl;
 import org.apache.hadoop.yarn.server.resourcemanager.rmapp.attempt.AggregateAppResourceUsage;
 import org.apache.hadoop.yarn.server.resourcemanager.rmapp.attempt.RMAppAttempt;
 import org.apache.hadoop.yarn.server.resourcemanager.rmapp.attempt.RMAppAttemptEvent;
@@ -172,9 +174,8 @@ public abstract class RMStateStore extends AbstractService {
           appState.getApplicationSubmissionContext().getApplicationId();
       LOG.info("Storing info for app: " + appId);
       try {
-        store.storeApplicationStateInternal(appId, appState);
-        store.notifyApplication(new RMAppEvent(appId,
-               RMAppEventType.APP_NEW_SAVED));
+        store.storeApplicationStateInternal(appId, appState,
+            new RMAppEvent(appId, RMAppEventType.APP_NEW_SAVED));
       } catch (Exception e) {
         LOG.error("Error storing app: " + appId, e);
         store.notifyStoreOperationFailed(e);
@@ -197,9 +198,8 @@ public abstract class RMStateStore extends AbstractService {
           appState.getApplicationSubmissionContext().getApplicationId();
       LOG.info("Updating info for app: " + appId);
       try {
-        store.updateApplicationStateInternal(appId, appState);
-        store.notifyApplication(new RMAppEvent(appId,
-               RMAppEventType.APP_UPDATE_SAVED));
+        store.updateApplicationStateInternal(appId, appState,
+            new RMAppEvent(appId, RMAppEventType.APP_UPDATE_SAVED));
       } catch (Exception e) {
         LOG.error("Error updating app: " + appId, e);
         store.notifyStoreOperationFailed(e);
@@ -246,10 +246,8 @@ public abstract class RMStateStore extends AbstractService {
           LOG.debug("Storing info for attempt: " + attemptState.getAttemptId());
         }
         store.storeApplicationAttemptStateInternal(attemptState.getAttemptId(),
-            attemptState);
-        store.notifyApplicationAttempt(new RMAppAttemptEvent
-               (attemptState.getAttemptId(),
-               RMAppAttemptEventType.ATTEMPT_NEW_SAVED));
+            attemptState, new RMAppAttemptEvent(attemptState.getAttemptId(),
+                RMAppAttemptEventType.ATTEMPT_NEW_SAVED));
       } catch (Exception e) {
         LOG.error("Error storing appAttempt: " + attemptState.getAttemptId(), e);
         store.notifyStoreOperationFailed(e);
@@ -273,10 +271,8 @@ public abstract class RMStateStore extends AbstractService {
           LOG.debug("Updating info for attempt: " + attemptState.getAttemptId());
         }
         store.updateApplicationAttemptStateInternal(attemptState.getAttemptId(),
-            attemptState);
-        store.notifyApplicationAttempt(new RMAppAttemptEvent
-               (attemptState.getAttemptId(),
-               RMAppAttemptEventType.ATTEMPT_UPDATE_SAVED));
+            attemptState, new RMAppAttemptEvent(attemptState.getAttemptId(),
+                RMAppAttemptEventType.ATTEMPT_UPDATE_SAVED));
       } catch (Exception e) {
         LOG.error("Error updating appAttempt: " + attemptState.getAttemptId(), e);
         store.notifyStoreOperationFailed(e);
@@ -621,6 +617,29 @@ public abstract class RMStateStore extends AbstractService {
 
   protected abstract void updateApplicationStateInternal(ApplicationId appId,
       ApplicationStateData appStateData) throws Exception;
+
+  /**
+   * Store the state of an application and send the given event once it is
+   * saved. Stores which write in the background override it to send the
+   * event once the state is written.
+   */
+  protected void storeApplicationStateInternal(ApplicationId appId,
+      ApplicationStateData appStateData, RMAppEvent savedEvent)
+      throws Exception {
+    storeApplicationStateInternal(appId, appStateData);
+    notifyApplication(savedEvent);
+  }
+
+  /**
+   * Update the state of an application and send the given event once it is
+   * saved.
+   */
+  protected void updateApplicationStateInternal(ApplicationId appId,
+      ApplicationStateData appStateData, RMAppEvent savedEvent)
+      throws Exception {
+    updateApplicationStateInternal(appId, appStateData);
+    notifyApplication(savedEvent);
+  }
   
   @SuppressWarnings("unchecked")
   /**
@@ -666,6 +685,31 @@ public abstract class RMStateStore extends AbstractService {
       ApplicationAttemptId attemptId,
       ApplicationAttemptStateData attemptStateData) throws Exception;
 
+  /**
+   * Store the state of an application attempt and send the given event once
+   * it is saved. Stores which write in the background override it to send
+   * the event once the state is written.
+   */
+  protected void storeApplicationAttemptStateInternal(
+      ApplicationAttemptId attemptId,
+      ApplicationAttemptStateData attemptStateData,
+      RMAppAttemptEvent savedEvent) throws Exception {
+    storeApplicationAttemptStateInternal(attemptId, attemptStateData);
+    notifyApplicationAttempt(savedEvent);
+  }
+
+  /**
+   * Update the state of an application attempt and send the given event
+   * once it is saved.
+   */
+  protected void updateApplicationAttemptStateInternal(
+      ApplicationAttemptId attemptId,
+      ApplicationAttemptStateData attemptStateData,
+      RMAppAttemptEvent savedEvent) throws Exception {
+    updateApplicationAttemptStateInternal(attemptId, attemptStateData);
+    notifyApplicationAttempt(savedEvent);
+  }
+
   /**
    * RMDTSecretManager call this to store the state of a delegation token
    * and sequence number
@@ -783,8 +827,12 @@ public abstract class RMStateStore extends AbstractService {
         ApplicationStateData.newInstance(
             app.getSubmitTime(), app.getStartTime(),
             app.getApplicationSubmissionContext(), app.getUser());
-    for(RMAppAttempt appAttempt : app.getAppAttempts().values()) {
-      appState.attempts.put(appAttempt.getAppAttemptId(), null);
+    // no need to recover the attempts of a completed app to remove them
+    Collection<ApplicationAttemptId> attemptIds = app instanceof RMAppImpl
+        ? ((RMAppImpl) app).getAppAttemptIds()
+        : app.getAppAttempts().keySet();
+    for(ApplicationAttemptId attemptId : attemptIds) {
+      appState.attempts.put(attemptId, null);
     }
     
     dispatcher.getEventHandler().handle(new RMStateStoreRemoveAppEvent(appState));
@@ -873,7 +921,7 @@ public abstract class RMStateStore extends AbstractService {
    * new application is stored or updated in state store
    * @param event App event containing the app id and event type
    */
-  private void notifyApplication(RMAppEvent event) {
+  protected void notifyApplication(RMAppEvent event) {
     rmDispatcher.getEventHandler().handle(event);
   }
   
@@ -884,7 +932,7 @@ public abstract class RMStateStore extends AbstractService {
    * @param event App attempt event containing the app attempt
    * id and event type
    */
-  private void notifyApplicationAttempt(RMAppAttemptEvent event) {
+  protected void notifyApplicationAttempt(RMAppAttemptEvent event) {
     rmDispatcher.getEventHandler().handle(event);
   }
   
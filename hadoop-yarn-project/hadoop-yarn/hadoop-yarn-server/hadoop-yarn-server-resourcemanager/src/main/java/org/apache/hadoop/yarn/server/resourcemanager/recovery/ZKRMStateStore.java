@@ -28,7 +28,13 @@ import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import com.google.common.base.Preconditions;
 import org.apache.commons.logging.Log;
@@ -46,8 +52,6 @@ import org.apache.hadoop.yarn.conf.YarnConfiguration;
 import org.apache.hadoop.yarn.exceptions.YarnRuntimeException;
 import org.apache.hadoop.yarn.proto.YarnServerCommonProtos.VersionProto;
 import org.apache.hadoop.yarn.proto.YarnServerResourceManagerRecoveryProtos.AMRMTokenSecretManagerStateProto;
-import org.apache.hadoop.yarn.proto.YarnServerResourceManagerRecoveryProtos.ApplicationAttemptStateDataProto;
-import org.apache.hadoop.yarn.proto.YarnServerResourceManagerRecoveryProtos.ApplicationStateDataProto;
 import org.apache.hadoop.yarn.proto.YarnServerResourceManagerRecoveryProtos.EpochProto;
 import org.apache.hadoop.yarn.security.client.RMDelegationTokenIdentifier;
 import org.apache.hadoop.yarn.server.records.Version;
@@ -59,10 +63,11 @@ import org.apache.hadoop.yarn.server.resourcemanager.recovery.records.Applicatio
 import org.apache.hadoop.yarn.server.resourcemanager.recovery.records.Epoch;
 import org.apache.hadoop.yarn.server.resourcemanager.recovery.records.RMDelegationTokenIdentifierData;
 import org.apache.hadoop.yarn.server.resourcemanager.recovery.records.impl.pb.AMRMTokenSecretManagerStatePBImpl;
-import org.apache.hadoop.yarn.server.resourcemanager.recovery.records.impl.pb.ApplicationAttemptStateDataPBImpl;
-import org.apache.hadoop.yarn.server.resourcemanager.recovery.records.impl.pb.ApplicationStateDataPBImpl;
 import org.apache.hadoop.yarn.server.resourcemanager.recovery.records.impl.pb.EpochPBImpl;
+import org.apache.hadoop.yarn.server.resourcemanager.rmapp.RMAppEvent;
+import org.apache.hadoop.yarn.server.resourcemanager.rmapp.attempt.RMAppAttemptEvent;
 import org.apache.hadoop.yarn.util.ConverterUtils;
+import org.apache.zookeeper.AsyncCallback;
 import org.apache.zookeeper.CreateMode;
 import org.apache.zookeeper.KeeperException;
 import org.apache.zookeeper.KeeperException.Code;
@@ -100,6 +105,11 @@ public class ZKRMStateStore extends RMStateStore {
       "RMDTSequentialNumber";
   private static final String RM_DT_MASTER_KEYS_ROOT_ZNODE_NAME =
       "RMDTMasterKeysRoot";
+  private static final String RM_APP_BUCKET_PREFIX = "bucket_";
+  // reads in flight at a time when loading the applications
+  private static final int MAX_PENDING_READS = 1000;
+  // bytes of data in a batch of writes, well under the default jute.maxbuffer
+  private static final int MAX_BATCH_BYTES = 512 * 1024;
   private int numRetries;
 
   private String zkHostPort = null;
@@ -125,6 +135,11 @@ public class ZKRMStateStore extends RMStateStore {
    * |     |----- (#ApplicationId2)
    * |     |       |----- (#ApplicationAttemptIds)
    * |     ....
+   * |     |
+   * |     |----- RM_APP_BUCKET_PREFIX(#Bucket), if the apps are bucketed
+   * |     |       |----- (#ApplicationId3)
+   * |     |       |        |----- (#ApplicationAttemptIds)
+   * |     ....
    * |
    * |--- RM_DT_SECRET_MANAGER_ROOT
    *        |----- RM_DT_SEQUENTIAL_NUMBER_ZNODE_NAME
@@ -150,6 +165,15 @@ public class ZKRMStateStore extends RMStateStore {
   private String dtSequenceNumberPath;
   private String amrmTokenSecretManagerRoot;
 
+  private int appBuckets;
+  // apps whose znode is not where getBucketedAppPath() puts it, because they
+  // were stored with another number of buckets
+  private final Map<ApplicationId, String> movedAppPaths =
+      new ConcurrentHashMap<ApplicationId, String>();
+  private long batchIntervalMs;
+  private int batchMaxOps;
+  private volatile BatchWriterThread batchWriter;
+
   @VisibleForTesting
   protected String znodeWorkingPath;
 
@@ -243,6 +267,13 @@ public class ZKRMStateStore extends RMStateStore {
 
     zkRootNodePath = getNodePath(znodeWorkingPath, ROOT_ZNODE_NAME);
     rmAppRoot = getNodePath(zkRootNodePath, RM_APP_ROOT);
+    appBuckets = conf.getInt(YarnConfiguration.ZK_RM_STATE_STORE_APP_BUCKETS,
+        YarnConfiguration.DEFAULT_ZK_RM_STATE_STORE_APP_BUCKETS);
+    batchIntervalMs =
+        conf.getLong(YarnConfiguration.ZK_RM_STATE_STORE_BATCH_INTERVAL_MS,
+            YarnConfiguration.DEFAULT_ZK_RM_STATE_STORE_BATCH_INTERVAL_MS);
+    batchMaxOps = conf.getInt(YarnConfiguration.ZK_RM_STATE_STORE_BATCH_MAX_OPS,
+        YarnConfiguration.DEFAULT_ZK_RM_STATE_STORE_BATCH_MAX_OPS);
 
     /* Initialize fencing related paths, acls, and ops */
     fencingNodePath = getNodePath(zkRootNodePath, FENCING_LOCK);
@@ -293,11 +324,18 @@ public class ZKRMStateStore extends RMStateStore {
       verifyActiveStatusThread.start();
     }
     createRootDir(rmAppRoot);
+    for (int i = 0; i < appBuckets; i++) {
+      createRootDir(getAppBucketPath(i));
+    }
     createRootDir(rmDTSecretManagerRoot);
     createRootDir(dtMasterKeysRootPath);
     createRootDir(delegationTokensRootPath);
     createRootDir(dtSequenceNumberPath);
     createRootDir(amrmTokenSecretManagerRoot);
+    if (batchIntervalMs > 0) {
+      batchWriter = new BatchWriterThread();
+      batchWriter.start();
+    }
   }
 
   private void createRootDir(final String rootPath) throws Exception {
@@ -376,12 +414,18 @@ public class ZKRMStateStore extends RMStateStore {
   }
 
   @Override
-  protected synchronized void closeInternal() throws Exception {
-    if (verifyActiveStatusThread != null) {
-      verifyActiveStatusThread.interrupt();
-      verifyActiveStatusThread.join(1000);
+  protected void closeInternal() throws Exception {
+    // the writer needs the store, not held here, to write its last batches
+    if (batchWriter != null) {
+      batchWriter.shutdown();
+    }
+    synchronized (this) {
+      if (verifyActiveStatusThread != null) {
+        verifyActiveStatusThread.interrupt();
+        verifyActiveStatusThread.join(1000);
+      }
+      closeZkClients();
     }
-    closeZkClients();
   }
 
   @Override
@@ -554,94 +598,256 @@ public class ZKRMStateStore extends RMStateStore {
   }
 
   private synchronized void loadRMAppState(RMState rmState) throws Exception {
-    List<String> childNodes = getChildrenWithRetries(rmAppRoot, false);
-    for (String childNodeName : childNodes) {
-      String childNodePath = getNodePath(rmAppRoot, childNodeName);
-      byte[] childData = getDataWithRetries(childNodePath, false);
-      if (childNodeName.startsWith(ApplicationId.appIdStrPrefix)) {
-        // application
+    long start = System.currentTimeMillis();
+    List<String> appPaths = new ArrayList<String>();
+    List<String> bucketPaths = new ArrayList<String>();
+    addAppPaths(rmAppRoot, getChildrenWithRetries(rmAppRoot, false), appPaths,
+        bucketPaths);
+    // whatever the number of buckets the apps were stored with
+    List<List<String>> bucketChildren =
+        new GetChildrenPipeline(bucketPaths).run();
+    for (int i = 0; i < bucketPaths.size(); i++) {
+      addAppPaths(bucketPaths.get(i), bucketChildren.get(i), appPaths, null);
+    }
+
+    AppStateDecoder decoder = new AppStateDecoder(getConfig());
+    try {
+      // the apps are decoded while their attempts are read
+      List<byte[]> appData = new GetDataPipeline(appPaths).run();
+      for (int i = 0; i < appPaths.size(); i++) {
+        String appPath = appPaths.get(i);
+        String appIdStr = appPath.substring(appPath.lastIndexOf('/') + 1);
         if (LOG.isDebugEnabled()) {
-          LOG.debug("Loading application from znode: " + childNodeName);
+          LOG.debug("Loading application from znode: " + appPath);
         }
-        ApplicationId appId = ConverterUtils.toApplicationId(childNodeName);
-        ApplicationStateDataPBImpl appState =
-            new ApplicationStateDataPBImpl(
-                ApplicationStateDataProto.parseFrom(childData));
-        if (!appId.equals(
-            appState.getApplicationSubmissionContext().getApplicationId())) {
-          throw new YarnRuntimeException("The child node name is different " +
-              "from the application id");
+        ApplicationId appId = ConverterUtils.toApplicationId(appIdStr);
+        decoder.addApp(appId, appData.get(i));
+        if (!appPath.equals(getBucketedAppPath(appId))) {
+          movedAppPaths.put(appId, appPath);
         }
-        rmState.appState.put(appId, appState);
-        loadApplicationAttemptState(appState, appId);
+      }
+
+      List<List<String>> appChildren = new GetChildrenPipeline(appPaths).run();
+      List<String> attemptPaths = new ArrayList<String>();
+      for (int i = 0; i < appPaths.size(); i++) {
+        for (String attemptIDStr : appChildren.get(i)) {
+          if (attemptIDStr.startsWith(
+              ApplicationAttemptId.appAttemptIdStrPrefix)) {
+            attemptPaths.add(getNodePath(appPaths.get(i), attemptIDStr));
+          }
+        }
+      }
+      List<byte[]> attemptData = new GetDataPipeline(attemptPaths).run();
+      for (byte[] data : attemptData) {
+        decoder.addAttempt(null, data);
+      }
+      decoder.addTo(rmState);
+    } finally {
+      decoder.close();
+    }
+    LOG.info("Loaded " + decoder.getNumApps() + " applications and "
+        + decoder.getNumAttempts() + " attempts from ZK state store in "
+        + (System.currentTimeMillis() - start) + " ms");
+  }
+
+  /**
+   * Add the paths of the app znodes among the children of a znode, and those
+   * of the buckets if bucketPaths is not null.
+   */
+  private void addAppPaths(String parentPath, List<String> childNodes,
+      List<String> appPaths, List<String> bucketPaths) {
+    for (String childNodeName : childNodes) {
+      String childNodePath = getNodePath(parentPath, childNodeName);
+      if (childNodeName.startsWith(ApplicationId.appIdStrPrefix)) {
+        appPaths.add(childNodePath);
+      } else if (bucketPaths != null
+          && childNodeName.startsWith(RM_APP_BUCKET_PREFIX)) {
+        bucketPaths.add(childNodePath);
       } else {
         LOG.info("Unknown child node with name: " + childNodeName);
       }
     }
   }
 
-  private void loadApplicationAttemptState(ApplicationStateData appState,
-      ApplicationId appId)
-      throws Exception {
-    String appPath = getNodePath(rmAppRoot, appId.toString());
-    List<String> attempts = getChildrenWithRetries(appPath, false);
-    for (String attemptIDStr : attempts) {
-      if (attemptIDStr.startsWith(ApplicationAttemptId.appAttemptIdStrPrefix)) {
-        String attemptPath = getNodePath(appPath, attemptIDStr);
-        byte[] attemptData = getDataWithRetries(attemptPath, false);
-
-        ApplicationAttemptStateDataPBImpl attemptState =
-            new ApplicationAttemptStateDataPBImpl(
-                ApplicationAttemptStateDataProto.parseFrom(attemptData));
-
-        appState.attempts.put(attemptState.getAttemptId(), attemptState);
+  /**
+   * Reads znodes with asynchronous requests, up to MAX_PENDING_READS in
+   * flight, rather than waiting for each of them in turn. The reads which did
+   * not succeed are made again synchronously, with retries.
+   */
+  private abstract class ReadPipeline<T> {
+    private final List<String> paths;
+    private final AtomicReferenceArray<T> results;
+    private final Semaphore permits = new Semaphore(MAX_PENDING_READS);
+
+    ReadPipeline(List<String> paths) {
+      this.paths = paths;
+      this.results = new AtomicReferenceArray<T>(paths.size());
+    }
+
+    /**
+     * Send the read of a path, whose callback calls {@link #readDone}.
+     */
+    abstract void readAsync(ZooKeeper zk, String path, Integer index);
+
+    abstract T readWithRetries(String path) throws Exception;
+
+    void readDone(int rc, Object index, T result) {
+      if (rc == Code.OK.intValue()) {
+        results.set((Integer) index, result);
       }
+      permits.release();
+    }
+
+    List<T> run() throws Exception {
+      ZooKeeper zk = zkClient;
+      if (zk != null && !paths.isEmpty()) {
+        for (int i = 0; i < paths.size(); i++) {
+          if (!permits.tryAcquire(zkSessionTimeout, TimeUnit.MILLISECONDS)) {
+            break;
+          }
+          readAsync(zk, paths.get(i), i);
+        }
+        // wait for the reads in flight
+        permits.tryAcquire(MAX_PENDING_READS, zkSessionTimeout,
+            TimeUnit.MILLISECONDS);
+      }
+      List<T> list = new ArrayList<T>(paths.size());
+      for (int i = 0; i < paths.size(); i++) {
+        T result = results.get(i);
+        list.add(result != null ? result : readWithRetries(paths.get(i)));
+      }
+      return list;
+    }
+  }
+
+  private class GetDataPipeline extends ReadPipeline<byte[]>
+      implements AsyncCallback.DataCallback {
+    GetDataPipeline(List<String> paths) {
+      super(paths);
+    }
+
+    @Override
+    void readAsync(ZooKeeper zk, String path, Integer index) {
+      zk.getData(path, false, this, index);
+    }
+
+    @Override
+    public void processResult(int rc, String path, Object ctx, byte[] data,
+        Stat stat) {
+      readDone(rc, ctx, data);
     }
-    LOG.debug("Done loading applications from ZK state store");
+
+    @Override
+    byte[] readWithRetries(String path) throws Exception {
+      return getDataWithRetries(path, false);
+    }
+  }
+
+  private class GetChildrenPipeline extends ReadPipeline<List<String>>
+      implements AsyncCallback.ChildrenCallback {
+    GetChildrenPipeline(List<String> paths) {
+      super(paths);
+    }
+
+    @Override
+    void readAsync(ZooKeeper zk, String path, Integer index) {
+      zk.getChildren(path, false, this, index);
+    }
+
+    @Override
+    public void processResult(int rc, String path, Object ctx,
+        List<String> children) {
+      readDone(rc, ctx, children);
+    }
+
+    @Override
+    List<String> readWithRetries(String path) throws Exception {
+      return getChildrenWithRetries(path, false);
+    }
+  }
+
+  /**
+   * @return the path of the znode of an app
+   */
+  @VisibleForTesting
+  String getAppPath(ApplicationId appId) {
+    String appPath = movedAppPaths.get(appId);
+    return appPath != null ? appPath : getBucketedAppPath(appId);
+  }
+
+  /**
+   * @return the path of the znode of an app in its bucket, or under the app
+   * root if the apps are not bucketed
+   */
+  private String getBucketedAppPath(ApplicationId appId) {
+    String parentPath = rmAppRoot;
+    if (appBuckets > 0) {
+      parentPath = getAppBucketPath(
+          (appId.hashCode() & Integer.MAX_VALUE) % appBuckets);
+    }
+    return getNodePath(parentPath, appId.toString());
+  }
+
+  private String getAppBucketPath(int bucket) {
+    return getNodePath(rmAppRoot, RM_APP_BUCKET_PREFIX + bucket);
   }
 
   @Override
-  public synchronized void storeApplicationStateInternal(ApplicationId appId,
+  public void storeApplicationStateInternal(ApplicationId appId,
       ApplicationStateData appStateDataPB) throws Exception {
-    String nodeCreatePath = getNodePath(rmAppRoot, appId.toString());
+    storeApplicationStateInternal(appId, appStateDataPB, null);
+  }
+
+  @Override
+  protected void storeApplicationStateInternal(ApplicationId appId,
+      ApplicationStateData appStateDataPB, RMAppEvent savedEvent)
+      throws Exception {
+    String nodeCreatePath = getAppPath(appId);
 
     if (LOG.isDebugEnabled()) {
       LOG.debug("Storing info for app: " + appId + " at: " + nodeCreatePath);
     }
     byte[] appStateData = appStateDataPB.getProto().toByteArray();
-    createWithRetries(nodeCreatePath, appStateData, zkAcl,
-      CreateMode.PERSISTENT);
-
+    writeOrQueue(new CreateWrite(nodeCreatePath, appStateData, savedEvent));
   }
 
   @Override
-  public synchronized void updateApplicationStateInternal(ApplicationId appId,
+  public void updateApplicationStateInternal(ApplicationId appId,
       ApplicationStateData appStateDataPB) throws Exception {
-    String nodeUpdatePath = getNodePath(rmAppRoot, appId.toString());
+    updateApplicationStateInternal(appId, appStateDataPB, null);
+  }
+
+  @Override
+  protected void updateApplicationStateInternal(ApplicationId appId,
+      ApplicationStateData appStateDataPB, RMAppEvent savedEvent)
+      throws Exception {
+    String nodeUpdatePath = getAppPath(appId);
 
     if (LOG.isDebugEnabled()) {
       LOG.debug("Storing final state info for app: " + appId + " at: "
           + nodeUpdatePath);
     }
     byte[] appStateData = appStateDataPB.getProto().toByteArray();
-
-    if (existsWithRetries(nodeUpdatePath, false) != null) {
-      setDataWithRetries(nodeUpdatePath, appStateData, -1);
-    } else {
-      createWithRetries(nodeUpdatePath, appStateData, zkAcl,
-        CreateMode.PERSISTENT);
-      LOG.debug(appId + " znode didn't exist. Created a new znode to"
-          + " update the application state.");
-    }
+    writeOrQueue(new SetOrCreateWrite(nodeUpdatePath, appStateData,
+        appId + " znode didn't exist. Created a new znode to"
+            + " update the application state.", savedEvent));
   }
 
   @Override
-  public synchronized void storeApplicationAttemptStateInternal(
+  public void storeApplicationAttemptStateInternal(
       ApplicationAttemptId appAttemptId,
       ApplicationAttemptStateData attemptStateDataPB)
       throws Exception {
-    String appDirPath = getNodePath(rmAppRoot,
-        appAttemptId.getApplicationId().toString());
+    storeApplicationAttemptStateInternal(appAttemptId, attemptStateDataPB,
+        null);
+  }
+
+  @Override
+  protected void storeApplicationAttemptStateInternal(
+      ApplicationAttemptId appAttemptId,
+      ApplicationAttemptStateData attemptStateDataPB,
+      RMAppAttemptEvent savedEvent) throws Exception {
+    String appDirPath = getAppPath(appAttemptId.getApplicationId());
     String nodeCreatePath = getNodePath(appDirPath, appAttemptId.toString());
 
     if (LOG.isDebugEnabled()) {
@@ -649,43 +855,46 @@ public class ZKRMStateStore extends RMStateStore {
           + nodeCreatePath);
     }
     byte[] attemptStateData = attemptStateDataPB.getProto().toByteArray();
-    createWithRetries(nodeCreatePath, attemptStateData, zkAcl,
-      CreateMode.PERSISTENT);
+    writeOrQueue(new CreateWrite(nodeCreatePath, attemptStateData,
+        savedEvent));
   }
 
   @Override
-  public synchronized void updateApplicationAttemptStateInternal(
+  public void updateApplicationAttemptStateInternal(
       ApplicationAttemptId appAttemptId,
       ApplicationAttemptStateData attemptStateDataPB)
       throws Exception {
-    String appIdStr = appAttemptId.getApplicationId().toString();
+    updateApplicationAttemptStateInternal(appAttemptId, attemptStateDataPB,
+        null);
+  }
+
+  @Override
+  protected void updateApplicationAttemptStateInternal(
+      ApplicationAttemptId appAttemptId,
+      ApplicationAttemptStateData attemptStateDataPB,
+      RMAppAttemptEvent savedEvent) throws Exception {
     String appAttemptIdStr = appAttemptId.toString();
-    String appDirPath = getNodePath(rmAppRoot, appIdStr);
+    String appDirPath = getAppPath(appAttemptId.getApplicationId());
     String nodeUpdatePath = getNodePath(appDirPath, appAttemptIdStr);
     if (LOG.isDebugEnabled()) {
       LOG.debug("Storing final state info for attempt: " + appAttemptIdStr
           + " at: " + nodeUpdatePath);
     }
     byte[] attemptStateData = attemptStateDataPB.getProto().toByteArray();
-
-    if (existsWithRetries(nodeUpdatePath, false) != null) {
-      setDataWithRetries(nodeUpdatePath, attemptStateData, -1);
-    } else {
-      createWithRetries(nodeUpdatePath, attemptStateData, zkAcl,
-        CreateMode.PERSISTENT);
-      LOG.debug(appAttemptId + " znode didn't exist. Created a new znode to"
-          + " update the application attempt state.");
-    }
+    writeOrQueue(new SetOrCreateWrite(nodeUpdatePath, attemptStateData,
+        appAttemptId + " znode didn't exist. Created a new znode to"
+            + " update the application attempt state.", savedEvent));
   }
 
   @Override
-  public synchronized void removeApplicationStateInternal(
+  public void removeApplicationStateInternal(
       ApplicationStateData  appState)
       throws Exception {
-    String appId = appState.getApplicationSubmissionContext().getApplicationId()
-        .toString();
-    String appIdRemovePath = getNodePath(rmAppRoot, appId);
-    ArrayList<Op> opList = new ArrayList<Op>();
+    ApplicationId appId =
+        appState.getApplicationSubmissionContext().getApplicationId();
+    String appIdRemovePath = getAppPath(appId);
+    movedAppPaths.remove(appId);
+    final ArrayList<Op> opList = new ArrayList<Op>();
 
     for (ApplicationAttemptId attemptId : appState.attempts.keySet()) {
       String attemptRemovePath = getNodePath(appIdRemovePath, attemptId.toString());
@@ -697,7 +906,119 @@ public class ZKRMStateStore extends RMStateStore {
       LOG.debug("Removing info for app: " + appId + " at: " + appIdRemovePath
           + " and its attempts.");
     }
-    doDeleteMultiWithRetries(opList);
+    writeOrQueue(new PendingWrite(0, null) {
+      @Override
+      void addOps(List<Op> ops) {
+        ops.addAll(opList);
+      }
+
+      @Override
+      void write() throws Exception {
+        doDeleteMultiWithRetries(opList);
+      }
+    });
+  }
+
+  /**
+   * A write of the state of an app or an attempt, made on its own or in a
+   * batch of the {@link BatchWriterThread}, and the event telling the app or
+   * the attempt that its state is saved, if any.
+   */
+  private abstract class PendingWrite {
+    private final int size;
+    private final org.apache.hadoop.yarn.event.Event savedEvent;
+
+    PendingWrite(int size, org.apache.hadoop.yarn.event.Event savedEvent) {
+      this.size = size;
+      this.savedEvent = savedEvent;
+    }
+
+    /**
+     * Add the operations of the write to a batch.
+     */
+    abstract void addOps(List<Op> ops);
+
+    /**
+     * Make the write on its own, with retries.
+     */
+    abstract void write() throws Exception;
+
+    /**
+     * Send the saved event once the write is done.
+     */
+    void notifySaved() {
+      if (savedEvent instanceof RMAppEvent) {
+        notifyApplication((RMAppEvent) savedEvent);
+      } else if (savedEvent instanceof RMAppAttemptEvent) {
+        notifyApplicationAttempt((RMAppAttemptEvent) savedEvent);
+      }
+    }
+  }
+
+  private class CreateWrite extends PendingWrite {
+    private final String path;
+    private final byte[] data;
+
+    CreateWrite(String path, byte[] data,
+        org.apache.hadoop.yarn.event.Event savedEvent) {
+      super(data.length, savedEvent);
+      this.path = path;
+      this.data = data;
+    }
+
+    @Override
+    void addOps(List<Op> ops) {
+      ops.add(Op.create(path, data, zkAcl, CreateMode.PERSISTENT));
+    }
+
+    @Override
+    void write() throws Exception {
+      createWithRetries(path, data, zkAcl, CreateMode.PERSISTENT);
+    }
+  }
+
+  private class SetOrCreateWrite extends PendingWrite {
+    private final String path;
+    private final byte[] data;
+    private final String createdMessage;
+
+    SetOrCreateWrite(String path, byte[] data, String createdMessage,
+        org.apache.hadoop.yarn.event.Event savedEvent) {
+      super(data.length, savedEvent);
+      this.path = path;
+      this.data = data;
+      this.createdMessage = createdMessage;
+    }
+
+    @Override
+    void addOps(List<Op> ops) {
+      // the batch is written again one write at a time if the znode is missing
+      ops.add(Op.setData(path, data, -1));
+    }
+
+    @Override
+    void write() throws Exception {
+      synchronized (ZKRMStateStore.this) {
+        if (existsWithRetries(path, false) != null) {
+          setDataWithRetries(path, data, -1);
+        } else {
+          createWithRetries(path, data, zkAcl, CreateMode.PERSISTENT);
+          LOG.debug(createdMessage);
+        }
+      }
+    }
+  }
+
+  /**
+   * Queue the write to the batch writer, which sends its saved event once
+   * the batch is written, or make it now if batching is off.
+   */
+  private void writeOrQueue(PendingWrite write) throws Exception {
+    BatchWriterThread writer = batchWriter;
+    if (writer == null || !writer.add(write)) {
+      write.write();
+      write.notifySaved();
+    }
   }
 
   @Override
@@ -955,6 +1276,40 @@ public class ZKRMStateStore extends RMStateStore {
     doDeleteMultiWithRetries(Collections.singletonList(op));
   }
 
+  /**
+   * Helper method that creates fencing node, executes a batch of operations
+   * and deletes the fencing node.
+   * @return false if one of the operations failed, in which case none of
+   * them was executed
+   */
+  private boolean doBatchMultiWithRetries(final List<Op> opList)
+      throws Exception {
+    final List<Op> execOpList = new ArrayList<Op>(opList.size() + 2);
+    execOpList.add(createFencingNodePathOp);
+    execOpList.addAll(opList);
+    execOpList.add(deleteFencingNodePathOp);
+    return new ZKAction<Boolean>() {
+      @Override
+      Boolean run() throws KeeperException, InterruptedException {
+        try {
+          zkClient.multi(execOpList);
+          return true;
+        } catch (KeeperException ke) {
+          switch (ke.code()) {
+            case NODEEXISTS:
+            case NONODE:
+            case BADVERSION:
+            case NOTEMPTY:
+              LOG.info("Batch of ZK operations failed: " + ke.getMessage());
+              return false;
+            default:
+              throw ke;
+          }
+        }
+      }
+    }.runWithRetries();
+  }
+
   @VisibleForTesting
   @Private
   @Unstable
@@ -1043,6 +1398,131 @@ public class ZKRMStateStore extends RMStateStore {
     }
   }
 
+  /**
+   * Writes the queued app and attempt states in batches, each in a single
+   * multi-op guarded by the fencing node like the other writes. One batch is
+   * written at a time while the next one is gathered. The apps and attempts
+   * are told their state is saved once its batch is written, the failure of
+   * a batch is reported to the store like the failure of any other write.
+   */
+  private class BatchWriterThread extends Thread {
+    private final LinkedList<PendingWrite> pending =
+        new LinkedList<PendingWrite>();
+    private boolean stopped = false;
+
+    BatchWriterThread() {
+      super(BatchWriterThread.class.getName());
+      setDaemon(true);
+    }
+
+    /**
+     * @return false if the writer is stopped, the write is not queued
+     */
+    boolean add(PendingWrite write) {
+      synchronized (pending) {
+        if (stopped) {
+          return false;
+        }
+        pending.add(write);
+        if (pending.size() == 1 || pending.size() >= batchMaxOps) {
+          pending.notifyAll();
+        }
+        return true;
+      }
+    }
+
+    /**
+     * Write the writes queued and stop.
+     */
+    void shutdown() throws InterruptedException {
+      synchronized (pending) {
+        stopped = true;
+        pending.notifyAll();
+      }
+      join();
+    }
+
+    @Override
+    public void run() {
+      try {
+        List<PendingWrite> batch = new ArrayList<PendingWrite>();
+        List<Op> ops = new ArrayList<Op>();
+        while (takeBatch(batch, ops)) {
+          writeBatch(batch, ops);
+          batch.clear();
+          ops.clear();
+        }
+      } catch (InterruptedException ie) {
+        LOG.info(BatchWriterThread.class.getName() + " thread interrupted! "
+            + "Exiting!");
+      }
+    }
+
+    /**
+     * Wait for writes and take those queued within the batch interval, up to
+     * the maximum number of operations and bytes of a batch.
+     * @return false if the writer is stopped and there is nothing to write
+     */
+    private boolean takeBatch(List<PendingWrite> batch, List<Op> ops)
+        throws InterruptedException {
+      synchronized (pending) {
+        while (pending.isEmpty() && !stopped) {
+          pending.wait();
+        }
+        if (pending.isEmpty()) {
+          return false;
+        }
+        if (!stopped && pending.size() < batchMaxOps) {
+          pending.wait(batchIntervalMs);
+        }
+        int bytes = 0;
+        while (!pending.isEmpty() && (batch.isEmpty()
+            || (ops.size() < batchMaxOps
+                && bytes + pending.peek().size <= MAX_BATCH_BYTES))) {
+          PendingWrite write = pending.poll();
+          write.addOps(ops);
+          bytes += write.size;
+          batch.add(write);
+        }
+        return true;
+      }
+    }
+
+    private void writeBatch(List<PendingWrite> batch, List<Op> ops) {
+      if (isFencedState()) {
+        // the writes were queued before the store was fenced, they fail as
+        // they would have without batching
+        LOG.error("Unable to write a batch of " + batch.size()
+            + " app and attempt states, the store is fenced");
+        notifyStoreOperationFailed(new StoreFencedException());
+        return;
+      }
+      long start = System.currentTimeMillis();
+      try {
+        if (!doBatchMultiWithRetries(ops)) {
+          // e.g. a znode to update is missing, make the writes one by one
+          // as they would be without batching
+          for (PendingWrite write : batch) {
+            write.write();
+          }
+        }
+        if (LOG.isDebugEnabled()) {
+          LOG.debug("Wrote a batch of " + batch.size() + " writes, "
+              + ops.size() + " ZK operations, in "
+              + (System.currentTimeMillis() - start) + " ms");
+        }
+      } catch (Exception e) {
+        LOG.error("Error writing a batch of " + batch.size()
+            + " app and attempt states", e);
+        notifyStoreOperationFailed(e);
+        return;
+      }
+      for (PendingWrite write : batch) {
+        write.notifySaved();
+      }
+    }
+  }
+
   /**
    * Helper class that periodically attempts creating a znode to ensure that
    * this RM continues to be the Active.
@@ -47,6 +47,7 @@ import org.apache.hadoop.yarn.api.records.ApplicationId;
 import org.apache.hadoop.yarn.api.records.ApplicationReport;
 import org.apache.hadoop.yarn.api.records.ApplicationResourceUsageReport;
 import org.apache.hadoop.yarn.api.records.ApplicationSubmissionContext;
+import org.apache.hadoop.yarn.api.records.ContainerExitStatus;
 import org.apache.hadoop.yarn.api.records.FinalApplicationStatus;
 import org.apache.hadoop.yarn.api.records.NodeId;
 import org.apache.hadoop.yarn.api.records.NodeState;
@@ -62,12 +63,14 @@ import org.apache.hadoop.yarn.exceptions.YarnRuntimeException;
 import org.apache.hadoop.yarn.security.AMRMTokenIdentifier;
 import org.apache.hadoop.yarn.security.client.ClientToAMTokenIdentifier;
 import org.apache.hadoop.yarn.server.resourcemanager.ApplicationMasterService;
+import org.apache.hadoop.yarn.server.resourcemanager.ClusterMetrics;
 import org.apache.hadoop.yarn.server.resourcemanager.RMAppManagerEvent;
 import org.apache.hadoop.yarn.server.resourcemanager.RMAppManagerEventType;
 import org.apache.hadoop.yarn.server.resourcemanager.RMContext;
 import org.apache.hadoop.yarn.server.resourcemanager.RMServerUtils;
 import org.apache.hadoop.yarn.server.resourcemanager.recovery.RMStateStore.RMState;
 import org.apache.hadoop.yarn.server.resourcemanager.recovery.Recoverable;
+import org.apache.hadoop.yarn.server.resourcemanager.recovery.records.ApplicationAttemptStateData;
 import org.apache.hadoop.yarn.server.resourcemanager.recovery.records.ApplicationStateData;
 import org.apache.hadoop.yarn.server.resourcemanager.rmapp.RMAppNodeUpdateEvent.RMAppNodeUpdateType;
 import org.apache.hadoop.yarn.server.resourcemanager.rmapp.attempt.AggregateAppResourceUsage;
@@ -148,6 +151,10 @@ public class RMAppImpl implements RMApp, Recoverable {
   private RMAppEvent eventCausingFinalSaving;
   private RMAppState targetedFinalState;
   private RMAppState recoveredFinalState;
+  // stored state of a completed app recovered without its attempts, which
+  // are recovered from it when first needed
+  private volatile ApplicationStateData lazyAppState;
+  private boolean recoveringLazyAppAttempts = false;
   private ResourceRequest amReq;
 
   Object transitionTodo;
@@ -433,7 +440,16 @@ public class RMAppImpl implements RMApp, Recoverable {
       // as a fall-back in case the application has not been unregistered 
       // ( or if the app never unregistered itself )
       // when the report is requested
-      if (currentAttempt != null 
+      ApplicationStateData appState = lazyAppState;
+      if (appState != null) {
+        ApplicationAttemptStateData lastAttempt =
+            appState.getAttempt(ApplicationAttemptId.newInstance(
+                applicationId, appState.getAttemptCount()));
+        if (lastAttempt != null
+            && lastAttempt.getFinalApplicationStatus() != null) {
+          return lastAttempt.getFinalApplicationStatus();
+        }
+      } else if (currentAttempt != null 
           && currentAttempt.getFinalApplicationStatus() != null) {
         return currentAttempt.getFinalApplicationStatus();   
       }
@@ -461,6 +477,7 @@ public class RMAppImpl implements RMApp, Recoverable {
 
   @Override
   public float getProgress() {
+    recoverLazyAppAttempts();
     RMAppAttempt attempt = this.currentAttempt;
     if (attempt != null) {
       return attempt.getProgress();
@@ -470,6 +487,7 @@ public class RMAppImpl implements RMApp, Recoverable {
 
   @Override
   public RMAppAttempt getRMAppAttempt(ApplicationAttemptId appAttemptId) {
+    recoverLazyAppAttempts();
     this.readLock.lock();
 
     try {
@@ -496,11 +514,13 @@ public class RMAppImpl implements RMApp, Recoverable {
 
   @Override
   public RMAppAttempt getCurrentAppAttempt() {
+    recoverLazyAppAttempts();
     return this.currentAttempt;
   }
 
   @Override
   public Map<ApplicationAttemptId, RMAppAttempt> getAppAttempts() {
+    recoverLazyAppAttempts();
     this.readLock.lock();
 
     try {
@@ -510,6 +530,32 @@ public class RMAppImpl implements RMApp, Recoverable {
     }
   }
 
+  /**
+   * @return the ids of the attempts of the app, without recovering the
+   * attempts of a completed app recovered without them
+   */
+  public Set<ApplicationAttemptId> getAppAttemptIds() {
+    this.readLock.lock();
+
+    try {
+      ApplicationStateData appState = lazyAppState;
+      if (appState != null) {
+        return new HashSet<ApplicationAttemptId>(appState.attempts.keySet());
+      }
+      return new HashSet<ApplicationAttemptId>(this.attempts.keySet());
+    } finally {
+      this.readLock.unlock();
+    }
+  }
+
+  /**
+   * @return whether the app is a completed app recovered without its
+   * attempts, which have not been needed since
+   */
+  public boolean hasLazyAppAttempts() {
+    return lazyAppState != null;
+  }
+
   private FinalApplicationStatus createFinalApplicationStatus(RMAppState state) {
     switch(state) {
     case NEW:
@@ -547,6 +593,9 @@ public class RMAppImpl implements RMApp, Recoverable {
   @Override
   public ApplicationReport createAndGetApplicationReport(String clientUserName,
       boolean allowAccess) {
+    if (allowAccess) {
+      recoverLazyAppAttempts();
+    }
     this.readLock.lock();
 
     try {
@@ -667,6 +716,7 @@ public class RMAppImpl implements RMApp, Recoverable {
 
   @Override
   public String getTrackingUrl() {
+    recoverLazyAppAttempts();
     RMAppAttempt attempt = this.currentAttempt;
     if (attempt != null) {
       return attempt.getTrackingUrl();
@@ -676,6 +726,7 @@ public class RMAppImpl implements RMApp, Recoverable {
 
   @Override
   public String getOriginalTrackingUrl() {
+    recoverLazyAppAttempts();
     RMAppAttempt attempt = this.currentAttempt;
     if (attempt != null) {
       return attempt.getOriginalTrackingUrl();
@@ -738,6 +789,11 @@ public class RMAppImpl implements RMApp, Recoverable {
     this.storedFinishTime = appState.getFinishTime();
     this.startTime = appState.getStartTime();
 
+    if (canRecoverAppAttemptsLazily(appState)) {
+      this.lazyAppState = appState;
+      return;
+    }
+
     for(int i=0; i<appState.getAttemptCount(); ++i) {
       // create attempt
       createNewAttempt();
@@ -745,6 +801,62 @@ public class RMAppImpl implements RMApp, Recoverable {
     }
   }
 
+  /**
+   * The attempts of a completed app are only needed to report on it, so they
+   * can be recovered when first needed, as long as they all completed too.
+   */
+  private boolean canRecoverAppAttemptsLazily(ApplicationStateData appState) {
+    if (recoveredFinalState == null || !conf.getBoolean(
+        YarnConfiguration.RM_RECOVERY_LAZY_COMPLETED_APPS_ENABLED,
+        YarnConfiguration.DEFAULT_RM_RECOVERY_LAZY_COMPLETED_APPS_ENABLED)) {
+      return false;
+    }
+    for (ApplicationAttemptStateData attemptState :
+        appState.attempts.values()) {
+      if (attemptState.getState() == null) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Recover the attempts of a completed app recovered without them. Called
+   * before reading the attempts, and never with the read lock held as it
+   * takes the write lock.
+   */
+  private void recoverLazyAppAttempts() {
+    if (lazyAppState == null) {
+      return;
+    }
+    this.writeLock.lock();
+    ApplicationStateData appState = null;
+    try {
+      // the attempts look the app up while they recover, so the app must
+      // not have been removed from memory yet
+      if (lazyAppState == null || recoveringLazyAppAttempts
+          || rmContext.getRMApps().get(applicationId) != this) {
+        return;
+      }
+      recoveringLazyAppAttempts = true;
+      appState = lazyAppState;
+      RMState state = new RMState();
+      state.getApplicationState().put(applicationId, appState);
+      for (int i = 0; i < appState.getAttemptCount(); ++i) {
+        createNewAttempt();
+        ((RMAppAttemptImpl) this.currentAttempt).recover(state);
+      }
+      recoverAppAttempts();
+      ClusterMetrics.getMetrics().incrLazyAppAttemptRecoveries();
+    } finally {
+      if (appState != null) {
+        recoveringLazyAppAttempts = false;
+        lazyAppState = null;
+      }
+      this.writeLock.unlock();
+    }
+  }
+
   private void createNewAttempt() {
     ApplicationAttemptId appAttemptId =
         ApplicationAttemptId.newInstance(applicationId, attempts.size() + 1);
@@ -832,7 +944,7 @@ public class RMAppImpl implements RMApp, Recoverable {
   // synchronously recover attempt to ensure any incoming external events
   // to be processed after the attempt processes the recover event.
   private void recoverAppAttempts() {
-    for (RMAppAttempt attempt : getAppAttempts().values()) {
+    for (RMAppAttempt attempt : attempts.values()) {
       attempt.handle(new RMAppAttemptEvent(attempt.getAppAttemptId(),
         RMAppAttemptEventType.RECOVER));
     }
@@ -1306,6 +1418,20 @@ public class RMAppImpl implements RMApp, Recoverable {
     int numNonAMContainerPreempted = 0;
     long memorySeconds = 0;
     long vcoreSeconds = 0;
+    ApplicationStateData appState = lazyAppState;
+    if (appState != null) {
+      // what the attempts report once recovered
+      for (ApplicationAttemptStateData attemptState :
+          appState.attempts.values()) {
+        numAMContainerPreempted += attemptState.getAMContainerExitStatus()
+            == ContainerExitStatus.PREEMPTED ? 1 : 0;
+        memorySeconds += attemptState.getMemorySeconds();
+        vcoreSeconds += attemptState.getVcoreSeconds();
+      }
+      return new RMAppMetrics(resourcePreempted,
+          numNonAMContainerPreempted, numAMContainerPreempted,
+          memorySeconds, vcoreSeconds);
+    }
     for (RMAppAttempt attempt : attempts.values()) {
       if (null != attempt) {
         RMAppAttemptMetrics attemptMetrics =
@@ -103,9 +103,19 @@ public interface RMContainer extends EventHandler<RMContainerEvent> {
 
 	void resetResumeOpportunity();
 
-	public List<Long> getSuspendTime();
+	SuspendHistory getSuspendHistory();
 
-	public List<Long> getResumeTime();
+	/**
+	 * @return the time the container was last suspended, -1 if never
+	 */
+	long getLastSuspendTime();
+
+	int getSuspendCount();
+
+	/**
+	 * @return the time in ms the container spent suspended so far
+	 */
+	long getTotalSuspendedTime();
 
 	long getDeadline();
 
@@ -121,4 +131,20 @@ public interface RMContainer extends EventHandler<RMContainerEvent> {
 
 	void setPreemptionPriority(float preemptionPriority);
 
+	/**
+	 * @return the memory pressure score last reported by the NM, 0 if the
+	 * container does not hurt its node
+	 */
+	int getMemoryPressure();
+
+	void setMemoryPressure(int memoryPressure);
+
+	/**
+	 * @return the memory in MB the container last used according to the NM,
+	 * -1 if the NM never reported it
+	 */
+	int getMemoryUsage();
+
+	void setMemoryUsage(int memoryUsage);
+
 }
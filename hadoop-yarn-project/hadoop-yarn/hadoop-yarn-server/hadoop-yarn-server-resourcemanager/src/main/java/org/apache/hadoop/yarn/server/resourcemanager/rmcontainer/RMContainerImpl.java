@@ -19,7 +19,6 @@
 package org.apache.hadoop.yarn.server.resourcemanager.rmcontainer;
 
 import java.util.EnumSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock.ReadLock;
@@ -192,13 +191,12 @@ public class RMContainerImpl implements RMContainer {
 	private boolean isSuspending = false;
 
 	/**
-	 * record suspend time(may preempt for many times)
+	 * record suspend and resume times(may preempt for many times)
 	 */
-	private List<Long> suspendTime;
-	/**
-	 * record resume time
-	 */
-	private List<Long> resumeTime;
+	private final SuspendHistory suspendHistory;
+	// reported by the NM, read by the preemption policy
+	private volatile int memoryPressure = 0;
+	private volatile int memoryUsage = -1;
 	/**
 	 * record container utilization
 	 */
@@ -233,8 +231,7 @@ public class RMContainerImpl implements RMContainer {
 		this.resumeOpportunity = 0;
 
 		this.utilization = 1;
-		this.suspendTime = new LinkedList<Long>();
-		this.resumeTime = new LinkedList<Long>();
+		this.suspendHistory = new SuspendHistory();
 
 		ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
 		this.readLock = lock.readLock();
@@ -264,13 +261,23 @@ public class RMContainerImpl implements RMContainer {
 	}
 
 	@Override
-	public List<Long> getSuspendTime() {
-		return suspendTime;
+	public SuspendHistory getSuspendHistory() {
+		return suspendHistory;
+	}
+
+	@Override
+	public long getLastSuspendTime() {
+		return suspendHistory.getLastSuspendTime();
 	}
 
 	@Override
-	public List<Long> getResumeTime() {
-		return resumeTime;
+	public int getSuspendCount() {
+		return suspendHistory.getSuspendCount();
+	}
+
+	@Override
+	public long getTotalSuspendedTime() {
+		return suspendHistory.getTotalSuspendedTime(System.currentTimeMillis());
 	}
 
 	@Override
@@ -293,6 +300,26 @@ public class RMContainerImpl implements RMContainer {
 		return container.getPreemptionPriority();
 	}
 
+	@Override
+	public int getMemoryPressure() {
+		return memoryPressure;
+	}
+
+	@Override
+	public void setMemoryPressure(int memoryPressure) {
+		this.memoryPressure = memoryPressure;
+	}
+
+	@Override
+	public int getMemoryUsage() {
+		return memoryUsage;
+	}
+
+	@Override
+	public void setMemoryUsage(int memoryUsage) {
+		this.memoryUsage = memoryUsage;
+	}
+
 	@Override
 	public void setNumOfBeingPreemted(int numOfBeingPreemted) {
 		container.updateNumOfBeingPreempted();
@@ -557,12 +584,13 @@ public class RMContainerImpl implements RMContainer {
 		@Override
 		public RMContainerState transition(RMContainerImpl container,
 		                                   RMContainerEvent event) {
-			container.resumeTime.add(System.currentTimeMillis());
 			if (Resources.equals(container.getPreemptedResource(), Resources.none())) {
 				//if all the preempted resource has been resumed
+				container.suspendHistory.resumed(System.currentTimeMillis(), true);
 				container.isSuspending = false;
 				return RMContainerState.RUNNING;
 			} else {
+				container.suspendHistory.resumed(System.currentTimeMillis(), false);
 				return RMContainerState.DEHYDRATED;
 			}
 
@@ -575,7 +603,7 @@ public class RMContainerImpl implements RMContainer {
 		public void transition(RMContainerImpl container, RMContainerEvent event) {
 			RMContainerFinishedEvent finishedEvent = (RMContainerFinishedEvent) event;
 			//add the suspend time
-			container.suspendTime.add(System.currentTimeMillis());
+			container.suspendHistory.suspended(System.currentTimeMillis());
 			Resource resource = container.getLastPreemptedResource();
 			container.finishedStatus = finishedEvent.getRemoteContainerStatus();
 			container.isSuspending = true;
@@ -693,13 +721,11 @@ public class RMContainerImpl implements RMContainer {
 				long vcoreSeconds = (long) (resource.getVirtualCores() * container.utilization)
 					* usedMillis / DateUtils.MILLIS_PER_SECOND;
 
-				if (container.suspendTime.size() > 0 && container.resumeTime.size() > 0 && container.suspendTime.size() == container.resumeTime.size()) {
-					double acc = 0;
-					for (int i = 0; i < container.suspendTime.size(); i++) {
-
-						acc = acc + (container.resumeTime.get(i) - container.suspendTime.get(i));
-					}
-					container.utilization = acc / usedMillis;
+				SuspendHistory history = container.suspendHistory;
+				if (history.getSuspendCount() > 0 && !history.isSuspended()
+					&& usedMillis > 0) {
+					container.utilization =
+						(double) history.getTotalSuspendedTime(container.finishTime) / usedMillis;
 				}
 				rmAttempt.getRMAppAttemptMetrics()
 					.updateAggregateAppResourceUsage(memorySeconds, vcoreSeconds);
@@ -0,0 +1,194 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.yarn.server.resourcemanager.rmcontainer;
+
+/**
+ * Suspend and resume history of a container. Only the most recent events are
+ * kept, in a fixed size ring of primitive timestamps, while the totals cover
+ * the whole life of the container. A container is suspended from its first
+ * suspension until all of its preempted resource has been resumed, partial
+ * suspensions and resumptions in between do not start a new period.
+ */
+public class SuspendHistory {
+
+	public static final int DEFAULT_CAPACITY = 16;
+
+	private final long[] times;
+	private final boolean[] suspends;
+	// index the next event is written to
+	private int next = 0;
+	private int size = 0;
+
+	private int suspendCount = 0;
+	private int resumeCount = 0;
+	private long lastSuspendTime = -1;
+	private long lastResumeTime = -1;
+	// time spent suspended in the periods that are over
+	private long totalSuspendedTime = 0;
+	// start of the ongoing suspended period, -1 if the container runs
+	private long suspendedSince = -1;
+	// length of the last suspended period that is over, -1 if none
+	private long lastSuspendedPeriod = -1;
+
+	public SuspendHistory() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	public SuspendHistory(int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException(
+				"Suspend history capacity must be positive: " + capacity);
+		}
+		this.times = new long[capacity];
+		this.suspends = new boolean[capacity];
+	}
+
+	/**
+	 * Record that (part of) the container has been suspended.
+	 */
+	public synchronized void suspended(long time) {
+		add(time, true);
+		suspendCount++;
+		lastSuspendTime = time;
+		if (suspendedSince < 0) {
+			suspendedSince = time;
+		}
+	}
+
+	/**
+	 * Record that (part of) the container has been resumed.
+	 *
+	 * @param fully true if all of the preempted resource is back and the
+	 *              suspended period is over
+	 */
+	public synchronized void resumed(long time, boolean fully) {
+		add(time, false);
+		resumeCount++;
+		lastResumeTime = time;
+		if (fully && suspendedSince >= 0) {
+			lastSuspendedPeriod = Math.max(0, time - suspendedSince);
+			totalSuspendedTime += lastSuspendedPeriod;
+			suspendedSince = -1;
+		}
+	}
+
+	private void add(long time, boolean suspend) {
+		times[next] = time;
+		suspends[next] = suspend;
+		next = (next + 1) % times.length;
+		if (size < times.length) {
+			size++;
+		}
+	}
+
+	public synchronized int getSuspendCount() {
+		return suspendCount;
+	}
+
+	public synchronized int getResumeCount() {
+		return resumeCount;
+	}
+
+	/**
+	 * @return the time of the last suspension, -1 if never suspended
+	 */
+	public synchronized long getLastSuspendTime() {
+		return lastSuspendTime;
+	}
+
+	/**
+	 * @return the time of the last resumption, -1 if never resumed
+	 */
+	public synchronized long getLastResumeTime() {
+		return lastResumeTime;
+	}
+
+	public synchronized boolean isSuspended() {
+		return suspendedSince >= 0;
+	}
+
+	/**
+	 * @param now current time, used to account for an ongoing suspension
+	 * @return the time in ms the container spent suspended
+	 */
+	public synchronized long getTotalSuspendedTime(long now) {
+		long total = totalSuspendedTime;
+		if (suspendedSince >= 0) {
+			total += Math.max(0, now - suspendedSince);
+		}
+		return total;
+	}
+
+	/**
+	 * @return the time in ms from the first suspension to the full resumption
+	 * of the last suspended period that is over, -1 if none is over yet
+	 */
+	public synchronized long getLastSuspendedPeriod() {
+		return lastSuspendedPeriod;
+	}
+
+	/**
+	 * @return the number of events kept, at most the capacity
+	 */
+	public synchronized int size() {
+		return size;
+	}
+
+	public int getCapacity() {
+		return times.length;
+	}
+
+	/**
+	 * @param i index of a kept event, 0 being the oldest
+	 */
+	public synchronized long getTime(int i) {
+		return times[index(i)];
+	}
+
+	/**
+	 * @param i index of a kept event, 0 being the oldest
+	 * @return true if the event is a suspension, false for a resumption
+	 */
+	public synchronized boolean isSuspend(int i) {
+		return suspends[index(i)];
+	}
+
+	private int index(int i) {
+		if (i < 0 || i >= size) {
+			throw new IndexOutOfBoundsException("Index: " + i + ", size: " + size);
+		}
+		return (next - size + i + times.length) % times.length;
+	}
+
+	@Override
+	public synchronized String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("suspends: ").append(suspendCount)
+			.append(" resumes: ").append(resumeCount)
+			.append(" suspended ms: ").append(totalSuspendedTime)
+			.append(" recent: [");
+		for (int i = 0; i < size; i++) {
+			if (i > 0) {
+				sb.append(", ");
+			}
+			int j = index(i);
+			sb.append(suspends[j] ? 'S' : 'R').append(times[j]);
+		}
+		return sb.append(']').toString();
+	}
+}
@@ -19,6 +19,7 @@
 package org.apache.hadoop.yarn.server.resourcemanager.rmnode;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.List;
@@ -47,6 +48,7 @@ import org.apache.hadoop.yarn.event.EventHandler;
 import org.apache.hadoop.yarn.factories.RecordFactory;
 import org.apache.hadoop.yarn.factory.providers.RecordFactoryProvider;
 import org.apache.hadoop.yarn.nodelabels.CommonNodeLabelsManager;
+import org.apache.hadoop.yarn.server.api.protocolrecords.ContainerMemoryPressure;
 import org.apache.hadoop.yarn.server.api.protocolrecords.NMContainerStatus;
 import org.apache.hadoop.yarn.server.api.protocolrecords.NodeHeartbeatResponse;
 import org.apache.hadoop.yarn.server.api.records.NodeHealthStatus;
@@ -635,7 +637,8 @@ public class RMNodeImpl implements RMNode, EventHandler<RMNodeEvent> {
       for (NMContainerStatus nmContainerStatus : nmContainerStatuses) {
         containerStatuses.add(createContainerStatus(nmContainerStatus));
       }
-      rmnode.handleContainerStatus(containerStatuses);
+      rmnode.handleContainerStatus(containerStatuses,
+          Collections.<ContainerMemoryPressure>emptyList());
     }
 
     private ContainerStatus createContainerStatus(
@@ -772,7 +775,8 @@ public class RMNodeImpl implements RMNode, EventHandler<RMNodeEvent> {
         return NodeState.UNHEALTHY;
       }
 
-      rmNode.handleContainerStatus(statusEvent.getContainers());
+      rmNode.handleContainerStatus(statusEvent.getContainers(),
+          statusEvent.getContainerMemoryPressures());
 
       if(rmNode.nextHeartBeat) {
         rmNode.nextHeartBeat = false;
@@ -859,7 +863,8 @@ public class RMNodeImpl implements RMNode, EventHandler<RMNodeEvent> {
     return nlm.getLabelsOnNode(nodeId);
   }
 
-  private void handleContainerStatus(List<ContainerStatus> containerStatuses) {
+  private void handleContainerStatus(List<ContainerStatus> containerStatuses,
+      List<ContainerMemoryPressure> containerMemoryPressures) {
 	  
 	//LOG.info("RMNode hearbeat host"+this.getHostName());
     // Filter the map to only obtain just launched containers and finished
@@ -900,9 +905,10 @@ public class RMNodeImpl implements RMNode, EventHandler<RMNodeEvent> {
         completedContainers.add(remoteContainer);
       }
     }
-    if (newlyLaunchedContainers.size() != 0 || completedContainers.size() != 0) {
+    if (newlyLaunchedContainers.size() != 0 || completedContainers.size() != 0
+        || !containerMemoryPressures.isEmpty()) {
       nodeUpdateQueue.add(new UpdatedContainerInfo(newlyLaunchedContainers,
-          completedContainers));
+          completedContainers, containerMemoryPressures));
     }
   }
 
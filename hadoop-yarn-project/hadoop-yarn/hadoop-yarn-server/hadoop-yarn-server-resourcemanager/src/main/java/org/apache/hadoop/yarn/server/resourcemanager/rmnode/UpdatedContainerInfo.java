@@ -18,13 +18,17 @@
 
 package org.apache.hadoop.yarn.server.resourcemanager.rmnode;
 
+import java.util.Collections;
 import java.util.List;
 
 import org.apache.hadoop.yarn.api.records.ContainerStatus;
+import org.apache.hadoop.yarn.server.api.protocolrecords.ContainerMemoryPressure;
 
 public class UpdatedContainerInfo {
   private List<ContainerStatus> newlyLaunchedContainers;
   private List<ContainerStatus> completedContainers;
+  private List<ContainerMemoryPressure> containerMemoryPressures =
+      Collections.emptyList();
   
   public UpdatedContainerInfo() {
   }
@@ -35,6 +39,13 @@ public class UpdatedContainerInfo {
     this.completedContainers = completedContainers;
   } 
 
+  public UpdatedContainerInfo(List<ContainerStatus> newlyLaunchedContainers,
+      List<ContainerStatus> completedContainers,
+      List<ContainerMemoryPressure> containerMemoryPressures) {
+    this(newlyLaunchedContainers, completedContainers);
+    this.containerMemoryPressures = containerMemoryPressures;
+  }
+
   public List<ContainerStatus> getNewlyLaunchedContainers() {
     return this.newlyLaunchedContainers;
   }
@@ -42,4 +53,8 @@ public class UpdatedContainerInfo {
   public List<ContainerStatus> getCompletedContainers() {
     return this.completedContainers;
   }
+
+  public List<ContainerMemoryPressure> getContainerMemoryPressures() {
+    return this.containerMemoryPressures;
+  }
 }
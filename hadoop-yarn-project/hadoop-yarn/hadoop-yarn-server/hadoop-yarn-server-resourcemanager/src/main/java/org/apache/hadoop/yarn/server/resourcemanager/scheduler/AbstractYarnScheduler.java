@@ -27,8 +27,6 @@ import java.util.concurrent.locks.ReentrantReadWriteLock.WriteLock;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.apache.hadoo.yarn.server.resourcemanager.dockermonitor.DockerMonitor;
-import org.apache.hadoo.yarn.server.resourcemanager.dockermonitor.PythonDockerMonitor;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.service.AbstractService;
 import org.apache.hadoop.yarn.api.records.ApplicationAttemptId;
@@ -97,10 +95,6 @@ public abstract class AbstractYarnScheduler
     protected Map<ApplicationId, SchedulerApplication<T>> applications;
     protected int nmExpireInterval;
 
-    protected DockerMonitor dockerMonitor;
-    protected boolean dockerMonitorEnabled;
-
-
     protected final static List<Container> EMPTY_CONTAINER_LIST =
             new ArrayList<Container>();
     protected static final Allocation EMPTY_ALLOCATION = new Allocation(
@@ -127,15 +121,6 @@ public abstract class AbstractYarnScheduler
                 conf.getLong(YarnConfiguration.RM_WORK_PRESERVING_RECOVERY_SCHEDULING_WAIT_MS,
                         YarnConfiguration.DEFAULT_RM_WORK_PRESERVING_RECOVERY_SCHEDULING_WAIT_MS);
         createReleaseCache();
-        //TODO get configure if we should initizlie Docker monitor here
-        //LOG.info("get Docker Monitor enable option");
-        dockerMonitorEnabled = conf.getBoolean(YarnConfiguration.DOCKER_CONTAINER_MONITOR_ENABLED,
-                YarnConfiguration.DEFAULT_DOCKER_CONTAINER_MONITOR_ENABLED);
-        if (dockerMonitorEnabled) {
-            //TODO currently we only support python monitor
-            dockerMonitor = new PythonDockerMonitor();
-            this.dockerMonitorEnabled = dockerMonitor.Init(conf);
-        }
         super.serviceInit(conf);
     }
 
@@ -161,10 +146,6 @@ public abstract class AbstractYarnScheduler
         return containerList;
     }
 
-    public boolean isDockerMonitorEnabled() {
-        return dockerMonitorEnabled;
-    }
-
 
     public Map<ApplicationId, SchedulerApplication<T>>
     getSchedulerApplications() {
@@ -724,4 +705,9 @@ public abstract class AbstractYarnScheduler
         }
         return null;
     }
+
+    @Override
+    public long getNodeHeartbeatInterval(NodeId node, long defaultInterval) {
+        return defaultInterval;
+    }
 }
@@ -0,0 +1,154 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.yarn.server.resourcemanager.scheduler;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.hadoop.yarn.api.records.ContainerId;
+import org.apache.hadoop.yarn.api.records.NodeId;
+import org.apache.hadoop.yarn.server.api.protocolrecords.NodeContainerUpdate;
+
+/**
+ * Container updates waiting for the next heartbeat of their node.
+ * 
+ * Updates are coalesced per container: an update replaces the one of the same
+ * container which has not been pulled yet, so that the NM only sees the latest
+ * target of each container. A resume which is superseded by a partial suspend
+ * is kept as the resume flag of the later update, since the NM would have
+ * lifted the cpu quota before applying it.
+ * 
+ * A node is urgent when the updates pulled for it last included a suspend.
+ * 
+ * Updates are only kept for the nodes between {@link #addNode(NodeId)} and
+ * {@link #removeNode(NodeId)}, so that an update racing with the removal of
+ * its node is not left in a queue which nobody pulls.
+ * 
+ * This class is thread-safe.
+ */
+public class NodeContainerUpdateBuffer {
+
+  private static class NodeUpdates {
+    private final Map<ContainerId, NodeContainerUpdate> updates =
+        new LinkedHashMap<ContainerId, NodeContainerUpdate>();
+    private boolean suspendPending = false;
+    private boolean urgent = false;
+    private boolean removed = false;
+  }
+
+  private final ConcurrentMap<NodeId, NodeUpdates> nodes =
+      new ConcurrentHashMap<NodeId, NodeUpdates>();
+
+  /**
+   * Start keeping the updates of a node which joined the cluster.
+   */
+  public void addNode(NodeId nodeId) {
+    nodes.putIfAbsent(nodeId, new NodeUpdates());
+  }
+
+  /**
+   * Queue an update for the next heartbeat of the node. The update is dropped
+   * if the node is not in the cluster.
+   * @return true if an earlier update of the same container was replaced
+   */
+  public boolean add(NodeId nodeId, NodeContainerUpdate update) {
+    NodeUpdates nodeUpdates = nodes.get(nodeId);
+    if (nodeUpdates == null) {
+      return false;
+    }
+    synchronized (nodeUpdates) {
+      if (nodeUpdates.removed) {
+        return false;
+      }
+      // remove first so the container moves to the end of the order
+      NodeContainerUpdate previous =
+          nodeUpdates.updates.remove(update.getContainerId());
+      if (previous != null && previous.getResume() && !update.getResume()
+          && update.getCores() > 0) {
+        update.setResume(true);
+      }
+      nodeUpdates.updates.put(update.getContainerId(), update);
+      if (update.getSuspend()) {
+        nodeUpdates.suspendPending = true;
+      }
+      return previous != null;
+    }
+  }
+
+  /**
+   * Take all the updates queued for the node, in the order their containers
+   * were last updated.
+   */
+  public List<NodeContainerUpdate> pull(NodeId nodeId) {
+    NodeUpdates nodeUpdates = nodes.get(nodeId);
+    if (nodeUpdates == null) {
+      return new ArrayList<NodeContainerUpdate>();
+    }
+    synchronized (nodeUpdates) {
+      List<NodeContainerUpdate> pulled =
+          new ArrayList<NodeContainerUpdate>(nodeUpdates.updates.values());
+      nodeUpdates.updates.clear();
+      nodeUpdates.urgent = nodeUpdates.suspendPending;
+      nodeUpdates.suspendPending = false;
+      return pulled;
+    }
+  }
+
+  /**
+   * @return true if the updates last pulled for the node included a suspend
+   */
+  public boolean isUrgent(NodeId nodeId) {
+    NodeUpdates nodeUpdates = nodes.get(nodeId);
+    if (nodeUpdates == null) {
+      return false;
+    }
+    synchronized (nodeUpdates) {
+      return nodeUpdates.urgent;
+    }
+  }
+
+  public int getPendingUpdates(NodeId nodeId) {
+    NodeUpdates nodeUpdates = nodes.get(nodeId);
+    if (nodeUpdates == null) {
+      return 0;
+    }
+    synchronized (nodeUpdates) {
+      return nodeUpdates.updates.size();
+    }
+  }
+
+  /**
+   * Drop the updates of a node which left the cluster.
+   */
+  public void removeNode(NodeId nodeId) {
+    NodeUpdates nodeUpdates = nodes.remove(nodeId);
+    if (nodeUpdates == null) {
+      return;
+    }
+    // under the lock of add(), so no update gets in after this
+    synchronized (nodeUpdates) {
+      nodeUpdates.removed = true;
+      nodeUpdates.updates.clear();
+    }
+  }
+}
@@ -38,6 +38,7 @@ import org.apache.hadoop.metrics2.lib.MetricsRegistry;
 import org.apache.hadoop.metrics2.lib.MutableCounterInt;
 import org.apache.hadoop.metrics2.lib.MutableCounterLong;
 import org.apache.hadoop.metrics2.lib.MutableGaugeInt;
+import org.apache.hadoop.metrics2.lib.MutableRate;
 import org.apache.hadoop.yarn.api.records.ApplicationId;
 import org.apache.hadoop.yarn.api.records.Resource;
 import org.apache.hadoop.yarn.conf.YarnConfiguration;
@@ -72,6 +73,12 @@ public class QueueMetrics implements MetricsSource {
   @Metric("# of reserved memory in MB") MutableGaugeInt reservedMB;
   @Metric("Reserved CPU in virtual cores") MutableGaugeInt reservedVCores;
   @Metric("# of reserved containers") MutableGaugeInt reservedContainers;
+  @Metric("# of nodes reserved to resume a suspended container")
+  MutableGaugeInt resumeReservations;
+  @Metric("# of resume reservations dropped after their timeout")
+  MutableCounterLong resumeReservationTimeouts;
+  @Metric("Time from suspension to full resumption of containers in ms")
+  MutableRate suspendedTimeToResume;
   @Metric("# of active users") MutableGaugeInt activeUsers;
   @Metric("# of active applications") MutableGaugeInt activeApplications;
   private final MutableGaugeInt[] runningTime;
@@ -434,6 +441,34 @@ public class QueueMetrics implements MetricsSource {
     }
   }
 
+  public void reserveForResume() {
+    resumeReservations.incr();
+    if (parent != null) {
+      parent.reserveForResume();
+    }
+  }
+
+  public void unreserveForResume(boolean timedOut) {
+    resumeReservations.decr();
+    if (timedOut) {
+      resumeReservationTimeouts.incr();
+    }
+    if (parent != null) {
+      parent.unreserveForResume(timedOut);
+    }
+  }
+
+  /**
+   * @param suspendedTime time in ms a container spent suspended before all of
+   *                      its resource has been resumed
+   */
+  public void resumedAfter(long suspendedTime) {
+    suspendedTimeToResume.add(suspendedTime);
+    if (parent != null) {
+      parent.resumedAfter(suspendedTime);
+    }
+  }
+
   public void incrActiveUsers() {
     activeUsers.incr();
   }
@@ -535,6 +570,14 @@ public class QueueMetrics implements MetricsSource {
   public int getReservedContainers() {
     return reservedContainers.value();
   }
+
+  public int getResumeReservations() {
+    return resumeReservations.value();
+  }
+
+  public long getResumeReservationTimeouts() {
+    return resumeReservationTimeouts.value();
+  }
   
   public int getActiveUsers() {
     return activeUsers.value();
@@ -82,6 +82,8 @@ public class SchedulerApplicationAttempt {
 	protected ApplicationAttemptId attemptId;
 	protected Map<ContainerId, RMContainer> liveContainers =
 		new HashMap<>();
+	// bumped whenever a live container is added, removed, suspended or resumed
+	private volatile long containersVersion = 0;
 	protected final Map<Priority, Map<NodeId, RMContainer>> reservedContainers = new HashMap<Priority, Map<NodeId, RMContainer>>();
 
 	private final Multiset<Priority> reReservations = HashMultiset.create();
@@ -161,6 +163,20 @@ public class SchedulerApplicationAttempt {
 		return new ArrayList<RMContainer>(liveContainers.values());
 	}
 
+	/**
+	 * Version of the set of live containers, it changes every time a container
+	 * is allocated, completed, suspended or resumed. Readers use it to tell
+	 * whether what they derived from the containers is still up to date.
+	 * @return the current version of the live containers
+	 */
+	public long getContainersVersion() {
+		return containersVersion;
+	}
+
+	protected synchronized void containersChanged() {
+		containersVersion++;
+	}
+
 	public AppSchedulingInfo getAppSchedulingInfo() {
 		return this.appSchedulingInfo;
 	}
@@ -580,6 +596,7 @@ public class SchedulerApplicationAttempt {
 	public synchronized void transferStateFromPreviousAttempt(
 		SchedulerApplicationAttempt appAttempt) {
 		this.liveContainers = appAttempt.getLiveContainersMap();
+		containersChanged();
 		// this.reReservations = appAttempt.reReservations;
 		this.currentConsumption = appAttempt.getCurrentConsumption();
 		this.resourceLimit = appAttempt.getResourceLimit();
@@ -622,6 +639,7 @@ public class SchedulerApplicationAttempt {
 		LOG.info("SchedulerAttempt " + getApplicationAttemptId()
 			+ " is recovering container " + rmContainer.getContainerId());
 		liveContainers.put(rmContainer.getContainerId(), rmContainer);
+		containersChanged();
 		Resources.addTo(currentConsumption, rmContainer.getContainer()
 			.getResource());
 		// resourceLimit: updated when LeafQueue#recoverContainer#allocateResource
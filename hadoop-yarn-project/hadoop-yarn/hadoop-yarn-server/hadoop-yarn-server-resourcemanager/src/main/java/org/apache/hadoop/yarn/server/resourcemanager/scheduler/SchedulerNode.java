@@ -66,6 +66,9 @@ public abstract class SchedulerNode {
   
   private final Set<ContainerId> suspendedContainers = new HashSet<ContainerId>();
 
+  /* number of containers ever allocated on the node */
+  private volatile long numAllocations = 0;
+
 private final RMNode rmNode;
   private final String nodeName;
   
@@ -156,6 +159,7 @@ private final RMNode rmNode;
 
 
     launchedContainers.put(container.getId(), rmContainer);
+    numAllocations++;
 
     LOG.info("Assigned container " + container.getId() + " of capacity "
         + container.getResource() + " on host " + rmNode.getNodeAddress()
@@ -370,6 +374,15 @@ private final RMNode rmNode;
     return launchedContainers.size();
   }
 
+  /**
+   * Get the number of containers allocated on the node since it registered.
+   * 
+   * @return number of containers ever allocated on the node
+   */
+  public long getNumAllocations() {
+    return numAllocations;
+  }
+
   public synchronized List<RMContainer> getRunningContainers() {
     return new ArrayList<RMContainer>(launchedContainers.values());
   }
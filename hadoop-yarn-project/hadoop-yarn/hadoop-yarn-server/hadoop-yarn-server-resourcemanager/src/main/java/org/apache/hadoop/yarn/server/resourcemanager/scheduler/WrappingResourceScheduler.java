@@ -0,0 +1,37 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.yarn.server.resourcemanager.scheduler;
+
+import org.apache.hadoop.classification.InterfaceAudience.LimitedPrivate;
+import org.apache.hadoop.classification.InterfaceStability.Unstable;
+
+/**
+ * Interface for a scheduler which hands the scheduling to another scheduler,
+ * such as the wrapper of the scheduler load simulator. Policies which only
+ * work with a given scheduler check the wrapped one.
+ */
+@LimitedPrivate("yarn")
+@Unstable
+public interface WrappingResourceScheduler extends ResourceScheduler {
+
+  /**
+   * Get the scheduler doing the scheduling.
+   * @return the wrapped scheduler
+   */
+  ResourceScheduler getWrappedScheduler();
+}
@@ -295,4 +295,15 @@ public interface YarnScheduler extends EventHandler<SchedulerEvent> {
    */
   
   public List<NodeContainerUpdate> pullNodeContainerUpdate(NodeId node);
+
+  /**
+   * Get the interval until the next heartbeat of a node, called after its
+   * container updates were pulled.
+   * @param node the node which is heartbeating
+   * @param defaultInterval the configured heartbeat interval
+   * @return the interval in milliseconds
+   */
+  @LimitedPrivate("yarn")
+  @Evolving
+  public long getNodeHeartbeatInterval(NodeId node, long defaultInterval);
 }
@@ -0,0 +1,96 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.yarn.server.resourcemanager.scheduler.capacity;
+
+import org.apache.hadoop.yarn.api.records.Priority;
+import org.apache.hadoop.yarn.server.resourcemanager.rmcontainer.RMContainer;
+import org.apache.hadoop.yarn.server.resourcemanager.scheduler.common.fica.FiCaSchedulerApp;
+import org.apache.hadoop.yarn.server.resourcemanager.scheduler.common.fica.FiCaSchedulerNode;
+
+/**
+ * What an asynchronous scheduling thread proposes to do on a node: allocate
+ * a container for a request of an application, or resume a suspended
+ * container. A proposal is picked by {@link LeafQueue#proposeOnNode} from a
+ * read-only look at the queues, without the scheduler lock, so it may be
+ * stale by the time it is committed. The commit holds the scheduler lock and
+ * checks the node, every queue on the way to the leaf queue and the
+ * application again before anything is allocated or resumed.
+ */
+class AllocationProposal {
+
+	private final FiCaSchedulerNode node;
+	private final LeafQueue queue;
+	private final FiCaSchedulerApp application;
+	//priority of the request to allocate, null for a resume
+	private final Priority priority;
+	//suspended container to resume, null for an allocation
+	private final RMContainer containerToResume;
+
+	private AllocationProposal(FiCaSchedulerNode node, LeafQueue queue,
+		FiCaSchedulerApp application, Priority priority,
+		RMContainer containerToResume) {
+		this.node = node;
+		this.queue = queue;
+		this.application = application;
+		this.priority = priority;
+		this.containerToResume = containerToResume;
+	}
+
+	static AllocationProposal newAllocation(FiCaSchedulerNode node,
+		LeafQueue queue, FiCaSchedulerApp application, Priority priority) {
+		return new AllocationProposal(node, queue, application, priority, null);
+	}
+
+	static AllocationProposal newResume(FiCaSchedulerNode node, LeafQueue queue,
+		FiCaSchedulerApp application, RMContainer containerToResume) {
+		return new AllocationProposal(node, queue, application, null,
+			containerToResume);
+	}
+
+	FiCaSchedulerNode getNode() {
+		return node;
+	}
+
+	LeafQueue getQueue() {
+		return queue;
+	}
+
+	FiCaSchedulerApp getApplication() {
+		return application;
+	}
+
+	Priority getPriority() {
+		return priority;
+	}
+
+	RMContainer getContainerToResume() {
+		return containerToResume;
+	}
+
+	boolean isResume() {
+		return containerToResume != null;
+	}
+
+	@Override
+	public String toString() {
+		return (isResume() ? "resume " + containerToResume.getContainerId()
+			: "allocate " + application.getApplicationAttemptId() + " priority "
+			+ priority) + " on " + node.getNodeID() + " in " + queue.getQueueName();
+	}
+}
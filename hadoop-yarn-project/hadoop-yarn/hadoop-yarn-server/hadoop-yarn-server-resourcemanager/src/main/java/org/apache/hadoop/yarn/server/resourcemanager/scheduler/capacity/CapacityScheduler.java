@@ -21,7 +21,7 @@ package org.apache.hadoop.yarn.server.resourcemanager.scheduler.capacity;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.EnumSet;
 import java.util.HashMap;
@@ -32,7 +32,6 @@ import java.util.Map.Entry;
 import java.util.Random;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -67,6 +66,7 @@ import org.apache.hadoop.yarn.exceptions.YarnException;
 import org.apache.hadoop.yarn.exceptions.YarnRuntimeException;
 import org.apache.hadoop.yarn.proto.YarnServiceProtos.SchedulerResourceTypes;
 import org.apache.hadoop.yarn.security.YarnAuthorizationProvider;
+import org.apache.hadoop.yarn.server.api.protocolrecords.ContainerMemoryPressure;
 import org.apache.hadoop.yarn.server.api.protocolrecords.NodeContainerUpdate;
 import org.apache.hadoop.yarn.server.resourcemanager.RMContext;
 import org.apache.hadoop.yarn.server.resourcemanager.nodelabels.RMNodeLabelsManager;
@@ -87,6 +87,8 @@ import org.apache.hadoop.yarn.server.resourcemanager.rmnode.RMNode;
 import org.apache.hadoop.yarn.server.resourcemanager.rmnode.UpdatedContainerInfo;
 import org.apache.hadoop.yarn.server.resourcemanager.scheduler.AbstractYarnScheduler;
 import org.apache.hadoop.yarn.server.resourcemanager.scheduler.Allocation;
+import org.apache.hadoop.yarn.server.resourcemanager.scheduler.NodeContainerUpdateBuffer;
+import org.apache.hadoop.yarn.server.resourcemanager.scheduler.NodeType;
 import org.apache.hadoop.yarn.server.resourcemanager.scheduler.PreemptableResourceScheduler;
 import org.apache.hadoop.yarn.server.resourcemanager.scheduler.Queue;
 import org.apache.hadoop.yarn.server.resourcemanager.scheduler.QueueMetrics;
@@ -113,6 +115,7 @@ import org.apache.hadoop.yarn.server.resourcemanager.scheduler.event.NodeUpdateS
 import org.apache.hadoop.yarn.server.resourcemanager.scheduler.event.SchedulerEvent;
 import org.apache.hadoop.yarn.server.resourcemanager.security.RMContainerTokenSecretManager;
 import org.apache.hadoop.yarn.server.utils.Lock;
+import org.apache.hadoop.yarn.server.utils.SchedulingTrace;
 import org.apache.hadoop.yarn.util.resource.DefaultResourceCalculator;
 import org.apache.hadoop.yarn.util.resource.ResourceCalculator;
 import org.apache.hadoop.yarn.util.resource.Resources;
@@ -130,7 +133,10 @@ public class CapacityScheduler extends
 	private static final Log LOG = LogFactory.getLog(CapacityScheduler.class);
 	private YarnAuthorizationProvider authorizer;
 
-	private Map<NodeId, ConcurrentLinkedQueue<NodeContainerUpdate>> nodeContainerUpdateMap;
+	private final NodeContainerUpdateBuffer nodeContainerUpdates =
+		new NodeContainerUpdateBuffer();
+	private long urgentSuspendHeartbeatInterval;
+	private long resumeReservationTimeout;
 
 	private CSQueue root;
 	// timeout to join when we stop this service
@@ -162,11 +168,6 @@ public class CapacityScheduler extends
 		yarnConf = conf;
 	}
 
-	@Override
-	public boolean isDockerMonitorEnabled() {
-		return dockerMonitorEnabled;
-	}
-
 	private void validateConf(Configuration conf) {
 		// validate scheduler memory allocation setting
 		int minMem = conf.getInt(
@@ -221,7 +222,7 @@ public class CapacityScheduler extends
 	private boolean usePortForNodeName;
 
 	private boolean scheduleAsynchronously;
-	private AsyncScheduleThread asyncSchedulerThread;
+	private List<AsyncScheduleThread> asyncSchedulerThreads;
 	private RMNodeLabelsManager labelManager;
 
 	/**
@@ -306,7 +307,9 @@ public class CapacityScheduler extends
 		this.calculator = this.conf.getResourceCalculator();
 		this.usePortForNodeName = this.conf.getUsePortForNodeName();
 
-		this.nodeContainerUpdateMap = new HashMap<>();
+		this.urgentSuspendHeartbeatInterval =
+			this.conf.getUrgentSuspendHeartbeatInterval();
+		this.resumeReservationTimeout = this.conf.getResumeReservationTimeout();
 
 		this.applications =
 			new ConcurrentHashMap<>();
@@ -319,7 +322,11 @@ public class CapacityScheduler extends
 			this.conf.getLong(ASYNC_SCHEDULER_INTERVAL,
 				DEFAULT_ASYNC_SCHEDULER_INTERVAL);
 		if (scheduleAsynchronously) {
-			asyncSchedulerThread = new AsyncScheduleThread(this);
+			int threads = this.conf.getAsyncSchedulingThreads();
+			asyncSchedulerThreads = new ArrayList<AsyncScheduleThread>(threads);
+			for (int i = 0; i < threads; i++) {
+				asyncSchedulerThreads.add(new AsyncScheduleThread(this, i, threads));
+			}
 		}
 
 		LOG.info("Initialized CapacityScheduler with " +
@@ -327,14 +334,18 @@ public class CapacityScheduler extends
 			"minimumAllocation=<" + getMinimumResourceCapability() + ">, " +
 			"maximumAllocation=<" + getMaximumResourceCapability() + ">, " +
 			"asynchronousScheduling=" + scheduleAsynchronously + ", " +
+			"asyncSchedulingThreads=" + (scheduleAsynchronously ?
+			asyncSchedulerThreads.size() : 0) + ", " +
 			"asyncScheduleInterval=" + asyncScheduleInterval + "ms");
 	}
 
 	private synchronized void startSchedulerThreads() {
 		if (scheduleAsynchronously) {
-			Preconditions.checkNotNull(asyncSchedulerThread,
-				"asyncSchedulerThread is null");
-			asyncSchedulerThread.start();
+			Preconditions.checkNotNull(asyncSchedulerThreads,
+				"asyncSchedulerThreads is null");
+			for (AsyncScheduleThread thread : asyncSchedulerThreads) {
+				thread.start();
+			}
 		}
 	}
 
@@ -354,9 +365,13 @@ public class CapacityScheduler extends
 	@Override
 	public void serviceStop() throws Exception {
 		synchronized (this) {
-			if (scheduleAsynchronously && asyncSchedulerThread != null) {
-				asyncSchedulerThread.interrupt();
-				asyncSchedulerThread.join(THREAD_JOIN_TIMEOUT_MS);
+			if (scheduleAsynchronously && asyncSchedulerThreads != null) {
+				for (AsyncScheduleThread thread : asyncSchedulerThreads) {
+					thread.interrupt();
+				}
+				for (AsyncScheduleThread thread : asyncSchedulerThreads) {
+					thread.join(THREAD_JOIN_TIMEOUT_MS);
+				}
 			}
 		}
 		super.serviceStop();
@@ -373,6 +388,7 @@ public class CapacityScheduler extends
 			LOG.info("Re-initializing queues...");
 			refreshMaximumAllocation(this.conf.getMaximumAllocation());
 			reinitializeQueues(this.conf);
+			this.resumeReservationTimeout = this.conf.getResumeReservationTimeout();
 		} catch (Throwable t) {
 			this.conf = oldConf;
 			refreshMaximumAllocation(this.conf.getMaximumAllocation());
@@ -391,45 +407,181 @@ public class CapacityScheduler extends
 	 * @param cs
 	 */
 	static void schedule(CapacityScheduler cs) {
-		// First randomize the start point
-		int current = 0;
-		Collection<FiCaSchedulerNode> nodes = cs.getAllNodes().values();
-		int start = random.nextInt(nodes.size());
-		for (FiCaSchedulerNode node : nodes) {
-			if (current++ >= start) {
-				cs.allocateContainersToNode(node);
+		schedule(cs, 0, 1);
+	}
+
+	/**
+	 * Schedule on the share of the nodes of one scheduling thread, starting at
+	 * a random point. A pass has two phases:
+	 * <ul>
+	 * <li>without the scheduler lock, in parallel with the other threads, the
+	 * queues are read to propose what to allocate or resume on each node of
+	 * the share an allocation may succeed on;</li>
+	 * <li>the proposals are then committed one at a time under the scheduler
+	 * lock, each checked again against the node and the queues.</li>
+	 * </ul>
+	 * The nodes which got a container are proposed for again in the same pass
+	 * until nothing more is allocated on them. The reservations of a node are
+	 * fulfilled by allocateContainersToNode as on a node heartbeat.
+	 *
+	 * @param thread  index of the scheduling thread
+	 * @param threads number of scheduling threads
+	 */
+	static void schedule(CapacityScheduler cs, int thread, int threads) {
+		List<FiCaSchedulerNode> candidates = new ArrayList<FiCaSchedulerNode>();
+		for (FiCaSchedulerNode node : cs.getAllNodes().values()) {
+			if (getSchedulingThread(node.getNodeID(), threads) == thread
+				&& cs.needsScheduling(node)) {
+				candidates.add(node);
 			}
 		}
-		// Now, just get everyone to be safe
-		for (FiCaSchedulerNode node : nodes) {
-			cs.allocateContainersToNode(node);
+		if (!candidates.isEmpty()) {
+			Collections.rotate(candidates, random.nextInt(candidates.size()));
+		}
+		while (!candidates.isEmpty()) {
+			List<AllocationProposal> proposals =
+				new ArrayList<AllocationProposal>(candidates.size());
+			for (FiCaSchedulerNode node : candidates) {
+				if (node.getReservedContainer() != null
+					|| node.getResumeReservedContainer() != null) {
+					cs.allocateContainersToNode(node);
+					continue;
+				}
+				AllocationProposal proposal = cs.propose(node);
+				if (proposal != null) {
+					proposals.add(proposal);
+				}
+			}
+			candidates = cs.commitProposals(proposals);
 		}
 		try {
 			Thread.sleep(cs.getAsyncScheduleInterval());
 		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * @return the index of the scheduling thread scheduling on the node, a node
+	 * is only scheduled on by one thread
+	 */
+	static int getSchedulingThread(NodeId nodeId, int threads) {
+		return (nodeId.hashCode() & Integer.MAX_VALUE) % threads;
+	}
+
+	/**
+	 * Check, without the scheduler lock, whether an allocation on the node may
+	 * succeed. allocateContainersToNode checks the node again.
+	 */
+	boolean needsScheduling(FiCaSchedulerNode node) {
+		if (node.getReservedContainer() != null
+			|| node.getResumeReservedContainer() != null
+			|| !node.getSuspendedContainers().isEmpty()) {
+			return true;
+		}
+		CSQueue rootQueue = root;
+		return rootQueue != null
+			&& rootQueue.getMetrics().getPendingContainers() > 0
+			&& calculator.computeAvailableContainers(node.getAvailableResource(),
+			minimumAllocation) > 0;
+	}
+
+	/**
+	 * Propose what to allocate or resume on the node, walking the queues in
+	 * the order assignContainers does. The scheduler lock is not held, each
+	 * queue is only locked while it is read.
+	 * @return the proposal, null if nothing is to be done on the node
+	 */
+	AllocationProposal propose(FiCaSchedulerNode node) {
+		CSQueue rootQueue = root;
+		return rootQueue == null ? null : propose(rootQueue, node);
+	}
+
+	private AllocationProposal propose(CSQueue queue, FiCaSchedulerNode node) {
+		if (queue instanceof LeafQueue) {
+			return ((LeafQueue) queue).proposeOnNode(getClusterResource(), node);
+		}
+		for (CSQueue child : queue.getChildQueues()) {
+			AllocationProposal proposal = propose(child, node);
+			if (proposal != null) {
+				return proposal;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Commit the proposals of a scheduling pass one at a time. The queues on
+	 * the way to the leaf queue of a proposal check the node and their limits
+	 * again, the way assignContainers does. A proposal whose node is gone is
+	 * dropped, one which turns out stale falls back to
+	 * allocateContainersToNode for its node.
+	 * @return the nodes which got a container or a resume from their proposal
+	 * and may take more
+	 */
+	synchronized List<FiCaSchedulerNode> commitProposals(
+		List<AllocationProposal> proposals) {
+		List<FiCaSchedulerNode> committed = new ArrayList<FiCaSchedulerNode>();
+		if (rmContext.isWorkPreservingRecoveryEnabled()
+			&& !rmContext.isSchedulerReadyForAllocatingContainers()) {
+			return committed;
 		}
+		for (AllocationProposal proposal : proposals) {
+			FiCaSchedulerNode node = proposal.getNode();
+			if (getNode(node.getNodeID()) != node) {
+				continue;
+			}
+			CSAssignment assignment = ((ParentQueue) root).commitProposal(
+				clusterResource, proposal,
+				// TODO, now we only consider limits for parent for non-labeled
+				// resources, should consider labeled resources as well.
+				new ResourceLimits(labelManager.getResourceByLabel(
+					RMNodeLabelsManager.NO_LABEL, clusterResource)));
+			if (!Resources.greaterThan(calculator, clusterResource,
+				assignment.getResource(), Resources.none())) {
+				if (LOG.isDebugEnabled()) {
+					LOG.debug("Stale proposal " + proposal);
+				}
+				allocateContainersToNode(node);
+				continue;
+			}
+			for (RMContainer cont : assignment.getContainersToResume()) {
+				this.resumeContainer(cont);
+			}
+			if (assignment.getType() != NodeType.OFF_SWITCH
+				&& node.getReservedContainer() == null) {
+				committed.add(node);
+			}
+		}
+		return committed;
 	}
 
 	static class AsyncScheduleThread extends Thread {
 
 		private final CapacityScheduler cs;
+		private final int index;
+		private final int threads;
 		private AtomicBoolean runSchedules = new AtomicBoolean(false);
 
-		public AsyncScheduleThread(CapacityScheduler cs) {
+		public AsyncScheduleThread(CapacityScheduler cs, int index, int threads) {
 			this.cs = cs;
+			this.index = index;
+			this.threads = threads;
 			setDaemon(true);
+			setName("AsyncCapacitySchedulerThread-" + index);
 		}
 
 		@Override
 		public void run() {
-			while (true) {
+			while (!isInterrupted()) {
 				if (!runSchedules.get()) {
 					try {
 						Thread.sleep(100);
 					} catch (InterruptedException ie) {
+						return;
 					}
 				} else {
-					schedule(cs);
+					schedule(cs, index, threads);
 				}
 			}
 		}
@@ -985,6 +1137,15 @@ public class CapacityScheduler extends
 		for (UpdatedContainerInfo containerInfo : containerInfoList) {
 			newlyLaunchedContainers.addAll(containerInfo.getNewlyLaunchedContainers());
 			completedContainers.addAll(containerInfo.getCompletedContainers());
+			// later reports override earlier ones
+			for (ContainerMemoryPressure pressure : containerInfo
+				.getContainerMemoryPressures()) {
+				RMContainer rmContainer = getRMContainer(pressure.getContainerId());
+				if (rmContainer != null) {
+					rmContainer.setMemoryPressure(pressure.getScore());
+					rmContainer.setMemoryUsage(pressure.getUsageMb());
+				}
+			}
 		}
 
 		// Processing the newly launched containers
@@ -1003,7 +1164,7 @@ public class CapacityScheduler extends
 
 		// Now node data structures are up to date and ready for scheduling.
 		if (LOG.isDebugEnabled()) {
-			LOG.info("Node being looked for scheduling " + nm
+			LOG.debug("Node being looked for scheduling " + nm
 				+ " availableResource: " + node.getAvailableResource());
 		}
 	}
@@ -1073,6 +1234,23 @@ public class CapacityScheduler extends
 		// 1. Check for reserved applications
 		// 2. Schedule if there are no reservations
 
+		// A resume reservation is kept until its container is resumed, or is
+		// not suspended on this node anymore, or until it times out. Until
+		// then the queues only try to resume that container on this node.
+		RMContainer resumeReserved = node.getResumeReservedContainer();
+		if (resumeReserved != null) {
+			if (!node.getSuspendedContainers().contains(
+				resumeReserved.getContainerId())) {
+				node.unreserveForResume(false);
+			} else if (System.currentTimeMillis() - node.getResumeReservationTime()
+				>= resumeReservationTimeout) {
+				LOG.info("Resume reservation of node " + node.getNodeID()
+					+ " for container " + resumeReserved.getContainerId()
+					+ " timed out");
+				node.unreserveForResume(true);
+			}
+		}
+
 		RMContainer reservedContainer = node.getReservedContainer();
 		if (reservedContainer != null) {
 			FiCaSchedulerApp reservedApplication =
@@ -1109,7 +1287,7 @@ public class CapacityScheduler extends
 			if (calculator.computeAvailableContainers(node.getAvailableResource(),
 				minimumAllocation) > 0) {
 				if (LOG.isDebugEnabled()) {
-					LOG.info("Trying to schedule on node: " + node.getNodeName() +
+					LOG.debug("Trying to schedule on node: " + node.getNodeName() +
 						", available: " + node.getAvailableResource());
 				}
 				CSAssignment assignment = root.assignContainers(
@@ -1231,6 +1409,7 @@ public class CapacityScheduler extends
 		FiCaSchedulerNode schedulerNode = new FiCaSchedulerNode(nodeManager,
 			usePortForNodeName, nodeManager.getNodeLabels());
 		this.nodes.put(nodeManager.getNodeID(), schedulerNode);
+		nodeContainerUpdates.addNode(nodeManager.getNodeID());
 		Resources.addTo(clusterResource, nodeManager.getTotalCapability());
 
 		// update this node to node label manager
@@ -1248,7 +1427,9 @@ public class CapacityScheduler extends
 			" clusterResource: " + clusterResource);
 
 		if (scheduleAsynchronously && numNodes == 1) {
-			asyncSchedulerThread.beginSchedule();
+			for (AsyncScheduleThread thread : asyncSchedulerThreads) {
+				thread.beginSchedule();
+			}
 		}
 	}
 
@@ -1268,7 +1449,9 @@ public class CapacityScheduler extends
 		int numNodes = numNodeManagers.decrementAndGet();
 
 		if (scheduleAsynchronously && numNodes == 0) {
-			asyncSchedulerThread.suspendSchedule();
+			for (AsyncScheduleThread thread : asyncSchedulerThreads) {
+				thread.suspendSchedule();
+			}
 		}
 
 		// Remove running containers
@@ -1290,8 +1473,11 @@ public class CapacityScheduler extends
 					SchedulerUtils.LOST_CONTAINER),
 				RMContainerEventType.KILL);
 		}
+		node.unreserveForResume(false);
 
 		this.nodes.remove(nodeInfo.getNodeID());
+		nodeContainerUpdates.removeNode(nodeInfo.getNodeID());
+		SchedulingTrace.get().removeNode(nodeInfo.getNodeID());
 		updateMaximumAllocation(node, false);
 
 		LOG.info("Removed node " + nodeInfo.getNodeAddress() +
@@ -1406,15 +1592,11 @@ public class CapacityScheduler extends
 		NodeContainerUpdate nodeContainerUpdate = NodeContainerUpdate.newInstance(containerId,
 			currentResource.getMemory(), currentResource.getVirtualCores(), false, true);
 
-		LOG.info("get container   " + containerId + "to resume " + "currentresource:   " + currentResource + "on host: " + cont.getAllocatedNode().getHost());
-		//check if the resource is right
-		if (nodeContainerUpdateMap.get(nodeId) == null) {
-			ConcurrentLinkedQueue<NodeContainerUpdate> listNodeContainerUpdate = new ConcurrentLinkedQueue<NodeContainerUpdate>();
-			listNodeContainerUpdate.add(nodeContainerUpdate);
-			nodeContainerUpdateMap.put(nodeId, listNodeContainerUpdate);
-		} else {
-			nodeContainerUpdateMap.get(nodeId).add(nodeContainerUpdate);
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("resume container " + containerId + " current resource "
+				+ currentResource + " on host " + nodeId.getHost());
 		}
+		addNodeContainerUpdate(nodeId, nodeContainerUpdate);
 	}
 
 	@Override
@@ -1424,8 +1606,6 @@ public class CapacityScheduler extends
 			LOG.debug("SUSPEND_CONTAINER: container" + cont.toString());
 		}
 
-		LOG.info("capacity scheduler try to preempt " + cont.getContainerId() + " resource: " + toPreempt);
-
 		if (toPreempt == null) {
 			LOG.info("preempted resource can not be null");
 			return;
@@ -1449,13 +1629,21 @@ public class CapacityScheduler extends
 		NodeContainerUpdate nodeContainerUpdate = NodeContainerUpdate.newInstance(containerId,
 			currentResource.getMemory(), currentResource.getVirtualCores(), true, false);
 
-		LOG.info("get container   " + containerId + " to suspend " + " on host " + nodeId.getHost() + " currentresource:   " + currentResource);
-		if (nodeContainerUpdateMap.get(nodeId) == null) {
-			ConcurrentLinkedQueue<NodeContainerUpdate> listNodeContainerUpdate = new ConcurrentLinkedQueue<NodeContainerUpdate>();
-			listNodeContainerUpdate.add(nodeContainerUpdate);
-			nodeContainerUpdateMap.put(nodeId, listNodeContainerUpdate);
-		} else {
-			nodeContainerUpdateMap.get(nodeId).add(nodeContainerUpdate);
+		SchedulingTrace.get().suspend(containerId, nodeId, toPreempt);
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("suspend container " + containerId + " by " + toPreempt
+				+ " on host " + nodeId.getHost() + " current resource "
+				+ currentResource);
+		}
+		addNodeContainerUpdate(nodeId, nodeContainerUpdate);
+	}
+
+	private void addNodeContainerUpdate(NodeId nodeId,
+		NodeContainerUpdate nodeContainerUpdate) {
+		if (nodeContainerUpdates.add(nodeId, nodeContainerUpdate)
+			&& LOG.isDebugEnabled()) {
+			LOG.debug("update of " + nodeContainerUpdate.getContainerId()
+				+ " replaces the one not yet sent to " + nodeId);
 		}
 	}
 
@@ -1731,15 +1919,16 @@ public class CapacityScheduler extends
 
 	@Override
 	public List<NodeContainerUpdate> pullNodeContainerUpdate(NodeId node) {
+		return nodeContainerUpdates.pull(node);
+	}
 
-		List<NodeContainerUpdate> listNodeContainerUpdate = new ArrayList<NodeContainerUpdate>();
-		NodeContainerUpdate nodeContainerUpdate;
-		if (nodeContainerUpdateMap.get(node) != null) {
-			while ((nodeContainerUpdate = nodeContainerUpdateMap.get(node).poll()) != null) {
-				listNodeContainerUpdate.add(nodeContainerUpdate);
-			}
+	@Override
+	public long getNodeHeartbeatInterval(NodeId node, long defaultInterval) {
+		if (urgentSuspendHeartbeatInterval > 0
+			&& nodeContainerUpdates.isUrgent(node)) {
+			return Math.min(urgentSuspendHeartbeatInterval, defaultInterval);
 		}
-		return listNodeContainerUpdate;
+		return defaultInterval;
 	}
 
 
@@ -182,6 +182,42 @@ public class CapacitySchedulerConfiguration extends ReservationSchedulerConfigur
   @Private
   public static final boolean DEFAULT_SCHEDULE_ASYNCHRONOUSLY_ENABLE = false;
 
+  /**
+   * Number of threads scheduling asynchronously, each proposing allocations
+   * on its share of the nodes. The proposals are committed one at a time.
+   */
+  @Private
+  public static final String SCHEDULE_ASYNCHRONOUSLY_MAXIMUM_THREADS =
+      SCHEDULE_ASYNCHRONOUSLY_PREFIX + ".maximum-threads";
+
+  @Private
+  public static final int DEFAULT_SCHEDULE_ASYNCHRONOUSLY_MAXIMUM_THREADS = 1;
+
+  /**
+   * Heartbeat interval of a node right after it was sent a suspend, so that
+   * the following suspends of a preemption round reach it sooner. Disabled
+   * when not positive.
+   */
+  @Private
+  public static final String URGENT_SUSPEND_HEARTBEAT_INTERVAL_MS =
+      PREFIX + "urgent-suspend.heartbeat-interval-ms";
+
+  @Private
+  public static final long DEFAULT_URGENT_SUSPEND_HEARTBEAT_INTERVAL_MS = 0;
+
+  /**
+   * How long a node stays reserved for a suspended container that does not
+   * fit on it yet, without allocating other containers. Once a reservation
+   * times out, its container waits as long again before reserving the node
+   * again. Resume reservations are disabled when not positive.
+   */
+  @Private
+  public static final String RESUME_RESERVATION_TIMEOUT_MS =
+      PREFIX + "resume-reservation.timeout-ms";
+
+  @Private
+  public static final long DEFAULT_RESUME_RESERVATION_TIMEOUT_MS = 10000;
+
   @Private
   public static final String QUEUE_MAPPING = PREFIX + "queue-mappings";
 
@@ -298,6 +334,23 @@ public class CapacitySchedulerConfiguration extends ReservationSchedulerConfigur
 	 return maxOpportunity;
   }
   
+  /**
+   * Order in which a queue resumes its suspended containers.
+   */
+  @Private
+  public static final String RESUME_ORDERING_POLICY = "resume-ordering-policy";
+
+  @Private
+  public static final Class<? extends ResumeOrderingPolicy>
+      DEFAULT_RESUME_ORDERING_POLICY = EdfResumeOrderingPolicy.class;
+
+  public ResumeOrderingPolicy getResumeOrderingPolicy(String queue) {
+    return ReflectionUtils.newInstance(
+        getClass(getQueuePrefix(queue) + RESUME_ORDERING_POLICY,
+            DEFAULT_RESUME_ORDERING_POLICY, ResumeOrderingPolicy.class),
+        this);
+  }
+
   public boolean getTest(String queue){
 	  boolean test=
 		getBoolean(getQueuePrefix(queue)+"test",false);
@@ -695,6 +748,21 @@ public class CapacitySchedulerConfiguration extends ReservationSchedulerConfigur
     setBoolean(SCHEDULE_ASYNCHRONOUSLY_ENABLE, async);
   }
 
+  public int getAsyncSchedulingThreads() {
+    return Math.max(1, getInt(SCHEDULE_ASYNCHRONOUSLY_MAXIMUM_THREADS,
+        DEFAULT_SCHEDULE_ASYNCHRONOUSLY_MAXIMUM_THREADS));
+  }
+
+  public long getUrgentSuspendHeartbeatInterval() {
+    return getLong(URGENT_SUSPEND_HEARTBEAT_INTERVAL_MS,
+        DEFAULT_URGENT_SUSPEND_HEARTBEAT_INTERVAL_MS);
+  }
+
+  public long getResumeReservationTimeout() {
+    return getLong(RESUME_RESERVATION_TIMEOUT_MS,
+        DEFAULT_RESUME_RESERVATION_TIMEOUT_MS);
+  }
+
   public boolean getOverrideWithQueueMappings() {
     return getBoolean(ENABLE_QUEUE_MAPPING_OVERRIDE,
         DEFAULT_ENABLE_QUEUE_MAPPING_OVERRIDE);
@@ -62,6 +62,4 @@ public interface CapacitySchedulerContext {
   Comparator<CSQueue> getQueueComparator();
   
   FiCaSchedulerNode getNode(NodeId nodeId);
-
-  boolean isDockerMonitorEnabled();
 }
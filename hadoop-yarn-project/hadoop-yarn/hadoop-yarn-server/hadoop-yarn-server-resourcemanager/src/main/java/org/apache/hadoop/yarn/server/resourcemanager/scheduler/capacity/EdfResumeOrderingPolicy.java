@@ -0,0 +1,38 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.yarn.server.resourcemanager.scheduler.capacity;
+
+/**
+ * Earliest deadline first: resume the container with the earliest deadline,
+ * the containers without deadline last. Containers with the same deadline
+ * are resumed the longest suspended and then the most preempted first.
+ */
+public class EdfResumeOrderingPolicy extends ResumeOrderingPolicy {
+
+	@Override
+	protected int compareCandidates(Candidate a, Candidate b) {
+		int c = Long.compare(getDeadlineOrMax(a), getDeadlineOrMax(b));
+		if (c == 0) {
+			c = Long.compare(a.getSuspendTime(), b.getSuspendTime());
+		}
+		if (c == 0) {
+			c = Long.compare(b.getPreemptedMemory(), a.getPreemptedMemory());
+		}
+		return c;
+	}
+}
@@ -76,6 +76,8 @@ import org.apache.hadoop.yarn.server.resourcemanager.scheduler.common.fica.FiCaS
 import org.apache.hadoop.yarn.server.utils.BuilderUtils;
 import org.apache.hadoop.yarn.server.utils.Lock;
 import org.apache.hadoop.yarn.server.utils.Lock.NoLock;
+import org.apache.hadoop.yarn.server.utils.SchedulingTrace;
+import org.apache.hadoop.yarn.server.utils.SchedulingTrace.SkipReason;
 import org.apache.hadoop.yarn.util.resource.Resources;
 
 import com.google.common.annotations.VisibleForTesting;
@@ -107,6 +109,9 @@ public class LeafQueue extends AbstractCSQueue {
 	Queue<ApplicationAttemptId> suspendedApps =
 		new LinkedList<ApplicationAttemptId>();
 
+	//suspended containers of the queue by node, in resume order
+	private SuspendedContainerIndex suspendedContainers;
+
 	Set<FiCaSchedulerApp> pendingApplications;
 
 	private float minimumAllocationFactor;
@@ -131,6 +136,12 @@ public class LeafQueue extends AbstractCSQueue {
 
 	private boolean isFastResumption = false;
 
+	//reserve a node for a suspended container which does not fit on it yet
+	private boolean resumeReservation;
+	//how long a reservation lasts, and how long its container then waits
+	//before reserving the node again
+	private long resumeReservationTimeout;
+
 	// absolute capacity as a resource (based on cluster resource)
 	private Resource absoluteCapacityResource = Resources.none();
 
@@ -184,6 +195,17 @@ public class LeafQueue extends AbstractCSQueue {
 		testSuspendTime = conf.getTestSuspendTime("root");
 
 		maxContainerOpportunity = conf.getMaxContainerOpportunityResumeption(getQueuePath());
+		resumeReservationTimeout = conf.getResumeReservationTimeout();
+		resumeReservation = resumeReservationTimeout > 0;
+
+		ResumeOrderingPolicy resumeOrder =
+			conf.getResumeOrderingPolicy(getQueuePath());
+		if (suspendedContainers == null) {
+			suspendedContainers = new SuspendedContainerIndex(resumeOrder);
+		} else if (!resumeOrder.getClass().equals(
+			suspendedContainers.getOrder().getClass())) {
+			suspendedContainers.setOrder(resumeOrder);
+		}
 
 		maxApplications = conf.getMaximumApplicationsPerQueue(getQueuePath());
 		if (maxApplications < 0) {
@@ -275,7 +297,9 @@ public class LeafQueue extends AbstractCSQueue {
 			"nodeLocalityDelay = " + nodeLocalityDelay + "\n" +
 			"reservationsContinueLooking = " +
 			reservationsContinueLooking + "\n" +
-			"preemptionDisabled = " + getPreemptionDisabled() + "\n");
+			"preemptionDisabled = " + getPreemptionDisabled() + "\n" +
+			"resumeOrderingPolicy = " + resumeOrder.getClass().getSimpleName() +
+			"\n");
 	}
 
 	@Override
@@ -724,6 +748,8 @@ public class LeafQueue extends AbstractCSQueue {
 
 		//remove from suspended list
 		this.suspendedApps.remove(application.getApplicationAttemptId());
+		this.suspendedContainers.removeApplication(
+			application.getApplicationAttemptId());
 
 		user.finishApplication(wasActive);
 		if (user.getTotalApplications() == 0) {
@@ -776,7 +802,7 @@ public class LeafQueue extends AbstractCSQueue {
 		updateCurrentResourceLimits(currentResourceLimits, clusterResource);
 
 		if (LOG.isDebugEnabled()) {
-			LOG.info("assignContainers: node=" + node.getNodeName()
+			LOG.debug("assignContainers: node=" + node.getNodeName()
 				+ " #applications=" + activeApplications.size());
 		}
 
@@ -796,84 +822,38 @@ public class LeafQueue extends AbstractCSQueue {
 			}
 		}
 
-		//try to resume containers which are suspended in fifo order
-		for (ApplicationAttemptId appId : this.suspendedApps) {
-			FiCaSchedulerApp app = this.applicationAttemptMap.get(appId);
-			LOG.info("get app suspended " + app.getApplicationAttemptId() + " suspended size " + app.getContainersSuspended().size());
-			synchronized (app) {
-				for (ContainerId cntId : app.getContainersSuspended()) {
-					//if we find one container suspended on this node, we try to resume this container
-					//we get its resource to try if we can resume this container
-					RMContainer rmContainer = app.getLiveContainersMap().get(cntId);
-					Container container = rmContainer.getContainer();
-					Resource toResume;
-
-					if (!node.getSuspendedContainers().contains(cntId)) {
-						continue;
-					}
-
-					if (isTest) {
-
-						long lastSuspendTime = rmContainer.getSuspendTime().get(rmContainer.getSuspendTime().size() - 1);
-
-						if ((System.currentTimeMillis() - lastSuspendTime) / 1000 < testSuspendTime) {
-
-							continue;
-						}
-
-						toResume = Resources.clone(rmContainer.getPreemptedResource());
-						LOG.info("test resume container: " + rmContainer.getContainerId() + "resource " + toResume + ""
-							+ "time: " + (System.currentTimeMillis() - lastSuspendTime) / 1000);
-
-					} else if (isNaive) {
-						toResume = Resources.clone(rmContainer.getPreemptedResource());
-					} else {
-						toResume = Resources.clone(Resources.mins(resourceCalculator, clusterResource,
-							rmContainer.getSRResourceUnit(),
-							rmContainer.getPreemptedResource()));
-					}
-
-					//if we can not allocate container due to insufficiency of resource ,we just give up continuing
-					//allocating resource
-					LOG.info("try to resume container: " + cntId + " on node" + node.getNodeName());
-					if (!super.canAssignToThisQueue(clusterResource, node.getLabels(),
-						currentResourceLimits, toResume, app.getCurrentReservation())) {
-						LOG.info("resume containers:insufficienct resource for queue" + this.getQueueName() + ", return here");
-						return NULL_ASSIGNMENT;
-					}
-					//compute user limit nnn
-					Resource userLimit =
-						computeUserLimitAndSetHeadroom(app, clusterResource,
-							toResume, null);
-					//check we can allocate resource for this user, TODO drop this judge because we do not care about user
-					//resource consumption for resource resume
-					if (!assignToUser(clusterResource, app.getUser(), userLimit,
-						app, null, currentResourceLimits)) {
-						LOG.info("resume contiaers:insufficienct resource for user" + app.getUser() + ", return here");
-						return NULL_ASSIGNMENT;
-					}
-					//try to resume this container
-					CSAssignment assignment = this.resumeContainer(clusterResource, node, app, toResume, rmContainer);
-					Resource assigned = assignment.getResource();
-					LOG.info("get assigned resoruce: " + assigned);
-					if (Resources.greaterThan(
-						resourceCalculator, clusterResource, assigned, Resources.none())) {
-						//update queue and user resource usage
-						allocateResource(clusterResource, app, assigned, node.getLabels(), true);
-						rmContainer.resetResumeOpportunity();
-						return assignment;
-					} else {
-						//this case only happens when the node resource is insufficient, we give up the chance to continue allocation
-						//resource to new requests
-						LOG.info("resume containers:node " + node.getNodeName() + " resource is not sufficient");
-						return NULL_ASSIGNMENT;
-					}
+		//a node reserved to resume a container of another queue is skipped, one
+		//reserved for a container of this queue only serves that container
+		RMContainer resumeReserved = node.getResumeReservedContainer();
+		if (resumeReserved != null
+			&& !suspendedContainers.contains(resumeReserved.getContainerId())) {
+			return NULL_ASSIGNMENT;
+		}
 
-				}
-				//we come here because node does not have cntId
+		//try to resume containers which are suspended on this node in resume order
+		for (SuspendedContainerIndex.Entry candidate :
+			suspendedContainers.getCandidates(node.getNodeID())) {
+			if (resumeReserved != null && !candidate.getContainer().getContainerId()
+				.equals(resumeReserved.getContainerId())) {
+				continue;
+			}
+			FiCaSchedulerApp app =
+				this.applicationAttemptMap.get(candidate.getApplicationAttemptId());
+			if (app == null) {
+				continue;
+			}
+			CSAssignment assignment = resumeOnNode(clusterResource, node, app,
+				candidate.getContainer(), resumeReserved, currentResourceLimits);
+			if (assignment != null) {
+				return assignment;
 			}
 		}
-		//we come here means all apps do not have contId on node
+		//we come here means no suspended container can be resumed on node
+
+		if (resumeReserved != null) {
+			//keep the node for the reserved container
+			return NULL_ASSIGNMENT;
+		}
 
 		// Try to assign containers to applications in order。这是核心的分配算法
 		for (FiCaSchedulerApp application : activeApplications) {
@@ -943,7 +923,6 @@ public class LeafQueue extends AbstractCSQueue {
 					application.addSchedulingOpportunity(priority);
 
 					// Try to schedule
-					LOG.info("into assignContainers");
 					CSAssignment assignment =
 						assignContainersOnNode(clusterResource, node, application, priority,
 							null, currentResourceLimits);
@@ -995,6 +974,225 @@ public class LeafQueue extends AbstractCSQueue {
 
 	}
 
+	/**
+	 * Pick what assignContainers would most likely do on the node, without
+	 * changing anything: resume the first suspended container of the node in
+	 * resume order, or else allocate for the highest priority request of the
+	 * first active application which needs containers and which fits under
+	 * the maximum capacity of this queue. The user limit, delay scheduling and
+	 * the limits of the parent queues are left to {@link #commitProposal}.
+	 * @return the proposal, null if nothing is to be done on the node
+	 */
+	synchronized AllocationProposal proposeOnNode(Resource clusterResource,
+		FiCaSchedulerNode node) {
+		if (!SchedulerUtils.checkQueueAccessToNode(accessibleLabels, node.getLabels())
+			|| node.getReservedContainer() != null
+			|| node.getResumeReservedContainer() != null) {
+			return null;
+		}
+
+		for (SuspendedContainerIndex.Entry candidate :
+			suspendedContainers.getCandidates(node.getNodeID())) {
+			FiCaSchedulerApp app =
+				this.applicationAttemptMap.get(candidate.getApplicationAttemptId());
+			if (app == null) {
+				continue;
+			}
+			ContainerId cntId = candidate.getContainer().getContainerId();
+			synchronized (app) {
+				if (app.getContainersSuspended().contains(cntId)
+					&& node.getSuspendedContainers().contains(cntId)) {
+					return AllocationProposal.newResume(node, this, app,
+						candidate.getContainer());
+				}
+			}
+		}
+
+		//only the maximum capacity of the queue bounds the limit here
+		ResourceLimits queueLimits = new ResourceLimits(clusterResource);
+		for (FiCaSchedulerApp application : activeApplications) {
+			synchronized (application) {
+				if (SchedulerAppUtils.isBlacklisted(application, node, LOG)) {
+					continue;
+				}
+				for (Priority priority : application.getPriorities()) {
+					ResourceRequest anyRequest =
+						application.getResourceRequest(priority, ResourceRequest.ANY);
+					if (null == anyRequest
+						|| application.getTotalRequiredResources(priority) <= 0) {
+						continue;
+					}
+					if (!super.canAssignToThisQueue(clusterResource, node.getLabels(),
+						queueLimits, anyRequest.getCapability(),
+						application.getCurrentReservation())) {
+						return null;
+					}
+					return AllocationProposal.newAllocation(node, this, application,
+						priority);
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Commit a proposal of {@link #proposeOnNode}, checking again everything
+	 * assignContainers checks for the same container or the same application
+	 * and priority. The caller holds the scheduler lock and the parent queues
+	 * already checked their own limits.
+	 * @return the assignment, NULL_ASSIGNMENT if the proposal is stale
+	 */
+	synchronized CSAssignment commitProposal(Resource clusterResource,
+		AllocationProposal proposal, ResourceLimits currentResourceLimits) {
+		updateCurrentResourceLimits(currentResourceLimits, clusterResource);
+
+		FiCaSchedulerNode node = proposal.getNode();
+		FiCaSchedulerApp application = proposal.getApplication();
+		if (!SchedulerUtils.checkQueueAccessToNode(accessibleLabels, node.getLabels())
+			|| node.getReservedContainer() != null
+			|| node.getResumeReservedContainer() != null
+			|| getApplication(application.getApplicationAttemptId()) != application) {
+			return NULL_ASSIGNMENT;
+		}
+
+		if (proposal.isResume()) {
+			CSAssignment assignment = resumeOnNode(clusterResource, node,
+				application, proposal.getContainerToResume(), null,
+				currentResourceLimits);
+			return assignment == null ? NULL_ASSIGNMENT : assignment;
+		}
+
+		if (!activeApplications.contains(application)) {
+			return NULL_ASSIGNMENT;
+		}
+		synchronized (application) {
+			Priority priority = proposal.getPriority();
+			ResourceRequest anyRequest =
+				application.getResourceRequest(priority, ResourceRequest.ANY);
+			if (null == anyRequest
+				|| application.getTotalRequiredResources(priority) <= 0
+				|| SchedulerAppUtils.isBlacklisted(application, node, LOG)) {
+				return NULL_ASSIGNMENT;
+			}
+			Resource required = anyRequest.getCapability();
+			if (!this.reservationsContinueLooking
+				&& !shouldAllocOrReserveNewContainer(application, priority, required)) {
+				return NULL_ASSIGNMENT;
+			}
+
+			Set<String> requestedNodeLabels =
+				getRequestLabelSetByExpression(anyRequest.getNodeLabelExpression());
+			Resource userLimit =
+				computeUserLimitAndSetHeadroom(application, clusterResource,
+					required, requestedNodeLabels);
+			if (!super.canAssignToThisQueue(clusterResource, node.getLabels(),
+				currentResourceLimits, required, application.getCurrentReservation())
+				|| !assignToUser(clusterResource, application.getUser(), userLimit,
+				application, requestedNodeLabels, currentResourceLimits)) {
+				return NULL_ASSIGNMENT;
+			}
+
+			application.addSchedulingOpportunity(priority);
+			CSAssignment assignment =
+				assignContainersOnNode(clusterResource, node, application, priority,
+					null, currentResourceLimits);
+			if (assignment.getSkipped()) {
+				application.subtractSchedulingOpportunity(priority);
+				return NULL_ASSIGNMENT;
+			}
+			if (Resources.greaterThan(resourceCalculator, clusterResource,
+				assignment.getResource(), Resources.none())) {
+				allocateResource(clusterResource, application,
+					assignment.getResource(), node.getLabels(), false);
+				if (assignment.getType() != NodeType.OFF_SWITCH) {
+					application.resetSchedulingOpportunities(priority);
+				}
+			}
+			return assignment;
+		}
+	}
+
+	/**
+	 * Try to resume a suspended container of the application on the node.
+	 * @return the assignment, NULL_ASSIGNMENT if the limits of the queue or of
+	 * the user or the room left on the node stop the resume, null if the
+	 * container can not be resumed on this node
+	 */
+	private CSAssignment resumeOnNode(Resource clusterResource,
+		FiCaSchedulerNode node, FiCaSchedulerApp app, RMContainer rmContainer,
+		RMContainer resumeReserved, ResourceLimits currentResourceLimits) {
+		synchronized (app) {
+			//we get its resource to try if we can resume this container
+			ContainerId cntId = rmContainer.getContainerId();
+			Resource toResume;
+
+			if (!app.getContainersSuspended().contains(cntId)
+				|| !node.getSuspendedContainers().contains(cntId)) {
+				return null;
+			}
+
+			if (isTest) {
+
+				long lastSuspendTime = rmContainer.getLastSuspendTime();
+
+				if ((System.currentTimeMillis() - lastSuspendTime) / 1000 < testSuspendTime) {
+
+					return null;
+				}
+
+				toResume = Resources.clone(rmContainer.getPreemptedResource());
+				if (LOG.isDebugEnabled()) {
+					LOG.debug("test resume container: " + rmContainer.getContainerId() + " resource " + toResume
+						+ " time: " + (System.currentTimeMillis() - lastSuspendTime) / 1000);
+				}
+
+			} else if (isNaive) {
+				toResume = Resources.clone(rmContainer.getPreemptedResource());
+			} else {
+				toResume = Resources.clone(Resources.mins(resourceCalculator, clusterResource,
+					rmContainer.getSRResourceUnit(),
+					rmContainer.getPreemptedResource()));
+			}
+
+			//if we can not allocate container due to insufficiency of resource ,we just give up continuing
+			//allocating resource
+			SchedulingTrace.get().resumeAttempt(cntId, node.getNodeID(), toResume);
+			if (!super.canAssignToThisQueue(clusterResource, node.getLabels(),
+				currentResourceLimits, toResume, app.getCurrentReservation())) {
+				SchedulingTrace.get().resumeSkipped(cntId, node.getNodeID(), toResume, SkipReason.QUEUE_LIMIT);
+				return NULL_ASSIGNMENT;
+			}
+			//compute user limit nnn
+			Resource userLimit =
+				computeUserLimitAndSetHeadroom(app, clusterResource,
+					toResume, null);
+			//check we can allocate resource for this user, TODO drop this judge because we do not care about user
+			//resource consumption for resource resume
+			if (!assignToUser(clusterResource, app.getUser(), userLimit,
+				app, null, currentResourceLimits)) {
+				SchedulingTrace.get().resumeSkipped(cntId, node.getNodeID(), toResume, SkipReason.USER_LIMIT);
+				return NULL_ASSIGNMENT;
+			}
+			//try to resume this container
+			CSAssignment assignment = this.resumeContainer(clusterResource, node, app, toResume, rmContainer);
+			Resource assigned = assignment.getResource();
+			if (Resources.greaterThan(
+				resourceCalculator, clusterResource, assigned, Resources.none())) {
+				//update queue and user resource usage
+				allocateResource(clusterResource, app, assigned, node.getLabels(), true);
+				rmContainer.resetResumeOpportunity();
+				if (resumeReserved != null) {
+					node.unreserveForResume(false);
+				}
+				return assignment;
+			} else {
+				//this case only happens when the node resource is insufficient, we give up the chance to continue allocation
+				//resource to new requests, resumeContainer traced why
+				return NULL_ASSIGNMENT;
+			}
+		}
+	}
+
 	private synchronized CSAssignment assignReservedContainer(
 		FiCaSchedulerApp application, FiCaSchedulerNode node,
 		RMContainer rmContainer, Resource clusterResource) {
@@ -1421,7 +1619,6 @@ public class LeafQueue extends AbstractCSQueue {
 	                                           ResourceLimits currentResoureLimits) {
 		if (canAssign(application, priority, node, NodeType.NODE_LOCAL,
 			reservedContainer)) {
-			LOG.info("into assignNodeLocalContainers...");
 			return assignContainer(clusterResource, node, application, priority,
 				nodeLocalResourceRequest, NodeType.NODE_LOCAL, reservedContainer,
 				allocatedContainer, currentResoureLimits);
@@ -1437,7 +1634,6 @@ public class LeafQueue extends AbstractCSQueue {
 	                                           ResourceLimits currentResoureLimits) {
 		if (canAssign(application, priority, node, NodeType.RACK_LOCAL,
 			reservedContainer)) {
-			LOG.info("into assignRackLocalContainers...");
 			return assignContainer(clusterResource, node, application, priority,
 				rackLocalResourceRequest, NodeType.RACK_LOCAL, reservedContainer,
 				allocatedContainer, currentResoureLimits);
@@ -1521,8 +1717,6 @@ public class LeafQueue extends AbstractCSQueue {
 	                               FiCaSchedulerApp application, FiCaSchedulerNode node,
 	                               Resource capability, Priority priority) {
 		//是否是reserve 的情况
-		if (null != rmContainer)  LOG.info("getting container: "+ rmContainer.getContainer().getId());
-		else  LOG.info("no rmContainer... ");
 		return (rmContainer != null) ? rmContainer.getContainer(): createContainer(application, node, capability, priority);
 	}
 
@@ -1530,14 +1724,12 @@ public class LeafQueue extends AbstractCSQueue {
 	                          Resource capability, Priority priority) {
 
 		NodeId nodeId = node.getRMNode().getNodeID();
-		LOG.info("creating container on node "+nodeId);
 		ContainerId containerId = BuilderUtils.newContainerId(application.getApplicationAttemptId(), application.getNewContainerId());
 
 		// Create the container
 		Container container =BuilderUtils.newContainer(containerId, nodeId, node.getRMNode()
 				.getHttpAddress(), capability, priority, null, application.getArrivalTime(), application.getDeadline(),
 		0, 0);
-		LOG.info("creating container complete...");
 		return container;
 	}
 
@@ -1546,9 +1738,13 @@ public class LeafQueue extends AbstractCSQueue {
 
 		//we should make capability here tunable
 
-		LOG.info("app: " + application.getApplicationId() + "container: " + rmContainer.getContainerId() + "resumeContainer preempted:" + rmContainer.getPreemptedResource());
-		LOG.info("resumeContainer SR:" + rmContainer.getSRResourceUnit());
-		LOG.info("resumeContainer toResume: " + toResume);
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("resumeContainer " + rmContainer.getContainerId()
+				+ " preempted: " + rmContainer.getPreemptedResource()
+				+ " SR: " + rmContainer.getSRResourceUnit()
+				+ " toResume: " + toResume
+				+ " available: " + node.getAvailableResource());
+		}
 
 
 		Resource available = node.getAvailableResource();
@@ -1558,9 +1754,8 @@ public class LeafQueue extends AbstractCSQueue {
 		//节点资源不够的情况，
 		if (!Resources.lessThanOrEqual(resourceCalculator, clusterResource,
 			toResume, totalResource)) {
-			LOG.info("Node : " + node.getNodeID()
-				+ " does not have sufficient resource for request : " + toResume
-				+ " node total capability : " + node.getTotalResource());
+			SchedulingTrace.get().resumeSkipped(rmContainer.getContainerId(), node.getNodeID(),
+				toResume, SkipReason.NODE_CAPACITY);
 			return NULL_ASSIGNMENT;
 		}
 
@@ -1568,7 +1763,6 @@ public class LeafQueue extends AbstractCSQueue {
 		assert Resources.greaterThan(
 			resourceCalculator, clusterResource, available, Resources.none());
 
-		LOG.info("resumeContainer toresume: " + toResume + " available resource: " + available);
 		//Can we allocate a container on this node? we do not consider reserve container in current version
 		int availableContainers =
 			resourceCalculator.computeAvailableContainers(available, toResume);
@@ -1577,8 +1771,11 @@ public class LeafQueue extends AbstractCSQueue {
 		//LOG.info("ndoe available resource "+available+" to resume "+toResume);
 		if (availableContainers > 0) {
 
-			if (!isFastResumption && rmContainer.getResumeOpportunity() < maxContainerOpportunity) {
-				LOG.info("resume containers " + rmContainer.getContainerId() + " not opportunity" + "currentOpp: " + rmContainer.getResumeOpportunity());
+			//a reserved node already waited for the container
+			if (!isFastResumption && node.getResumeReservedContainer() != rmContainer
+				&& rmContainer.getResumeOpportunity() < maxContainerOpportunity) {
+				SchedulingTrace.get().resumeSkipped(rmContainer.getContainerId(), node.getNodeID(),
+					toResume, SkipReason.OPPORTUNITY);
 				rmContainer.incResumeOpportunity();
 				return NULL_ASSIGNMENT;
 			}
@@ -1587,29 +1784,62 @@ public class LeafQueue extends AbstractCSQueue {
 				application.containerResume(rmContainer, toResume);
 			//Does the application need this resource?
 			if (!resumeContainer) {
+				SchedulingTrace.get().resumeSkipped(rmContainer.getContainerId(), node.getNodeID(),
+					toResume, SkipReason.NOT_NEEDED);
 				return NULL_ASSIGNMENT;
 			}
 
 			//if we come here, container has been resumed
 			if (!application.isSuspending()) {
-				LOG.info(application.getApplicationAttemptId() + "out suspending list");
+				if (LOG.isDebugEnabled()) {
+					LOG.debug(application.getApplicationAttemptId() + " out of suspending list");
+				}
 				this.suspendedApps.remove(application.getApplicationAttemptId());
 			}
 			//Inform the node
 			boolean suspending = rmContainer.isSuspending();
+			if (!suspending) {
+				getMetrics().resumedAfter(
+					rmContainer.getSuspendHistory().getLastSuspendedPeriod());
+			}
 			//we remvoe the container from node suspending list if it is not suspending
 			node.resumeContainer(rmContainer.getContainer(), toResume, !suspending);
+			if (suspending) {
+				//its preempted resource changed
+				suspendedContainers.update(application.getApplicationAttemptId(),
+					rmContainer, System.currentTimeMillis());
+			} else {
+				suspendedContainers.remove(rmContainer.getContainerId());
+			}
 
-			LOG.info("Resume Container" +
-				"resum resource:" + toResume +
-				" application attempt=" + application.getApplicationAttemptId() +
-				" container=" + rmContainer.getContainerId() +
-				" queue=" + this +
-				" clusterResource=" + clusterResource);
+			SchedulingTrace.get().resume(rmContainer.getContainerId(), node.getNodeID(), toResume);
+			if (LOG.isDebugEnabled()) {
+				LOG.debug("Resume Container" +
+					" resume resource=" + toResume +
+					" application attempt=" + application.getApplicationAttemptId() +
+					" container=" + rmContainer.getContainerId() +
+					" queue=" + this +
+					" clusterResource=" + clusterResource);
+			}
 
 			//if everything goes fine, return true here
 			return new CSAssignment(toResume, NodeType.NODE_LOCAL, rmContainer);
 		}
+
+		SchedulingTrace.get().resumeSkipped(rmContainer.getContainerId(), node.getNodeID(),
+			toResume, SkipReason.NODE_AVAILABLE);
+		//the node is short of resource for the first container to resume, keep
+		//what gets freed on it for that container instead of new allocations,
+		//unless a reservation of the container for this node just timed out
+		if (resumeReservation && node.getResumeReservedContainer() == null
+			&& node.getReservedContainer() == null
+			&& node.canReserveForResume(rmContainer.getContainerId(),
+				System.currentTimeMillis(), resumeReservationTimeout)) {
+			LOG.info("Reserving node " + node.getNodeID() + " to resume container "
+				+ rmContainer.getContainerId() + " resource " + toResume);
+			node.reserveForResume(rmContainer, getMetrics(),
+				System.currentTimeMillis());
+		}
 		return NULL_ASSIGNMENT;
 	}
 
@@ -1688,10 +1918,8 @@ public class LeafQueue extends AbstractCSQueue {
 					// could be zero. If the limit was hit then use the amount we need to unreserve to be
 					// under the limit.
 					Resource amountToUnreserve = capability;
-					LOG.info("need to unreserve 1: " + amountToUnreserve);
 					if (needToUnreserve) {
 						amountToUnreserve = currentResoureLimits.getAmountNeededUnreserve();
-						LOG.info("need to unreserve 2: " + amountToUnreserve);
 					}
 					boolean containerUnreserved =
 						findNodeToUnreserve(clusterResource, node, application, priority,
@@ -1716,11 +1944,15 @@ public class LeafQueue extends AbstractCSQueue {
 			// Inform the node
 			node.allocateContainer(allocatedContainer);
 
-			LOG.info("assignedContainer" +
-				" application attempt=" + application.getApplicationAttemptId() +
-				" container=" + container +
-				" queue=" + this +
-				" clusterResource=" + clusterResource);
+			SchedulingTrace.get().allocation(container.getId(), node.getNodeID(),
+				container.getResource());
+			if (LOG.isDebugEnabled()) {
+				LOG.debug("assignedContainer" +
+					" application attempt=" + application.getApplicationAttemptId() +
+					" container=" + container +
+					" queue=" + this +
+					" clusterResource=" + clusterResource);
+			}
 			createdContainer.setValue(allocatedContainer);
 			return container.getResource();
 		} else {
@@ -1823,6 +2055,10 @@ public class LeafQueue extends AbstractCSQueue {
 						}
 						//we suspend the container on this node
 						node.suspendContainer(container, rmContainer.getLastPreemptedResource());
+						if (removed) {
+							suspendedContainers.update(application.getApplicationAttemptId(),
+								rmContainer, System.currentTimeMillis());
+						}
 						toRelease = rmContainer.getLastPreemptedResource();
 
 					} else {
@@ -1832,6 +2068,7 @@ public class LeafQueue extends AbstractCSQueue {
 						node.releaseContainer(container, toRelease);
 						//for container suspend event
 						//in case of completing a suspended container
+						suspendedContainers.remove(container.getId());
 					}
 				}
 				// Book-keeping
@@ -0,0 +1,49 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.yarn.server.resourcemanager.scheduler.capacity;
+
+/**
+ * Least slack first: resume the container with the least time left before
+ * its deadline once the rest of its work is done, the containers without
+ * deadline last.
+ *
+ * The RM does not know the progress of a container, its remaining work is
+ * estimated as the time it already ran. The slack of a suspended container
+ * does not change relatively to the others since none of them progresses,
+ * so the deadline minus this estimate orders them.
+ */
+public class LeastSlackResumeOrderingPolicy extends ResumeOrderingPolicy {
+
+	private final EdfResumeOrderingPolicy edf = new EdfResumeOrderingPolicy();
+
+	static long getLatestStart(Candidate candidate) {
+		if (candidate.getDeadline() <= 0) {
+			return Long.MAX_VALUE;
+		}
+		return candidate.getDeadline() - candidate.getRunTime();
+	}
+
+	@Override
+	protected int compareCandidates(Candidate a, Candidate b) {
+		int c = Long.compare(getLatestStart(a), getLatestStart(b));
+		if (c == 0) {
+			c = edf.compareCandidates(a, b);
+		}
+		return c;
+	}
+}
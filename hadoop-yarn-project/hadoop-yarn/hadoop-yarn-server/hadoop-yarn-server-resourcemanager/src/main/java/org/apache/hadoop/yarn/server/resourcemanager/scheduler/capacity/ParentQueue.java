@@ -550,6 +550,77 @@ public class ParentQueue extends AbstractCSQueue {
     return assignment;
   }
 
+  /**
+   * Commit a proposal of a leaf queue below this queue. The node and the
+   * limits of this queue are checked again as in assignContainers, then the
+   * proposal is handed to the child queue on the way to its leaf queue and
+   * what the child got is booked on this queue.
+   */
+  synchronized CSAssignment commitProposal(Resource clusterResource,
+      AllocationProposal proposal, ResourceLimits resourceLimits) {
+    CSAssignment assignment =
+        new CSAssignment(Resources.createResource(0, 0), NodeType.NODE_LOCAL);
+    FiCaSchedulerNode node = proposal.getNode();
+    Set<String> nodeLabels = node.getLabels();
+    CSQueue child = getChildQueueTowards(proposal.getQueue());
+    if (child == null
+        || !SchedulerUtils.checkQueueAccessToNode(accessibleLabels, nodeLabels)
+        || !canAssign(clusterResource, node)
+        || !super.canAssignToThisQueue(clusterResource, nodeLabels,
+            resourceLimits, minimumAllocation, Resources.createResource(
+                getMetrics().getReservedMB(),
+                getMetrics().getReservedVirtualCores()))) {
+      return assignment;
+    }
+
+    ResourceLimits childLimits =
+        getResourceLimitsOfChild(child, clusterResource, resourceLimits);
+    CSAssignment assignedToChild;
+    if (child instanceof ParentQueue) {
+      assignedToChild = ((ParentQueue) child).commitProposal(clusterResource,
+          proposal, childLimits);
+    } else {
+      assignedToChild = ((LeafQueue) child).commitProposal(clusterResource,
+          proposal, childLimits);
+    }
+    assignment.setType(assignedToChild.getType());
+    if (Resources.greaterThan(resourceCalculator, clusterResource,
+        assignedToChild.getResource(), Resources.none())) {
+      super.allocateResource(clusterResource, assignedToChild.getResource(),
+          nodeLabels, assignedToChild.getContainersToResume().size() > 0);
+      assignment.merge(assignedToChild);
+
+      // Remove and re-insert to sort, the child is found by identity as its
+      // usage already changed
+      for (Iterator<CSQueue> iter = childQueues.iterator(); iter.hasNext();) {
+        if (iter.next() == child) {
+          iter.remove();
+          break;
+        }
+      }
+      childQueues.add(child);
+    }
+    return assignment;
+  }
+
+  /**
+   * @return the child queue which is the given queue or one of its
+   * ancestors, null if the queue is not below this queue anymore
+   */
+  private CSQueue getChildQueueTowards(CSQueue queue) {
+    for (CSQueue q = queue; q != null; q = q.getParent()) {
+      if (q.getParent() == this) {
+        for (CSQueue child : childQueues) {
+          if (child == q) {
+            return child;
+          }
+        }
+        return null;
+      }
+    }
+    return null;
+  }
+
   String getChildQueuesToPrint() {
     StringBuilder sb = new StringBuilder();
     for (CSQueue q : childQueues) {
@@ -0,0 +1,83 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.yarn.server.resourcemanager.scheduler.capacity;
+
+import java.util.Comparator;
+
+import org.apache.hadoop.classification.InterfaceAudience.Private;
+import org.apache.hadoop.classification.InterfaceStability.Unstable;
+
+/**
+ * Order in which a queue resumes the containers suspended on a node. The
+ * first container of the order is resumed first.
+ *
+ * Candidates which the policy considers equal are resumed in the order they
+ * were suspended.
+ */
+@Private
+@Unstable
+public abstract class ResumeOrderingPolicy
+	implements Comparator<ResumeOrderingPolicy.Candidate> {
+
+	/**
+	 * A suspended container, as seen when it was last indexed.
+	 */
+	public interface Candidate {
+		/**
+		 * @return the absolute deadline of the container, 0 if it has none
+		 */
+		long getDeadline();
+
+		/**
+		 * @return when the container was suspended while running in full
+		 */
+		long getSuspendTime();
+
+		/**
+		 * @return how long the container ran before it was suspended
+		 */
+		long getRunTime();
+
+		long getPreemptedMemory();
+
+		/**
+		 * @return the rank of the container among the suspended containers
+		 */
+		long getSequence();
+	}
+
+	protected abstract int compareCandidates(Candidate a, Candidate b);
+
+	@Override
+	public final int compare(Candidate a, Candidate b) {
+		int c = compareCandidates(a, b);
+		if (c == 0) {
+			c = Long.compare(a.getSequence(), b.getSequence());
+		}
+		return c;
+	}
+
+	/**
+	 * @return the deadline of the candidate, containers without deadline
+	 * being the last ones
+	 */
+	protected static long getDeadlineOrMax(Candidate candidate) {
+		return candidate.getDeadline() > 0 ? candidate.getDeadline()
+			: Long.MAX_VALUE;
+	}
+}
@@ -0,0 +1,216 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.yarn.server.resourcemanager.scheduler.capacity;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+import org.apache.hadoop.yarn.api.records.ApplicationAttemptId;
+import org.apache.hadoop.yarn.api.records.ContainerId;
+import org.apache.hadoop.yarn.api.records.NodeId;
+import org.apache.hadoop.yarn.api.records.Resource;
+import org.apache.hadoop.yarn.server.resourcemanager.rmcontainer.RMContainer;
+
+/**
+ * Suspended containers of a queue indexed by node, each node keeping its
+ * containers in resume order, so that the containers to resume on a node are
+ * found without walking every suspended container of the queue.
+ *
+ * The sort keys are taken when a container is indexed, a container whose
+ * preempted resource changes has to be indexed again.
+ *
+ * This class is not thread-safe, it is guarded by the lock of its queue.
+ */
+class SuspendedContainerIndex {
+
+	static class Entry implements ResumeOrderingPolicy.Candidate {
+		private final RMContainer container;
+		private final ApplicationAttemptId applicationAttemptId;
+		private final long deadline;
+		private final long suspendTime;
+		private final long runTime;
+		private final long preemptedMemory;
+		private final long sequence;
+
+		private Entry(RMContainer container,
+			ApplicationAttemptId applicationAttemptId, long suspendTime,
+			long sequence) {
+			this.container = container;
+			this.applicationAttemptId = applicationAttemptId;
+			this.deadline = container.getContainer().getDeadline();
+			this.suspendTime = suspendTime;
+			long creationTime = container.getCreationTime();
+			this.runTime = creationTime > 0 && creationTime < suspendTime
+				? suspendTime - creationTime : 0;
+			Resource preempted = container.getPreemptedResource();
+			this.preemptedMemory = preempted == null ? 0 : preempted.getMemory();
+			this.sequence = sequence;
+		}
+
+		RMContainer getContainer() {
+			return container;
+		}
+
+		ApplicationAttemptId getApplicationAttemptId() {
+			return applicationAttemptId;
+		}
+
+		@Override
+		public long getDeadline() {
+			return deadline;
+		}
+
+		@Override
+		public long getSuspendTime() {
+			return suspendTime;
+		}
+
+		@Override
+		public long getRunTime() {
+			return runTime;
+		}
+
+		@Override
+		public long getPreemptedMemory() {
+			return preemptedMemory;
+		}
+
+		@Override
+		public long getSequence() {
+			return sequence;
+		}
+	}
+
+	private final Map<ContainerId, Entry> entries =
+		new HashMap<ContainerId, Entry>();
+	private final Map<NodeId, NavigableSet<Entry>> nodes =
+		new HashMap<NodeId, NavigableSet<Entry>>();
+	private ResumeOrderingPolicy order;
+	private long nextSequence = 0;
+
+	SuspendedContainerIndex() {
+		this(new EdfResumeOrderingPolicy());
+	}
+
+	SuspendedContainerIndex(ResumeOrderingPolicy order) {
+		this.order = order;
+	}
+
+	ResumeOrderingPolicy getOrder() {
+		return order;
+	}
+
+	/**
+	 * Sort the containers of every node again with the given order.
+	 */
+	void setOrder(ResumeOrderingPolicy order) {
+		this.order = order;
+		for (Map.Entry<NodeId, NavigableSet<Entry>> node : nodes.entrySet()) {
+			NavigableSet<Entry> nodeEntries = new TreeSet<Entry>(order);
+			nodeEntries.addAll(node.getValue());
+			node.setValue(nodeEntries);
+		}
+	}
+
+	/**
+	 * Index a container which was just suspended, or index it again after its
+	 * preempted resource changed. A container keeps the suspend time and the
+	 * rank among equals it got when it was first indexed.
+	 */
+	void update(ApplicationAttemptId applicationAttemptId, RMContainer container,
+		long now) {
+		Entry previous = remove(container.getContainerId());
+		Entry entry;
+		if (previous == null) {
+			entry = new Entry(container, applicationAttemptId, now, nextSequence++);
+		} else {
+			entry = new Entry(container, applicationAttemptId,
+				previous.suspendTime, previous.sequence);
+		}
+		NodeId nodeId = container.getContainer().getNodeId();
+		NavigableSet<Entry> nodeEntries = nodes.get(nodeId);
+		if (nodeEntries == null) {
+			nodeEntries = new TreeSet<Entry>(order);
+			nodes.put(nodeId, nodeEntries);
+		}
+		nodeEntries.add(entry);
+		entries.put(container.getContainerId(), entry);
+	}
+
+	/**
+	 * Drop a container which was fully resumed or completed.
+	 * @return the entry of the container, null if it was not indexed
+	 */
+	Entry remove(ContainerId containerId) {
+		Entry entry = entries.remove(containerId);
+		if (entry == null) {
+			return null;
+		}
+		NodeId nodeId = entry.container.getContainer().getNodeId();
+		NavigableSet<Entry> nodeEntries = nodes.get(nodeId);
+		nodeEntries.remove(entry);
+		if (nodeEntries.isEmpty()) {
+			nodes.remove(nodeId);
+		}
+		return entry;
+	}
+
+	/**
+	 * Drop all the containers of an application attempt.
+	 */
+	void removeApplication(ApplicationAttemptId applicationAttemptId) {
+		Iterator<Entry> it = entries.values().iterator();
+		while (it.hasNext()) {
+			Entry entry = it.next();
+			if (entry.applicationAttemptId.equals(applicationAttemptId)) {
+				it.remove();
+				NodeId nodeId = entry.container.getContainer().getNodeId();
+				NavigableSet<Entry> nodeEntries = nodes.get(nodeId);
+				nodeEntries.remove(entry);
+				if (nodeEntries.isEmpty()) {
+					nodes.remove(nodeId);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the containers suspended on the node, in resume order. The
+	 * iteration must stop once the index is modified.
+	 */
+	Iterable<Entry> getCandidates(NodeId nodeId) {
+		NavigableSet<Entry> nodeEntries = nodes.get(nodeId);
+		if (nodeEntries == null) {
+			return Collections.emptySet();
+		}
+		return nodeEntries;
+	}
+
+	boolean contains(ContainerId containerId) {
+		return entries.containsKey(containerId);
+	}
+
+	int size() {
+		return entries.size();
+	}
+}
@@ -149,6 +149,7 @@ public class FiCaSchedulerApp extends SchedulerApplicationAttempt {
 			//add to suspended set if this container is first suspended
 			containersSuspended.add(containerId);
 		}
+		containersChanged();
 
 		// Inform the container
 
@@ -180,6 +181,7 @@ public class FiCaSchedulerApp extends SchedulerApplicationAttempt {
 		if (null == liveContainers.remove(rmContainer.getContainerId())) {
 			return false;
 		}
+		containersChanged();
 
 		// Remove from the list of newly allocated containers if found
 		newlyAllocatedContainers.remove(rmContainer);
@@ -238,6 +240,7 @@ public class FiCaSchedulerApp extends SchedulerApplicationAttempt {
 		}
 		//add resumed resource
 		rmContainer.addResumedResource(toResume);
+		containersChanged();
 
 		//we try to update its resource consumption
 		rmContainer.handle(
@@ -295,6 +298,7 @@ public class FiCaSchedulerApp extends SchedulerApplicationAttempt {
 		// Add it to allContainers list.
 		newlyAllocatedContainers.add(rmContainer);
 		liveContainers.put(container.getId(), rmContainer);
+		containersChanged();
 
 		// Update consumption and track allocations
 		List<ResourceRequest> resourceRequestList = appSchedulingInfo.allocate(type, node, priority, request, container);
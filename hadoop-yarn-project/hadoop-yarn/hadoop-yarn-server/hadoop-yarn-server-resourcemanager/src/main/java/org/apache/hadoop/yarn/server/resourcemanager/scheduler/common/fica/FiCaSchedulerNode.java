@@ -19,15 +19,20 @@
 package org.apache.hadoop.yarn.server.resourcemanager.scheduler.common.fica;
 
 
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.yarn.api.records.ApplicationAttemptId;
+import org.apache.hadoop.yarn.api.records.ContainerId;
 import org.apache.hadoop.yarn.api.records.Priority;
 import org.apache.hadoop.yarn.nodelabels.CommonNodeLabelsManager;
 import org.apache.hadoop.yarn.server.resourcemanager.rmcontainer.RMContainer;
 import org.apache.hadoop.yarn.server.resourcemanager.rmnode.RMNode;
+import org.apache.hadoop.yarn.server.resourcemanager.scheduler.QueueMetrics;
 import org.apache.hadoop.yarn.server.resourcemanager.scheduler.SchedulerApplicationAttempt;
 import org.apache.hadoop.yarn.server.resourcemanager.scheduler.SchedulerNode;
 
@@ -35,6 +40,15 @@ public class FiCaSchedulerNode extends SchedulerNode {
 
 	private static final Log LOG = LogFactory.getLog(FiCaSchedulerNode.class);
 
+	// suspended container the node keeps its freed resource for, so that new
+	// allocations do not starve it
+	private RMContainer resumeReservedContainer;
+	private QueueMetrics resumeReservationMetrics;
+	private long resumeReservationTime = -1;
+	// suspended container -> when its resume reservation of the node timed out
+	private final Map<ContainerId, Long> expiredResumeReservations =
+		new HashMap<ContainerId, Long>();
+
 	public FiCaSchedulerNode(RMNode node, boolean usePortForNodeName,
 	                         Set<String> nodeLabels) {
 		super(node, usePortForNodeName, nodeLabels);
@@ -115,4 +129,97 @@ public class FiCaSchedulerNode extends SchedulerNode {
 		}
 		setReservedContainer(null);
 	}
+
+	/**
+	 * Reserve the node to resume a suspended container on it: until the
+	 * reservation is dropped no other container is allocated or resumed here.
+	 *
+	 * @param metrics metrics of the queue of the container
+	 * @param time    start of the reservation
+	 */
+	public synchronized void reserveForResume(RMContainer container,
+		QueueMetrics metrics, long time) {
+		if (resumeReservedContainer != null) {
+			throw new IllegalStateException("Trying to reserve node " + this
+				+ " to resume container " + container.getContainerId()
+				+ " when currently reserved to resume container "
+				+ resumeReservedContainer.getContainerId());
+		}
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("Reserved node " + this + " to resume container "
+				+ container.getContainerId());
+		}
+		resumeReservedContainer = container;
+		resumeReservationMetrics = metrics;
+		resumeReservationTime = time;
+		metrics.reserveForResume();
+	}
+
+	/**
+	 * Drop the resume reservation of the node, if any.
+	 *
+	 * @param timedOut true if the container could not be resumed in time
+	 */
+	public synchronized void unreserveForResume(boolean timedOut) {
+		if (resumeReservedContainer == null) {
+			return;
+		}
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("Unreserved node " + this + " to resume container "
+				+ resumeReservedContainer.getContainerId()
+				+ (timedOut ? " after timeout" : ""));
+		}
+		resumeReservationMetrics.unreserveForResume(timedOut);
+		if (timedOut) {
+			// forget the containers which are not suspended here anymore
+			Iterator<ContainerId> expired =
+				expiredResumeReservations.keySet().iterator();
+			while (expired.hasNext()) {
+				if (!getSuspendedContainers().contains(expired.next())) {
+					expired.remove();
+				}
+			}
+			expiredResumeReservations.put(
+				resumeReservedContainer.getContainerId(), System.currentTimeMillis());
+		}
+		resumeReservedContainer = null;
+		resumeReservationMetrics = null;
+		resumeReservationTime = -1;
+	}
+
+	/**
+	 * Check whether a suspended container may reserve the node to resume. A
+	 * container whose reservation of the node timed out has to wait for the
+	 * backoff before reserving it again, so that the node takes new
+	 * allocations in the meantime.
+	 *
+	 * @param now     current time
+	 * @param backoff time to wait after a reservation timed out
+	 */
+	public synchronized boolean canReserveForResume(ContainerId containerId,
+		long now, long backoff) {
+		Long expired = expiredResumeReservations.get(containerId);
+		if (expired == null) {
+			return true;
+		}
+		if (now - expired < backoff) {
+			return false;
+		}
+		expiredResumeReservations.remove(containerId);
+		return true;
+	}
+
+	/**
+	 * @return the suspended container the node is reserved for, null if none
+	 */
+	public synchronized RMContainer getResumeReservedContainer() {
+		return resumeReservedContainer;
+	}
+
+	/**
+	 * @return the start of the resume reservation, -1 if none
+	 */
+	public synchronized long getResumeReservationTime() {
+		return resumeReservationTime;
+	}
 }
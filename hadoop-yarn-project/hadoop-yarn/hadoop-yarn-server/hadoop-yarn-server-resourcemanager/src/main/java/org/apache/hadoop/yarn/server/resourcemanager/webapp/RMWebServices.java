@@ -101,6 +101,7 @@ import org.apache.hadoop.yarn.exceptions.YarnException;
 import org.apache.hadoop.yarn.exceptions.YarnRuntimeException;
 import org.apache.hadoop.yarn.factories.RecordFactory;
 import org.apache.hadoop.yarn.factory.providers.RecordFactoryProvider;
+import org.apache.hadoop.yarn.security.YarnAuthorizationProvider;
 import org.apache.hadoop.yarn.security.client.RMDelegationTokenIdentifier;
 import org.apache.hadoop.yarn.server.resourcemanager.RMAuditLogger;
 import org.apache.hadoop.yarn.server.resourcemanager.RMAuditLogger.AuditConstants;
@@ -108,14 +109,19 @@ import org.apache.hadoop.yarn.server.resourcemanager.RMServerUtils;
 import org.apache.hadoop.yarn.server.resourcemanager.ResourceManager;
 import org.apache.hadoop.yarn.server.resourcemanager.rmapp.RMApp;
 import org.apache.hadoop.yarn.server.resourcemanager.rmapp.attempt.RMAppAttempt;
+import org.apache.hadoop.yarn.server.resourcemanager.rmcontainer.RMContainer;
 import org.apache.hadoop.yarn.server.resourcemanager.rmnode.RMNode;
+import org.apache.hadoop.yarn.server.resourcemanager.scheduler.AbstractYarnScheduler;
 import org.apache.hadoop.yarn.server.resourcemanager.scheduler.ResourceScheduler;
+import org.apache.hadoop.yarn.server.resourcemanager.scheduler.SchedulerApplicationAttempt;
 import org.apache.hadoop.yarn.server.resourcemanager.scheduler.capacity.CSQueue;
 import org.apache.hadoop.yarn.server.resourcemanager.scheduler.capacity.CapacityScheduler;
 import org.apache.hadoop.yarn.server.resourcemanager.scheduler.fair.FairScheduler;
 import org.apache.hadoop.yarn.server.resourcemanager.scheduler.fifo.FifoScheduler;
 import org.apache.hadoop.yarn.server.resourcemanager.webapp.dao.AppAttemptInfo;
 import org.apache.hadoop.yarn.server.resourcemanager.webapp.dao.AppAttemptsInfo;
+import org.apache.hadoop.yarn.server.resourcemanager.webapp.dao.AppContainerInfo;
+import org.apache.hadoop.yarn.server.resourcemanager.webapp.dao.AppContainersInfo;
 import org.apache.hadoop.yarn.server.resourcemanager.webapp.dao.NewApplication;
 import org.apache.hadoop.yarn.server.resourcemanager.webapp.dao.AppInfo;
 import org.apache.hadoop.yarn.server.resourcemanager.webapp.dao.AppState;
@@ -140,6 +146,7 @@ import org.apache.hadoop.yarn.server.resourcemanager.webapp.dao.StatisticsItemIn
 import org.apache.hadoop.yarn.server.resourcemanager.webapp.dao.NodeLabelsInfo;
 import org.apache.hadoop.yarn.server.resourcemanager.webapp.dao.NodeToLabelsInfo;
 import org.apache.hadoop.yarn.server.utils.BuilderUtils;
+import org.apache.hadoop.yarn.server.utils.SchedulingTrace;
 import org.apache.hadoop.yarn.util.ConverterUtils;
 import org.apache.hadoop.yarn.webapp.BadRequestException;
 import org.apache.hadoop.yarn.webapp.NotFoundException;
@@ -240,6 +247,31 @@ public class RMWebServices {
 		return new SchedulerTypeInfo(sinfo);
 	}
 
+	/**
+	 * Returns the binary dump of the scheduling trace, decoded offline with
+	 * SchedulingTrace. The trace holds the apps and containers of all users,
+	 * so only admins can read it.
+	 */
+	@GET
+	@Path("/scheduler-trace")
+	@Produces(MediaType.APPLICATION_OCTET_STREAM)
+	public byte[] getSchedulingTrace(@Context HttpServletRequest hsr)
+		throws AuthorizationException {
+		init();
+		UserGroupInformation callerUGI = getCallerUserGroupInformation(hsr, true);
+		if (callerUGI == null) {
+			String msg = "Unable to obtain user name, user not authenticated for"
+				+ " get to .../scheduler-trace";
+			throw new AuthorizationException(msg);
+		}
+		if (!YarnAuthorizationProvider.getInstance(conf).isAdmin(callerUGI)) {
+			String msg = "User " + callerUGI.getShortUserName() + " not authorized"
+				+ " for get to .../scheduler-trace";
+			throw new AuthorizationException(msg);
+		}
+		return SchedulingTrace.get().getDump();
+	}
+
 	/**
 	 * Returns all nodes in the cluster. If the states param is given, returns
 	 * all nodes that are in the comma-separated list of states.
@@ -656,6 +688,44 @@ public class RMWebServices {
 		return appAttemptsInfo;
 	}
 
+	@GET
+	@Path("/apps/{appid}/containers")
+	@Produces({MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML})
+	public AppContainersInfo getAppContainers(@PathParam("appid") String appId) {
+
+		init();
+		if (appId == null || appId.isEmpty()) {
+			throw new NotFoundException("appId, " + appId + ", is empty or null");
+		}
+		ApplicationId id;
+		id = ConverterUtils.toApplicationId(recordFactory, appId);
+		if (id == null) {
+			throw new NotFoundException("appId is null");
+		}
+		RMApp app = rm.getRMContext().getRMApps().get(id);
+		if (app == null) {
+			throw new NotFoundException("app with id: " + appId + " not found");
+		}
+
+		AppContainersInfo containersInfo = new AppContainersInfo();
+		RMAppAttempt attempt = app.getCurrentAppAttempt();
+		ResourceScheduler rs = rm.getResourceScheduler();
+		if (attempt == null || !(rs instanceof AbstractYarnScheduler)) {
+			return containersInfo;
+		}
+		SchedulerApplicationAttempt schedulerAttempt =
+			((AbstractYarnScheduler<?, ?>) rs).getApplicationAttempt(
+				attempt.getAppAttemptId());
+		if (schedulerAttempt != null) {
+			long now = System.currentTimeMillis();
+			for (RMContainer container : schedulerAttempt.getLiveContainers()) {
+				containersInfo.add(new AppContainerInfo(container, now));
+			}
+		}
+
+		return containersInfo;
+	}
+
 	@GET
 	@Path("/apps/{appid}/state")
 	@Produces({MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML})
@@ -0,0 +1,124 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.yarn.server.resourcemanager.webapp.dao;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlRootElement;
+
+import org.apache.hadoop.yarn.api.records.Resource;
+import org.apache.hadoop.yarn.server.resourcemanager.rmcontainer.RMContainer;
+import org.apache.hadoop.yarn.server.resourcemanager.rmcontainer.SuspendHistory;
+
+/**
+ * A live container of an application as seen by the RM, including how much of
+ * it is suspended and how long it spent suspended.
+ */
+@XmlRootElement(name = "container")
+@XmlAccessorType(XmlAccessType.FIELD)
+public class AppContainerInfo {
+
+  protected String containerId;
+  protected String nodeId;
+  protected String state;
+  protected long creationTime;
+  protected ResourceInfo allocatedResource;
+  protected ResourceInfo usedResource;
+  protected ResourceInfo preemptedResource;
+  protected boolean suspended;
+  protected int suspendCount;
+  protected int resumeCount;
+  protected long lastSuspendTime;
+  protected long lastResumeTime;
+  protected long totalSuspendedTime;
+
+  public AppContainerInfo() {
+  } // JAXB needs this
+
+  public AppContainerInfo(RMContainer container, long now) {
+    this.containerId = container.getContainerId().toString();
+    this.nodeId = String.valueOf(container.getAllocatedNode());
+    this.state = String.valueOf(container.getState());
+    this.creationTime = container.getCreationTime();
+    this.allocatedResource =
+        new ResourceInfo(container.getContainer().getResource());
+    this.usedResource = new ResourceInfo(container.getCurrentUsedResource());
+    Resource preempted = container.getPreemptedResource();
+    this.preemptedResource = new ResourceInfo(
+        preempted == null ? Resource.newInstance(0, 0) : preempted);
+    this.suspended = container.isSuspending();
+    SuspendHistory history = container.getSuspendHistory();
+    this.suspendCount = history.getSuspendCount();
+    this.resumeCount = history.getResumeCount();
+    this.lastSuspendTime = history.getLastSuspendTime();
+    this.lastResumeTime = history.getLastResumeTime();
+    this.totalSuspendedTime = history.getTotalSuspendedTime(now);
+  }
+
+  public String getContainerId() {
+    return this.containerId;
+  }
+
+  public String getNodeId() {
+    return this.nodeId;
+  }
+
+  public String getState() {
+    return this.state;
+  }
+
+  public long getCreationTime() {
+    return this.creationTime;
+  }
+
+  public ResourceInfo getAllocatedResource() {
+    return this.allocatedResource;
+  }
+
+  public ResourceInfo getUsedResource() {
+    return this.usedResource;
+  }
+
+  public ResourceInfo getPreemptedResource() {
+    return this.preemptedResource;
+  }
+
+  public boolean isSuspended() {
+    return this.suspended;
+  }
+
+  public int getSuspendCount() {
+    return this.suspendCount;
+  }
+
+  public int getResumeCount() {
+    return this.resumeCount;
+  }
+
+  public long getLastSuspendTime() {
+    return this.lastSuspendTime;
+  }
+
+  public long getLastResumeTime() {
+    return this.lastResumeTime;
+  }
+
+  public long getTotalSuspendedTime() {
+    return this.totalSuspendedTime;
+  }
+}
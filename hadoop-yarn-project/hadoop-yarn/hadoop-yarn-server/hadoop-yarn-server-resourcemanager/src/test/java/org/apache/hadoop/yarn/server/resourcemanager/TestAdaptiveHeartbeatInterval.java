@@ -0,0 +1,123 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.yarn.server.resourcemanager;
+
+import static org.junit.Assert.assertEquals;
+
+import org.apache.hadoop.yarn.api.records.NodeId;
+import org.apache.hadoop.yarn.exceptions.YarnRuntimeException;
+import org.apache.hadoop.yarn.util.ControlledClock;
+import org.apache.hadoop.yarn.util.SystemClock;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestAdaptiveHeartbeatInterval {
+
+  private final NodeId node1 = NodeId.newInstance("host1", 1234);
+  private final NodeId node2 = NodeId.newInstance("host2", 1234);
+  private ControlledClock clock;
+
+  @Before
+  public void setup() {
+    clock = new ControlledClock(new SystemClock());
+    clock.setTime(10000);
+  }
+
+  private AdaptiveHeartbeatInterval create(int maxHeartbeatsPerSecond) {
+    return new AdaptiveHeartbeatInterval(1000, 100, 8000, 1.0f,
+        maxHeartbeatsPerSecond, clock);
+  }
+
+  @Test
+  public void testIntervalFollowsActivity() {
+    AdaptiveHeartbeatInterval intervals = create(0);
+    // first heartbeat of a node with containers
+    assertEquals(1000, intervals.getInterval(node1, 1000, false, 0, 2));
+
+    // container updates were sent, the node comes back quickly
+    clock.setTime(11000);
+    assertEquals(100, intervals.getInterval(node1, 1000, true, 0, 2));
+    // the scheduler asks for its own urgent interval
+    clock.setTime(11100);
+    assertEquals(300, intervals.getInterval(node1, 300, false, 0, 2));
+
+    // 4 allocations in 400ms, 10 per second, 10 times the busy rate
+    clock.setTime(11500);
+    assertEquals(100, intervals.getInterval(node1, 1000, false, 4, 6));
+    // 1 allocation in 500ms, twice the busy rate
+    clock.setTime(12000);
+    assertEquals(500, intervals.getInterval(node1, 1000, false, 5, 6));
+    // no allocation but containers running
+    clock.setTime(12500);
+    assertEquals(1000, intervals.getInterval(node1, 1000, false, 5, 6));
+
+    // idle, the interval doubles up to the maximum
+    long[] expected = {2000, 4000, 8000, 8000};
+    for (long interval : expected) {
+      clock.setTime(clock.getTime() + 1000);
+      assertEquals(interval, intervals.getInterval(node1, 1000, false, 5, 0));
+    }
+    // an allocation brings the node back to the configured interval
+    clock.setTime(clock.getTime() + 8000);
+    assertEquals(1000, intervals.getInterval(node1, 1000, false, 6, 1));
+  }
+
+  @Test
+  public void testHeartbeatsPerSecondAreCapped() {
+    AdaptiveHeartbeatInterval intervals = create(15);
+    assertEquals(1000, intervals.getInterval(node1, 1000, false, 0, 1));
+    assertEquals(1.0, intervals.getHeartbeatsPerSecond(), 0.001);
+    // 10 heartbeats per second would fit
+    assertEquals(100, intervals.getInterval(node1, 1000, true, 0, 1));
+    assertEquals(10.0, intervals.getHeartbeatsPerSecond(), 0.001);
+    // 10 + 10 is above the cap, the intervals are stretched by 20 / 15
+    assertEquals(1000, intervals.getInterval(node2, 1000, false, 0, 1));
+    assertEquals(134, intervals.getInterval(node2, 1000, true, 0, 1));
+    assertEquals(134, intervals.getInterval(node1, 1000, true, 0, 1));
+    assertEquals(15.0, intervals.getHeartbeatsPerSecond(), 0.1);
+
+    // urgent nodes are never stretched beyond the configured interval
+    intervals = create(1);
+    intervals.getInterval(node1, 1000, false, 0, 1);
+    assertEquals(1000, intervals.getInterval(node2, 1000, true, 0, 1));
+
+    // a node leaving the cluster frees its heartbeats
+    intervals.removeNode(node2);
+    assertEquals(1.0, intervals.getHeartbeatsPerSecond(), 0.001);
+  }
+
+  @Test
+  public void testLostNodesAreForgotten() {
+    AdaptiveHeartbeatInterval intervals = create(0);
+    intervals.getInterval(node1, 1000, true, 0, 1);
+    intervals.getInterval(node2, 1000, false, 0, 1);
+    assertEquals(11.0, intervals.getHeartbeatsPerSecond(), 0.001);
+    // node1 stops heartbeating
+    for (int i = 1; i <= 40; i++) {
+      clock.setTime(10000 + i * 1000);
+      intervals.getInterval(node2, 1000, false, 0, 1);
+    }
+    assertEquals(1.0, intervals.getHeartbeatsPerSecond(), 0.001);
+  }
+
+  @Test(expected = YarnRuntimeException.class)
+  public void testInvalidIntervals() {
+    new AdaptiveHeartbeatInterval(1000, 2000, 8000, 1.0f, 0, clock);
+  }
+}
@@ -32,6 +32,7 @@ import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -95,6 +96,7 @@ import org.apache.hadoop.yarn.server.resourcemanager.recovery.RMStateStoreRMDTMa
 import org.apache.hadoop.yarn.server.resourcemanager.recovery.records.ApplicationAttemptStateData;
 import org.apache.hadoop.yarn.server.resourcemanager.recovery.records.ApplicationStateData;
 import org.apache.hadoop.yarn.server.resourcemanager.rmapp.RMApp;
+import org.apache.hadoop.yarn.server.resourcemanager.rmapp.RMAppImpl;
 import org.apache.hadoop.yarn.server.resourcemanager.rmapp.RMAppState;
 import org.apache.hadoop.yarn.server.resourcemanager.rmapp.attempt.RMAppAttempt;
 import org.apache.hadoop.yarn.server.resourcemanager.rmapp.attempt.RMAppAttemptState;
@@ -877,6 +879,79 @@ public class TestRMRestart extends ParameterizedSchedulerTestBase {
     Assert.assertEquals("trackingUrl", appReport.getOriginalTrackingUrl());
   }
 
+  @Test (timeout = 60000)
+  public void testRMRestartLazyCompletedApps() throws Exception {
+    conf.setBoolean(
+        YarnConfiguration.RM_RECOVERY_LAZY_COMPLETED_APPS_ENABLED, true);
+    MemoryRMStateStore memStore = new MemoryRMStateStore();
+    memStore.init(conf);
+    Map<ApplicationId, ApplicationStateData> rmAppState =
+        memStore.getState().getApplicationState();
+
+    // start RM
+    MockRM rm1 = createMockRM(conf, memStore);
+    rm1.start();
+    MockNM nm1 =
+        new MockNM("127.0.0.1:1234", 15120, rm1.getResourceTrackerService());
+    nm1.registerNode();
+
+    // a completed app and a running one
+    RMApp app0 = rm1.submitApp(200);
+    MockAM am0 = launchAM(app0, rm1, nm1);
+    FinishApplicationMasterRequest req =
+        FinishApplicationMasterRequest.newInstance(
+          FinalApplicationStatus.SUCCEEDED, "diagnostics", "trackingUrl");
+    finishApplicationMaster(app0, rm1, nm1, am0, req);
+    RMApp app1 = rm1.submitApp(200);
+    launchAM(app1, rm1, nm1);
+    ApplicationAttemptStateData attemptState0 = rmAppState
+        .get(app0.getApplicationId()).getAttempt(am0.getApplicationAttemptId());
+
+    // restart rm
+    MockRM rm2 = createMockRM(conf, memStore);
+    rm2.start();
+    ClusterMetrics metrics = ClusterMetrics.getMetrics();
+    long lazyRecoveries = metrics.getLazyAppAttemptRecoveries();
+    Assert.assertEquals(2, metrics.getNumRecoveredApps());
+    Assert.assertEquals(1, metrics.getNumLazilyRecoveredApps());
+    Assert.assertTrue(metrics.getRecoveryTime()
+        >= metrics.getRecoveryLoadStateTime());
+
+    // the completed app is recovered without its attempt
+    RMAppImpl recoveredApp0 = (RMAppImpl) rm2.getRMContext().getRMApps()
+        .get(app0.getApplicationId());
+    rm2.waitForState(app0.getApplicationId(), RMAppState.FINISHED);
+    Assert.assertTrue(recoveredApp0.hasLazyAppAttempts());
+    Assert.assertEquals(FinalApplicationStatus.SUCCEEDED,
+        recoveredApp0.getFinalApplicationStatus());
+    Assert.assertEquals(attemptState0.getMemorySeconds(),
+        recoveredApp0.getRMAppMetrics().getMemorySeconds());
+    Assert.assertEquals(Collections.singleton(am0.getApplicationAttemptId()),
+        recoveredApp0.getAppAttemptIds());
+    Assert.assertTrue(recoveredApp0.hasLazyAppAttempts());
+    RMAppImpl recoveredApp1 = (RMAppImpl) rm2.getRMContext().getRMApps()
+        .get(app1.getApplicationId());
+    Assert.assertFalse(recoveredApp1.hasLazyAppAttempts());
+    Assert.assertEquals(1, recoveredApp1.getAppAttempts().size());
+
+    // and recovers it when it is needed
+    ApplicationReport appReport = verifyAppReportAfterRMRestart(app0, rm2);
+    Assert.assertFalse(recoveredApp0.hasLazyAppAttempts());
+    Assert.assertEquals(lazyRecoveries + 1,
+        metrics.getLazyAppAttemptRecoveries());
+    Assert.assertEquals(FinalApplicationStatus.SUCCEEDED,
+        appReport.getFinalApplicationStatus());
+    Assert.assertEquals("trackingUrl", appReport.getOriginalTrackingUrl());
+    Assert.assertEquals(am0.getApplicationAttemptId(),
+        appReport.getCurrentApplicationAttemptId());
+    RMAppAttempt attempt0 = recoveredApp0.getCurrentAppAttempt();
+    Assert.assertEquals(RMAppAttemptState.FINISHED,
+        attempt0.getAppAttemptState());
+    Assert.assertEquals(1, recoveredApp0.getAppAttempts().size());
+    Assert.assertEquals(attemptState0.getMemorySeconds(),
+        recoveredApp0.getRMAppMetrics().getMemorySeconds());
+  }
+
   @Test (timeout = 60000)
   public void testRMRestartGetApplicationList() throws Exception {
     conf.setInt(YarnConfiguration.RM_AM_MAX_ATTEMPTS, 1);
@@ -0,0 +1,140 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.yarn.server.resourcemanager.monitor.capacity;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.hadoop.yarn.api.records.ApplicationAttemptId;
+import org.apache.hadoop.yarn.api.records.ApplicationId;
+import org.apache.hadoop.yarn.api.records.Container;
+import org.apache.hadoop.yarn.api.records.ContainerId;
+import org.apache.hadoop.yarn.server.resourcemanager.rmcontainer.RMContainer;
+import org.apache.hadoop.yarn.server.resourcemanager.scheduler.common.fica.FiCaSchedulerApp;
+import org.junit.Test;
+
+public class TestPreemptionCandidateIndex {
+
+  private static final long TS = 3141592653L;
+
+  private final ApplicationAttemptId appA = ApplicationAttemptId.newInstance(
+      ApplicationId.newInstance(TS, 0), 0);
+  private final ApplicationAttemptId appB = ApplicationAttemptId.newInstance(
+      ApplicationId.newInstance(TS, 1), 0);
+
+  @Test
+  public void testSortedByPreemptionPriority() {
+    RMContainer low = mockContainer(appA, 1, 0.5f);
+    RMContainer high = mockContainer(appA, 2, 3.0f);
+    RMContainer mid = mockContainer(appA, 3, 1.0f);
+    FiCaSchedulerApp app = mockApp(appA, 0, low, high, mid);
+
+    PreemptionCandidateIndex index = new PreemptionCandidateIndex();
+    assertEquals(Arrays.asList(high, mid, low),
+        index.getSortedContainers(app));
+  }
+
+  @Test
+  public void testReuseUntilContainersChange() {
+    RMContainer c1 = mockContainer(appA, 1, 1.0f);
+    RMContainer c2 = mockContainer(appA, 2, 2.0f);
+    FiCaSchedulerApp app = mockApp(appA, 0, c1, c2);
+
+    PreemptionCandidateIndex index = new PreemptionCandidateIndex();
+    index.getSortedContainers(app);
+    // the caller may modify the returned list
+    index.getSortedContainers(app).clear();
+    assertEquals(Arrays.asList(c2, c1), index.getSortedContainers(app));
+    verify(app, times(1)).getUnPreemtedContainers();
+    assertEquals(1, index.getMisses());
+    assertEquals(2, index.getHits());
+
+    // a new container is allocated
+    RMContainer c3 = mockContainer(appA, 3, 5.0f);
+    List<RMContainer> containers = new ArrayList<RMContainer>();
+    containers.add(c1);
+    containers.add(c2);
+    containers.add(c3);
+    when(app.getUnPreemtedContainers()).thenReturn(containers);
+    when(app.getContainersVersion()).thenReturn(1L);
+    assertEquals(Arrays.asList(c3, c2, c1), index.getSortedContainers(app));
+    assertEquals(2, index.getMisses());
+  }
+
+  @Test
+  public void testInvalidate() {
+    RMContainer c1 = mockContainer(appA, 1, 1.0f);
+    RMContainer c2 = mockContainer(appA, 2, 2.0f);
+    FiCaSchedulerApp app = mockApp(appA, 0, c1, c2);
+
+    PreemptionCandidateIndex index = new PreemptionCandidateIndex();
+    assertEquals(Arrays.asList(c2, c1), index.getSortedContainers(app));
+
+    // the policy raised the preemption priority of c1
+    when(c1.getContainer().getPreemptionPriority()).thenReturn(4.0f);
+    index.invalidate(appA);
+    assertEquals(Arrays.asList(c1, c2), index.getSortedContainers(app));
+  }
+
+  @Test
+  public void testPrune() {
+    FiCaSchedulerApp a = mockApp(appA, 0, mockContainer(appA, 1, 1.0f));
+    FiCaSchedulerApp b = mockApp(appB, 0, mockContainer(appB, 1, 1.0f));
+
+    PreemptionCandidateIndex index = new PreemptionCandidateIndex();
+    index.getSortedContainers(a);
+    index.getSortedContainers(b);
+    index.prune();
+    assertEquals(2, index.size());
+
+    // only a is a candidate in the next round
+    index.getSortedContainers(a);
+    index.prune();
+    assertEquals(1, index.size());
+    index.getSortedContainers(a);
+    assertEquals(2, index.getHits());
+  }
+
+  private FiCaSchedulerApp mockApp(ApplicationAttemptId appAttemptId,
+      long version, RMContainer... containers) {
+    FiCaSchedulerApp app = mock(FiCaSchedulerApp.class);
+    when(app.getApplicationAttemptId()).thenReturn(appAttemptId);
+    when(app.getContainersVersion()).thenReturn(version);
+    when(app.getUnPreemtedContainers()).thenReturn(
+        new ArrayList<RMContainer>(Arrays.asList(containers)));
+    return app;
+  }
+
+  private RMContainer mockContainer(ApplicationAttemptId appAttemptId, int id,
+      float preemptionPriority) {
+    Container c = mock(Container.class);
+    when(c.getPreemptionPriority()).thenReturn(preemptionPriority);
+    RMContainer rmContainer = mock(RMContainer.class);
+    when(rmContainer.getContainerId()).thenReturn(
+        ContainerId.newContainerId(appAttemptId, id));
+    when(rmContainer.getContainer()).thenReturn(c);
+    return rmContainer;
+  }
+}
@@ -0,0 +1,86 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.yarn.server.resourcemanager.monitor.capacity;
+
+import static org.apache.hadoop.yarn.server.resourcemanager.monitor.capacity.PreemptionCostModel.Action.KILL;
+import static org.apache.hadoop.yarn.server.resourcemanager.monitor.capacity.PreemptionCostModel.Action.SHRINK;
+import static org.apache.hadoop.yarn.server.resourcemanager.monitor.capacity.PreemptionCostModel.Action.SUSPEND;
+import static org.junit.Assert.assertEquals;
+
+import org.apache.hadoop.yarn.api.records.Resource;
+import org.junit.Test;
+
+public class TestPreemptionCostModel {
+
+  private static final long NO_DEADLINE = Long.MAX_VALUE;
+  private static final int UNKNOWN = -1;
+
+  private final PreemptionCostModel model =
+      new PreemptionCostModel(30000, 0.2f, 0.5f, 60000);
+  private final Resource current = Resource.newInstance(4096, 4);
+
+  @Test
+  public void testKillBarelyStarted() {
+    assertEquals(KILL, model.decide(current, current, 5000, 0.1f,
+        NO_DEADLINE, 0, UNKNOWN));
+    // the same container once it did more work than a suspension costs
+    assertEquals(SUSPEND, model.decide(current, current, 60000, 0.1f,
+        NO_DEADLINE, 0, UNKNOWN));
+  }
+
+  @Test
+  public void testShrinkUnusedMemory() {
+    Resource small = Resource.newInstance(512, 1);
+    assertEquals(SHRINK, model.decide(current, small, 5000, 0.1f,
+        NO_DEADLINE, 0, 1024));
+    // nothing is known to be unused until the NM reported the usage
+    assertEquals(KILL, model.decide(current, small, 5000, 0.1f,
+        NO_DEADLINE, 0, UNKNOWN));
+    // a container under pressure cannot give some back for free
+    assertEquals(KILL, model.decide(current, small, 5000, 0.1f,
+        NO_DEADLINE, 40, 1024));
+    // nor one which would be left without headroom above its usage
+    assertEquals(KILL, model.decide(current, small, 5000, 0.1f,
+        NO_DEADLINE, 0, 3000));
+    // more than it does not use
+    assertEquals(SUSPEND, model.decide(current,
+        Resource.newInstance(2048, 2), 60000, 0.1f, NO_DEADLINE, 0, 2000));
+    assertEquals(SHRINK, model.decide(current,
+        Resource.newInstance(2048, 2), 60000, 0.1f, NO_DEADLINE, 0, 1024));
+    // taking all of it back is no shrink
+    assertEquals(KILL, model.decide(current, Resource.newInstance(4096, 8),
+        5000, 0.1f, NO_DEADLINE, 0, 0));
+  }
+
+  @Test
+  public void testSuspendProgressOrDeadline() {
+    assertEquals(SUSPEND, model.decide(current, current, 5000, 0.6f,
+        NO_DEADLINE, 0, UNKNOWN));
+    assertEquals(SUSPEND, model.decide(current, current, 5000, 0.1f,
+        30000, 0, UNKNOWN));
+    assertEquals(KILL, model.decide(current, current, 5000, 0.1f,
+        120000, 0, UNKNOWN));
+  }
+
+  @Test
+  public void testSavedWork() {
+    assertEquals(0, PreemptionCostModel.savedWork(KILL, 5000));
+    assertEquals(5000, PreemptionCostModel.savedWork(SHRINK, 5000));
+    assertEquals(5000, PreemptionCostModel.savedWork(SUSPEND, 5000));
+  }
+}
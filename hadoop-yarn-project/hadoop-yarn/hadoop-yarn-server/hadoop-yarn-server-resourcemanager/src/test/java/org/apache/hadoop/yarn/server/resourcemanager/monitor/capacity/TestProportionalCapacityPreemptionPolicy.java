@@ -17,6 +17,7 @@
  */
 package org.apache.hadoop.yarn.server.resourcemanager.monitor.capacity;
 
+import static org.apache.hadoop.yarn.server.resourcemanager.monitor.capacity.ProportionalCapacityPreemptionPolicy.COST_BASED;
 import static org.apache.hadoop.yarn.server.resourcemanager.monitor.capacity.ProportionalCapacityPreemptionPolicy.MAX_IGNORED_OVER_CAPACITY;
 import static org.apache.hadoop.yarn.server.resourcemanager.monitor.capacity.ProportionalCapacityPreemptionPolicy.MONITORING_INTERVAL;
 import static org.apache.hadoop.yarn.server.resourcemanager.monitor.capacity.ProportionalCapacityPreemptionPolicy.NATURAL_TERMINATION_FACTOR;
@@ -25,6 +26,7 @@ import static org.apache.hadoop.yarn.server.resourcemanager.monitor.capacity.Pro
 import static org.apache.hadoop.yarn.server.resourcemanager.monitor.capacity.ProportionalCapacityPreemptionPolicy.WAIT_TIME_BEFORE_KILL;
 import static org.apache.hadoop.yarn.server.resourcemanager.scheduler.ContainerPreemptEventType.KILL_CONTAINER;
 import static org.apache.hadoop.yarn.server.resourcemanager.scheduler.ContainerPreemptEventType.PREEMPT_CONTAINER;
+import static org.apache.hadoop.yarn.server.resourcemanager.scheduler.ContainerPreemptEventType.SUSPEND_CONTAINER;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
@@ -64,6 +66,7 @@ import org.apache.hadoop.yarn.api.records.NodeId;
 import org.apache.hadoop.yarn.api.records.Resource;
 import org.apache.hadoop.yarn.conf.YarnConfiguration;
 import org.apache.hadoop.yarn.event.EventHandler;
+import org.apache.hadoop.yarn.server.resourcemanager.ClusterMetrics;
 import org.apache.hadoop.yarn.server.resourcemanager.MockRM;
 import org.apache.hadoop.yarn.server.resourcemanager.RMContext;
 import org.apache.hadoop.yarn.server.resourcemanager.monitor.SchedulingMonitor;
@@ -88,6 +91,8 @@ import org.junit.Test;
 import org.junit.rules.TestName;
 import org.mockito.ArgumentCaptor;
 import org.mockito.ArgumentMatcher;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.mortbay.log.Log;
 
 public class TestProportionalCapacityPreemptionPolicy {
@@ -98,6 +103,8 @@ public class TestProportionalCapacityPreemptionPolicy {
   boolean setAMContainer = false;
   boolean setLabeledContainer = false;
   float setAMResourcePercent = 0.0f;
+  long containerStartTime = 0;
+  long containerDeadline = 0;
   Random rand = null;
   Clock mClock = null;
   Configuration conf = null;
@@ -263,6 +270,7 @@ public class TestProportionalCapacityPreemptionPolicy {
       {   3,  0,  0,  0 },  // subqueues
     };
     conf.setLong(WAIT_TIME_BEFORE_KILL, killTime);
+    conf.setBoolean(COST_BASED, true);
     ProportionalCapacityPreemptionPolicy policy = buildPolicy(qData);
 
     // ensure all pending rsrc from A get preempted from other queues
@@ -275,7 +283,8 @@ public class TestProportionalCapacityPreemptionPolicy {
     policy.editSchedule();
     verify(mDisp, times(20)).handle(argThat(new IsPreemptionRequestFor(appC)));
 
-    // kill req sent
+    // kill req sent, the containers ran for less than a suspension costs
+    long kills = ClusterMetrics.getMetrics().getPreemptionKills();
     when(mClock.getTime()).thenReturn(killTime + 1);
     policy.editSchedule();
     verify(mDisp, times(30)).handle(evtCaptor.capture());
@@ -284,6 +293,109 @@ public class TestProportionalCapacityPreemptionPolicy {
       assertEquals(appC, e.getAppId());
       assertEquals(KILL_CONTAINER, e.getType());
     }
+    assertEquals(kills + 10, ClusterMetrics.getMetrics().getPreemptionKills());
+  }
+
+  @Test
+  public void testExpireSuspendNearDeadline() {
+    final long killTime = 10000L;
+    int[][] qData = new int[][]{
+      //  /   A   B   C
+      { 100, 40, 40, 20 },  // abs
+      { 100, 100, 100, 100 },  // maxCap
+      { 100,  0, 60, 40 },  // used
+      {  10, 10,  0,  0 },  // pending
+      {   0,  0,  0,  0 },  // reserved
+      {   3,  1,  1,  1 },  // apps
+      {  -1,  1,  1,  1 },  // req granularity
+      {   3,  0,  0,  0 },  // subqueues
+    };
+    conf.setLong(WAIT_TIME_BEFORE_KILL, killTime);
+    conf.setBoolean(COST_BASED, true);
+    // the containers started when their app arrived, and their deadline is
+    // 30s after the preemption expires, within the default slack of 60s
+    containerStartTime = TS;
+    containerDeadline = TS + killTime + 30000L;
+    ProportionalCapacityPreemptionPolicy policy = buildPolicy(qData);
+
+    when(mClock.getTime()).thenReturn(TS);
+    policy.editSchedule();
+    when(mClock.getTime()).thenReturn(TS + killTime / 2);
+    policy.editSchedule();
+    verify(mDisp, times(20)).handle(argThat(new IsPreemptionRequestFor(appC)));
+
+    // the containers ran for less than a suspension costs, but are suspended
+    // rather than killed so that they still make their deadline
+    long kills = ClusterMetrics.getMetrics().getPreemptionKills();
+    long suspends = ClusterMetrics.getMetrics().getPreemptionSuspends();
+    when(mClock.getTime()).thenReturn(TS + killTime + 1);
+    policy.editSchedule();
+    verify(mDisp, times(30)).handle(evtCaptor.capture());
+    List<ContainerPreemptEvent> events = evtCaptor.getAllValues();
+    for (ContainerPreemptEvent e : events.subList(20, 30)) {
+      assertEquals(appC, e.getAppId());
+      assertEquals(SUSPEND_CONTAINER, e.getType());
+    }
+    assertEquals(kills, ClusterMetrics.getMetrics().getPreemptionKills());
+    assertEquals(suspends + 10,
+        ClusterMetrics.getMetrics().getPreemptionSuspends());
+  }
+
+  @Test(timeout = 10000)
+  public void testQueueChangedWhileCloned() throws Exception {
+    int[][] qData = new int[][]{
+      //  /   A   B   C
+      { 100, 40, 40, 20 },  // abs
+      { 100, 100, 100, 100 },  // maxCap
+      { 100,  0, 60, 40 },  // used
+      {  10, 10,  0,  0 },  // pending
+      {   0,  0,  0,  0 },  // reserved
+      {   3,  1,  1,  1 },  // apps
+      {  -1,  1,  1,  1 },  // req granularity
+      {   3,  0,  0,  0 },  // subqueues
+    };
+    ProportionalCapacityPreemptionPolicy policy = buildPolicy(qData);
+    final LeafQueue queueA =
+        (LeafQueue) mCS.getRootQueue().getChildQueues().get(0);
+    final Resource[] pendingA =
+        new Resource[] { queueA.getTotalResourcePending() };
+    when(queueA.getTotalResourcePending()).thenAnswer(new Answer<Resource>() {
+      @Override
+      public Resource answer(InvocationOnMock invocation) {
+        synchronized (pendingA) {
+          return pendingA[0];
+        }
+      }
+    });
+    // the app of A gives up its request under the scheduler lock, as soon as
+    // the policy starts copying A
+    final Thread scheduler = new Thread() {
+      @Override
+      public void run() {
+        synchronized (mCS) {
+          synchronized (pendingA) {
+            pendingA[0] = Resource.newInstance(0, 0);
+          }
+        }
+      }
+    };
+    final float absUsedA = queueA.getAbsoluteUsedCapacity();
+    when(queueA.getAbsoluteUsedCapacity()).thenAnswer(new Answer<Float>() {
+      @Override
+      public Float answer(InvocationOnMock invocation) throws Exception {
+        if (scheduler.getState() == Thread.State.NEW) {
+          scheduler.start();
+          scheduler.join(500);
+        }
+        return absUsedA;
+      }
+    });
+
+    policy.editSchedule();
+    scheduler.join();
+    // the copy of A is the one from before the change, so C still gives back
+    // what A asked for
+    verify(mDisp, times(10)).handle(argThat(new IsPreemptionRequestFor(appC)));
   }
 
   @Test
@@ -737,6 +849,37 @@ public class TestProportionalCapacityPreemptionPolicy {
     assert containers.get(4).equals(rm5);
 
   }
+
+  @Test
+  public void testUnderMemoryPressureFirst() {
+    ApplicationAttemptId appAttId = ApplicationAttemptId.newInstance(
+        ApplicationId.newInstance(TS, 10), 0);
+    RMContainer rm1 = mockContainer(appAttId, 1, mock(Resource.class), 1);
+    RMContainer rm2 = mockContainer(appAttId, 2, mock(Resource.class), 1);
+    RMContainer rm3 = mockContainer(appAttId, 3, mock(Resource.class), 1);
+    RMContainer rm4 = mockContainer(appAttId, 4, mock(Resource.class), 1);
+    List<RMContainer> containers = new ArrayList<RMContainer>();
+    containers.add(rm1);
+    containers.add(rm2);
+    containers.add(rm3);
+    containers.add(rm4);
+
+    // nobody is under pressure, the order is kept as is
+    assertTrue(containers == ProportionalCapacityPreemptionPolicy
+        .underMemoryPressureFirst(containers, 50));
+
+    when(rm2.getMemoryPressure()).thenReturn(40);
+    when(rm3.getMemoryPressure()).thenReturn(90);
+    when(rm4.getMemoryPressure()).thenReturn(50);
+    List<RMContainer> ordered = ProportionalCapacityPreemptionPolicy
+        .underMemoryPressureFirst(containers, 50);
+    // pressured containers first, each group keeps its relative order
+    assertEquals(4, ordered.size());
+    assertEquals(rm3, ordered.get(0));
+    assertEquals(rm4, ordered.get(1));
+    assertEquals(rm1, ordered.get(2));
+    assertEquals(rm2, ordered.get(3));
+  }
   
   @Test
   public void testPolicyInitializeAfterSchedulerInitialized() {
@@ -1112,6 +1255,9 @@ public class TestProportionalCapacityPreemptionPolicy {
     when(mC.getContainerId()).thenReturn(cId);
     when(mC.getContainer()).thenReturn(c);
     when(mC.getApplicationAttemptId()).thenReturn(appAttId);
+    when(mC.getCreationTime()).thenReturn(containerStartTime);
+    when(mC.getArrivalTime()).thenReturn(containerStartTime);
+    when(mC.getDeadline()).thenReturn(containerDeadline);
     if (priority.AMCONTAINER.getValue() == cpriority) {
       when(mC.isAMContainer()).thenReturn(true);
     }
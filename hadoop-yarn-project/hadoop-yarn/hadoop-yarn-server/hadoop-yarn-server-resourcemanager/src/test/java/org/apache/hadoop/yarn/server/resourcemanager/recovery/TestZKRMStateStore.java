@@ -26,6 +26,8 @@ import static org.mockito.Mockito.when;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.crypto.SecretKey;
 
@@ -42,15 +44,20 @@ import org.apache.hadoop.yarn.api.records.ApplicationAttemptId;
 import org.apache.hadoop.yarn.api.records.ApplicationId;
 import org.apache.hadoop.yarn.api.records.ApplicationSubmissionContext;
 import org.apache.hadoop.yarn.api.records.Container;
+import org.apache.hadoop.yarn.api.records.ContainerId;
 import org.apache.hadoop.yarn.api.records.FinalApplicationStatus;
 import org.apache.hadoop.yarn.api.records.impl.pb.ApplicationSubmissionContextPBImpl;
 import org.apache.hadoop.yarn.api.records.impl.pb.ContainerPBImpl;
 import org.apache.hadoop.yarn.conf.HAUtil;
 import org.apache.hadoop.yarn.conf.YarnConfiguration;
+import org.apache.hadoop.yarn.event.Dispatcher;
+import org.apache.hadoop.yarn.event.Event;
+import org.apache.hadoop.yarn.event.EventHandler;
 import org.apache.hadoop.yarn.security.client.RMDelegationTokenIdentifier;
 import org.apache.hadoop.yarn.server.records.Version;
 import org.apache.hadoop.yarn.server.records.impl.pb.VersionPBImpl;
 import org.apache.hadoop.yarn.server.resourcemanager.ResourceManager;
+import org.apache.hadoop.yarn.server.resourcemanager.recovery.RMStateStore.RMState;
 import org.apache.hadoop.yarn.server.resourcemanager.recovery.records.ApplicationAttemptStateData;
 import org.apache.hadoop.yarn.server.resourcemanager.recovery.records.ApplicationStateData;
 import org.apache.hadoop.yarn.server.resourcemanager.rmapp.RMApp;
@@ -106,7 +113,11 @@ public class TestZKRMStateStore extends RMStateStoreTestBase {
 		}
 
 		public RMStateStore getRMStateStore() throws Exception {
-			YarnConfiguration conf = new YarnConfiguration();
+			return getRMStateStore(new YarnConfiguration());
+		}
+
+		public RMStateStore getRMStateStore(YarnConfiguration conf)
+			throws Exception {
 			workingZnode = "/jira/issue/3077/rmstore";
 			conf.set(YarnConfiguration.RM_ZK_ADDRESS, hostPort);
 			conf.set(YarnConfiguration.ZK_RM_STATE_STORE_PARENT_PATH, workingZnode);
@@ -198,6 +209,162 @@ public class TestZKRMStateStore extends RMStateStoreTestBase {
 		Assert.assertEquals(defaultVersion, store.loadVersion());
 	}
 
+	@Test(timeout = 60000)
+	public void testBucketedAppsRealZK() throws Exception {
+		TestZKRMStateStoreTester zkTester = new TestZKRMStateStoreTester() {
+			@Override
+			public RMStateStore getRMStateStore() throws Exception {
+				YarnConfiguration conf = new YarnConfiguration();
+				conf.setInt(YarnConfiguration.ZK_RM_STATE_STORE_APP_BUCKETS, 8);
+				return getRMStateStore(conf);
+			}
+
+			@Override
+			public boolean appExists(RMApp app) throws Exception {
+				String appPath = store.getAppPath(app.getApplicationId());
+				assertTrue(appPath.contains("/bucket_"));
+				return client.exists(appPath, false) != null;
+			}
+		};
+		testRMAppStateStore(zkTester);
+		testAppDeletion(zkTester);
+		testDeleteStore(zkTester);
+	}
+
+	static class CountingDispatcher implements Dispatcher, EventHandler<Event> {
+		final AtomicInteger events = new AtomicInteger();
+
+		@SuppressWarnings("rawtypes")
+		@Override
+		public void register(Class<? extends Enum> eventType,
+		                     EventHandler handler) {
+		}
+
+		@Override
+		public void handle(Event event) {
+			events.incrementAndGet();
+		}
+
+		@SuppressWarnings("rawtypes")
+		@Override
+		public EventHandler getEventHandler() {
+			return this;
+		}
+
+		void waitFor(int numEvents) throws InterruptedException {
+			while (events.get() < numEvents) {
+				Thread.sleep(10);
+			}
+		}
+	}
+
+	private RMAppAttempt mockAttempt(ApplicationAttemptId attemptId) {
+		RMAppAttemptMetrics mockRmAppAttemptMetrics =
+			mock(RMAppAttemptMetrics.class);
+		when(mockRmAppAttemptMetrics.getAggregateAppResourceUsage())
+			.thenReturn(new AggregateAppResourceUsage(0, 0));
+		long arrivalTime = Time.now();
+		Container container = new ContainerPBImpl(arrivalTime, arrivalTime);
+		container.setId(ContainerId.newContainerId(attemptId, 1));
+		RMAppAttempt mockAttempt = mock(RMAppAttempt.class);
+		when(mockAttempt.getAppAttemptId()).thenReturn(attemptId);
+		when(mockAttempt.getMasterContainer()).thenReturn(container);
+		when(mockAttempt.getRMAppAttemptMetrics())
+			.thenReturn(mockRmAppAttemptMetrics);
+		return mockAttempt;
+	}
+
+	/**
+	 * Store apps with an attempt each.
+	 * @return ms until all of them were saved
+	 */
+	private long storeAppsAndAttempts(RMStateStore store,
+		CountingDispatcher dispatcher, int numApps) throws Exception {
+		long submitTime = System.currentTimeMillis();
+		long start = Time.monotonicNow();
+		int numEvents = dispatcher.events.get();
+		for (int i = 1; i <= numApps; i++) {
+			ApplicationId appId = ApplicationId.newInstance(1352994193343L, i);
+			storeApp(store, appId, submitTime, submitTime + 1000);
+			store.storeNewApplicationAttempt(
+				mockAttempt(ApplicationAttemptId.newInstance(appId, 1)));
+		}
+		dispatcher.waitFor(numEvents + 2 * numApps);
+		return Time.monotonicNow() - start;
+	}
+
+	@Test(timeout = 120000)
+	public void testBatchedWrites() throws Exception {
+		int numApps = 200;
+		TestZKRMStateStoreTester zkTester = new TestZKRMStateStoreTester();
+
+		// the apps written one by one, all under the app root
+		RMStateStore store = zkTester.getRMStateStore();
+		CountingDispatcher dispatcher = new CountingDispatcher();
+		store.setRMDispatcher(dispatcher);
+		long unbatchedTime = storeAppsAndAttempts(store, dispatcher, numApps);
+		store.deleteStore();
+		store.close();
+
+		// the same apps written in batches
+		YarnConfiguration conf = new YarnConfiguration();
+		conf.setLong(YarnConfiguration.ZK_RM_STATE_STORE_BATCH_INTERVAL_MS, 20);
+		conf.setInt(YarnConfiguration.ZK_RM_STATE_STORE_BATCH_MAX_OPS, 50);
+		store = zkTester.getRMStateStore(conf);
+		dispatcher = new CountingDispatcher();
+		store.setRMDispatcher(dispatcher);
+		long batchedTime = storeAppsAndAttempts(store, dispatcher, numApps);
+		LOG.info("Stored " + numApps + " apps and attempts in "
+			+ unbatchedTime + " ms one by one, in " + batchedTime
+			+ " ms in batches");
+
+		// the events come once the apps are written
+		assertEquals(2 * numApps, dispatcher.events.get());
+		for (int i = 1; i <= numApps; i++) {
+			ApplicationId appId = ApplicationId.newInstance(1352994193343L, i);
+			String appPath = zkTester.store.getAppNode(appId.toString());
+			assertTrue(zkTester.client.exists(appPath, false) != null);
+			assertTrue(zkTester.client.exists(appPath + "/"
+				+ ApplicationAttemptId.newInstance(appId, 1), false) != null);
+		}
+
+		// a batch with an update of a missing znode is written one by one
+		ApplicationId missingAppId =
+			ApplicationId.newInstance(1352994193343L, numApps + 1);
+		ApplicationSubmissionContext context =
+			new ApplicationSubmissionContextPBImpl();
+		context.setApplicationId(missingAppId);
+		store.updateApplicationState(ApplicationStateData.newInstance(
+			System.currentTimeMillis(), 0, context, "test"));
+		dispatcher.waitFor(2 * numApps + 1);
+		assertTrue(zkTester.client.exists(
+			zkTester.store.getAppNode(missingAppId.toString()), false) != null);
+		store.close();
+
+		// the apps stored without buckets are found with buckets
+		conf.setInt(YarnConfiguration.ZK_RM_STATE_STORE_APP_BUCKETS, 4);
+		store = zkTester.getRMStateStore(conf);
+		dispatcher = new CountingDispatcher();
+		store.setRMDispatcher(dispatcher);
+		RMState state = store.loadState();
+		Map<ApplicationId, ApplicationStateData> appStates =
+			state.getApplicationState();
+		assertEquals(numApps + 1, appStates.size());
+		ApplicationId appId = ApplicationId.newInstance(1352994193343L, 1);
+		ApplicationStateData appState = appStates.get(appId);
+		assertEquals(1, appState.attempts.size());
+		String appPath = zkTester.store.getAppNode(appId.toString());
+		assertEquals(appPath, zkTester.store.getAppPath(appId));
+
+		// and removed from where they are
+		store.removeApplicationStateInternal(appState);
+		while (zkTester.client.exists(appPath, false) != null) {
+			Thread.sleep(10);
+		}
+		assertTrue(zkTester.store.getAppPath(appId).contains("/bucket_"));
+		store.close();
+	}
+
 	private Configuration createHARMConf(
 		String rmIds, String rmId, int adminPort) {
 		Configuration conf = new YarnConfiguration();
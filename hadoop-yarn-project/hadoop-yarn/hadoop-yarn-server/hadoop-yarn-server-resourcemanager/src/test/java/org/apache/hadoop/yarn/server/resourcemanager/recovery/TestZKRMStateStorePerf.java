@@ -66,10 +66,12 @@ public class TestZKRMStateStorePerf extends RMStateStoreTestBase
           " -appSize numberOfApplications" +
           " -appAttemptSize numberOfApplicationAttempts" +
           " [-hostPort Host:Port]" +
+          " [-appBuckets numberOfAppBuckets]" +
           " [-workingZnode rootZnodeForTesting]\n";
 
   private YarnConfiguration conf = null;
   private String workingZnode = "/Test";
+  private int appBuckets = 0;
   private ZKRMStateStore store;
   private AMRMTokenSecretManager appTokenMgr;
   private ClientToAMTokenSecretManagerInRM clientToAMTokenMgr;
@@ -97,6 +99,7 @@ public class TestZKRMStateStorePerf extends RMStateStoreTestBase
     conf = new YarnConfiguration();
     conf.set(YarnConfiguration.RM_ZK_ADDRESS, optHostPort.or(this.hostPort));
     conf.set(YarnConfiguration.ZK_RM_STATE_STORE_PARENT_PATH, workingZnode);
+    conf.setInt(YarnConfiguration.ZK_RM_STATE_STORE_APP_BUCKETS, appBuckets);
 
     store = new ZKRMStateStore();
     store.init(conf);
@@ -132,6 +135,8 @@ public class TestZKRMStateStorePerf extends RMStateStoreTestBase
         launchLocalZK = false;
       } else if (args[i].equalsIgnoreCase("-workingZnode"))  {
         workingZnode = args[++i];
+      } else if (args[i].equalsIgnoreCase("-appBuckets")) {
+        appBuckets = Integer.parseInt(args[++i]);
       } else {
         System.err.println("Illegal argument: " + args[i]);
         return -1;
@@ -0,0 +1,91 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.yarn.server.resourcemanager.rmcontainer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class TestSuspendHistory {
+
+  @Test
+  public void testNeverSuspended() {
+    SuspendHistory history = new SuspendHistory();
+    assertEquals(0, history.getSuspendCount());
+    assertEquals(-1, history.getLastSuspendTime());
+    assertEquals(-1, history.getLastResumeTime());
+    assertEquals(0, history.getTotalSuspendedTime(1000));
+    assertFalse(history.isSuspended());
+    assertEquals(-1, history.getLastSuspendedPeriod());
+    assertEquals(0, history.size());
+  }
+
+  @Test
+  public void testSuspendedPeriods() {
+    SuspendHistory history = new SuspendHistory();
+    // suspended in two steps, resumed in two steps
+    history.suspended(100);
+    history.suspended(150);
+    history.resumed(300, false);
+    assertTrue(history.isSuspended());
+    assertEquals(250, history.getTotalSuspendedTime(350));
+    assertEquals(-1, history.getLastSuspendedPeriod());
+    history.resumed(400, true);
+    assertFalse(history.isSuspended());
+    assertEquals(300, history.getTotalSuspendedTime(1000));
+    assertEquals(300, history.getLastSuspendedPeriod());
+
+    // an ongoing suspension is accounted up to now
+    history.suspended(1000);
+    assertEquals(350, history.getTotalSuspendedTime(1050));
+    // the last period stays the one that is over
+    assertEquals(300, history.getLastSuspendedPeriod());
+    assertEquals(3, history.getSuspendCount());
+    assertEquals(2, history.getResumeCount());
+    assertEquals(1000, history.getLastSuspendTime());
+    assertEquals(400, history.getLastResumeTime());
+  }
+
+  @Test
+  public void testRingKeepsRecentEvents() {
+    SuspendHistory history = new SuspendHistory(4);
+    for (int i = 0; i < 5; i++) {
+      history.suspended(i * 100);
+      history.resumed(i * 100 + 50, true);
+    }
+    assertEquals(4, history.size());
+    // the oldest events have been overwritten
+    assertEquals(300, history.getTime(0));
+    assertTrue(history.isSuspend(0));
+    assertEquals(350, history.getTime(1));
+    assertFalse(history.isSuspend(1));
+    assertEquals(450, history.getTime(3));
+    // the totals still cover all of them
+    assertEquals(5, history.getSuspendCount());
+    assertEquals(250, history.getTotalSuspendedTime(1000));
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void testIndexOutOfBounds() {
+    SuspendHistory history = new SuspendHistory(4);
+    history.suspended(100);
+    history.getTime(1);
+  }
+}
@@ -0,0 +1,199 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.yarn.server.resourcemanager.scheduler;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.apache.hadoop.yarn.api.records.ApplicationAttemptId;
+import org.apache.hadoop.yarn.api.records.ApplicationId;
+import org.apache.hadoop.yarn.api.records.ContainerId;
+import org.apache.hadoop.yarn.api.records.NodeId;
+import org.apache.hadoop.yarn.server.api.protocolrecords.NodeContainerUpdate;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestNodeContainerUpdateBuffer {
+
+  private final NodeId node = NodeId.newInstance("host1", 1234);
+  private final ApplicationAttemptId attemptId = ApplicationAttemptId
+      .newInstance(ApplicationId.newInstance(1L, 1), 1);
+
+  private ContainerId container(int id) {
+    return ContainerId.newContainerId(attemptId, id);
+  }
+
+  @Test
+  public void testCoalesceUpdatesOfContainer() {
+    NodeContainerUpdateBuffer buffer = new NodeContainerUpdateBuffer();
+    buffer.addNode(node);
+    Assert.assertFalse(buffer.add(node,
+        NodeContainerUpdate.newInstance(container(1), 1024, 0, true, false)));
+    buffer.add(node,
+        NodeContainerUpdate.newInstance(container(2), 2048, 2, true, false));
+    Assert.assertTrue(buffer.add(node,
+        NodeContainerUpdate.newInstance(container(1), 4096, 4, false, true)));
+    Assert.assertEquals(2, buffer.getPendingUpdates(node));
+
+    List<NodeContainerUpdate> updates = buffer.pull(node);
+    Assert.assertEquals(2, updates.size());
+    // the container which was updated last comes last
+    Assert.assertEquals(container(2), updates.get(0).getContainerId());
+    NodeContainerUpdate resume = updates.get(1);
+    Assert.assertEquals(container(1), resume.getContainerId());
+    Assert.assertEquals(4096, resume.getMemory());
+    Assert.assertEquals(4, resume.getCores());
+    Assert.assertTrue(resume.getResume());
+    Assert.assertFalse(resume.getSuspend());
+
+    Assert.assertTrue(buffer.pull(node).isEmpty());
+    Assert.assertEquals(0, buffer.getPendingUpdates(node));
+  }
+
+  @Test
+  public void testResumeSupersededByPartialSuspend() {
+    NodeContainerUpdateBuffer buffer = new NodeContainerUpdateBuffer();
+    buffer.addNode(node);
+    buffer.add(node,
+        NodeContainerUpdate.newInstance(container(1), 4096, 4, false, true));
+    buffer.add(node,
+        NodeContainerUpdate.newInstance(container(1), 2048, 2, true, false));
+    NodeContainerUpdate update = buffer.pull(node).get(0);
+    Assert.assertEquals(2, update.getCores());
+    Assert.assertTrue(update.getSuspend());
+    // the cpu quota must still be lifted
+    Assert.assertTrue(update.getResume());
+
+    // a full suspend freezes the container whatever came before
+    buffer.add(node,
+        NodeContainerUpdate.newInstance(container(1), 4096, 4, false, true));
+    buffer.add(node,
+        NodeContainerUpdate.newInstance(container(1), 1024, 0, true, false));
+    update = buffer.pull(node).get(0);
+    Assert.assertEquals(0, update.getCores());
+    Assert.assertFalse(update.getResume());
+  }
+
+  @Test
+  public void testUrgentAfterSuspend() {
+    NodeContainerUpdateBuffer buffer = new NodeContainerUpdateBuffer();
+    buffer.addNode(node);
+    Assert.assertFalse(buffer.isUrgent(node));
+    buffer.add(node,
+        NodeContainerUpdate.newInstance(container(1), 1024, 0, true, false));
+    // only known once the suspend is pulled
+    Assert.assertFalse(buffer.isUrgent(node));
+    buffer.pull(node);
+    Assert.assertTrue(buffer.isUrgent(node));
+
+    buffer.add(node,
+        NodeContainerUpdate.newInstance(container(1), 4096, 4, false, true));
+    buffer.pull(node);
+    Assert.assertFalse(buffer.isUrgent(node));
+
+    buffer.add(node,
+        NodeContainerUpdate.newInstance(container(1), 1024, 0, true, false));
+    buffer.removeNode(node);
+    Assert.assertTrue(buffer.pull(node).isEmpty());
+    Assert.assertFalse(buffer.isUrgent(node));
+  }
+
+  @Test(timeout = 10000)
+  public void testConcurrentAdds() throws Exception {
+    final NodeContainerUpdateBuffer buffer = new NodeContainerUpdateBuffer();
+    buffer.addNode(node);
+    final int numThreads = 4;
+    final int numContainers = 100;
+    final CountDownLatch start = new CountDownLatch(1);
+    Thread[] threads = new Thread[numThreads];
+    for (int i = 0; i < numThreads; i++) {
+      final int offset = i * numContainers;
+      threads[i] = new Thread() {
+        @Override
+        public void run() {
+          try {
+            start.await();
+          } catch (InterruptedException e) {
+            return;
+          }
+          for (int id = 0; id < numContainers; id++) {
+            buffer.add(node, NodeContainerUpdate.newInstance(
+                container(offset + id), 1024, 1, true, false));
+          }
+        }
+      };
+      threads[i].start();
+    }
+    start.countDown();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    Assert.assertEquals(numThreads * numContainers, buffer.pull(node).size());
+  }
+
+  @Test
+  public void testUpdatesOfRemovedNodeDropped() {
+    NodeContainerUpdateBuffer buffer = new NodeContainerUpdateBuffer();
+    Assert.assertFalse(buffer.add(node,
+        NodeContainerUpdate.newInstance(container(1), 1024, 0, true, false)));
+    Assert.assertEquals(0, buffer.getPendingUpdates(node));
+
+    buffer.addNode(node);
+    buffer.add(node,
+        NodeContainerUpdate.newInstance(container(1), 1024, 0, true, false));
+    buffer.removeNode(node);
+    buffer.add(node,
+        NodeContainerUpdate.newInstance(container(2), 1024, 0, true, false));
+    Assert.assertEquals(0, buffer.getPendingUpdates(node));
+
+    // the node joins again with none of its old updates
+    buffer.addNode(node);
+    Assert.assertTrue(buffer.pull(node).isEmpty());
+  }
+
+  @Test(timeout = 10000)
+  public void testAddsRacingRemoveNode() throws Exception {
+    final NodeContainerUpdateBuffer buffer = new NodeContainerUpdateBuffer();
+    final int numContainers = 10000;
+    for (int round = 0; round < 20; round++) {
+      buffer.addNode(node);
+      final CountDownLatch start = new CountDownLatch(1);
+      Thread adder = new Thread() {
+        @Override
+        public void run() {
+          try {
+            start.await();
+          } catch (InterruptedException e) {
+            return;
+          }
+          for (int id = 0; id < numContainers; id++) {
+            buffer.add(node, NodeContainerUpdate.newInstance(
+                container(id), 1024, 1, true, false));
+          }
+        }
+      };
+      adder.start();
+      start.countDown();
+      buffer.removeNode(node);
+      adder.join();
+      // nothing got in after the removal, however the adds interleaved
+      Assert.assertEquals(0, buffer.getPendingUpdates(node));
+    }
+  }
+}
@@ -861,6 +861,92 @@ public class TestCapacityScheduler {
       CapacityScheduler.schedule(cs);
     }
   }
+
+  @Test(timeout = 30000)
+  public void testMultiThreadedAsyncScheduling() throws Exception {
+    final int THREADS = 4;
+    Configuration conf = new Configuration();
+    conf.setClass(YarnConfiguration.RM_SCHEDULER, CapacityScheduler.class,
+        ResourceScheduler.class);
+    conf.setBoolean(
+        CapacitySchedulerConfiguration.SCHEDULE_ASYNCHRONOUSLY_ENABLE, true);
+    conf.setInt(
+        CapacitySchedulerConfiguration.SCHEDULE_ASYNCHRONOUSLY_MAXIMUM_THREADS,
+        THREADS);
+    MockRM rm = new MockRM(conf);
+    rm.start();
+    CapacityScheduler cs = (CapacityScheduler) rm.getResourceScheduler();
+
+    List<MockNM> nms = new ArrayList<MockNM>();
+    for (int i = 0; i < 8; i++) {
+      nms.add(rm.registerNode("127.0.0." + i + ":1234", 4 * GB));
+    }
+    // every node is scheduled on by one of the threads
+    for (FiCaSchedulerNode node : cs.getAllNodes().values()) {
+      int thread = CapacityScheduler.getSchedulingThread(node.getNodeID(),
+          THREADS);
+      assertTrue(thread >= 0 && thread < THREADS);
+      // nothing is pending yet
+      assertFalse(cs.needsScheduling(node));
+    }
+
+    RMApp app = rm.submitApp(1 * GB);
+    MockAM am = launchAM(app, rm, nms.get(0));
+    am.addRequests(new String[] { "*" }, 1 * GB, 1, 16);
+    // the scheduling threads allocate without any node heartbeat
+    List<Container> allocated = new ArrayList<Container>();
+    allocated.addAll(am.schedule().getAllocatedContainers());
+    while (allocated.size() < 16) {
+      Thread.sleep(100);
+      allocated.addAll(am.schedule().getAllocatedContainers());
+    }
+    Assert.assertEquals(16, allocated.size());
+    rm.stop();
+  }
+
+  @Test(timeout = 30000)
+  public void testCommitRechecksProposal() throws Exception {
+    Configuration conf = new Configuration();
+    conf.setClass(YarnConfiguration.RM_SCHEDULER, CapacityScheduler.class,
+        ResourceScheduler.class);
+    MockRM rm = new MockRM(conf);
+    rm.start();
+    CapacityScheduler cs = (CapacityScheduler) rm.getResourceScheduler();
+    MockNM nm = rm.registerNode("127.0.0.1:1234", 4 * GB);
+    RMApp app = rm.submitApp(1 * GB);
+    MockAM am = launchAM(app, rm, nm);
+    FiCaSchedulerApp attempt =
+        cs.getApplicationAttempt(am.getApplicationAttemptId());
+    FiCaSchedulerNode node = cs.getNode(nm.getNodeId());
+
+    am.addRequests(new String[] { "127.0.0.1" }, 1 * GB, 1, 2);
+    am.schedule();
+    AllocationProposal proposal = cs.propose(node);
+    Assert.assertNotNull(proposal);
+    Assert.assertFalse(proposal.isResume());
+    Assert.assertSame(attempt, proposal.getApplication());
+
+    // the request is withdrawn before the commit, nothing is allocated
+    am.addRequests(new String[] { "127.0.0.1" }, 1 * GB, 1, 0);
+    am.schedule();
+    assertTrue(cs.commitProposals(
+        Collections.singletonList(proposal)).isEmpty());
+    assertEquals(1, attempt.getLiveContainers().size());
+    Assert.assertNull(cs.propose(node));
+
+    // the node is proposed for again until the request is served, node
+    // local containers do not end the pass on the node
+    am.addRequests(new String[] { "127.0.0.1" }, 1 * GB, 1, 2);
+    am.schedule();
+    for (int i = 2; i <= 3; i++) {
+      proposal = cs.propose(node);
+      assertEquals(Collections.singletonList(node),
+          cs.commitProposals(Collections.singletonList(proposal)));
+      assertEquals(i, attempt.getLiveContainers().size());
+    }
+    Assert.assertNull(cs.propose(node));
+    rm.stop();
+  }
   
   private MockAM launchAM(RMApp app, MockRM rm, MockNM nm)
       throws Exception {
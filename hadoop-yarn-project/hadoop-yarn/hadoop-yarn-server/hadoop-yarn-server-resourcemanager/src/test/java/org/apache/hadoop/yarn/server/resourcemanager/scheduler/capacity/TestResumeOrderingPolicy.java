@@ -0,0 +1,128 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.yarn.server.resourcemanager.scheduler.capacity;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestResumeOrderingPolicy {
+
+  private static class TestCandidate
+      implements ResumeOrderingPolicy.Candidate {
+    private final String name;
+    private final long deadline;
+    private final long suspendTime;
+    private final long runTime;
+    private final long preemptedMemory;
+    private final long sequence;
+
+    TestCandidate(String name, long deadline, long suspendTime, long runTime,
+        long preemptedMemory, long sequence) {
+      this.name = name;
+      this.deadline = deadline;
+      this.suspendTime = suspendTime;
+      this.runTime = runTime;
+      this.preemptedMemory = preemptedMemory;
+      this.sequence = sequence;
+    }
+
+    @Override
+    public long getDeadline() {
+      return deadline;
+    }
+
+    @Override
+    public long getSuspendTime() {
+      return suspendTime;
+    }
+
+    @Override
+    public long getRunTime() {
+      return runTime;
+    }
+
+    @Override
+    public long getPreemptedMemory() {
+      return preemptedMemory;
+    }
+
+    @Override
+    public long getSequence() {
+      return sequence;
+    }
+  }
+
+  // suspended first, no deadline
+  private final TestCandidate a = new TestCandidate("a", 0, 10, 500, 1024, 0);
+  // late deadline, ran long
+  private final TestCandidate b =
+      new TestCandidate("b", 10000, 20, 8000, 1024, 1);
+  // early deadline, ran shortly
+  private final TestCandidate c =
+      new TestCandidate("c", 5000, 30, 100, 1024, 2);
+  // same as c but suspended later
+  private final TestCandidate d =
+      new TestCandidate("d", 5000, 30, 100, 1024, 3);
+
+  private String sort(ResumeOrderingPolicy policy) {
+    List<TestCandidate> candidates =
+        new ArrayList<TestCandidate>(Arrays.asList(d, c, b, a));
+    Collections.sort(candidates, policy);
+    StringBuilder order = new StringBuilder();
+    for (TestCandidate candidate : candidates) {
+      order.append(candidate.name);
+    }
+    return order.toString();
+  }
+
+  @Test
+  public void testFifo() {
+    Assert.assertEquals("abcd", sort(new FifoResumeOrderingPolicy()));
+  }
+
+  @Test
+  public void testEarliestDeadlineFirst() {
+    Assert.assertEquals("cdba", sort(new EdfResumeOrderingPolicy()));
+  }
+
+  @Test
+  public void testLeastSlack() {
+    // b has to restart by 2000 to meet its deadline, c by 4900
+    Assert.assertEquals("bcda", sort(new LeastSlackResumeOrderingPolicy()));
+  }
+
+  @Test
+  public void testConfiguredPolicy() {
+    CapacitySchedulerConfiguration conf =
+        new CapacitySchedulerConfiguration(new Configuration(false), false);
+    Assert.assertTrue(conf.getResumeOrderingPolicy("root.a")
+        instanceof EdfResumeOrderingPolicy);
+    conf.setClass(CapacitySchedulerConfiguration.getQueuePrefix("root.a")
+        + CapacitySchedulerConfiguration.RESUME_ORDERING_POLICY,
+        LeastSlackResumeOrderingPolicy.class, ResumeOrderingPolicy.class);
+    Assert.assertTrue(conf.getResumeOrderingPolicy("root.a")
+        instanceof LeastSlackResumeOrderingPolicy);
+  }
+}
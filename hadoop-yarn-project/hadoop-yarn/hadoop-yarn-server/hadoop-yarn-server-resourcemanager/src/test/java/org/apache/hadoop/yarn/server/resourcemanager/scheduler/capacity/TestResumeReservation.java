@@ -0,0 +1,156 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.yarn.server.resourcemanager.scheduler.capacity;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.apache.hadoop.yarn.api.records.Container;
+import org.apache.hadoop.yarn.api.records.ContainerId;
+import org.apache.hadoop.yarn.api.records.ContainerState;
+import org.apache.hadoop.yarn.api.records.Resource;
+import org.apache.hadoop.yarn.api.records.ResourceOption;
+import org.apache.hadoop.yarn.conf.YarnConfiguration;
+import org.apache.hadoop.yarn.server.resourcemanager.MockAM;
+import org.apache.hadoop.yarn.server.resourcemanager.MockNM;
+import org.apache.hadoop.yarn.server.resourcemanager.MockRM;
+import org.apache.hadoop.yarn.server.resourcemanager.rmapp.RMApp;
+import org.apache.hadoop.yarn.server.resourcemanager.rmcontainer.RMContainer;
+import org.apache.hadoop.yarn.server.resourcemanager.rmcontainer.RMContainerState;
+import org.apache.hadoop.yarn.server.resourcemanager.rmnode.RMNode;
+import org.apache.hadoop.yarn.server.resourcemanager.scheduler.QueueMetrics;
+import org.apache.hadoop.yarn.server.resourcemanager.scheduler.ResourceScheduler;
+import org.apache.hadoop.yarn.server.resourcemanager.scheduler.common.fica.FiCaSchedulerNode;
+import org.apache.hadoop.yarn.server.resourcemanager.scheduler.event.NodeResourceUpdateSchedulerEvent;
+import org.apache.hadoop.yarn.server.resourcemanager.scheduler.event.NodeUpdateSchedulerEvent;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestResumeReservation {
+
+  private static final int GB = 1024;
+  private static final long TIMEOUT = 1000;
+
+  private MockRM rm;
+  private CapacityScheduler cs;
+  private RMNode rmNode;
+  private FiCaSchedulerNode node;
+  private QueueMetrics metrics;
+  // 4GB container suspended on node, which only has 3.5GB available
+  private RMContainer suspended;
+
+  @Before
+  public void setUp() throws Exception {
+    CapacitySchedulerConfiguration conf = new CapacitySchedulerConfiguration();
+    conf.setQueues(CapacitySchedulerConfiguration.ROOT,
+        new String[] {"default"});
+    conf.setCapacity(CapacitySchedulerConfiguration.ROOT + ".default", 100);
+    conf.setLong(CapacitySchedulerConfiguration.RESUME_RESERVATION_TIMEOUT_MS,
+        TIMEOUT);
+    conf.setClass(YarnConfiguration.RM_SCHEDULER, CapacityScheduler.class,
+        ResourceScheduler.class);
+    rm = new MockRM(conf);
+    rm.start();
+    cs = (CapacityScheduler) rm.getResourceScheduler();
+    metrics = cs.getQueue("default").getMetrics();
+
+    MockNM nm = rm.registerNode("h1:1234", 8 * GB, 8);
+    RMApp app = rm.submitApp(GB);
+    MockAM am = MockRM.launchAndRegisterAM(app, rm, nm);
+    List<Container> containers = am.allocateAndWaitForContainers(1, 4 * GB,
+        nm);
+    ContainerId containerId = containers.get(0).getId();
+    nm.nodeHeartbeat(am.getApplicationAttemptId(),
+        containerId.getContainerId(), ContainerState.RUNNING);
+    rm.waitForState(nm, containerId, RMContainerState.RUNNING);
+    // another node keeps the queue limit above what is resumed
+    rm.registerNode("h2:1234", 8 * GB, 8);
+
+    rmNode = rm.getRMContext().getRMNodes().get(nm.getNodeId());
+    node = cs.getNode(nm.getNodeId());
+    suspended = cs.getRMContainer(containerId);
+    cs.suspendContianer(suspended, suspended.getContainer().getResource());
+    assertTrue(node.getSuspendedContainers().contains(containerId));
+    // the AM keeps 1GB of the node
+    updateNodeResource(4 * GB + GB / 2);
+  }
+
+  @After
+  public void tearDown() {
+    if (rm != null) {
+      rm.stop();
+    }
+  }
+
+  @Test(timeout = 60000)
+  public void testReserveUntilResumed() throws Exception {
+    heartbeat();
+    assertSame(suspended, node.getResumeReservedContainer());
+    assertEquals(1, metrics.getResumeReservations());
+    // the reservation keeps the node for the container
+    heartbeat();
+    assertSame(suspended, node.getResumeReservedContainer());
+
+    // room is freed on the node, the container is resumed on it right away
+    updateNodeResource(8 * GB);
+    heartbeat();
+    assertNull(node.getResumeReservedContainer());
+    assertFalse(node.getSuspendedContainers().contains(
+        suspended.getContainerId()));
+    assertEquals(0, metrics.getResumeReservations());
+    assertEquals(0, metrics.getResumeReservationTimeouts());
+  }
+
+  @Test(timeout = 60000)
+  public void testTimeoutBacksOff() throws Exception {
+    heartbeat();
+    assertSame(suspended, node.getResumeReservedContainer());
+
+    Thread.sleep(TIMEOUT);
+    heartbeat();
+    assertEquals(1, metrics.getResumeReservationTimeouts());
+    // the container does not reserve the node again right away
+    assertNull(node.getResumeReservedContainer());
+    assertEquals(0, metrics.getResumeReservations());
+    heartbeat();
+    assertNull(node.getResumeReservedContainer());
+
+    // it does once it waited as long as the reservation lasted
+    Thread.sleep(TIMEOUT);
+    heartbeat();
+    assertSame(suspended, node.getResumeReservedContainer());
+    assertEquals(1, metrics.getResumeReservations());
+    assertTrue(node.getSuspendedContainers().contains(
+        suspended.getContainerId()));
+  }
+
+  private void heartbeat() {
+    cs.handle(new NodeUpdateSchedulerEvent(rmNode));
+  }
+
+  private void updateNodeResource(int memory) {
+    cs.handle(new NodeResourceUpdateSchedulerEvent(rmNode,
+        ResourceOption.newInstance(Resource.newInstance(memory, 8), -1)));
+  }
+}
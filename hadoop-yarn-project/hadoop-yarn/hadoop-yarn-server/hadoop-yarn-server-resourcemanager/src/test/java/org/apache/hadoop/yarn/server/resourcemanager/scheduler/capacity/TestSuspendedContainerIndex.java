@@ -0,0 +1,137 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.yarn.server.resourcemanager.scheduler.capacity;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.yarn.api.records.ApplicationAttemptId;
+import org.apache.hadoop.yarn.api.records.ApplicationId;
+import org.apache.hadoop.yarn.api.records.Container;
+import org.apache.hadoop.yarn.api.records.ContainerId;
+import org.apache.hadoop.yarn.api.records.NodeId;
+import org.apache.hadoop.yarn.api.records.Resource;
+import org.apache.hadoop.yarn.server.resourcemanager.rmcontainer.RMContainer;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestSuspendedContainerIndex {
+
+  private final NodeId node1 = NodeId.newInstance("host1", 1);
+  private final NodeId node2 = NodeId.newInstance("host2", 1);
+  private final ApplicationAttemptId app1 = ApplicationAttemptId.newInstance(
+      ApplicationId.newInstance(1L, 1), 1);
+  private final ApplicationAttemptId app2 = ApplicationAttemptId.newInstance(
+      ApplicationId.newInstance(1L, 2), 1);
+
+  private RMContainer mockContainer(ApplicationAttemptId app, int id,
+      NodeId node, long deadline, int preemptedMemory) {
+    ContainerId containerId = ContainerId.newContainerId(app, id);
+    Container container = mock(Container.class);
+    when(container.getId()).thenReturn(containerId);
+    when(container.getNodeId()).thenReturn(node);
+    when(container.getDeadline()).thenReturn(deadline);
+    RMContainer rmContainer = mock(RMContainer.class);
+    when(rmContainer.getContainerId()).thenReturn(containerId);
+    when(rmContainer.getContainer()).thenReturn(container);
+    when(rmContainer.getPreemptedResource()).thenReturn(
+        Resource.newInstance(preemptedMemory, 1));
+    return rmContainer;
+  }
+
+  private List<ContainerId> candidates(SuspendedContainerIndex index,
+      NodeId node) {
+    List<ContainerId> ids = new ArrayList<ContainerId>();
+    for (SuspendedContainerIndex.Entry entry : index.getCandidates(node)) {
+      ids.add(entry.getContainer().getContainerId());
+    }
+    return ids;
+  }
+
+  @Test
+  public void testResumeOrder() {
+    SuspendedContainerIndex index = new SuspendedContainerIndex();
+    RMContainer noDeadline = mockContainer(app1, 1, node1, 0, 1024);
+    RMContainer lateDeadline = mockContainer(app1, 2, node1, 2000, 1024);
+    RMContainer earlyDeadline = mockContainer(app2, 1, node1, 1000, 1024);
+    RMContainer bigger = mockContainer(app2, 2, node1, 0, 4096);
+    RMContainer older = mockContainer(app2, 3, node1, 0, 512);
+    RMContainer otherNode = mockContainer(app2, 4, node2, 500, 1024);
+
+    index.update(app2, older, 10);
+    index.update(app1, noDeadline, 20);
+    index.update(app1, lateDeadline, 20);
+    index.update(app2, earlyDeadline, 30);
+    index.update(app2, bigger, 20);
+    index.update(app2, otherNode, 20);
+
+    Assert.assertEquals(6, index.size());
+    List<ContainerId> order = candidates(index, node1);
+    Assert.assertEquals(5, order.size());
+    Assert.assertEquals(earlyDeadline.getContainerId(), order.get(0));
+    Assert.assertEquals(lateDeadline.getContainerId(), order.get(1));
+    // without deadline, the longest suspended first
+    Assert.assertEquals(older.getContainerId(), order.get(2));
+    // then the most preempted
+    Assert.assertEquals(bigger.getContainerId(), order.get(3));
+    Assert.assertEquals(noDeadline.getContainerId(), order.get(4));
+
+    Assert.assertEquals(1, candidates(index, node2).size());
+    Assert.assertTrue(candidates(index, NodeId.newInstance("host3", 1))
+        .isEmpty());
+  }
+
+  @Test
+  public void testUpdateAndRemove() {
+    SuspendedContainerIndex index = new SuspendedContainerIndex();
+    RMContainer c1 = mockContainer(app1, 1, node1, 0, 1024);
+    RMContainer c2 = mockContainer(app1, 2, node1, 0, 1024);
+    RMContainer c3 = mockContainer(app2, 1, node1, 0, 1024);
+    index.update(app1, c1, 10);
+    index.update(app1, c2, 10);
+    index.update(app2, c3, 10);
+
+    // partially resumed, keeps its rank among the containers suspended
+    // at the same time
+    when(c1.getPreemptedResource()).thenReturn(Resource.newInstance(512, 1));
+    index.update(app1, c1, 50);
+    Assert.assertEquals(3, index.size());
+    List<ContainerId> order = candidates(index, node1);
+    Assert.assertEquals(c2.getContainerId(), order.get(0));
+    Assert.assertEquals(c3.getContainerId(), order.get(1));
+    Assert.assertEquals(c1.getContainerId(), order.get(2));
+
+    Assert.assertNotNull(index.remove(c2.getContainerId()));
+    Assert.assertNull(index.remove(c2.getContainerId()));
+    Assert.assertFalse(index.contains(c2.getContainerId()));
+
+    index.removeApplication(app1);
+    Assert.assertEquals(1, index.size());
+    order = candidates(index, node1);
+    Assert.assertEquals(1, order.size());
+    Assert.assertEquals(c3.getContainerId(), order.get(0));
+
+    index.remove(c3.getContainerId());
+    Assert.assertEquals(0, index.size());
+    Assert.assertTrue(candidates(index, node1).isEmpty());
+  }
+}